@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a full cache under mixed read/write loads from many threads. Keys follow a skewed distribution
+ * like the keys of request caches do, and reads that miss load the value like {@link Cache#computeIfAbsent} callers do.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class CacheBenchmark {
+
+    private static final int NUMBER_OF_KEYS = 1 << 20;
+    private static final int KEYS_MASK = NUMBER_OF_KEYS - 1;
+
+    @Param({"100", "95", "75"})
+    private int readPercentage;
+
+    @Param({"false", "true"})
+    private boolean frequencyBasedAdmission;
+
+    private Cache<Integer, Integer> cache;
+    private Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        final Random random = new Random(42);
+        keys = new Integer[NUMBER_OF_KEYS];
+        for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+            // the square of a uniform value is skewed towards small keys
+            final double uniform = random.nextDouble();
+            keys[i] = (int) (uniform * uniform * NUMBER_OF_KEYS / 8);
+        }
+        cache = CacheBuilder.<Integer, Integer>builder()
+            .setMaximumWeight(NUMBER_OF_KEYS / 64)
+            .setFrequencyBasedAdmission(frequencyBasedAdmission)
+            .build();
+        for (int i = 0; i < NUMBER_OF_KEYS; i++) {
+            cache.computeIfAbsent(keys[i], key -> key);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        int index = ThreadLocalRandom.current().nextInt(NUMBER_OF_KEYS);
+    }
+
+    private Integer readOrWrite(ThreadState state) throws Exception {
+        final Integer key = keys[state.index++ & KEYS_MASK];
+        if ((state.index % 100) < readPercentage) {
+            return cache.computeIfAbsent(key, k -> k);
+        } else {
+            cache.put(key, key);
+            return key;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Integer readOrWrite_01(ThreadState state) throws Exception {
+        return readOrWrite(state);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer readOrWrite_04(ThreadState state) throws Exception {
+        return readOrWrite(state);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Integer readOrWrite_16(ThreadState state) throws Exception {
+        return readOrWrite(state);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Integer readOrWrite_32(ThreadState state) throws Exception {
+        return readOrWrite(state);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.aggregations.bucket.terms.CompactBytesRefHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link BytesRefHash} with the {@link CompactBytesRefHash} that terms aggregations use to map terms to bucket
+ * ordinals, by adding terms the way a terms aggregation collects them, with repetitions, and by iterating over all the
+ * terms of a full hash table the way a terms aggregation builds its buckets.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class BytesRefHashBenchmark {
+
+    private static final int VALUES_PER_TERM = 4;
+
+    @Param({"bytes_ref_hash", "compact"})
+    private String hash;
+
+    @Param({"100000", "1000000", "10000000"})
+    private int cardinality;
+
+    @Param({"6", "20"})
+    private int termLength;
+
+    private BigArrays bigArrays;
+    private BytesRef[] values;
+    private BytesRefHash bytesRefHash;
+    private CompactBytesRefHash compactHash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService(), CircuitBreaker.REQUEST);
+        final Random random = new Random(42);
+        final BytesRef[] terms = new BytesRef[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            final byte[] bytes = new byte[termLength];
+            for (int j = 0; j < termLength; j++) {
+                bytes[j] = (byte) ('a' + random.nextInt(26));
+            }
+            terms[i] = new BytesRef(bytes);
+        }
+        values = new BytesRef[cardinality * VALUES_PER_TERM];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = terms[random.nextInt(cardinality)];
+        }
+        // a full hash table to iterate over
+        switch (hash) {
+            case "bytes_ref_hash":
+                bytesRefHash = new BytesRefHash(1, bigArrays);
+                for (BytesRef value : values) {
+                    bytesRefHash.add(value);
+                }
+                break;
+            case "compact":
+                compactHash = new CompactBytesRefHash(1, bigArrays);
+                for (BytesRef value : values) {
+                    compactHash.add(value);
+                }
+                break;
+            default:
+                throw new AssertionError("unknown hash [" + hash + "]");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (bytesRefHash != null) {
+            bytesRefHash.close();
+        }
+        if (compactHash != null) {
+            compactHash.close();
+        }
+    }
+
+    @Benchmark
+    public long add() {
+        long newTerms = 0;
+        switch (hash) {
+            case "bytes_ref_hash":
+                try (BytesRefHash ords = new BytesRefHash(1, bigArrays)) {
+                    for (BytesRef value : values) {
+                        if (ords.add(value) >= 0) {
+                            newTerms++;
+                        }
+                    }
+                    return newTerms + ords.ramBytesUsed();
+                }
+            case "compact":
+                try (CompactBytesRefHash ords = new CompactBytesRefHash(1, bigArrays)) {
+                    for (BytesRef value : values) {
+                        if (ords.add(value) >= 0) {
+                            newTerms++;
+                        }
+                    }
+                    return newTerms + ords.ramBytesUsed();
+                }
+            default:
+                throw new AssertionError("unknown hash [" + hash + "]");
+        }
+    }
+
+    @Benchmark
+    public long iterate() {
+        final BytesRef spare = new BytesRef();
+        long length = 0;
+        switch (hash) {
+            case "bytes_ref_hash":
+                for (long id = 0; id < bytesRefHash.size(); id++) {
+                    length += bytesRefHash.get(id, spare).length;
+                }
+                return length;
+            case "compact":
+                for (long id = 0; id < compactHash.size(); id++) {
+                    length += compactHash.get(id, spare).length;
+                }
+                return length;
+            default:
+                throw new AssertionError("unknown hash [" + hash + "]");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+// the live version map is package private, hence this benchmark lives in the engine package
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the heap and the paged storage of the live version map by indexing a refresh cycle worth of uids, looking all of them up
+ * again and refreshing.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class LiveVersionMapBenchmark {
+
+    @Param({"heap", "paged"})
+    private String storage;
+
+    @Param({"10000", "100000", "1000000"})
+    private int uidsPerRefresh;
+
+    private BytesRef[] uids;
+    private IndexVersionValue[] versions;
+    private LiveVersionMap map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Random random = new Random(42);
+        uids = new BytesRef[uidsPerRefresh];
+        versions = new IndexVersionValue[uidsPerRefresh];
+        for (int i = 0; i < uidsPerRefresh; i++) {
+            // auto-generated ids are 20 bytes long
+            final String id = String.format(Locale.ROOT, "%020d", random.nextLong() & Long.MAX_VALUE);
+            uids[i] = new BytesRef(id.getBytes(StandardCharsets.UTF_8));
+            versions[i] = new IndexVersionValue(new Translog.Location(1, i * 100L, 100), 1, i, 1);
+        }
+        switch (LiveVersionStore.Type.fromString(storage)) {
+            case HEAP:
+                map = new LiveVersionMap();
+                break;
+            case PAGED:
+                final BigArrays bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService(),
+                    CircuitBreaker.ACCOUNTING);
+                map = new LiveVersionMap(expectedSize -> new PagedLiveVersionStore(expectedSize, bigArrays));
+                break;
+            default:
+                throw new AssertionError("unknown storage [" + storage + "]");
+        }
+        // lookups must go through the version map
+        map.enforceSafeAccess();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        map.clear();
+    }
+
+    @Benchmark
+    public long indexLookupAndRefresh() throws Exception {
+        long found = 0;
+        for (int i = 0; i < uids.length; i++) {
+            try (Releasable ignore = map.acquireLock(uids[i])) {
+                map.putIndexUnderLock(uids[i], versions[i]);
+            }
+        }
+        for (BytesRef uid : uids) {
+            try (Releasable ignore = map.acquireLock(uid)) {
+                if (map.getUnderLock(uid) != null) {
+                    found++;
+                }
+            }
+        }
+        final long ramBytesUsed = map.ramBytesUsedForRefresh();
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        return found + ramBytesUsed;
+    }
+}
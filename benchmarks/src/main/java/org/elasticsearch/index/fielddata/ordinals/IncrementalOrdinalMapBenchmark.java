@@ -0,0 +1,161 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+// the incremental ordinal map is package private, hence this benchmark lives in the ordinals package
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the global ordinals that are built incrementally after a refresh that flushed a small segment with new terms
+ * with the global ordinals of a single {@link org.apache.lucene.index.OrdinalMap} of all segments, by looking up the global
+ * ordinals of the terms of the large segment in random order the way aggregations do, and by building the global ordinals.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class IncrementalOrdinalMapBenchmark {
+
+    private static final String FIELD = "field";
+    private static final int LOOKUPS = 1_000_000;
+
+    @Param({"ordinal_map", "incremental"})
+    private String globalOrdinals;
+
+    @Param({"100000", "1000000"})
+    private int baseTerms;
+
+    @Param({"100", "10000"})
+    private int newTerms;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private IncrementalOrdinalMap previous;
+    private IncrementalOrdinalMap map;
+    private long[] segmentOrds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Random random = new Random(42);
+        directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE))) {
+            // the large segment has the even terms, the small segment that a refresh flushes afterwards has random odd terms
+            for (int i = 0; i < baseTerms; i++) {
+                addDocument(writer, 2L * i);
+            }
+            writer.commit();
+            try (DirectoryReader firstReader = DirectoryReader.open(directory)) {
+                previous = IncrementalOrdinalMap.build(FIELD, firstReader.leaves(), subs(firstReader), null);
+            }
+            for (int i = 0; i < newTerms; i++) {
+                addDocument(writer, 2L * random.nextInt(baseTerms) + 1);
+            }
+            writer.commit();
+        }
+        reader = DirectoryReader.open(directory);
+        map = buildGlobalOrdinals();
+        if (map.isIncremental() != globalOrdinals.equals("incremental")) {
+            throw new AssertionError("expected [" + globalOrdinals + "] global ordinals");
+        }
+        segmentOrds = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            segmentOrds[i] = random.nextInt(baseTerms);
+        }
+    }
+
+    private static void addDocument(IndexWriter writer, long term) throws IOException {
+        final Document doc = new Document();
+        doc.add(new SortedSetDocValuesField(FIELD, new BytesRef(String.format(Locale.ROOT, "%010d", term))));
+        writer.addDocument(doc);
+    }
+
+    private static SortedSetDocValues[] subs(DirectoryReader reader) throws IOException {
+        final SortedSetDocValues[] subs = new SortedSetDocValues[reader.leaves().size()];
+        for (int i = 0; i < subs.length; i++) {
+            subs[i] = DocValues.getSortedSet(reader.leaves().get(i).reader(), FIELD);
+        }
+        return subs;
+    }
+
+    private IncrementalOrdinalMap buildGlobalOrdinals() throws IOException {
+        switch (globalOrdinals) {
+            case "ordinal_map":
+                return IncrementalOrdinalMap.buildFull(FIELD, reader.leaves(), subs(reader));
+            case "incremental":
+                return IncrementalOrdinalMap.build(FIELD, reader.leaves(), subs(reader), previous);
+            default:
+                throw new AssertionError("unknown global ordinals [" + globalOrdinals + "]");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public long lookupBaseSegment() {
+        // the large segment is the first leaf
+        final LongValues globalOrds = map.getGlobalOrds(0);
+        long sum = 0;
+        for (long segmentOrd : segmentOrds) {
+            sum += globalOrds.get(segmentOrd);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long build() throws IOException {
+        return buildGlobalOrdinals().ramBytesUsed();
+    }
+}
@@ -80,4 +80,10 @@ public class ChildrenAggregatorFactory extends ValuesSourceAggregatorFactory<Wit
             return asMultiBucketAggregator(this, context, parent);
         }
     }
+
+    @Override
+    public boolean supportsConcurrentSlices() {
+        // the children of the collected parents are looked up in all the segments of the shard when the collection ends
+        return false;
+    }
 }
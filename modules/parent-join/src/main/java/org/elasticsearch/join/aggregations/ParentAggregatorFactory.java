@@ -80,4 +80,10 @@ public class ParentAggregatorFactory extends ValuesSourceAggregatorFactory<WithO
             return asMultiBucketAggregator(this, context, children);
         }
     }
+
+    @Override
+    public boolean supportsConcurrentSlices() {
+        // the parents of the collected children are looked up in all the segments of the shard when the collection ends
+        return false;
+    }
 }
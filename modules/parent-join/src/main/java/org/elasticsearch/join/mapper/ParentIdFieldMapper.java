@@ -115,7 +115,8 @@ public final class ParentIdFieldMapper extends FieldMapper {
         @Override
         public IndexFieldData.Builder fielddataBuilder(String fullyQualifiedIndexName) {
             failIfNoDocValues();
-            return new DocValuesIndexFieldData.Builder();
+            // joins need the OrdinalMap of the global ordinals of this field
+            return new DocValuesIndexFieldData.Builder().requireOrdinalMap(true);
         }
 
         @Override
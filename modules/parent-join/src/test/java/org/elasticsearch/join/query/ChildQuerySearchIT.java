@@ -386,6 +386,54 @@ public class ChildQuerySearchIT extends ParentChildTestCase {
         assertThat(searchResponse.getHits().getAt(1).getId(), anyOf(equalTo("p2"), equalTo("p1")));
     }
 
+    public void testHasChildAndHasParentWithSmallSegments() throws Exception {
+        assertAcked(prepareCreate("test")
+            .setSettings(Settings.builder()
+                .put(indexSettings())
+                .put("index.number_of_shards", 1)
+                .put("index.number_of_replicas", 0)
+                .put("index.refresh_interval", -1)
+                .put("index.merge.enabled", false))
+            .addMapping("doc", buildParentJoinFieldMappingFromSimplifiedDef("join_field", true, "parent", "child")));
+        ensureGreen();
+
+        // a large segment, then small segments that global ordinals keep out of their base map
+        final int numParents = 300;
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        for (int i = 0; i < numParents; i++) {
+            builders.add(createIndexRequest("test", "parent", "p" + i, null, "p_field", "p_value"));
+            builders.add(createIndexRequest("test", "child", "c" + i, "p" + i, "c_field", i % 2 == 0 ? "even" : "odd"));
+        }
+        indexRandom(true, false, builders);
+        final int numSmallSegments = randomIntBetween(1, 3);
+        for (int i = 0; i < numSmallSegments; i++) {
+            createIndexRequest("test", "parent", "sp" + i, null, "p_field", "p_value").get();
+            createIndexRequest("test", "child", "sc" + i, "sp" + i, "c_field", "small").get();
+            refresh();
+        }
+
+        SearchResponse searchResponse = client().prepareSearch("test")
+            .setQuery(hasChildQuery("child", termQuery("c_field", "even"), ScoreMode.None))
+            .get();
+        assertNoFailures(searchResponse);
+        assertHitCount(searchResponse, numParents / 2);
+
+        searchResponse = client().prepareSearch("test")
+            .setQuery(hasChildQuery("child", termQuery("c_field", "small"), ScoreMode.Max))
+            .get();
+        assertNoFailures(searchResponse);
+        assertHitCount(searchResponse, numSmallSegments);
+        for (SearchHit hit : searchResponse.getHits()) {
+            assertThat(hit.getId(), Matchers.startsWith("sp"));
+        }
+
+        searchResponse = client().prepareSearch("test")
+            .setQuery(hasParentQuery("parent", termQuery("p_field", "p_value"), false))
+            .get();
+        assertNoFailures(searchResponse);
+        assertHitCount(searchResponse, numParents + numSmallSegments);
+    }
+
     public void testScopedFacet() throws Exception {
         assertAcked(prepareCreate("test")
             .addMapping("doc",
@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.rest.RestRequest;
+
+/**
+ * Aggregates the content of requests, except for the requests whose handler accepts their content chunk by chunk, see
+ * {@link HttpServerTransport.Dispatcher#supportsIncrementalContent}. The head and the content of these requests are passed on as they
+ * are received. Requests that announce more content than the maximum content length are aggregated, which rejects them.
+ */
+class Netty4HttpContentAggregator extends HttpObjectAggregator {
+
+    private final HttpServerTransport.Dispatcher dispatcher;
+    // whether the content of the current request is passed on without aggregating it
+    private boolean passingOn;
+
+    Netty4HttpContentAggregator(int maxContentLength, HttpServerTransport.Dispatcher dispatcher) {
+        super(maxContentLength);
+        this.dispatcher = dispatcher;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest && msg instanceof FullHttpRequest == false) {
+            final HttpRequest request = (HttpRequest) msg;
+            passingOn = supportsIncrementalContent(request);
+            if (passingOn && HttpUtil.is100ContinueExpected(request)) {
+                // the aggregator answers the expectation of the other requests
+                ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE, Unpooled.EMPTY_BUFFER));
+                request.headers().remove(HttpHeaderNames.EXPECT);
+            }
+        }
+        if (passingOn) {
+            if (msg instanceof LastHttpContent) {
+                passingOn = false;
+            }
+            ctx.fireChannelRead(msg);
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    private boolean supportsIncrementalContent(HttpRequest request) {
+        if (request.decoderResult().isFailure() || HttpUtil.getContentLength(request, -1L) > maxContentLength()) {
+            return false;
+        }
+        final RestRequest.Method method;
+        try {
+            method = Netty4HttpRequest.translateRequestMethod(request.method());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return dispatcher.supportsIncrementalContent(method, request.uri());
+    }
+}
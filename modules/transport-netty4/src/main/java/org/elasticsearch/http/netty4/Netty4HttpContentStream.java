@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.Channel;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.http.HttpContentStream;
+import org.elasticsearch.rest.RestStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The content of a request that is passed on chunk by chunk by the netty pipeline. The handler is always called on the event loop of
+ * the channel, and pausing the stream disables reading from the channel. The content is copied to heap buffers chunk by chunk.
+ */
+class Netty4HttpContentStream implements HttpContentStream {
+
+    private final Channel channel;
+    private final ByteSizeValue maxContentLength;
+
+    // only accessed on the event loop
+    private Handler handler;
+    // the chunks that were received before the handler was set
+    private final List<BytesReference> pendingChunks = new ArrayList<>();
+    private boolean lastChunkReceived;
+    private Exception failure;
+    private long receivedBytes;
+    // whether the handler got the last chunk or a failure, or the rest of the content is discarded
+    private boolean done;
+
+    Netty4HttpContentStream(Channel channel, ByteSizeValue maxContentLength) {
+        this.channel = channel;
+        this.maxContentLength = maxContentLength;
+    }
+
+    @Override
+    public void setHandler(Handler handler) {
+        if (channel.eventLoop().inEventLoop()) {
+            doSetHandler(handler);
+        } else {
+            channel.eventLoop().execute(() -> doSetHandler(handler));
+        }
+    }
+
+    private void doSetHandler(Handler handler) {
+        assert channel.eventLoop().inEventLoop();
+        if (this.handler != null) {
+            throw new IllegalStateException("the handler of the content stream is already set");
+        }
+        this.handler = handler;
+        if (done) {
+            return;
+        }
+        if (failure != null) {
+            done = true;
+            handler.onFailure(failure);
+            return;
+        }
+        for (int i = 0; i < pendingChunks.size(); i++) {
+            final boolean isLast = lastChunkReceived && i == pendingChunks.size() - 1;
+            done = isLast;
+            handler.onChunk(pendingChunks.get(i), isLast);
+        }
+        pendingChunks.clear();
+    }
+
+    @Override
+    public void pause() {
+        channel.config().setAutoRead(false);
+    }
+
+    @Override
+    public void resume() {
+        channel.config().setAutoRead(true);
+    }
+
+    /**
+     * Passes on the next chunk of the content. The caller keeps the ownership of the buffer.
+     */
+    void onContent(ByteBuf content, boolean isLast) {
+        assert channel.eventLoop().inEventLoop();
+        if (done || failure != null) {
+            return;
+        }
+        receivedBytes += content.readableBytes();
+        if (receivedBytes > maxContentLength.getBytes()) {
+            onFailure(new ElasticsearchStatusException("the content of the request exceeds the limit of [{}]",
+                RestStatus.REQUEST_ENTITY_TOO_LARGE, maxContentLength));
+            return;
+        }
+        final BytesReference chunk = content.isReadable() ? new BytesArray(ByteBufUtil.getBytes(content)) : BytesArray.EMPTY;
+        if (handler == null) {
+            pendingChunks.add(chunk);
+            lastChunkReceived = isLast;
+        } else {
+            done = isLast;
+            handler.onChunk(chunk, isLast);
+        }
+    }
+
+    /**
+     * Fails the stream if the rest of the content can't be received.
+     */
+    void onFailure(Exception e) {
+        assert channel.eventLoop().inEventLoop();
+        if (done || failure != null) {
+            return;
+        }
+        if (handler == null) {
+            failure = e;
+            pendingChunks.clear();
+        } else {
+            done = true;
+            handler.onFailure(e);
+        }
+    }
+
+    /**
+     * Discards the rest of the content, which is called once the response to the request was sent.
+     */
+    void discard() {
+        if (channel.eventLoop().inEventLoop()) {
+            done = true;
+            pendingChunks.clear();
+            // the handler may have paused reading, but the rest of the content must still be consumed
+            resume();
+        } else {
+            channel.eventLoop().execute(this::discard);
+        }
+    }
+}
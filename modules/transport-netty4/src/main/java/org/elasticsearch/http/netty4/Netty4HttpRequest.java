@@ -19,6 +19,7 @@
 
 package org.elasticsearch.http.netty4;
 
+import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
@@ -30,6 +31,7 @@ import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.http.HttpContentStream;
 import org.elasticsearch.http.HttpRequest;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
@@ -41,6 +43,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public class Netty4HttpRequest implements HttpRequest {
@@ -48,11 +51,30 @@ public class Netty4HttpRequest implements HttpRequest {
     private final BytesReference content;
     private final HttpHeadersMap headers;
     private final int sequence;
+    // whether the content is backed by pooled buffers that must be released
+    private final boolean pooled;
+    // shared with the copies that only differ in their headers, since these share the same content
+    private final AtomicBoolean released;
+    // the content of requests whose content is passed on chunk by chunk instead of being aggregated
+    private final Netty4HttpContentStream contentStream;
 
     Netty4HttpRequest(FullHttpRequest request, int sequence) {
+        this(request, sequence, true, new AtomicBoolean(false), null);
+    }
+
+    Netty4HttpRequest(io.netty.handler.codec.http.HttpRequest request, Netty4HttpContentStream contentStream, int sequence) {
+        this(new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(), Unpooled.EMPTY_BUFFER,
+            request.headers(), new DefaultHttpHeaders()), sequence, false, new AtomicBoolean(false), contentStream);
+    }
+
+    private Netty4HttpRequest(FullHttpRequest request, int sequence, boolean pooled, AtomicBoolean released,
+                              Netty4HttpContentStream contentStream) {
         this.request = request;
         headers = new HttpHeadersMap(request.headers());
         this.sequence = sequence;
+        this.pooled = pooled;
+        this.released = released;
+        this.contentStream = contentStream;
         if (request.content().isReadable()) {
             this.content = Netty4Utils.toBytesReference(request.content());
         } else {
@@ -62,7 +84,10 @@ public class Netty4HttpRequest implements HttpRequest {
 
     @Override
     public RestRequest.Method method() {
-        HttpMethod httpMethod = request.method();
+        return translateRequestMethod(request.method());
+    }
+
+    static RestRequest.Method translateRequestMethod(HttpMethod httpMethod) {
         if (httpMethod == HttpMethod.GET)
             return RestRequest.Method.GET;
 
@@ -147,7 +172,38 @@ public class Netty4HttpRequest implements HttpRequest {
         trailingHeaders.remove(header);
         FullHttpRequest requestWithoutHeader = new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(),
             request.content(), headersWithoutContentTypeHeader, trailingHeaders);
-        return new Netty4HttpRequest(requestWithoutHeader, sequence);
+        return new Netty4HttpRequest(requestWithoutHeader, sequence, pooled, released, contentStream);
+    }
+
+    @Override
+    public void release() {
+        if (pooled && released.compareAndSet(false, true)) {
+            request.release();
+        }
+        if (contentStream != null) {
+            // the rest of the content is not needed anymore once the response was sent
+            contentStream.discard();
+        }
+    }
+
+    @Override
+    public HttpRequest releaseAndCopy() {
+        assert released.get() == false;
+        if (pooled == false) {
+            return this;
+        }
+        try {
+            final FullHttpRequest copiedRequest = new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(),
+                Unpooled.copiedBuffer(request.content()), request.headers(), request.trailingHeaders());
+            return new Netty4HttpRequest(copiedRequest, sequence, false, new AtomicBoolean(false), contentStream);
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public HttpContentStream contentStream() {
+        return contentStream;
     }
 
     @Override
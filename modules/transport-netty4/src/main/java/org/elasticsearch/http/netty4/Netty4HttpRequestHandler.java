@@ -19,17 +19,21 @@
 
 package org.elasticsearch.http.netty4;
 
-import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.http.HttpPipelinedRequest;
 
+import java.nio.channels.ClosedChannelException;
+
 @ChannelHandler.Sharable
-class Netty4HttpRequestHandler extends SimpleChannelInboundHandler<HttpPipelinedRequest<FullHttpRequest>> {
+class Netty4HttpRequestHandler extends ChannelInboundHandlerAdapter {
 
     private final Netty4HttpServerTransport serverTransport;
 
@@ -38,37 +42,92 @@ class Netty4HttpRequestHandler extends SimpleChannelInboundHandler<HttpPipelined
     }
 
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, HttpPipelinedRequest<FullHttpRequest> msg) {
-        Netty4HttpChannel channel = ctx.channel().attr(Netty4HttpServerTransport.HTTP_CHANNEL_KEY).get();
-        FullHttpRequest request = msg.getRequest();
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpPipelinedRequest) {
+            @SuppressWarnings("unchecked")
+            HttpPipelinedRequest<HttpRequest> pipelinedRequest = (HttpPipelinedRequest<HttpRequest>) msg;
+            if (pipelinedRequest.getRequest() instanceof FullHttpRequest) {
+                handleRequest(ctx, (FullHttpRequest) pipelinedRequest.getRequest(), pipelinedRequest.getSequence());
+            } else {
+                handleRequestHead(ctx, pipelinedRequest.getRequest(), pipelinedRequest.getSequence());
+            }
+        } else {
+            assert msg instanceof HttpContent : "Invalid message type: " + msg.getClass();
+            handleContent(ctx, (HttpContent) msg);
+        }
+    }
 
+    private void handleRequest(ChannelHandlerContext ctx, FullHttpRequest request, int sequence) {
+        // the pooled content is released once the response was sent or copied first if the handler of the request needs it
+        final Netty4HttpRequest httpRequest = new Netty4HttpRequest(request, sequence);
+        boolean success = false;
         try {
-            final FullHttpRequest copiedRequest =
-                new DefaultFullHttpRequest(
-                    request.protocolVersion(),
-                    request.method(),
-                    request.uri(),
-                    Unpooled.copiedBuffer(request.content()),
-                    request.headers(),
-                    request.trailingHeaders());
+            dispatch(ctx, request, httpRequest);
+            success = true;
+        } finally {
+            if (success == false) {
+                httpRequest.release();
+            }
+        }
+    }
 
-            Netty4HttpRequest httpRequest = new Netty4HttpRequest(copiedRequest, msg.getSequence());
+    /**
+     * Dispatches a request whose content follows chunk by chunk, see {@link Netty4HttpContentAggregator}.
+     */
+    private void handleRequestHead(ChannelHandlerContext ctx, HttpRequest request, int sequence) {
+        final Netty4HttpContentStream contentStream = new Netty4HttpContentStream(ctx.channel(),
+            new ByteSizeValue(serverTransport.handlingSettings.getMaxContentLength()));
+        ctx.channel().attr(Netty4HttpServerTransport.HTTP_CONTENT_STREAM_KEY).set(contentStream);
+        dispatch(ctx, request, new Netty4HttpRequest(request, contentStream, sequence));
+    }
 
-            if (request.decoderResult().isFailure()) {
-                Throwable cause = request.decoderResult().cause();
+    private void handleContent(ChannelHandlerContext ctx, HttpContent content) {
+        try {
+            final Netty4HttpContentStream contentStream;
+            if (content instanceof LastHttpContent) {
+                contentStream = ctx.channel().attr(Netty4HttpServerTransport.HTTP_CONTENT_STREAM_KEY).getAndSet(null);
+            } else {
+                contentStream = ctx.channel().attr(Netty4HttpServerTransport.HTTP_CONTENT_STREAM_KEY).get();
+            }
+            assert contentStream != null : "content without a request";
+            if (content.decoderResult().isFailure()) {
+                final Throwable cause = content.decoderResult().cause();
                 if (cause instanceof Error) {
                     ExceptionsHelper.maybeDieOnAnotherThread(cause);
-                    serverTransport.incomingRequestError(httpRequest, channel, new Exception(cause));
+                    contentStream.onFailure(new Exception(cause));
                 } else {
-                    serverTransport.incomingRequestError(httpRequest, channel, (Exception) cause);
+                    contentStream.onFailure((Exception) cause);
                 }
             } else {
-                serverTransport.incomingRequest(httpRequest, channel);
+                contentStream.onContent(content.content(), content instanceof LastHttpContent);
             }
         } finally {
-            // As we have copied the buffer, we can release the request
-            request.release();
+            content.release();
+        }
+    }
+
+    private void dispatch(ChannelHandlerContext ctx, HttpRequest request, Netty4HttpRequest httpRequest) {
+        Netty4HttpChannel channel = ctx.channel().attr(Netty4HttpServerTransport.HTTP_CHANNEL_KEY).get();
+        if (request.decoderResult().isFailure()) {
+            Throwable cause = request.decoderResult().cause();
+            if (cause instanceof Error) {
+                ExceptionsHelper.maybeDieOnAnotherThread(cause);
+                serverTransport.incomingRequestError(httpRequest, channel, new Exception(cause));
+            } else {
+                serverTransport.incomingRequestError(httpRequest, channel, (Exception) cause);
+            }
+        } else {
+            serverTransport.incomingRequest(httpRequest, channel);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        final Netty4HttpContentStream contentStream = ctx.channel().attr(Netty4HttpServerTransport.HTTP_CONTENT_STREAM_KEY).getAndSet(null);
+        if (contentStream != null) {
+            contentStream.onFailure(new ClosedChannelException());
         }
+        super.channelInactive(ctx);
     }
 
     @Override
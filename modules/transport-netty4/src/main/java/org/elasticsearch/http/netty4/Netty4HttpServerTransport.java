@@ -242,6 +242,7 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
     static final AttributeKey<Netty4HttpChannel> HTTP_CHANNEL_KEY = AttributeKey.newInstance("es-http-channel");
     static final AttributeKey<Netty4HttpServerChannel> HTTP_SERVER_CHANNEL_KEY = AttributeKey.newInstance("es-http-server-channel");
+    static final AttributeKey<Netty4HttpContentStream> HTTP_CONTENT_STREAM_KEY = AttributeKey.newInstance("es-http-content-stream");
 
     protected static class HttpChannelHandler extends ChannelInitializer<Channel> {
 
@@ -268,7 +269,13 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
             ch.pipeline().addLast("decoder", decoder);
             ch.pipeline().addLast("decoder_compress", new HttpContentDecompressor());
             ch.pipeline().addLast("encoder", new HttpResponseEncoder());
-            final HttpObjectAggregator aggregator = new HttpObjectAggregator(handlingSettings.getMaxContentLength());
+            final HttpObjectAggregator aggregator;
+            if (handlingSettings.isCorsEnabled()) {
+                // the cors handler only supports aggregated requests
+                aggregator = new HttpObjectAggregator(handlingSettings.getMaxContentLength());
+            } else {
+                aggregator = new Netty4HttpContentAggregator(handlingSettings.getMaxContentLength(), transport.dispatcher);
+            }
             aggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
             ch.pipeline().addLast("aggregator", aggregator);
             if (handlingSettings.isCompression()) {
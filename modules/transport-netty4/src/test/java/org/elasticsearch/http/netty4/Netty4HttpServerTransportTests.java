@@ -38,8 +38,12 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCounted;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
@@ -50,6 +54,7 @@ import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.MockPageCacheRecycler;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.http.BindHttpException;
+import org.elasticsearch.http.HttpContentStream;
 import org.elasticsearch.http.HttpServerTransport;
 import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.http.NullDispatcher;
@@ -66,7 +71,12 @@ import org.junit.Before;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -75,6 +85,7 @@ import static org.elasticsearch.rest.RestStatus.BAD_REQUEST;
 import static org.elasticsearch.rest.RestStatus.OK;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 
@@ -260,6 +271,76 @@ public class Netty4HttpServerTransportTests extends ESTestCase {
         assertThat(causeReference.get(), instanceOf(TooLongFrameException.class));
     }
 
+    public void testIncrementalContent() throws InterruptedException {
+        final HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
+            @Override
+            public void dispatchRequest(RestRequest request, RestChannel channel, ThreadContext threadContext) {
+                if (request.hasContentStream() == false) {
+                    assertEquals("/_search", request.rawPath());
+                    channel.sendResponse(new BytesRestResponse(OK, BytesRestResponse.TEXT_CONTENT_TYPE, request.content()));
+                    return;
+                }
+                assertEquals("/_bulk", request.rawPath());
+                assertFalse(request.hasContent());
+                final HttpContentStream contentStream = request.contentStream();
+                final List<BytesReference> chunks = new ArrayList<>();
+                contentStream.setHandler(new HttpContentStream.Handler() {
+                    @Override
+                    public void onChunk(BytesReference chunk, boolean isLast) {
+                        if (chunk.length() > 0) {
+                            chunks.add(chunk);
+                        }
+                        if (isLast) {
+                            final BytesReference content = new CompositeBytesReference(chunks.toArray(new BytesReference[0]));
+                            channel.sendResponse(new BytesRestResponse(OK, BytesRestResponse.TEXT_CONTENT_TYPE, content));
+                        } else if (randomBoolean()) {
+                            contentStream.pause();
+                            threadPool.generic().execute(contentStream::resume);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        throw new AssertionError(e);
+                    }
+                });
+            }
+
+            @Override
+            public void dispatchBadRequest(RestRequest request, RestChannel channel, ThreadContext threadContext, Throwable cause) {
+                throw new AssertionError(cause);
+            }
+
+            @Override
+            public boolean supportsIncrementalContent(RestRequest.Method method, String uri) {
+                return method == RestRequest.Method.POST && uri.equals("/_bulk");
+            }
+        };
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(Settings.EMPTY, networkService, bigArrays, threadPool,
+                xContentRegistry(), dispatcher)) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+            // the content of the bulk requests is split in chunks of at most http.max_chunk_size
+            final List<String> bodies = Arrays.asList(randomAlphaOfLengthBetween(1, 100_000), randomAlphaOfLengthBetween(1, 100),
+                randomAlphaOfLengthBetween(1, 100_000));
+            try (Netty4HttpClient client = new Netty4HttpClient()) {
+                final Collection<FullHttpResponse> responses = client.post(remoteAddress.address(), Tuple.tuple("/_bulk", bodies.get(0)),
+                    Tuple.tuple("/_search", bodies.get(1)), Tuple.tuple("/_bulk", bodies.get(2)));
+                try {
+                    assertThat(responses, hasSize(3));
+                    final Iterator<FullHttpResponse> iterator = responses.iterator();
+                    for (String body : bodies) {
+                        final FullHttpResponse response = iterator.next();
+                        assertThat(response.status(), equalTo(HttpResponseStatus.OK));
+                        assertThat(new String(ByteBufUtil.getBytes(response.content()), StandardCharsets.UTF_8), equalTo(body));
+                    }
+                } finally {
+                    responses.forEach(ReferenceCounted::release);
+                }
+            }
+        }
+    }
+
     public void testReadTimeout() throws Exception {
         final HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
 
@@ -296,6 +296,20 @@ public class BulkRequest extends ActionRequest implements CompositeIndicesReques
         return this;
     }
 
+    /**
+     * Adds the complete items at the start of {@code data}, which holds the part of a bulk request that was received so far and that
+     * wasn't added yet. Returns the number of bytes that were added, see {@link BulkRequestParser#parseIncrementally}.
+     */
+    public int addIncrementally(BytesReference data, boolean lastData, int firstLine, @Nullable String defaultIndex,
+                                @Nullable String defaultType, @Nullable String defaultRouting,
+                                @Nullable FetchSourceContext defaultFetchSourceContext, @Nullable String defaultPipeline,
+                                boolean allowExplicitIndex, XContentType xContentType) throws IOException {
+        String routing = valueOrDefault(defaultRouting, globalRouting);
+        String pipeline = valueOrDefault(defaultPipeline, globalPipeline);
+        return new BulkRequestParser(true).parseIncrementally(data, lastData, firstLine, defaultIndex, defaultType, routing,
+                defaultFetchSourceContext, pipeline, allowExplicitIndex, xContentType, this::internalAdd, this::internalAdd, this::add);
+    }
+
     /**
      * Sets the number of shard copies that must be active before proceeding with the write.
      * See {@link ReplicationRequest#waitForActiveShards(ActiveShardCount)} for details.
@@ -74,13 +74,13 @@ public final class BulkRequestParser {
         this.warnOnTypeUsage = warnOnTypeUsage;
     }
 
-    private static int findNextMarker(byte marker, int from, BytesReference data) {
+    private static int findNextMarker(byte marker, int from, BytesReference data, boolean lastData) {
         final int res = data.indexOf(marker, from);
         if (res != -1) {
             assert res >= 0;
             return res;
         }
-        if (from != data.length()) {
+        if (lastData && from != data.length()) {
             throw new IllegalArgumentException("The bulk request must be terminated by a newline [\\n]");
         }
         return res;
@@ -134,13 +134,49 @@ public final class BulkRequestParser {
             Consumer<IndexRequest> indexRequestConsumer,
             Consumer<UpdateRequest> updateRequestConsumer,
             Consumer<DeleteRequest> deleteRequestConsumer) throws IOException {
+        parse(data, true, 0, defaultIndex, defaultType, defaultRouting, defaultFetchSourceContext, defaultPipeline, allowExplicitIndex,
+                xContentType, indexRequestConsumer, updateRequestConsumer, deleteRequestConsumer);
+    }
+
+    /**
+     * Parse the complete items at the start of {@code data}, which holds the part of a bulk request that was received so far
+     * and that wasn't parsed yet, assuming the provided default values. Items are passed to the consumers like in
+     * {@link #parse(BytesReference, String, String, FetchSourceContext, String, boolean, XContentType, Consumer, Consumer, Consumer)}.
+     *
+     * @param lastData  whether {@code data} holds the end of the bulk request, which must then be terminated by a newline
+     * @param firstLine the number of lines of the bulk request before {@code data}, used in error messages
+     * @return the number of bytes that were parsed. The rest of {@code data} is an incomplete item, it must be parsed again once
+     *         more data was received.
+     */
+    public int parseIncrementally(
+            BytesReference data, boolean lastData, int firstLine, @Nullable String defaultIndex, @Nullable String defaultType,
+            @Nullable String defaultRouting, @Nullable FetchSourceContext defaultFetchSourceContext,
+            @Nullable String defaultPipeline, boolean allowExplicitIndex,
+            XContentType xContentType,
+            Consumer<IndexRequest> indexRequestConsumer,
+            Consumer<UpdateRequest> updateRequestConsumer,
+            Consumer<DeleteRequest> deleteRequestConsumer) throws IOException {
+        return parse(data, lastData, firstLine, defaultIndex, defaultType, defaultRouting, defaultFetchSourceContext, defaultPipeline,
+                allowExplicitIndex, xContentType, indexRequestConsumer, updateRequestConsumer, deleteRequestConsumer);
+    }
+
+    private int parse(
+            BytesReference data, boolean lastData, int firstLine, @Nullable String defaultIndex, @Nullable String defaultType,
+            @Nullable String defaultRouting, @Nullable FetchSourceContext defaultFetchSourceContext,
+            @Nullable String defaultPipeline, boolean allowExplicitIndex,
+            XContentType xContentType,
+            Consumer<IndexRequest> indexRequestConsumer,
+            Consumer<UpdateRequest> updateRequestConsumer,
+            Consumer<DeleteRequest> deleteRequestConsumer) throws IOException {
         XContent xContent = xContentType.xContent();
-        int line = 0;
+        int line = firstLine;
         int from = 0;
+        // the end of the last complete item
+        int parsed = 0;
         byte marker = xContent.streamSeparator();
         boolean typesDeprecationLogged = false;
         while (true) {
-            int nextMarker = findNextMarker(marker, from, data);
+            int nextMarker = findNextMarker(marker, from, data, lastData);
             if (nextMarker == -1) {
                 break;
             }
@@ -157,6 +193,7 @@ public final class BulkRequestParser {
                 // Move to START_OBJECT
                 XContentParser.Token token = parser.nextToken();
                 if (token == null) {
+                    parsed = from;
                     continue;
                 }
                 if (token != XContentParser.Token.START_OBJECT) {
@@ -248,8 +285,9 @@ public final class BulkRequestParser {
                 if ("delete".equals(action)) {
                     deleteRequestConsumer.accept(new DeleteRequest(index, type, id).routing(routing)
                             .version(version).versionType(versionType).setIfSeqNo(ifSeqNo).setIfPrimaryTerm(ifPrimaryTerm));
+                    parsed = from;
                 } else {
-                    nextMarker = findNextMarker(marker, from, data);
+                    nextMarker = findNextMarker(marker, from, data, lastData);
                     if (nextMarker == -1) {
                         break;
                     }
@@ -301,9 +339,11 @@ public final class BulkRequestParser {
                     }
                     // move pointers
                     from = nextMarker + 1;
+                    parsed = from;
                 }
             }
         }
+        return parsed;
     }
 
 }
@@ -51,6 +51,8 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -70,6 +72,8 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.function.Consumer;
@@ -161,8 +165,14 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
 
             private final BulkPrimaryExecutionContext context = new BulkPrimaryExecutionContext(request, primary);
 
+            // versions of the documents of this request that were resolved from the index before the first item was executed
+            private Releasable preloadedDocVersions;
+
             @Override
             protected void doRun() throws Exception {
+                if (preloadedDocVersions == null) {
+                    preloadedDocVersions = preloadDocVersions(request, primary);
+                }
                 while (context.hasMoreOperationsToExecute()) {
                     if (executeBulkItemRequest(context, updateHelper, nowInMillisSupplier, mappingUpdater, waitForMappingUpdate,
                         ActionListener.wrap(v -> executor.execute(this), this::onRejection)) == false) {
@@ -190,7 +200,14 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
                 finishRequest();
             }
 
+            @Override
+            public void onFailure(Exception e) {
+                Releasables.close(preloadedDocVersions);
+                super.onFailure(e);
+            }
+
             private void finishRequest() {
+                Releasables.close(preloadedDocVersions);
                 ActionListener.completeWith(listener,
                     () -> new WritePrimaryResult<>(
                         context.getBulkShardRequest(), context.buildShardResponse(), context.getLocationToSync(), null,
@@ -199,6 +216,36 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         }.run();
     }
 
+    /**
+     * Resolves the versions of all documents of the request that will be looked up in the index in a single pass, rather than
+     * searching the index once per item. Failures are ignored since the items will look up their versions on their own then.
+     */
+    private static Releasable preloadDocVersions(BulkShardRequest request, IndexShard primary) {
+        final List<String> ids = new ArrayList<>();
+        for (BulkItemRequest item : request.items()) {
+            final DocWriteRequest<?> docWriteRequest = item.request();
+            if (docWriteRequest instanceof IndexRequest) {
+                final IndexRequest indexRequest = (IndexRequest) docWriteRequest;
+                // documents with auto-generated ids are only looked up if the request is retried
+                if (indexRequest.getAutoGeneratedTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP
+                    && indexRequest.isRetry() == false) {
+                    continue;
+                }
+            }
+            ids.add(docWriteRequest.id());
+        }
+        if (ids.size() < 2) {
+            // nothing to gain from a single lookup
+            return () -> {};
+        }
+        try {
+            return primary.preloadDocVersionsOnPrimary(ids);
+        } catch (Exception e) {
+            logger.debug(() -> new ParameterizedMessage("{} failed to preload document versions", primary.shardId()), e);
+            return () -> {};
+        }
+    }
+
     /**
      * Executes bulk item requests and handles request execution exceptions.
      * @return {@code true} if request completed on this thread and the listener was invoked, {@code false} if the request triggered
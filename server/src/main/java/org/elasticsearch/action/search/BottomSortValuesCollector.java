@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.elasticsearch.search.sort.SortOrder;
+
+/**
+ * Keeps track of the most competitive bottom sort values of the top docs that shards returned for a query that is sorted on a
+ * field. Every shard returns its own top <code>topNSize</code> documents, so the global top hits can't contain a document that
+ * sorts after the last document of any shard that returned a full page. Shards that are queried later use these values to skip
+ * their search if none of their documents can compete.
+ */
+final class BottomSortValuesCollector {
+    private final int topNSize;
+    private final SortOrder order;
+
+    private Object[] bottomSortValues;
+
+    /**
+     * @param topNSize the number of documents that each shard returns, <code>from + size</code>
+     * @param order the order of the primary sort field
+     */
+    BottomSortValuesCollector(int topNSize, SortOrder order) {
+        assert topNSize > 0 : "topNSize must be positive, got " + topNSize;
+        this.topNSize = topNSize;
+        this.order = order;
+    }
+
+    /**
+     * Returns the sort values of the least competitive document of the global top hits that is known so far or <code>null</code>
+     * if no shard returned a full page yet.
+     */
+    synchronized Object[] getBottomSortValues() {
+        return bottomSortValues;
+    }
+
+    synchronized void consumeTopDocs(TopDocs topDocs) {
+        if (topDocs instanceof TopFieldDocs == false || topDocs.scoreDocs.length < topNSize) {
+            // this shard doesn't bound the global top hits
+            return;
+        }
+        final Object[] candidate = ((FieldDoc) topDocs.scoreDocs[topNSize - 1]).fields;
+        if (bottomSortValues == null || compare(candidate[0], bottomSortValues[0]) < 0) {
+            bottomSortValues = candidate;
+        }
+    }
+
+    /**
+     * Compares the primary sort values of two documents in the order of the sort, values that can't be compared are considered equal.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private int compare(Object a, Object b) {
+        if (a == null || b == null || a.getClass() != b.getClass() || a instanceof Comparable == false) {
+            return 0;
+        }
+        final int cmp = ((Comparable) a).compareTo(b);
+        return order == SortOrder.ASC ? cmp : -cmp;
+    }
+}
@@ -25,13 +25,20 @@ import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.MinAndMax;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.transport.Transport;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -40,6 +47,8 @@ import java.util.stream.Stream;
  * from the search. The extra round trip to the search shards is very cheap and is not subject to rejections
  * which allows to fan out to more shards at the same time without running into rejections even if we are hitting a
  * large portion of the clusters indices.
+ * If the primary sort of the request is a field sort, shards also return the bounds of the sort field which are used to sort
+ * the shards such that the ones that hold the most competitive documents are queried first.
  */
 final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<SearchService.CanMatchResponse> {
 
@@ -94,27 +103,76 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<Searc
                 iter.resetAndSkip();
             }
         }
-        return shardsIts;
+        final FieldSortBuilder fieldSort = FieldSortBuilder.getPrimaryFieldSortOrNull(getRequest().source());
+        final MinAndMax<?>[] minAndMaxes = results.getMinAndMaxes();
+        if (fieldSort == null || shouldSortShards(minAndMaxes) == false) {
+            return shardsIts;
+        }
+        // query the shards that hold the most competitive documents first so that the query phase can skip the other shards once
+        // their documents can't make it into the top hits anymore
+        return sortShards(shardsIts, minAndMaxes, fieldSort.order());
+    }
+
+    /**
+     * Returns whether shards should be sorted by the bounds of their primary sort field. This is not possible if no bounds are
+     * known or if the bounds of different shards can't be compared because they have different types.
+     */
+    static boolean shouldSortShards(MinAndMax<?>[] minAndMaxes) {
+        Class<?> clazz = null;
+        for (MinAndMax<?> minAndMax : minAndMaxes) {
+            if (minAndMax == null) {
+                continue;
+            }
+            if (clazz == null) {
+                clazz = minAndMax.getMin().getClass();
+            } else if (clazz != minAndMax.getMin().getClass()) {
+                return false;
+            }
+        }
+        return clazz != null;
+    }
+
+    /**
+     * Sorts the provided shards such that the shards whose bounds contain the most competitive documents in the provided
+     * <code>order</code> come first. Shards without bounds come last and ties are broken on the shard id.
+     */
+    static GroupShardsIterator<SearchShardIterator> sortShards(GroupShardsIterator<SearchShardIterator> shardsIts,
+                                                             MinAndMax<?>[] minAndMaxes, SortOrder order) {
+        final Comparator<Integer> comparator = Comparator.<Integer, MinAndMax<?>>comparing(index -> minAndMaxes[index],
+            MinAndMax.getComparator(order)).thenComparing(shardsIts::get);
+        final List<SearchShardIterator> sorted = IntStream.range(0, shardsIts.size())
+            .boxed()
+            .sorted(comparator)
+            .map(shardsIts::get)
+            .collect(Collectors.toList());
+        return new GroupShardsIterator<>(sorted, false);
     }
 
     private static final class BitSetSearchPhaseResults extends InitialSearchPhase.
         SearchPhaseResults<SearchService.CanMatchResponse> {
 
         private final FixedBitSet possibleMatches;
+        private final MinAndMax<?>[] minAndMaxes;
         private int numPossibleMatches;
 
         BitSetSearchPhaseResults(int size) {
             super(size);
             possibleMatches = new FixedBitSet(size);
+            minAndMaxes = new MinAndMax<?>[size];
         }
 
         @Override
         void consumeResult(SearchService.CanMatchResponse result) {
             if (result.canMatch()) {
-                consumeShardFailure(result.getShardIndex());
+                consumeResult(result.getShardIndex(), result.minAndMax());
             }
         }
 
+        synchronized void consumeResult(int shardIndex, MinAndMax<?> minAndMax) {
+            consumeShardFailure(shardIndex);
+            minAndMaxes[shardIndex] = minAndMax;
+        }
+
         @Override
         boolean hasResult(int shardIndex) {
             return false; // unneeded
@@ -136,6 +194,10 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<Searc
             return possibleMatches;
         }
 
+        synchronized MinAndMax<?>[] getMinAndMaxes() {
+            return minAndMaxes;
+        }
+
         @Override
         Stream<SearchService.CanMatchResponse> getSuccessfulResults() {
             return Stream.empty();
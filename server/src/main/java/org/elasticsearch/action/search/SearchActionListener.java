@@ -50,4 +50,12 @@ abstract class SearchActionListener<T extends SearchPhaseResult> implements Acti
     }
 
     protected abstract void innerOnResponse(T response);
+
+    final int getRequestIndex() {
+        return requestIndex;
+    }
+
+    final SearchShardTarget getSearchShardTarget() {
+        return searchShardTarget;
+    }
 }
@@ -34,8 +34,14 @@ import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.TotalHits.Relation;
 import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -70,14 +76,31 @@ public final class SearchPhaseController {
 
     private static final ScoreDoc[] EMPTY_DOCS = new ScoreDoc[0];
 
+    private static final long TOP_DOCS_SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(TopDocs.class);
+    private static final long SCORE_DOC_SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(ScoreDoc.class);
+    private static final long FIELD_DOC_SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(FieldDoc.class);
+    private static final long BYTES_REF_SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(BytesRef.class);
+
     private final Function<Boolean, ReduceContext> reduceContextFunction;
+    private final CircuitBreakerService circuitBreakerService;
 
     /**
      * Constructor.
      * @param reduceContextFunction A function that builds a context for the reduce of an {@link InternalAggregation}
      */
     public SearchPhaseController(Function<Boolean, ReduceContext> reduceContextFunction) {
+        this(reduceContextFunction, new NoneCircuitBreakerService());
+    }
+
+    /**
+     * Constructor.
+     * @param reduceContextFunction A function that builds a context for the reduce of an {@link InternalAggregation}
+     * @param circuitBreakerService The service that provides the {@link CircuitBreaker#REQUEST} breaker that the top docs that are
+     *                              buffered for incremental reduces are accounted for
+     */
+    public SearchPhaseController(Function<Boolean, ReduceContext> reduceContextFunction, CircuitBreakerService circuitBreakerService) {
         this.reduceContextFunction = reduceContextFunction;
+        this.circuitBreakerService = circuitBreakerService;
     }
 
     public AggregatedDfs aggregateDfs(Collection<DfsSearchResult> results) {
@@ -245,6 +268,36 @@ public final class SearchPhaseController {
         return mergedTopDocs;
     }
 
+    /**
+     * Estimates the heap that the given top docs use, including the sort values of their documents.
+     */
+    static long ramBytesUsed(TopDocs topDocs) {
+        long size = TOP_DOCS_SHALLOW_SIZE + RamUsageEstimator.shallowSizeOf(topDocs.scoreDocs);
+        for (ScoreDoc doc : topDocs.scoreDocs) {
+            if (doc instanceof FieldDoc) {
+                size += FIELD_DOC_SHALLOW_SIZE + ramBytesUsed(((FieldDoc) doc).fields);
+            } else {
+                size += SCORE_DOC_SHALLOW_SIZE;
+            }
+        }
+        if (topDocs instanceof CollapseTopFieldDocs) {
+            size += ramBytesUsed(((CollapseTopFieldDocs) topDocs).collapseValues);
+        }
+        return size;
+    }
+
+    private static long ramBytesUsed(Object[] values) {
+        long size = RamUsageEstimator.shallowSizeOf(values);
+        for (Object value : values) {
+            if (value instanceof BytesRef) {
+                size += BYTES_REF_SHALLOW_SIZE + RamUsageEstimator.sizeOf(((BytesRef) value).bytes);
+            } else if (value != null) {
+                size += RamUsageEstimator.shallowSizeOf(value);
+            }
+        }
+        return size;
+    }
+
     private static void setShardIndex(TopDocs topDocs, int shardIndex) {
         assert topDocs.scoreDocs.length == 0 || topDocs.scoreDocs[0].shardIndex == -1 : "shardIndex is already set";
         for (ScoreDoc doc : topDocs.scoreDocs) {
@@ -329,7 +382,33 @@ public final class SearchPhaseController {
                 assert currentOffset == sortedDocs.length : "expected no more score doc slices";
             }
         }
-        return reducedQueryPhase.buildResponse(hits);
+        final SearchProfileShardResults profileResults = reducedQueryPhase.shardResults == null ? null :
+            mergeFetchProfileResults(reducedQueryPhase.shardResults, fetchResults);
+        return reducedQueryPhase.buildResponse(hits, profileResults);
+    }
+
+    /**
+     * Adds the fetch profiles of the given fetch results to the profiles of the query phase of the same shards.
+     */
+    static SearchProfileShardResults mergeFetchProfileResults(SearchProfileShardResults queryProfileResults,
+                                                              Collection<? extends SearchPhaseResult> fetchResults) {
+        Map<String, ProfileShardResult> shardResults = null;
+        for (SearchPhaseResult entry : fetchResults) {
+            final FetchSearchResult fetchResult = entry.fetchResult();
+            if (fetchResult == null || fetchResult.profileResult() == null) {
+                continue;
+            }
+            final String key = fetchResult.getSearchShardTarget().toString();
+            final ProfileShardResult queryProfileResult = queryProfileResults.getShardResults().get(key);
+            if (queryProfileResult != null) {
+                if (shardResults == null) {
+                    shardResults = new HashMap<>(queryProfileResults.getShardResults());
+                }
+                shardResults.put(key, new ProfileShardResult(queryProfileResult.getQueryProfileResults(),
+                    queryProfileResult.getAggregationProfileResults(), fetchResult.profileResult()));
+            }
+        }
+        return shardResults == null ? queryProfileResults : new SearchProfileShardResults(shardResults);
     }
 
     private SearchHits getHits(ReducedQueryPhase reducedQueryPhase, boolean ignoreFrom,
@@ -554,7 +633,14 @@ public final class SearchPhaseController {
          * @see #merge(boolean, ReducedQueryPhase, Collection, IntFunction)
          */
         public InternalSearchResponse buildResponse(SearchHits hits) {
-            return new InternalSearchResponse(hits, aggregations, suggest, shardResults, timedOut, terminatedEarly, numReducePhases);
+            return buildResponse(hits, shardResults);
+        }
+
+        /**
+         * Creates a new search response from the given merged hits and profile results.
+         */
+        InternalSearchResponse buildResponse(SearchHits hits, SearchProfileShardResults profileResults) {
+            return new InternalSearchResponse(hits, aggregations, suggest, profileResults, timedOut, terminatedEarly, numReducePhases);
         }
     }
 
@@ -563,6 +649,11 @@ public final class SearchPhaseController {
      * that incrementally reduces aggregation results as shard results are consumed.
      * This implementation can be configured to batch up a certain amount of results and only reduce them
      * iff the buffer is exhausted.
+     * <p>
+     * Top docs are merged independently of the buffer as soon as the buffered hits exceed the <code>from + size</code> hits
+     * that every shard returns, such that no more than twice that many hits are held at any time. The buffered hits are
+     * accounted for in the request circuit breaker until the results are reduced or the consumer is closed. If the breaker
+     * trips, the top docs of the remaining results are dropped and the failure is thrown by {@link #reduce()}.
      */
     static final class QueryPhaseResultConsumer extends InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> {
         private final InternalAggregations[] aggsBuffer;
@@ -571,7 +662,12 @@ public final class SearchPhaseController {
         private final boolean hasTopDocs;
         private final int bufferSize;
         private int index;
+        private int topDocsIndex;
+        private int numBufferedScoreDocs;
+        private long topDocsRamBytesUsed;
+        private CircuitBreakingException breakerFailure;
         private final SearchPhaseController controller;
+        private final CircuitBreaker circuitBreaker;
         private int numReducePhases = 0;
         private final TopDocsStats topDocsStats;
         private final boolean performFinalReduce;
@@ -582,9 +678,11 @@ public final class SearchPhaseController {
          * @param expectedResultSize the expected number of query results. Corresponds to the number of shards queried
          * @param bufferSize the size of the reduce buffer. if the buffer size is smaller than the number of expected results
          *                   the buffer is used to incrementally reduce aggregation results before all shards responded.
+         * @param circuitBreaker the breaker that the buffered top docs are accounted for
          */
         private QueryPhaseResultConsumer(SearchPhaseController controller, int expectedResultSize, int bufferSize,
-                                         boolean hasTopDocs, boolean hasAggs, int trackTotalHitsUpTo, boolean performFinalReduce) {
+                                         boolean hasTopDocs, boolean hasAggs, int trackTotalHitsUpTo, boolean performFinalReduce,
+                                         CircuitBreaker circuitBreaker) {
             super(expectedResultSize);
             if (expectedResultSize != 1 && bufferSize < 2) {
                 throw new IllegalArgumentException("buffer size must be >= 2 if there is more than one expected result");
@@ -596,6 +694,7 @@ public final class SearchPhaseController {
                 throw new IllegalArgumentException("either aggs or top docs must be present");
             }
             this.controller = controller;
+            this.circuitBreaker = circuitBreaker;
             // no need to buffer anything if we have less expected results. in this case we don't consume any results ahead of time.
             this.aggsBuffer = new InternalAggregations[hasAggs ? bufferSize : 0];
             this.topDocsBuffer = new TopDocs[hasTopDocs ? bufferSize : 0];
@@ -622,11 +721,8 @@ public final class SearchPhaseController {
                     aggsBuffer[0] = reducedAggs;
                 }
                 if (hasTopDocs) {
-                    TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer),
-                        // we have to merge here in the same way we collect on a shard
-                        querySearchResult.from() + querySearchResult.size(), 0);
-                    Arrays.fill(topDocsBuffer, null);
-                    topDocsBuffer[0] = reducedTopDocs;
+                    // we have to merge here in the same way we collect on a shard
+                    mergeBufferedTopDocs(querySearchResult.from() + querySearchResult.size());
                 }
                 numReducePhases++;
                 index = 1;
@@ -639,22 +735,75 @@ public final class SearchPhaseController {
                 final TopDocsAndMaxScore topDocs = querySearchResult.consumeTopDocs(); // can't be null
                 topDocsStats.add(topDocs, querySearchResult.searchTimedOut(), querySearchResult.terminatedEarly());
                 setShardIndex(topDocs.topDocs, querySearchResult.getShardIndex());
-                topDocsBuffer[i] = topDocs.topDocs;
+                bufferTopDocs(topDocs.topDocs, querySearchResult.from() + querySearchResult.size());
             }
         }
 
+        private void bufferTopDocs(TopDocs topDocs, int topN) {
+            assert topDocsIndex < topDocsBuffer.length : "top docs buffer is full";
+            if (breakerFailure != null) {
+                // the request fails on reduce anyway
+                return;
+            }
+            final long ramBytesUsed = ramBytesUsed(topDocs);
+            try {
+                circuitBreaker.addEstimateBytesAndMaybeBreak(ramBytesUsed, "<reduce_top_docs>");
+            } catch (CircuitBreakingException e) {
+                breakerFailure = e;
+                return;
+            }
+            topDocsRamBytesUsed += ramBytesUsed;
+            topDocsBuffer[topDocsIndex++] = topDocs;
+            numBufferedScoreDocs += topDocs.scoreDocs.length;
+            if (numBufferedScoreDocs > topN) {
+                // no result can contribute more than topN hits, so the buffered hits are merged right away to keep at most
+                // twice as many hits around as the final reduce returns
+                mergeBufferedTopDocs(topN);
+            }
+        }
+
+        private void mergeBufferedTopDocs(int topN) {
+            if (topDocsIndex <= 1) {
+                return;
+            }
+            final TopDocs reducedTopDocs = mergeTopDocs(Arrays.asList(topDocsBuffer).subList(0, topDocsIndex), topN, 0);
+            Arrays.fill(topDocsBuffer, null);
+            topDocsBuffer[0] = reducedTopDocs;
+            topDocsIndex = 1;
+            numBufferedScoreDocs = reducedTopDocs.scoreDocs.length;
+            final long ramBytesUsed = ramBytesUsed(reducedTopDocs);
+            circuitBreaker.addWithoutBreaking(ramBytesUsed - topDocsRamBytesUsed);
+            topDocsRamBytesUsed = ramBytesUsed;
+        }
+
         private synchronized List<InternalAggregations> getRemainingAggs() {
             return hasAggs ? Arrays.asList(aggsBuffer).subList(0, index) : null;
         }
 
         private synchronized List<TopDocs> getRemainingTopDocs() {
-            return hasTopDocs ? Arrays.asList(topDocsBuffer).subList(0, index) : null;
+            return hasTopDocs ? Arrays.asList(topDocsBuffer).subList(0, topDocsIndex) : null;
         }
 
         @Override
         public ReducedQueryPhase reduce() {
-            return controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(), topDocsStats,
-                numReducePhases, false, performFinalReduce);
+            try {
+                synchronized (this) {
+                    if (breakerFailure != null) {
+                        throw breakerFailure;
+                    }
+                }
+                return controller.reducedQueryPhase(results.asList(), getRemainingAggs(), getRemainingTopDocs(), topDocsStats,
+                    numReducePhases, false, performFinalReduce);
+            } finally {
+                // the reduced hits are part of the response from now on
+                close();
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            circuitBreaker.addWithoutBreaking(-topDocsRamBytesUsed);
+            topDocsRamBytesUsed = 0;
         }
 
         /**
@@ -665,6 +814,13 @@ public final class SearchPhaseController {
         }
 
         int getNumReducePhases() { return numReducePhases; }
+
+        /**
+         * Returns the number of bytes that the buffered top docs account for in the circuit breaker
+         */
+        synchronized long getTopDocsRamBytesUsed() {
+            return topDocsRamBytesUsed;
+        }
     }
 
     private int resolveTrackTotalHits(SearchRequest request) {
@@ -690,7 +846,7 @@ public final class SearchPhaseController {
             if (request.getBatchedReduceSize() < numShards) {
                 // only use this if there are aggs and if there are more shards than we should reduce at once
                 return new QueryPhaseResultConsumer(this, numShards, request.getBatchedReduceSize(), hasTopDocs, hasAggs,
-                    trackTotalHitsUpTo, request.isFinalReduce());
+                    trackTotalHitsUpTo, request.isFinalReduce(), circuitBreakerService.getBreaker(CircuitBreaker.REQUEST));
             }
         }
         return new InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult>(numShards) {
@@ -24,7 +24,13 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.transport.Transport;
 
 import java.util.Map;
@@ -35,6 +41,7 @@ import java.util.function.BiFunction;
 final class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPhaseResult> {
 
     private final SearchPhaseController searchPhaseController;
+    private final BottomSortValuesCollector bottomSortCollector;
 
     SearchQueryThenFetchAsyncAction(final Logger logger, final SearchTransportService searchTransportService,
             final BiFunction<String, String, Transport.Connection> nodeIdToConnection, final Map<String, AliasFilter> aliasFilter,
@@ -47,12 +54,61 @@ final class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<Se
                 executor, request, listener, shardsIts, timeProvider, clusterStateVersion, task,
                 searchPhaseController.newSearchPhaseResults(request, shardsIts.size()), request.getMaxConcurrentShardRequests(), clusters);
         this.searchPhaseController = searchPhaseController;
+        this.bottomSortCollector = newBottomSortValuesCollectorOrNull(request);
+    }
+
+    /**
+     * Returns a collector for the bottom sort values of the top hits of the provided <code>request</code> if shards may skip their
+     * search based on these values. This requires a request that is sorted on a field and doesn't need to visit all matching
+     * documents, i.e. doesn't track the total hits, aggregate, suggest, collapse or profile.
+     */
+    static BottomSortValuesCollector newBottomSortValuesCollectorOrNull(SearchRequest request) {
+        final SearchSourceBuilder source = request.source();
+        final FieldSortBuilder fieldSort = FieldSortBuilder.getPrimaryFieldSortOrNull(source);
+        if (fieldSort == null || request.scroll() != null) {
+            return null;
+        }
+        final int from = source.from() == -1 ? SearchService.DEFAULT_FROM : source.from();
+        final int size = source.size() == -1 ? SearchService.DEFAULT_SIZE : source.size();
+        if (from + size == 0
+                || source.trackTotalHitsUpTo() == null
+                || source.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED
+                || source.aggregations() != null
+                || source.suggest() != null
+                || source.collapse() != null
+                || source.profile()) {
+            return null;
+        }
+        return new BottomSortValuesCollector(from + size, fieldSort.order());
     }
 
     protected void executePhaseOnShard(final SearchShardIterator shardIt, final ShardRouting shard,
                                        final SearchActionListener<SearchPhaseResult> listener) {
+        final ShardSearchTransportRequest request = buildShardSearchRequest(shardIt);
+        final SearchActionListener<SearchPhaseResult> queryListener;
+        if (bottomSortCollector == null) {
+            queryListener = listener;
+        } else {
+            request.setBottomSortValues(bottomSortCollector.getBottomSortValues());
+            queryListener = new SearchActionListener<>(listener.getSearchShardTarget(), listener.getRequestIndex()) {
+                @Override
+                protected void innerOnResponse(SearchPhaseResult response) {
+                    // read the top docs before the listener hands them over to the reduce, which might consume them
+                    final QuerySearchResult queryResult = response.queryResult();
+                    if (queryResult != null && queryResult.hasConsumedTopDocs() == false) {
+                        bottomSortCollector.consumeTopDocs(queryResult.topDocs().topDocs);
+                    }
+                    listener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    listener.onFailure(e);
+                }
+            };
+        }
         getSearchTransport().sendExecuteQuery(getConnection(shardIt.getClusterAlias(), shard.currentNodeId()),
-            buildShardSearchRequest(shardIt), getTask(), listener);
+            request, getTask(), queryListener);
     }
 
     @Override
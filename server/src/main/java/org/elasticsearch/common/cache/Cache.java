@@ -19,20 +19,21 @@
 
 package org.elasticsearch.common.cache;
 
+import com.carrotsearch.hppc.BitMixer;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.LongAdder;
-import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -46,20 +47,21 @@ import java.util.function.ToLongBiFunction;
  * accept reduced write performance in exchange for easy-to-understand code. Cache statistics for hits, misses and
  * evictions are exposed.
  * <p>
- * The design of the cache is relatively simple. The cache is segmented into 256 segments which are backed by HashMaps.
- * Each segment is protected by a re-entrant read/write lock. The read/write locks permit multiple concurrent readers
- * without contention, and the segments gives us write throughput without impacting readers (so readers are blocked only
- * if they are reading a segment that a writer is writing to).
+ * The design of the cache is relatively simple. The cache is segmented into 256 segments which are backed by
+ * ConcurrentHashMaps. Reads never lock, and writes to a segment are serialized by a lock of the segment so that the
+ * segments give us write throughput without impacting readers.
  * <p>
  * The LRU functionality is backed by a single doubly-linked list chaining the entries in order of insertion. This
- * LRU list is protected by a lock that serializes all writes to it. There are opportunities for improvements
- * here if write throughput is a concern.
- * <ol>
- * <li>LRU list mutations could be inserted into a blocking queue that a single thread is reading from
- * and applying to the LRU list.</li>
- * <li>Promotions could be deferred for entries that were "recently" promoted.</li>
- * <li>Locks on the list could be taken per node being modified instead of globally.</li>
- * </ol>
+ * LRU list is protected by a lock that serializes all writes to it. Reads don't take this lock to promote the entries
+ * that they hit: they record them in a small buffer that is striped by thread, and the buffered promotions are applied
+ * in batches by whichever thread holds the lock next, or by the reader that fills a buffer if the lock is free. Reads
+ * that find their buffer full are not recorded, so under heavy contention the LRU order is approximate. Buffered
+ * promotions are always applied before an entry is inserted or evicted.
+ * <p>
+ * When configured with {@link CacheBuilder#setFrequencyBasedAdmission(boolean)}, the cache also estimates how often keys
+ * are accessed with a {@link FrequencySketch}, and a new entry that would push the cache over its maximum weight is only
+ * admitted if its key is accessed at least as often as the key of the least recently used entry (TinyLFU). Otherwise the
+ * new entry is evicted right away, which keeps one-off entries from flushing frequently used ones.
  * <p>
  * Evictions only occur after a mutation to the cache (meaning an entry promotion, a cache insertion, or a manual
  * invalidation) or an explicit call to {@link #refresh()}.
@@ -97,6 +99,9 @@ public class Cache<K, V> {
     private RemovalListener<K, V> removalListener = notification -> {
     };
 
+    // the access frequencies of keys, null unless new entries are admitted based on their frequency
+    private FrequencySketch frequencySketch;
+
     // use CacheBuilder to construct
     Cache() {
     }
@@ -144,6 +149,10 @@ public class Cache<K, V> {
         this.removalListener = removalListener;
     }
 
+    void setFrequencyBasedAdmission(boolean frequencyBasedAdmission) {
+        this.frequencySketch = frequencyBasedAdmission ? new FrequencySketch() : null;
+    }
+
     /**
      * The relative time used to track time-based evictions.
      *
@@ -179,19 +188,16 @@ public class Cache<K, V> {
     /**
      * A cache segment.
      * <p>
-     * A CacheSegment is backed by a HashMap and is protected by a read/write lock.
+     * A CacheSegment is backed by a ConcurrentHashMap that is read without locking, mutations are protected by a lock.
      *
      * @param <K> the type of the keys
      * @param <V> the type of the values
      */
     private static class CacheSegment<K, V> {
-        // read/write lock protecting mutations to the segment
-        ReadWriteLock segmentLock = new ReentrantReadWriteLock();
-
-        ReleasableLock readLock = new ReleasableLock(segmentLock.readLock());
-        ReleasableLock writeLock = new ReleasableLock(segmentLock.writeLock());
+        // lock protecting mutations to the segment
+        ReleasableLock writeLock = new ReleasableLock(new ReentrantLock());
 
-        Map<K, CompletableFuture<Entry<K, V>>> map = new HashMap<>();
+        volatile Map<K, CompletableFuture<Entry<K, V>>> map = new ConcurrentHashMap<>();
 
         SegmentStats segmentStats = new SegmentStats();
 
@@ -206,10 +212,7 @@ public class Cache<K, V> {
          * @return the entry if there was one, otherwise null
          */
         Entry<K, V> get(K key, long now, Predicate<Entry<K, V>> isExpired, Consumer<Entry<K, V>> onExpiration) {
-            CompletableFuture<Entry<K, V>> future;
-            try (ReleasableLock ignored = readLock.acquire()) {
-                future = map.get(key);
-            }
+            CompletableFuture<Entry<K, V>> future = map.get(key);
             if (future != null) {
                 Entry<K, V> entry;
                 try {
@@ -350,6 +353,66 @@ public class Cache<K, V> {
     // lock protecting mutations to the LRU list
     private final ReleasableLock lruLock = new ReleasableLock(new ReentrantLock());
 
+    // a power of two that is at least the number of processors, so that concurrent readers rarely share a read buffer
+    static final int NUMBER_OF_READ_BUFFERS = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+
+    // the buffers of entries that were hit and still need to be promoted, created on first use since many caches are
+    // only ever read by a few threads
+    private final AtomicReferenceArray<ReadBuffer<K, V>> readBuffers = new AtomicReferenceArray<>(NUMBER_OF_READ_BUFFERS);
+
+    /**
+     * A bounded buffer of the entries that were hit by readers. Readers race to claim slots and drop the entry if the buffer
+     * is full, it is drained by the thread that holds the LRU lock.
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     */
+    static final class ReadBuffer<K, V> {
+        static final int SIZE = 16;
+        private static final int MASK = SIZE - 1;
+
+        private final AtomicReferenceArray<Entry<K, V>> entries = new AtomicReferenceArray<>(SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        // only updated while holding the LRU lock
+        private volatile long readCounter;
+
+        /**
+         * Record an entry that was hit.
+         *
+         * @return whether the buffer is full and should be drained
+         */
+        boolean offer(Entry<K, V> entry) {
+            final long head = readCounter;
+            final long tail = writeCounter.get();
+            final long size = tail - head;
+            if (size >= SIZE) {
+                return true;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                entries.lazySet((int) (tail & MASK), entry);
+                return size + 1 >= SIZE;
+            }
+            // another reader claimed the slot, skipping this promotion is cheaper than retrying
+            return false;
+        }
+
+        void drain(Consumer<Entry<K, V>> consumer) {
+            long head = readCounter;
+            final long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                final int index = (int) (head & MASK);
+                final Entry<K, V> entry = entries.get(index);
+                if (entry == null) {
+                    // the slot was claimed but the entry is not visible yet, the next drain will pick it up
+                    break;
+                }
+                entries.lazySet(index, null);
+                consumer.accept(entry);
+            }
+            readCounter = head;
+        }
+    }
+
     /**
      * Returns the value to which the specified key is mapped, or null if this map contains no mapping for the key.
      *
@@ -366,11 +429,45 @@ public class Cache<K, V> {
         if (entry == null) {
             return null;
         } else {
-            promote(entry, now);
+            recordRead(entry, now);
             return entry.value;
         }
     }
 
+    private void recordRead(Entry<K, V> entry, long now) {
+        final int index = (int) BitMixer.mix64(Thread.currentThread().getId()) & (NUMBER_OF_READ_BUFFERS - 1);
+        ReadBuffer<K, V> buffer = readBuffers.get(index);
+        if (buffer == null) {
+            readBuffers.compareAndSet(index, null, new ReadBuffer<>());
+            buffer = readBuffers.get(index);
+        }
+        if (buffer.offer(entry)) {
+            // the buffer is full, drain it unless another thread holds the lock, which drains it anyway
+            try (ReleasableLock locked = lruLock.tryAcquire()) {
+                if (locked != null) {
+                    drainReadBuffers();
+                    evict(now);
+                }
+            }
+        }
+    }
+
+    private void drainReadBuffers() {
+        assert lruLock.isHeldByCurrentThread();
+
+        for (int i = 0; i < NUMBER_OF_READ_BUFFERS; i++) {
+            final ReadBuffer<K, V> buffer = readBuffers.get(i);
+            if (buffer != null) {
+                buffer.drain(entry -> {
+                    if (frequencySketch != null && entry.state != State.DELETED) {
+                        frequencySketch.increment(entry.key);
+                    }
+                    link(entry);
+                });
+            }
+        }
+    }
+
     /**
      * If the specified key is not already associated with a value (or is mapped to null), attempts to compute its
      * value using the given mapping function and enters it into this map unless null. The load method for a given key
@@ -537,12 +634,14 @@ public class Cache<K, V> {
         boolean[] haveSegmentLock = new boolean[NUMBER_OF_SEGMENTS];
         try {
             for (int i = 0; i < NUMBER_OF_SEGMENTS; i++) {
-                segments[i].segmentLock.writeLock().lock();
+                segments[i].writeLock.acquire();
                 haveSegmentLock[i] = true;
             }
             try (ReleasableLock ignored = lruLock.acquire()) {
+                // buffered promotions of the invalidated entries are dropped when they are drained
+                drainReadBuffers();
                 h = head;
-                Arrays.stream(segments).forEach(segment -> segment.map = new HashMap<>());
+                Arrays.stream(segments).forEach(segment -> segment.map = new ConcurrentHashMap<>());
                 Entry<K, V> current = head;
                 while (current != null) {
                     current.state = State.DELETED;
@@ -555,7 +654,7 @@ public class Cache<K, V> {
         } finally {
             for (int i = NUMBER_OF_SEGMENTS - 1; i >= 0; i--) {
                 if (haveSegmentLock[i]) {
-                    segments[i].segmentLock.writeLock().unlock();
+                    segments[i].writeLock.close();
                 }
             }
         }
@@ -571,6 +670,7 @@ public class Cache<K, V> {
     public void refresh() {
         long now = now();
         try (ReleasableLock ignored = lruLock.acquire()) {
+            drainReadBuffers();
             evict(now);
         }
     }
@@ -602,7 +702,7 @@ public class Cache<K, V> {
      */
     public Iterable<K> keys() {
         return () -> new Iterator<K>() {
-            private CacheIterator iterator = new CacheIterator(head);
+            private CacheIterator iterator = new CacheIterator(promotedHead());
 
             @Override
             public boolean hasNext() {
@@ -630,7 +730,7 @@ public class Cache<K, V> {
      */
     public Iterable<V> values() {
         return () -> new Iterator<V>() {
-            private CacheIterator iterator = new CacheIterator(head);
+            private CacheIterator iterator = new CacheIterator(promotedHead());
 
             @Override
             public boolean hasNext() {
@@ -649,6 +749,14 @@ public class Cache<K, V> {
         };
     }
 
+    // the head of the LRU list once buffered promotions are applied
+    private Entry<K, V> promotedHead() {
+        try (ReleasableLock ignored = lruLock.acquire()) {
+            drainReadBuffers();
+            return head;
+        }
+    }
+
     private class CacheIterator implements Iterator<Entry<K, V>> {
         private Entry<K, V> current;
         private Entry<K, V> next;
@@ -727,18 +835,17 @@ public class Cache<K, V> {
     }
 
     private boolean promote(Entry<K, V> entry, long now) {
-        boolean promoted = true;
+        boolean promoted;
         try (ReleasableLock ignored = lruLock.acquire()) {
-            switch (entry.state) {
-                case DELETED:
-                    promoted = false;
-                    break;
-                case EXISTING:
-                    relinkAtHead(entry);
-                    break;
-                case NEW:
-                    linkAtHead(entry);
-                    break;
+            drainReadBuffers();
+            final boolean isNew = entry.state == State.NEW;
+            if (isNew && frequencySketch != null) {
+                frequencySketch.increment(entry.key);
+            }
+            promoted = link(entry);
+            if (promoted && isNew && frequencySketch != null) {
+                frequencySketch.ensureCapacity(count);
+                promoted = admit(entry);
             }
             if (promoted) {
                 evict(now);
@@ -747,6 +854,40 @@ public class Cache<K, V> {
         return promoted;
     }
 
+    private boolean link(Entry<K, V> entry) {
+        assert lruLock.isHeldByCurrentThread();
+
+        switch (entry.state) {
+            case DELETED:
+                return false;
+            case EXISTING:
+                relinkAtHead(entry);
+                return true;
+            case NEW:
+                linkAtHead(entry);
+                return true;
+            default:
+                throw new AssertionError("unknown state [" + entry.state + "]");
+        }
+    }
+
+    /**
+     * Evicts the new entry {@code candidate} right away if the cache exceeds its maximum weight and the key of the least
+     * recently used entry, which would be evicted in its place, was accessed more frequently.
+     *
+     * @return whether the candidate was admitted
+     */
+    private boolean admit(Entry<K, V> candidate) {
+        assert lruLock.isHeldByCurrentThread();
+
+        if (exceedsWeight() && tail != candidate
+                && frequencySketch.frequency(candidate.key) < frequencySketch.frequency(tail.key)) {
+            evictEntry(candidate);
+            return false;
+        }
+        return true;
+    }
+
     private void evict(long now) {
         assert lruLock.isHeldByCurrentThread();
 
@@ -23,6 +23,7 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.CloseableThreadLocal;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
@@ -145,6 +146,51 @@ public final class VersionsAndSeqNoResolver {
         return null;
     }
 
+    /**
+     * Loads the internal doc IDs, versions, seqNos and primary terms for many uids at once. This returns the same results as calling
+     * {@link #loadDocIdAndVersion(IndexReader, Term, boolean)} for every uid, but rather than looking up each uid in all segments
+     * one after the other, it visits every segment once and seeks all uids that were not found in a more recent segment in order.
+     * Ordered seeks can reuse the state of the terms enum from the previous seek, which is much cheaper than random seeks on
+     * indices with many segments.
+     *
+     * @param uids the uids to look up, must be sorted and must not contain duplicates
+     * @return an array that holds the doc ID and version of the uid at the same position or {@code null} if the uid wasn't found
+     */
+    public static DocIdAndVersion[] loadDocIdsAndVersions(IndexReader reader, String uidField, BytesRef[] uids,
+                                                          boolean loadSeqNo) throws IOException {
+        assert assertSortedAndUnique(uids);
+        final DocIdAndVersion[] results = new DocIdAndVersion[uids.length];
+        if (uids.length == 0) {
+            return results;
+        }
+        PerThreadIDVersionAndSeqNoLookup[] lookups = getLookupState(reader, uidField);
+        List<LeafReaderContext> leaves = reader.leaves();
+        int remaining = uids.length;
+        // iterate backwards to optimize for the frequently updated documents
+        // which are likely to be in the last segments
+        for (int i = leaves.size() - 1; i >= 0 && remaining > 0; i--) {
+            final LeafReaderContext leaf = leaves.get(i);
+            PerThreadIDVersionAndSeqNoLookup lookup = lookups[leaf.ord];
+            for (int j = 0; j < uids.length; j++) {
+                if (results[j] == null) {
+                    results[j] = lookup.lookupVersion(uids[j], loadSeqNo, leaf);
+                    if (results[j] != null) {
+                        remaining--;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static boolean assertSortedAndUnique(BytesRef[] uids) {
+        for (int i = 1; i < uids.length; i++) {
+            assert uids[i - 1].compareTo(uids[i]) < 0 : "uids must be sorted and unique but got [" + uids[i - 1] + "] before ["
+                + uids[i] + "]";
+        }
+        return true;
+    }
+
     /**
      * Loads the internal docId and sequence number of the latest copy for a given uid from the provided reader.
      * The result is either null or the live and latest version of the given uid.
@@ -33,6 +33,7 @@ import org.elasticsearch.index.MergePolicyConfig;
 import org.elasticsearch.index.MergeSchedulerConfig;
 import org.elasticsearch.index.SearchSlowLog;
 import org.elasticsearch.index.cache.bitset.BitsetFilterCache;
+import org.elasticsearch.index.codec.CodecService;
 import org.elasticsearch.index.engine.EngineConfig;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.FieldMapper;
@@ -110,6 +111,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexSettings.INDEX_WARMER_ENABLED_SETTING,
             IndexSettings.INDEX_REFRESH_INTERVAL_SETTING,
             IndexSettings.MAX_RESULT_WINDOW_SETTING,
+            IndexSettings.MAX_CONCURRENT_SEARCH_SLICES_SETTING,
             IndexSettings.MAX_INNER_RESULT_WINDOW_SETTING,
             IndexSettings.MAX_TOKEN_COUNT_SETTING,
             IndexSettings.MAX_DOCVALUE_FIELDS_SEARCH_SETTING,
@@ -121,6 +123,9 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexSettings.MAX_ANALYZED_OFFSET_SETTING,
             IndexSettings.MAX_TERMS_COUNT_SETTING,
             IndexSettings.INDEX_TRANSLOG_SYNC_INTERVAL_SETTING,
+            IndexSettings.INDEX_TRANSLOG_SYNC_GROUP_COMMIT_WINDOW_SETTING,
+            IndexSettings.INDEX_TRANSLOG_SYNC_GROUP_COMMIT_MAX_SIZE_SETTING,
+            IndexSettings.INDEX_TRANSLOG_COMPRESS_SETTING,
             IndexSettings.DEFAULT_FIELD_SETTING,
             IndexSettings.QUERY_STRING_LENIENT_SETTING,
             IndexSettings.ALLOW_UNMAPPED,
@@ -134,6 +139,7 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             IndexSettings.INDEX_SOFT_DELETES_RETENTION_OPERATIONS_SETTING,
             IndexSettings.INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING,
             IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING,
+            IndicesRequestCache.INDEX_CACHE_REQUEST_MAX_HITS_SETTING,
             UnassignedInfo.INDEX_DELAYED_NODE_LEFT_TIMEOUT_SETTING,
             EnableAllocationDecider.INDEX_ROUTING_REBALANCE_ENABLE_SETTING,
             EnableAllocationDecider.INDEX_ROUTING_ALLOCATION_ENABLE_SETTING,
@@ -160,6 +166,10 @@ public final class IndexScopedSettings extends AbstractScopedSettings {
             FsDirectoryFactory.INDEX_LOCK_FACTOR_SETTING,
             Store.FORCE_RAM_TERM_DICT,
             EngineConfig.INDEX_CODEC_SETTING,
+            CodecService.INDEX_PRE_AGGREGATION_TIMESTAMP_FIELD_SETTING,
+            CodecService.INDEX_PRE_AGGREGATION_METRIC_FIELDS_SETTING,
+            CodecService.INDEX_PRE_AGGREGATION_INTERVAL_SETTING,
+            EngineConfig.INDEX_VERSION_MAP_STORAGE_SETTING,
             IndexMetaData.SETTING_WAIT_FOR_ACTIVE_SHARDS,
             IndexSettings.DEFAULT_PIPELINE,
             MetaDataIndexStateService.VERIFIED_BEFORE_CLOSE_SETTING,
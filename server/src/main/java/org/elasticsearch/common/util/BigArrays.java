@@ -425,6 +425,17 @@ public class BigArrays {
         return this.circuitBreakingInstance;
     }
 
+    /**
+     * Return an instance of this BigArrays class that shares the page recycler of this instance but adjusts the circuit breaker with
+     * the given name. Circuit breaking is enabled on the returned instance iff it is enabled on this instance.
+     */
+    public BigArrays withBreaker(String breakerName) {
+        if (breakerName.equals(this.breakerName)) {
+            return this;
+        }
+        return new BigArrays(recycler, breakerService, breakerName, checkBreaker);
+    }
+
     public CircuitBreakerService breakerService() {
         return this.circuitBreakingInstance.breakerService;
     }
@@ -0,0 +1,66 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * The content of an http request that is received chunk by chunk instead of being aggregated before the request is dispatched.
+ * Chunks are handed to the {@link Handler} one at a time, in the order they were received.
+ */
+public interface HttpContentStream {
+
+    /**
+     * Sets the handler of the chunks of this stream. Chunks that were received before the handler was set are buffered and handed
+     * to it once it is set. The handler can only be set once.
+     */
+    void setHandler(Handler handler);
+
+    /**
+     * Stops reading chunks from the network until {@link #resume()} is called. Chunks that were already read may still be handed to
+     * the handler.
+     */
+    void pause();
+
+    /**
+     * Resumes reading chunks from the network after {@link #pause()}.
+     */
+    void resume();
+
+    /**
+     * Handles the chunks of a {@link HttpContentStream}.
+     */
+    interface Handler {
+
+        /**
+         * Handles the next chunk of the content. The chunk isn't backed by pooled buffers and can be referenced after the call.
+         *
+         * @param chunk  the next chunk, possibly empty
+         * @param isLast whether this is the last chunk of the content
+         */
+        void onChunk(BytesReference chunk, boolean isLast);
+
+        /**
+         * Called instead of {@link #onChunk} if the rest of the content can't be received, for instance because the connection was
+         * closed or the content is too large.
+         */
+        void onFailure(Exception e);
+    }
+}
@@ -68,4 +68,27 @@ public interface HttpRequest {
      */
     HttpResponse createResponse(RestStatus status, BytesReference content);
 
+    /**
+     * Releases the buffers backing the content of this request if they are pooled. The content must not be accessed afterwards.
+     * Releasing a request more than once has no effect.
+     */
+    default void release() {
+    }
+
+    /**
+     * If the content of this request is backed by pooled buffers, returns a copy of this request whose content is copied to unpooled
+     * heap buffers and releases the pooled buffers. Otherwise returns this request.
+     */
+    default HttpRequest releaseAndCopy() {
+        return this;
+    }
+
+    /**
+     * Returns the stream of the content of this request if it is received chunk by chunk, in which case {@link #content()} is empty,
+     * or {@code null} if the content was received before the request was dispatched.
+     */
+    default HttpContentStream contentStream() {
+        return null;
+    }
+
 }
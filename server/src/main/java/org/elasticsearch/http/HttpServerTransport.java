@@ -61,5 +61,16 @@ public interface HttpServerTransport extends LifecycleComponent {
          */
         void dispatchBadRequest(RestRequest request, RestChannel channel, ThreadContext threadContext, Throwable cause);
 
+        /**
+         * Returns whether the content of requests with the given method and uri may be received chunk by chunk after the request was
+         * dispatched, see {@link HttpRequest#contentStream()}. The content of other requests is received before they are dispatched.
+         *
+         * @param method the method of the request
+         * @param uri    the uri of the request, with the query string
+         */
+        default boolean supportsIncrementalContent(RestRequest.Method method, String uri) {
+            return false;
+        }
+
     }
 }
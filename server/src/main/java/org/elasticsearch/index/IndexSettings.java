@@ -63,6 +63,26 @@ public final class IndexSettings {
     public static final Setting<TimeValue> INDEX_TRANSLOG_SYNC_INTERVAL_SETTING =
         Setting.timeSetting("index.translog.sync_interval", TimeValue.timeValueSeconds(5), TimeValue.timeValueMillis(100),
             Property.Dynamic, Property.IndexScope);
+    /**
+     * The maximum time a translog fsync is delayed so that operations of concurrent requests can be made durable by the same fsync
+     * (group commit). A sync is only ever delayed if the previous one started less than this window ago. {@code 0} disables grouping.
+     */
+    public static final Setting<TimeValue> INDEX_TRANSLOG_SYNC_GROUP_COMMIT_WINDOW_SETTING =
+        Setting.timeSetting("index.translog.sync_group_commit_window", TimeValue.ZERO, TimeValue.ZERO, TimeValue.timeValueMillis(100),
+            Property.Dynamic, Property.IndexScope);
+    /**
+     * The amount of un-synced translog data that ends a group commit window early.
+     */
+    public static final Setting<ByteSizeValue> INDEX_TRANSLOG_SYNC_GROUP_COMMIT_MAX_SIZE_SETTING =
+        Setting.byteSizeSetting("index.translog.sync_group_commit_max_size", new ByteSizeValue(1, ByteSizeUnit.MB),
+            new ByteSizeValue(1, ByteSizeUnit.BYTES), new ByteSizeValue(Long.MAX_VALUE, ByteSizeUnit.BYTES),
+            Property.Dynamic, Property.IndexScope);
+    /**
+     * Whether the source of index operations is compressed before it is written to the translog. Operations that were written with
+     * and without compression can be mixed in the same translog generation, hence this setting can be changed on a live index.
+     */
+    public static final Setting<Boolean> INDEX_TRANSLOG_COMPRESS_SETTING =
+        Setting.boolSetting("index.translog.compress", false, Property.Dynamic, Property.IndexScope);
     public static final Setting<TimeValue> INDEX_SEARCH_IDLE_AFTER =
         Setting.timeSetting("index.search.idle.after", TimeValue.timeValueSeconds(30),
             TimeValue.timeValueMinutes(0), Property.IndexScope, Property.Dynamic);
@@ -110,6 +130,13 @@ public final class IndexSettings {
     public static final Setting<Integer> MAX_SCRIPT_FIELDS_SETTING =
         Setting.intSetting("index.max_script_fields", 32, 0, Property.Dynamic, Property.IndexScope);
 
+    /**
+     * Index setting describing the maximum number of slices of segments that the query phase of a search request searches
+     * concurrently on a single shard. The default of 1 searches all segments of the shard on the search thread.
+     */
+    public static final Setting<Integer> MAX_CONCURRENT_SEARCH_SLICES_SETTING =
+        Setting.intSetting("index.search.max_concurrent_slices", 1, 1, Property.Dynamic, Property.IndexScope);
+
     /**
      * A setting describing the maximum number of tokens that can be
      * produced using _analyze API. The default maximum of 10000 is defensive
@@ -317,6 +344,9 @@ public final class IndexSettings {
     private final boolean defaultAllowUnmappedFields;
     private volatile Translog.Durability durability;
     private volatile TimeValue syncInterval;
+    private volatile TimeValue syncGroupCommitWindow;
+    private volatile ByteSizeValue syncGroupCommitMaxSize;
+    private volatile boolean translogCompress;
     private volatile TimeValue refreshInterval;
     private volatile ByteSizeValue flushThresholdSize;
     private volatile TimeValue translogRetentionAge;
@@ -352,6 +382,7 @@ public final class IndexSettings {
     private volatile int maxRescoreWindow;
     private volatile int maxDocvalueFields;
     private volatile int maxScriptFields;
+    private volatile int maxConcurrentSearchSlices;
     private volatile int maxTokenCount;
     private volatile int maxNgramDiff;
     private volatile int maxShingleDiff;
@@ -451,6 +482,9 @@ public final class IndexSettings {
         this.durability = scopedSettings.get(INDEX_TRANSLOG_DURABILITY_SETTING);
         defaultFields = scopedSettings.get(DEFAULT_FIELD_SETTING);
         syncInterval = INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.get(settings);
+        syncGroupCommitWindow = scopedSettings.get(INDEX_TRANSLOG_SYNC_GROUP_COMMIT_WINDOW_SETTING);
+        syncGroupCommitMaxSize = scopedSettings.get(INDEX_TRANSLOG_SYNC_GROUP_COMMIT_MAX_SIZE_SETTING);
+        translogCompress = scopedSettings.get(INDEX_TRANSLOG_COMPRESS_SETTING);
         refreshInterval = scopedSettings.get(INDEX_REFRESH_INTERVAL_SETTING);
         flushThresholdSize = scopedSettings.get(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING);
         translogRetentionAge = scopedSettings.get(INDEX_TRANSLOG_RETENTION_AGE_SETTING);
@@ -463,6 +497,7 @@ public final class IndexSettings {
         retentionLeaseMillis = scopedSettings.get(INDEX_SOFT_DELETES_RETENTION_LEASE_PERIOD_SETTING).millis();
         warmerEnabled = scopedSettings.get(INDEX_WARMER_ENABLED_SETTING);
         maxResultWindow = scopedSettings.get(MAX_RESULT_WINDOW_SETTING);
+        maxConcurrentSearchSlices = scopedSettings.get(MAX_CONCURRENT_SEARCH_SLICES_SETTING);
         maxInnerResultWindow = scopedSettings.get(MAX_INNER_RESULT_WINDOW_SETTING);
         maxAdjacencyMatrixFilters = scopedSettings.get(MAX_ADJACENCY_MATRIX_FILTERS_SETTING);
         maxRescoreWindow = scopedSettings.get(MAX_RESCORE_WINDOW_SETTING);
@@ -502,7 +537,12 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(MergeSchedulerConfig.AUTO_THROTTLE_SETTING, mergeSchedulerConfig::setAutoThrottle);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_DURABILITY_SETTING, this::setTranslogDurability);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_SYNC_INTERVAL_SETTING, this::setTranslogSyncInterval);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_SYNC_GROUP_COMMIT_WINDOW_SETTING, this::setTranslogSyncGroupCommitWindow);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_SYNC_GROUP_COMMIT_MAX_SIZE_SETTING,
+            this::setTranslogSyncGroupCommitMaxSize);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_COMPRESS_SETTING, this::setTranslogCompress);
         scopedSettings.addSettingsUpdateConsumer(MAX_RESULT_WINDOW_SETTING, this::setMaxResultWindow);
+        scopedSettings.addSettingsUpdateConsumer(MAX_CONCURRENT_SEARCH_SLICES_SETTING, this::setMaxConcurrentSearchSlices);
         scopedSettings.addSettingsUpdateConsumer(MAX_INNER_RESULT_WINDOW_SETTING, this::setMaxInnerResultWindow);
         scopedSettings.addSettingsUpdateConsumer(MAX_ADJACENCY_MATRIX_FILTERS_SETTING, this::setMaxAdjacencyMatrixFilters);
         scopedSettings.addSettingsUpdateConsumer(MAX_RESCORE_WINDOW_SETTING, this::setMaxRescoreWindow);
@@ -705,6 +745,39 @@ public final class IndexSettings {
     public void setTranslogSyncInterval(TimeValue translogSyncInterval) {
         this.syncInterval = translogSyncInterval;
     }
+
+    /**
+     * Returns the maximum time a translog fsync is delayed to group it with the fsyncs of concurrent requests.
+     */
+    public TimeValue getTranslogSyncGroupCommitWindow() {
+        return syncGroupCommitWindow;
+    }
+
+    private void setTranslogSyncGroupCommitWindow(TimeValue syncGroupCommitWindow) {
+        this.syncGroupCommitWindow = syncGroupCommitWindow;
+    }
+
+    /**
+     * Returns the amount of un-synced translog data that ends a group commit window early.
+     */
+    public ByteSizeValue getTranslogSyncGroupCommitMaxSize() {
+        return syncGroupCommitMaxSize;
+    }
+
+    private void setTranslogSyncGroupCommitMaxSize(ByteSizeValue syncGroupCommitMaxSize) {
+        this.syncGroupCommitMaxSize = syncGroupCommitMaxSize;
+    }
+
+    /**
+     * Returns <code>true</code> if the source of index operations should be compressed when it is written to the translog.
+     */
+    public boolean isTranslogCompressionEnabled() {
+        return translogCompress;
+    }
+
+    private void setTranslogCompress(boolean translogCompress) {
+        this.translogCompress = translogCompress;
+    }
     
     /**
      * Returns this interval in which the shards of this index are asynchronously refreshed. {@code -1} means async refresh is disabled.
@@ -758,6 +831,17 @@ public final class IndexSettings {
         this.maxResultWindow = maxResultWindow;
     }
 
+    /**
+     * Returns the maximum number of slices of segments that the query phase searches concurrently on a single shard.
+     */
+    public int getMaxConcurrentSearchSlices() {
+        return maxConcurrentSearchSlices;
+    }
+
+    private void setMaxConcurrentSearchSlices(int maxConcurrentSearchSlices) {
+        this.maxConcurrentSearchSlices = maxConcurrentSearchSlices;
+    }
+
     /**
      * Returns the max result window for an individual inner hit definition or top hits aggregation.
      */
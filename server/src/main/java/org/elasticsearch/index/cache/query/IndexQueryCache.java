@@ -55,4 +55,9 @@ public class IndexQueryCache extends AbstractIndexComponent implements QueryCach
         return indicesQueryCache.doCache(weight, policy);
     }
 
+    @Override
+    public QueryCachingPolicy newCachingPolicy() {
+        return indicesQueryCache.newCachingPolicy();
+    }
+
 }
@@ -20,24 +20,133 @@
 package org.elasticsearch.index.cache.query;
 
 import org.apache.lucene.search.DocIdSet;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 public class QueryCacheStats implements Streamable, Writeable, ToXContentFragment {
 
+    /**
+     * What it cost to build the {@link DocIdSet}s of the queries of a given type. This tells how much time is saved per byte of
+     * cache when these queries hit the cache.
+     */
+    public static class QueryTypeStats implements Writeable, ToXContentFragment {
+
+        private long cacheCount;
+        private long buildTimeInNanos;
+        private long docCount;
+        private long matchCount;
+        private long ramBytesUsed;
+
+        private QueryTypeStats() {
+            // for internal use, initializes all counts to 0
+        }
+
+        public QueryTypeStats(long cacheCount, long buildTimeInNanos, long docCount, long matchCount, long ramBytesUsed) {
+            this.cacheCount = cacheCount;
+            this.buildTimeInNanos = buildTimeInNanos;
+            this.docCount = docCount;
+            this.matchCount = matchCount;
+            this.ramBytesUsed = ramBytesUsed;
+        }
+
+        private QueryTypeStats(StreamInput in) throws IOException {
+            cacheCount = in.readVLong();
+            buildTimeInNanos = in.readVLong();
+            docCount = in.readVLong();
+            matchCount = in.readVLong();
+            ramBytesUsed = in.readVLong();
+        }
+
+        public void add(QueryTypeStats stats) {
+            cacheCount += stats.cacheCount;
+            buildTimeInNanos += stats.buildTimeInNanos;
+            docCount += stats.docCount;
+            matchCount += stats.matchCount;
+            ramBytesUsed += stats.ramBytesUsed;
+        }
+
+        /**
+         * The number of {@link DocIdSet}s that have been built.
+         */
+        public long getCacheCount() {
+            return cacheCount;
+        }
+
+        /**
+         * The total time it took to build the {@link DocIdSet}s.
+         */
+        public TimeValue getBuildTime() {
+            return new TimeValue(buildTimeInNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * The total number of documents of the segments that the {@link DocIdSet}s have been built for.
+         */
+        public long getDocCount() {
+            return docCount;
+        }
+
+        /**
+         * The total number of documents that matched, divided by {@link #getDocCount()} this gives the density of the queries.
+         */
+        public long getMatchCount() {
+            return matchCount;
+        }
+
+        /**
+         * The total memory that the {@link DocIdSet}s used when they were built, including those that have been evicted since.
+         */
+        public ByteSizeValue getMemorySize() {
+            return new ByteSizeValue(ramBytesUsed);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(cacheCount);
+            out.writeVLong(buildTimeInNanos);
+            out.writeVLong(docCount);
+            out.writeVLong(matchCount);
+            out.writeVLong(ramBytesUsed);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field(Fields.CACHE_COUNT, cacheCount);
+            builder.humanReadableField(Fields.BUILD_TIME_IN_MILLIS, Fields.BUILD_TIME, getBuildTime());
+            builder.field(Fields.DOC_COUNT, docCount);
+            builder.field(Fields.MATCH_COUNT, matchCount);
+            builder.humanReadableField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, getMemorySize());
+            return builder;
+        }
+    }
+
     private long ramBytesUsed;
     private long hitCount;
     private long missCount;
     private long cacheCount;
     private long cacheSize;
+    @Nullable
+    private Map<String, QueryTypeStats> queryTypeStats;
+    private long offHeapRamBytesUsed;
+    private long offHeapHitCount;
+    private long offHeapCacheCount;
+    private long offHeapCacheSize;
 
     public QueryCacheStats() {
     }
@@ -48,6 +157,15 @@ public class QueryCacheStats implements Streamable, Writeable, ToXContentFragmen
         missCount = in.readLong();
         cacheCount = in.readLong();
         cacheSize = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            if (in.readBoolean()) {
+                queryTypeStats = in.readMap(StreamInput::readString, QueryTypeStats::new);
+            }
+            offHeapRamBytesUsed = in.readLong();
+            offHeapHitCount = in.readLong();
+            offHeapCacheCount = in.readLong();
+            offHeapCacheSize = in.readLong();
+        }
     }
 
     public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize) {
@@ -58,12 +176,40 @@ public class QueryCacheStats implements Streamable, Writeable, ToXContentFragmen
         this.cacheSize = cacheSize;
     }
 
+    public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize,
+                           @Nullable Map<String, QueryTypeStats> queryTypeStats) {
+        this(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize);
+        this.queryTypeStats = queryTypeStats;
+    }
+
+    public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize,
+                           @Nullable Map<String, QueryTypeStats> queryTypeStats,
+                           long offHeapRamBytesUsed, long offHeapHitCount, long offHeapCacheCount, long offHeapCacheSize) {
+        this(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, queryTypeStats);
+        this.offHeapRamBytesUsed = offHeapRamBytesUsed;
+        this.offHeapHitCount = offHeapHitCount;
+        this.offHeapCacheCount = offHeapCacheCount;
+        this.offHeapCacheSize = offHeapCacheSize;
+    }
+
     public void add(QueryCacheStats stats) {
         ramBytesUsed += stats.ramBytesUsed;
         hitCount += stats.hitCount;
         missCount += stats.missCount;
         cacheCount += stats.cacheCount;
         cacheSize += stats.cacheSize;
+        offHeapRamBytesUsed += stats.offHeapRamBytesUsed;
+        offHeapHitCount += stats.offHeapHitCount;
+        offHeapCacheCount += stats.offHeapCacheCount;
+        offHeapCacheSize += stats.offHeapCacheSize;
+        if (stats.queryTypeStats != null && stats.queryTypeStats.isEmpty() == false) {
+            if (queryTypeStats == null) {
+                queryTypeStats = new HashMap<>(stats.queryTypeStats.size());
+            }
+            for (Map.Entry<String, QueryTypeStats> entry : stats.queryTypeStats.entrySet()) {
+                queryTypeStats.computeIfAbsent(entry.getKey(), k -> new QueryTypeStats()).add(entry.getValue());
+            }
+        }
     }
 
     public long getMemorySizeInBytes() {
@@ -116,6 +262,49 @@ public class QueryCacheStats implements Streamable, Writeable, ToXContentFragmen
         return cacheCount - cacheSize;
     }
 
+    /**
+     * The memory that the {@link DocIdSet}s that are stored out of the heap use.
+     */
+    public ByteSizeValue getOffHeapMemorySize() {
+        return new ByteSizeValue(offHeapRamBytesUsed);
+    }
+
+    /**
+     * The number of successful lookups in the cache that retrieved a {@link DocIdSet} that is stored out of the heap.
+     */
+    public long getOffHeapHitCount() {
+        return offHeapHitCount;
+    }
+
+    /**
+     * The number of {@link DocIdSet}s that have been stored out of the heap.
+     */
+    public long getOffHeapCacheCount() {
+        return offHeapCacheCount;
+    }
+
+    /**
+     * The number of {@link DocIdSet}s that are stored out of the heap and whose memory has not been released yet.
+     */
+    public long getOffHeapCacheSize() {
+        return offHeapCacheSize;
+    }
+
+    /**
+     * The number of {@link DocIdSet}s stored out of the heap whose memory has been released.
+     */
+    public long getOffHeapEvictions() {
+        return offHeapCacheCount - offHeapCacheSize;
+    }
+
+    /**
+     * The cost of building the {@link DocIdSet}s that have been cached, per type of query.
+     */
+    @Nullable
+    public Map<String, QueryTypeStats> getQueryTypeStats() {
+        return queryTypeStats != null ? Collections.unmodifiableMap(queryTypeStats) : null;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         throw new UnsupportedOperationException("usage of Streamable is to be replaced by Writeable");
@@ -128,6 +317,18 @@ public class QueryCacheStats implements Streamable, Writeable, ToXContentFragmen
         out.writeLong(missCount);
         out.writeLong(cacheCount);
         out.writeLong(cacheSize);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            if (queryTypeStats == null || queryTypeStats.isEmpty()) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeMap(queryTypeStats, StreamOutput::writeString, (stream, stats) -> stats.writeTo(stream));
+            }
+            out.writeLong(offHeapRamBytesUsed);
+            out.writeLong(offHeapHitCount);
+            out.writeLong(offHeapCacheCount);
+            out.writeLong(offHeapCacheSize);
+        }
     }
 
     @Override
@@ -140,6 +341,24 @@ public class QueryCacheStats implements Streamable, Writeable, ToXContentFragmen
         builder.field(Fields.CACHE_SIZE, getCacheSize());
         builder.field(Fields.CACHE_COUNT, getCacheCount());
         builder.field(Fields.EVICTIONS, getEvictions());
+        if (offHeapCacheCount > 0) {
+            builder.startObject(Fields.OFF_HEAP);
+            builder.humanReadableField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, getOffHeapMemorySize());
+            builder.field(Fields.HIT_COUNT, getOffHeapHitCount());
+            builder.field(Fields.CACHE_SIZE, getOffHeapCacheSize());
+            builder.field(Fields.CACHE_COUNT, getOffHeapCacheCount());
+            builder.field(Fields.EVICTIONS, getOffHeapEvictions());
+            builder.endObject();
+        }
+        if (queryTypeStats != null && queryTypeStats.isEmpty() == false) {
+            builder.startObject(Fields.QUERY_TYPES);
+            for (Map.Entry<String, QueryTypeStats> entry : new TreeMap<>(queryTypeStats).entrySet()) {
+                builder.startObject(entry.getKey());
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -154,6 +373,12 @@ public class QueryCacheStats implements Streamable, Writeable, ToXContentFragmen
         static final String CACHE_SIZE = "cache_size";
         static final String CACHE_COUNT = "cache_count";
         static final String EVICTIONS = "evictions";
+        static final String OFF_HEAP = "off_heap";
+        static final String QUERY_TYPES = "query_types";
+        static final String BUILD_TIME = "build_time";
+        static final String BUILD_TIME_IN_MILLIS = "build_time_in_millis";
+        static final String DOC_COUNT = "doc_count";
+        static final String MATCH_COUNT = "match_count";
     }
 
 }
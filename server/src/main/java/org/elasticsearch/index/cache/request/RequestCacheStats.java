@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.cache.request;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -35,6 +36,11 @@ public class RequestCacheStats implements Streamable, Writeable, ToXContentFragm
     private long evictions;
     private long hitCount;
     private long missCount;
+    // stats of the cache of the results of top level aggregations
+    private long aggregationsMemorySize;
+    private long aggregationsEvictions;
+    private long aggregationsHitCount;
+    private long aggregationsMissCount;
 
     public RequestCacheStats() {
     }
@@ -44,13 +50,29 @@ public class RequestCacheStats implements Streamable, Writeable, ToXContentFragm
         evictions = in.readVLong();
         hitCount = in.readVLong();
         missCount = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            aggregationsMemorySize = in.readVLong();
+            aggregationsEvictions = in.readVLong();
+            aggregationsHitCount = in.readVLong();
+            aggregationsMissCount = in.readVLong();
+        }
     }
 
     public RequestCacheStats(long memorySize, long evictions, long hitCount, long missCount) {
+        this(memorySize, evictions, hitCount, missCount, 0, 0, 0, 0);
+    }
+
+    public RequestCacheStats(long memorySize, long evictions, long hitCount, long missCount,
+                             long aggregationsMemorySize, long aggregationsEvictions, long aggregationsHitCount,
+                             long aggregationsMissCount) {
         this.memorySize = memorySize;
         this.evictions = evictions;
         this.hitCount = hitCount;
         this.missCount = missCount;
+        this.aggregationsMemorySize = aggregationsMemorySize;
+        this.aggregationsEvictions = aggregationsEvictions;
+        this.aggregationsHitCount = aggregationsHitCount;
+        this.aggregationsMissCount = aggregationsMissCount;
     }
 
     public void add(RequestCacheStats stats) {
@@ -58,6 +80,10 @@ public class RequestCacheStats implements Streamable, Writeable, ToXContentFragm
         this.evictions += stats.evictions;
         this.hitCount += stats.hitCount;
         this.missCount += stats.missCount;
+        this.aggregationsMemorySize += stats.aggregationsMemorySize;
+        this.aggregationsEvictions += stats.aggregationsEvictions;
+        this.aggregationsHitCount += stats.aggregationsHitCount;
+        this.aggregationsMissCount += stats.aggregationsMissCount;
     }
 
     public long getMemorySizeInBytes() {
@@ -80,6 +106,26 @@ public class RequestCacheStats implements Streamable, Writeable, ToXContentFragm
         return this.missCount;
     }
 
+    public long getAggregationsMemorySizeInBytes() {
+        return this.aggregationsMemorySize;
+    }
+
+    public ByteSizeValue getAggregationsMemorySize() {
+        return new ByteSizeValue(aggregationsMemorySize);
+    }
+
+    public long getAggregationsEvictions() {
+        return this.aggregationsEvictions;
+    }
+
+    public long getAggregationsHitCount() {
+        return this.aggregationsHitCount;
+    }
+
+    public long getAggregationsMissCount() {
+        return this.aggregationsMissCount;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         throw new UnsupportedOperationException("usage of Streamable is to be replaced by Writeable");
@@ -91,6 +137,12 @@ public class RequestCacheStats implements Streamable, Writeable, ToXContentFragm
         out.writeVLong(evictions);
         out.writeVLong(hitCount);
         out.writeVLong(missCount);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(aggregationsMemorySize);
+            out.writeVLong(aggregationsEvictions);
+            out.writeVLong(aggregationsHitCount);
+            out.writeVLong(aggregationsMissCount);
+        }
     }
 
     @Override
@@ -100,6 +152,12 @@ public class RequestCacheStats implements Streamable, Writeable, ToXContentFragm
         builder.field(Fields.EVICTIONS, getEvictions());
         builder.field(Fields.HIT_COUNT, getHitCount());
         builder.field(Fields.MISS_COUNT, getMissCount());
+        builder.startObject(Fields.AGGREGATIONS);
+        builder.humanReadableField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, getAggregationsMemorySize());
+        builder.field(Fields.EVICTIONS, getAggregationsEvictions());
+        builder.field(Fields.HIT_COUNT, getAggregationsHitCount());
+        builder.field(Fields.MISS_COUNT, getAggregationsMissCount());
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -111,5 +169,6 @@ public class RequestCacheStats implements Streamable, Writeable, ToXContentFragm
         static final String EVICTIONS = "evictions";
         static final String HIT_COUNT = "hit_count";
         static final String MISS_COUNT = "miss_count";
+        static final String AGGREGATIONS = "aggregations";
     }
 }
@@ -24,7 +24,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.metrics.CounterMetric;
 
 /**
- * Tracks the portion of the request cache in use for a particular shard.
+ * Tracks the portion of the request cache and of the aggregations cache in use for a particular shard.
  */
 public final class ShardRequestCache {
 
@@ -32,9 +32,15 @@ public final class ShardRequestCache {
     final CounterMetric totalMetric = new CounterMetric();
     final CounterMetric hitCount = new CounterMetric();
     final CounterMetric missCount = new CounterMetric();
+    final CounterMetric aggregationsEvictionsMetric = new CounterMetric();
+    final CounterMetric aggregationsTotalMetric = new CounterMetric();
+    final CounterMetric aggregationsHitCount = new CounterMetric();
+    final CounterMetric aggregationsMissCount = new CounterMetric();
 
     public RequestCacheStats stats() {
-        return new RequestCacheStats(totalMetric.count(), evictionsMetric.count(), hitCount.count(), missCount.count());
+        return new RequestCacheStats(totalMetric.count(), evictionsMetric.count(), hitCount.count(), missCount.count(),
+            aggregationsTotalMetric.count(), aggregationsEvictionsMetric.count(), aggregationsHitCount.count(),
+            aggregationsMissCount.count());
     }
 
     public void onHit() {
@@ -62,4 +68,23 @@ public final class ShardRequestCache {
         }
         totalMetric.dec(dec);
     }
+
+    public void onAggregationHit() {
+        aggregationsHitCount.inc();
+    }
+
+    public void onAggregationMiss() {
+        aggregationsMissCount.inc();
+    }
+
+    public void onAggregationCached(Accountable key, BytesReference value) {
+        aggregationsTotalMetric.inc(key.ramBytesUsed() + value.ramBytesUsed());
+    }
+
+    public void onAggregationRemoval(Accountable key, BytesReference value, boolean evicted) {
+        if (evicted) {
+            aggregationsEvictionsMetric.inc();
+        }
+        aggregationsTotalMetric.dec(key.ramBytesUsed() + value.ramBytesUsed());
+    }
 }
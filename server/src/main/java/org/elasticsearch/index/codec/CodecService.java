@@ -24,10 +24,16 @@ import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat.Mode;
 import org.apache.lucene.codecs.lucene80.Lucene80Codec;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.mapper.MapperService;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Since Lucene 4.0 low level index segments are read and written through a
@@ -37,6 +43,23 @@ import java.util.Map;
  */
 public class CodecService {
 
+    /**
+     * The date field whose values bucket documents when segments are pre-aggregated, pre-aggregation is disabled if empty.
+     */
+    public static final Setting<String> INDEX_PRE_AGGREGATION_TIMESTAMP_FIELD_SETTING =
+        Setting.simpleString("index.pre_aggregation.timestamp_field", Property.IndexScope);
+    /**
+     * The numeric fields whose values are counted, summed, and whose minimum and maximum are computed per bucket.
+     */
+    public static final Setting<List<String>> INDEX_PRE_AGGREGATION_METRIC_FIELDS_SETTING =
+        Setting.listSetting("index.pre_aggregation.metric_fields", Collections.emptyList(), Function.identity(), Property.IndexScope);
+    /**
+     * The width of the buckets of pre-aggregations.
+     */
+    public static final Setting<TimeValue> INDEX_PRE_AGGREGATION_INTERVAL_SETTING =
+        Setting.timeSetting("index.pre_aggregation.interval", TimeValue.timeValueMinutes(1), TimeValue.timeValueMillis(1),
+            Property.IndexScope);
+
     private final Map<String, Codec> codecs;
 
     public static final String DEFAULT_CODEC = "default";
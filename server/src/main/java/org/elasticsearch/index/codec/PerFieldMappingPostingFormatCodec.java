@@ -21,13 +21,22 @@ package org.elasticsearch.index.codec;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat;
 import org.apache.lucene.codecs.lucene80.Lucene80Codec;
+import org.apache.lucene.document.HalfFloatPoint;
+import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.mapper.CompletionFieldMapper;
+import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+
+import java.util.Set;
+import java.util.function.LongToDoubleFunction;
 
 /**
  * {@link PerFieldMappingPostingFormatCodec This postings format} is the default
@@ -36,10 +45,15 @@ import org.elasticsearch.index.mapper.MapperService;
  * allows users to change the low level postings format for individual fields
  * per index in real time via the mapping API. If no specific postings format is
  * configured for a specific field the default postings format is used.
+ * If {@link CodecService#INDEX_PRE_AGGREGATION_TIMESTAMP_FIELD_SETTING} is set, the timestamp field and the metric fields
+ * use the {@link PreAggregatingDocValuesFormat} so that segments compute their time buckets when they are written.
  */
 public class PerFieldMappingPostingFormatCodec extends Lucene80Codec {
     private final Logger logger;
     private final MapperService mapperService;
+    private final String preAggregationTimestampField;
+    private final Set<String> preAggregationMetricFields;
+    private final DocValuesFormat preAggregatingFormat;
 
     static {
         assert Codec.forName(Lucene.LATEST_CODEC).getClass().isAssignableFrom(PerFieldMappingPostingFormatCodec.class) :
@@ -50,6 +64,16 @@ public class PerFieldMappingPostingFormatCodec extends Lucene80Codec {
         super(compressionMode);
         this.mapperService = mapperService;
         this.logger = logger;
+        final IndexSettings indexSettings = mapperService.getIndexSettings();
+        this.preAggregationTimestampField = indexSettings.getValue(CodecService.INDEX_PRE_AGGREGATION_TIMESTAMP_FIELD_SETTING);
+        this.preAggregationMetricFields = Set.copyOf(indexSettings.getValue(CodecService.INDEX_PRE_AGGREGATION_METRIC_FIELDS_SETTING));
+        if (preAggregationTimestampField.isEmpty()) {
+            this.preAggregatingFormat = null;
+        } else {
+            this.preAggregatingFormat = new PreAggregatingDocValuesFormat(preAggregationTimestampField,
+                field -> preAggregationMetricFields.contains(field) ? metricDecoder(mapperService.fullName(field)) : null,
+                indexSettings.getValue(CodecService.INDEX_PRE_AGGREGATION_INTERVAL_SETTING).millis());
+        }
     }
 
     @Override
@@ -63,4 +87,43 @@ public class PerFieldMappingPostingFormatCodec extends Lucene80Codec {
         return super.getPostingsFormatForField(field);
     }
 
+    @Override
+    public DocValuesFormat getDocValuesFormatForField(String field) {
+        if (preAggregatingFormat != null) {
+            final MappedFieldType fieldType = mapperService.fullName(field);
+            if (field.equals(preAggregationTimestampField)) {
+                if (fieldType instanceof DateFieldMapper.DateFieldType
+                        && ((DateFieldMapper.DateFieldType) fieldType).resolution() == DateFieldMapper.Resolution.MILLISECONDS) {
+                    return preAggregatingFormat;
+                }
+            } else if (preAggregationMetricFields.contains(field) && metricDecoder(fieldType) != null) {
+                return preAggregatingFormat;
+            }
+        }
+        return super.getDocValuesFormatForField(field);
+    }
+
+    /**
+     * Returns how to convert the doc values of a metric field to doubles, or {@code null} if the field can't be pre-aggregated.
+     */
+    private static LongToDoubleFunction metricDecoder(MappedFieldType fieldType) {
+        if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
+            switch (fieldType.typeName()) {
+                case "half_float":
+                    return value -> HalfFloatPoint.sortableShortToHalfFloat((short) value);
+                case "float":
+                    return value -> NumericUtils.sortableIntToFloat((int) value);
+                case "double":
+                    return NumericUtils::sortableLongToDouble;
+                default:
+                    return value -> value;
+            }
+        } else if (fieldType instanceof DateFieldMapper.DateFieldType
+                && ((DateFieldMapper.DateFieldType) fieldType).resolution() == DateFieldMapper.Resolution.MILLISECONDS) {
+            // aggregations read date_nanos fields in milliseconds
+            return value -> value;
+        }
+        return null;
+    }
+
 }
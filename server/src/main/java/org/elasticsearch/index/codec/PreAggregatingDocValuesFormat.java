@@ -0,0 +1,469 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.DocValuesConsumer;
+import org.apache.lucene.codecs.DocValuesFormat;
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.codecs.lucene80.Lucene80DocValuesFormat;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.core.internal.io.IOUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * A {@link DocValuesFormat} that writes doc values with {@link Lucene80DocValuesFormat} and that also computes, when segments
+ * are flushed or merged, the number of documents per fixed interval of a timestamp field as well as the number, sum, min and
+ * max of the values of metric fields in each of these intervals. Both the timestamp field and the metric fields must use
+ * this format so that their values can be read together when the segment is written. The results are written to a sidecar
+ * file of the segment and exposed as {@link PreAggregations}.
+ * Pre-aggregations are skipped for segments whose documents have several timestamps, and for segments that would have
+ * fewer than {@value #MIN_DOCS_PER_BUCKET} documents per bucket on average since they would not save much over collecting
+ * the documents.
+ */
+public final class PreAggregatingDocValuesFormat extends DocValuesFormat {
+
+    public static final String NAME = "ESPreAggregating80";
+
+    static final String CODEC_NAME = "ESPreAggregations";
+    static final String EXTENSION = "epa";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+
+    static final int MIN_DOCS_PER_BUCKET = 8;
+
+    private final DocValuesFormat delegate = new Lucene80DocValuesFormat();
+    @Nullable
+    private final String timestampField;
+    private final Function<String, LongToDoubleFunction> metricDecoders;
+    private final long interval;
+
+    /**
+     * Creates a format that can only read segments, this constructor is used by the SPI.
+     */
+    public PreAggregatingDocValuesFormat() {
+        this(null, field -> null, 1);
+    }
+
+    /**
+     * @param timestampField the field that buckets documents
+     * @param metricDecoders returns how to convert the sortable long values of a metric field to doubles, or {@code null}
+     *                       if the field is not a metric field
+     * @param interval       the width of buckets, in the unit of the values of the timestamp field
+     */
+    public PreAggregatingDocValuesFormat(@Nullable String timestampField, Function<String, LongToDoubleFunction> metricDecoders,
+                                         long interval) {
+        super(NAME);
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be > 0, got [" + interval + "]");
+        }
+        this.timestampField = timestampField;
+        this.metricDecoders = metricDecoders;
+        this.interval = interval;
+    }
+
+    @Override
+    public DocValuesConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new PreAggregatingConsumer(delegate.fieldsConsumer(state), state, timestampField, metricDecoders, interval);
+    }
+
+    @Override
+    public DocValuesProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return new PreAggregatingProducer(delegate, state);
+    }
+
+    private static String fileName(String segmentName, String segmentSuffix) {
+        return IndexFileNames.segmentFileName(segmentName, segmentSuffix, EXTENSION);
+    }
+
+    private static final class PreAggregatingConsumer extends DocValuesConsumer {
+
+        private final DocValuesConsumer delegate;
+        private final SegmentWriteState state;
+        private final String timestampField;
+        private final Function<String, LongToDoubleFunction> metricDecoders;
+        private final long interval;
+
+        // the doc values to pre-aggregate, that we can read again until the segment is written
+        private FieldInfo timestampInfo;
+        private DocValuesProducer timestampValues;
+        private final List<FieldInfo> metricInfos = new ArrayList<>();
+        private final List<DocValuesProducer> metricValues = new ArrayList<>();
+        private boolean closed;
+
+        PreAggregatingConsumer(DocValuesConsumer delegate, SegmentWriteState state, String timestampField,
+                               Function<String, LongToDoubleFunction> metricDecoders, long interval) {
+            this.delegate = delegate;
+            this.state = state;
+            this.timestampField = timestampField;
+            this.metricDecoders = metricDecoders;
+            this.interval = interval;
+        }
+
+        @Override
+        public void addNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            delegate.addNumericField(field, valuesProducer);
+        }
+
+        @Override
+        public void addBinaryField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            delegate.addBinaryField(field, valuesProducer);
+        }
+
+        @Override
+        public void addSortedField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            delegate.addSortedField(field, valuesProducer);
+        }
+
+        @Override
+        public void addSortedNumericField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            delegate.addSortedNumericField(field, valuesProducer);
+            if (field.name.equals(timestampField)) {
+                timestampInfo = field;
+                timestampValues = valuesProducer;
+            } else if (metricDecoders.apply(field.name) != null) {
+                metricInfos.add(field);
+                metricValues.add(valuesProducer);
+            }
+        }
+
+        @Override
+        public void addSortedSetField(FieldInfo field, DocValuesProducer valuesProducer) throws IOException {
+            delegate.addSortedSetField(field, valuesProducer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean success = false;
+            try {
+                writePreAggregations();
+                success = true;
+            } finally {
+                if (success) {
+                    IOUtils.close(delegate);
+                } else {
+                    IOUtils.closeWhileHandlingException(delegate);
+                }
+            }
+        }
+
+        private void writePreAggregations() throws IOException {
+            try (IndexOutput out = state.directory.createOutput(fileName(state.segmentInfo.name, state.segmentSuffix),
+                    state.context)) {
+                CodecUtil.writeIndexHeader(out, CODEC_NAME, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+                final Buckets buckets = timestampValues == null ? null : computeBuckets();
+                if (buckets == null) {
+                    out.writeByte((byte) 0);
+                } else {
+                    out.writeByte((byte) 1);
+                    out.writeString(timestampField);
+                    out.writeVLong(interval);
+                    out.writeVInt(metricInfos.size());
+                    for (FieldInfo metricInfo : metricInfos) {
+                        out.writeString(metricInfo.name);
+                    }
+                    out.writeVLong(buckets.size);
+                    buckets.writeTo(out);
+                }
+                CodecUtil.writeFooter(out);
+            }
+        }
+
+        /**
+         * Returns the buckets of the segment, or {@code null} if the segment should not be pre-aggregated.
+         */
+        private Buckets computeBuckets() throws IOException {
+            final int maxBuckets = Math.max(1, state.segmentInfo.maxDoc() / MIN_DOCS_PER_BUCKET);
+            final SortedNumericDocValues timestamps = timestampValues.getSortedNumeric(timestampInfo);
+            final SortedNumericDocValues[] metrics = new SortedNumericDocValues[metricInfos.size()];
+            final LongToDoubleFunction[] decoders = new LongToDoubleFunction[metricInfos.size()];
+            for (int i = 0; i < metrics.length; i++) {
+                metrics[i] = metricValues.get(i).getSortedNumeric(metricInfos.get(i));
+                decoders[i] = metricDecoders.apply(metricInfos.get(i).name);
+            }
+            final Buckets buckets = new Buckets(metrics.length);
+            for (int doc = timestamps.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = timestamps.nextDoc()) {
+                if (timestamps.docValueCount() != 1) {
+                    return null;
+                }
+                final long timestamp = timestamps.nextValue();
+                final long key = timestamp - Math.floorMod(timestamp, interval);
+                if (key > timestamp) {
+                    // the bucket would start before Long.MIN_VALUE
+                    return null;
+                }
+                final int bucket = buckets.add(key);
+                if (buckets.size > maxBuckets) {
+                    return null;
+                }
+                for (int i = 0; i < metrics.length; i++) {
+                    // values that are buffered at flush time can't advance, so we move metrics forward one doc at a time
+                    while (metrics[i].docID() < doc) {
+                        metrics[i].nextDoc();
+                    }
+                    if (metrics[i].docID() == doc) {
+                        for (int j = 0; j < metrics[i].docValueCount(); j++) {
+                            buckets.collect(bucket, i, decoders[i].applyAsDouble(metrics[i].nextValue()));
+                        }
+                    }
+                }
+            }
+            return buckets;
+        }
+    }
+
+    /**
+     * The buckets of a segment that is being written, in insertion order.
+     */
+    private static final class Buckets {
+
+        private final LongIntHashMap keyToBucket = new LongIntHashMap();
+        private int size;
+        private long[] keys = new long[0];
+        private int[] docCounts = new int[0];
+        private final long[][] valueCounts;
+        private final double[][] sums;
+        private final double[][] compensations;
+        private final double[][] mins;
+        private final double[][] maxes;
+
+        Buckets(int numMetrics) {
+            valueCounts = new long[numMetrics][0];
+            sums = new double[numMetrics][0];
+            compensations = new double[numMetrics][0];
+            mins = new double[numMetrics][0];
+            maxes = new double[numMetrics][0];
+        }
+
+        /**
+         * Counts a document in the bucket of the given key and returns the bucket.
+         */
+        int add(long key) {
+            final int index = keyToBucket.indexOf(key);
+            if (keyToBucket.indexExists(index)) {
+                final int bucket = keyToBucket.indexGet(index);
+                docCounts[bucket]++;
+                return bucket;
+            }
+            final int bucket = size++;
+            keyToBucket.indexInsert(index, key, bucket);
+            if (bucket == keys.length) {
+                final int newLength = ArrayUtil.oversize(size, Long.BYTES);
+                keys = ArrayUtil.growExact(keys, newLength);
+                docCounts = ArrayUtil.growExact(docCounts, newLength);
+                for (int i = 0; i < valueCounts.length; i++) {
+                    valueCounts[i] = ArrayUtil.growExact(valueCounts[i], newLength);
+                    sums[i] = ArrayUtil.growExact(sums[i], newLength);
+                    compensations[i] = ArrayUtil.growExact(compensations[i], newLength);
+                    mins[i] = ArrayUtil.growExact(mins[i], newLength);
+                    maxes[i] = ArrayUtil.growExact(maxes[i], newLength);
+                }
+            }
+            keys[bucket] = key;
+            docCounts[bucket] = 1;
+            for (int i = 0; i < valueCounts.length; i++) {
+                mins[i][bucket] = Double.POSITIVE_INFINITY;
+                maxes[i][bucket] = Double.NEGATIVE_INFINITY;
+            }
+            return bucket;
+        }
+
+        void collect(int bucket, int metric, double value) {
+            valueCounts[metric][bucket]++;
+            // Kahan summation, like the sum aggregation
+            final double sum = sums[metric][bucket];
+            if (Double.isFinite(value) == false) {
+                sums[metric][bucket] = sum + value;
+            } else if (Double.isFinite(sum)) {
+                final double corrected = value - compensations[metric][bucket];
+                final double newSum = sum + corrected;
+                compensations[metric][bucket] = (newSum - sum) - corrected;
+                sums[metric][bucket] = newSum;
+            }
+            mins[metric][bucket] = Math.min(mins[metric][bucket], value);
+            maxes[metric][bucket] = Math.max(maxes[metric][bucket], value);
+        }
+
+        void writeTo(IndexOutput out) throws IOException {
+            final int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            new InPlaceMergeSorter() {
+                @Override
+                protected int compare(int i, int j) {
+                    return Long.compare(keys[order[i]], keys[order[j]]);
+                }
+
+                @Override
+                protected void swap(int i, int j) {
+                    final int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                }
+            }.sort(0, size);
+            for (int bucket : order) {
+                out.writeLong(keys[bucket]);
+                out.writeInt(docCounts[bucket]);
+                for (int i = 0; i < valueCounts.length; i++) {
+                    out.writeLong(valueCounts[i][bucket]);
+                    out.writeLong(Double.doubleToLongBits(sums[i][bucket]));
+                    out.writeLong(Double.doubleToLongBits(mins[i][bucket]));
+                    out.writeLong(Double.doubleToLongBits(maxes[i][bucket]));
+                }
+            }
+        }
+    }
+
+    private static final class PreAggregatingProducer extends DocValuesProducer {
+
+        private final DocValuesProducer delegate;
+        private final IndexInput data;
+        @Nullable
+        private final PreAggregations preAggregations;
+
+        PreAggregatingProducer(DocValuesFormat delegateFormat, SegmentReadState state) throws IOException {
+            final String fileName = fileName(state.segmentInfo.name, state.segmentSuffix);
+            IndexInput data = state.directory.openInput(fileName, state.context);
+            DocValuesProducer delegate = null;
+            boolean success = false;
+            try {
+                CodecUtil.checkIndexHeader(data, CODEC_NAME, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(),
+                    state.segmentSuffix);
+                final long headerLength = data.getFilePointer();
+                // only checks the structure of the footer, the whole file is verified by checkIntegrity
+                CodecUtil.retrieveChecksum(data);
+                data.seek(headerLength);
+                if (data.readByte() == 1) {
+                    final String timestampField = data.readString();
+                    final long interval = data.readVLong();
+                    final int numMetrics = data.readVInt();
+                    final List<String> metricFields = new ArrayList<>(numMetrics);
+                    for (int i = 0; i < numMetrics; i++) {
+                        metricFields.add(data.readString());
+                    }
+                    final long numBuckets = data.readVLong();
+                    final long start = data.getFilePointer();
+                    final long length = numBuckets * PreAggregations.bucketSize(numMetrics);
+                    if (start + length != data.length() - CodecUtil.footerLength()) {
+                        throw new CorruptIndexException("expected [" + numBuckets + "] buckets of [" + numMetrics + "] metrics", data);
+                    }
+                    preAggregations = new PreAggregations(timestampField, interval, metricFields, numBuckets,
+                        data.slice("pre-aggregations", start, length));
+                } else {
+                    preAggregations = null;
+                }
+                delegate = delegateFormat.fieldsProducer(state);
+                success = true;
+            } finally {
+                if (success == false) {
+                    IOUtils.closeWhileHandlingException(data);
+                }
+            }
+            this.data = data;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public NumericDocValues getNumeric(FieldInfo field) throws IOException {
+            return delegate.getNumeric(field);
+        }
+
+        @Override
+        public BinaryDocValues getBinary(FieldInfo field) throws IOException {
+            return delegate.getBinary(field);
+        }
+
+        @Override
+        public SortedDocValues getSorted(FieldInfo field) throws IOException {
+            return delegate.getSorted(field);
+        }
+
+        @Override
+        public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
+            return delegate.getSortedNumeric(field);
+        }
+
+        @Override
+        public SortedSetDocValues getSortedSet(FieldInfo field) throws IOException {
+            return delegate.getSortedSet(field);
+        }
+
+        @Override
+        public void checkIntegrity() throws IOException {
+            delegate.checkIntegrity();
+            CodecUtil.checksumEntireFile(data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOUtils.close(data, delegate);
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return delegate.ramBytesUsed() + (preAggregations == null ? 0 : preAggregations.ramBytesUsed());
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            if (preAggregations == null) {
+                return delegate.getChildResources();
+            }
+            // this is how PreAggregations#get finds the pre-aggregations of a segment
+            final List<Accountable> resources = new ArrayList<>(delegate.getChildResources());
+            resources.add(preAggregations);
+            return Collections.unmodifiableList(resources);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(delegate=" + delegate + ",preAggregations=" + preAggregations + ")";
+        }
+    }
+}
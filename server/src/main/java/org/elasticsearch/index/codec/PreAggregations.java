@@ -0,0 +1,226 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.FilterCodecReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The per-segment time buckets that {@link PreAggregatingDocValuesFormat} computes when segments are flushed or merged. Each
+ * bucket holds the number of documents whose timestamp falls into {@code [key, key + interval)} and the number, sum, min and
+ * max of the values of each metric field of these documents. Buckets are sorted by key and only exist if they have documents.
+ * Buckets are read from the index files, sequentially, with a {@link BucketIterator}.
+ */
+public final class PreAggregations implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(PreAggregations.class);
+
+    private final String timestampField;
+    private final long interval;
+    private final List<String> metricFields;
+    private final long numBuckets;
+    private final IndexInput data;
+
+    PreAggregations(String timestampField, long interval, List<String> metricFields, long numBuckets, IndexInput data) {
+        this.timestampField = timestampField;
+        this.interval = interval;
+        this.metricFields = List.copyOf(metricFields);
+        this.numBuckets = numBuckets;
+        this.data = data;
+    }
+
+    static int bucketSize(int numMetrics) {
+        return Long.BYTES + Integer.BYTES + numMetrics * (Long.BYTES + 3 * Double.BYTES);
+    }
+
+    /**
+     * The field whose values are rounded down to a multiple of {@link #interval()} to compute the key of the bucket of documents.
+     */
+    public String timestampField() {
+        return timestampField;
+    }
+
+    /**
+     * The width of buckets, in the unit of the values of {@link #timestampField()}.
+     */
+    public long interval() {
+        return interval;
+    }
+
+    /**
+     * The fields whose values are aggregated per bucket, the index of a field in this list is its index in
+     * {@link BucketIterator} methods.
+     */
+    public List<String> metricFields() {
+        return metricFields;
+    }
+
+    public long numBuckets() {
+        return numBuckets;
+    }
+
+    /**
+     * Returns a new iterator over the buckets, sorted by key.
+     */
+    public BucketIterator iterator() {
+        return new BucketIterator(data.clone(), numBuckets, metricFields.size());
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        // buckets are read from the index files, only the names of the fields are on heap
+        long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(metricFields.toArray());
+        ramBytesUsed += Character.BYTES * timestampField.length();
+        for (String metricField : metricFields) {
+            ramBytesUsed += Character.BYTES * metricField.length();
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public String toString() {
+        return "PreAggregations(timestamp=" + timestampField + ",interval=" + interval + ",metrics=" + metricFields
+            + ",buckets=" + numBuckets + ")";
+    }
+
+    /**
+     * Returns the pre-aggregations of the segment of the given reader, or {@code null} if the segment doesn't have any. Beware
+     * that filter readers are unwrapped, so callers must check that the given reader exposes all documents and fields that the
+     * pre-aggregations cover.
+     */
+    @Nullable
+    public static PreAggregations get(LeafReader reader) {
+        while (true) {
+            if (reader instanceof FilterLeafReader) {
+                reader = FilterLeafReader.unwrap(reader);
+            } else if (reader instanceof FilterCodecReader) {
+                reader = FilterCodecReader.unwrap((FilterCodecReader) reader);
+            } else {
+                break;
+            }
+        }
+        if (reader instanceof CodecReader == false) {
+            return null;
+        }
+        final DocValuesProducer docValuesReader = ((CodecReader) reader).getDocValuesReader();
+        // the per-field doc values reader only exposes the producers of each format as child resources
+        return docValuesReader == null ? null : find(docValuesReader.getChildResources());
+    }
+
+    private static PreAggregations find(Collection<Accountable> resources) {
+        for (Accountable resource : resources) {
+            if (resource instanceof PreAggregations) {
+                return (PreAggregations) resource;
+            }
+            final PreAggregations preAggregations = find(resource.getChildResources());
+            if (preAggregations != null) {
+                return preAggregations;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Iterates over the buckets of a segment, sorted by key.
+     */
+    public static final class BucketIterator {
+
+        private final IndexInput data;
+        private final long numBuckets;
+        private long bucket = -1;
+        private long key;
+        private int docCount;
+        private final long[] valueCounts;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxes;
+
+        private BucketIterator(IndexInput data, long numBuckets, int numMetrics) {
+            this.data = data;
+            this.numBuckets = numBuckets;
+            this.valueCounts = new long[numMetrics];
+            this.sums = new double[numMetrics];
+            this.mins = new double[numMetrics];
+            this.maxes = new double[numMetrics];
+        }
+
+        /**
+         * Moves to the next bucket and returns {@code false} if there are no more buckets.
+         */
+        public boolean next() throws IOException {
+            if (++bucket >= numBuckets) {
+                return false;
+            }
+            key = data.readLong();
+            docCount = data.readInt();
+            for (int i = 0; i < valueCounts.length; i++) {
+                valueCounts[i] = data.readLong();
+                sums[i] = Double.longBitsToDouble(data.readLong());
+                mins[i] = Double.longBitsToDouble(data.readLong());
+                maxes[i] = Double.longBitsToDouble(data.readLong());
+            }
+            return true;
+        }
+
+        /**
+         * The smallest timestamp of the bucket, a multiple of the interval.
+         */
+        public long key() {
+            return key;
+        }
+
+        public int docCount() {
+            return docCount;
+        }
+
+        public long valueCount(int metric) {
+            return valueCounts[metric];
+        }
+
+        public double sum(int metric) {
+            return sums[metric];
+        }
+
+        /**
+         * The minimum value of the metric in the bucket, or {@link Double#POSITIVE_INFINITY} if it has no values.
+         */
+        public double min(int metric) {
+            return mins[metric];
+        }
+
+        /**
+         * The maximum value of the metric in the bucket, or {@link Double#NEGATIVE_INFINITY} if it has no values.
+         */
+        public double max(int metric) {
+            return maxes[metric];
+        }
+    }
+}
@@ -45,6 +45,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.SetOnce;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.index.IndexRequest;
@@ -90,6 +91,7 @@ import java.io.UncheckedIOException;
 import java.nio.file.NoSuchFileException;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -380,6 +382,17 @@ public abstract class Engine implements Closeable {
      */
     public abstract DeleteResult delete(Delete delete) throws IOException;
 
+    /**
+     * Resolves the versions of the documents with the given uids from the index ahead of applying a batch of index and delete
+     * operations on these uids as a primary, such that the index only needs to be searched once for the whole batch rather than
+     * once per operation. The returned releasable must be closed once the operations of the batch were applied.
+     *
+     * The default implementation does nothing.
+     */
+    public Releasable preloadDocVersions(Collection<BytesRef> uids) throws IOException {
+        return () -> {};
+    }
+
     public abstract NoOpResult noOp(NoOp noOp) throws IOException;
 
     /**
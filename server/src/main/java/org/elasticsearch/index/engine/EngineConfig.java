@@ -116,6 +116,15 @@ public final class EngineConfig {
         }
     }, Property.IndexScope, Property.NodeScope);
 
+    /**
+     * Index setting to choose how the live version map keeps the versions of documents that were indexed since the last refresh.
+     * {@code heap} keeps an object per document in a concurrent hash map, {@code paged} packs the documents into recycled
+     * {@link org.elasticsearch.common.util.BigArrays} pages which are accounted for in the accounting circuit breaker.
+     * This setting is <b>not</b> realtime updateable.
+     */
+    public static final Setting<String> INDEX_VERSION_MAP_STORAGE_SETTING = new Setting<>("index.version_map.storage",
+        LiveVersionStore.Type.HEAP.toString(), s -> LiveVersionStore.Type.fromString(s).toString(), Property.IndexScope);
+
     private final TranslogConfig translogConfig;
 
     /**
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link LiveVersionStore} that keeps a {@link BytesRef} and a {@link VersionValue} object per uid in a concurrent hash map.
+ */
+final class HeapLiveVersionStore implements LiveVersionStore {
+
+    static final HeapLiveVersionStore EMPTY = new HeapLiveVersionStore(Collections.emptyMap());
+
+    /**
+     * Bytes consumed for each BytesRef UID:
+     * In this base value, we account for the {@link BytesRef} object itself as
+     * well as the header of the byte[] array it holds, and some lost bytes due
+     * to object alignment. So consumers of this constant just have to add the
+     * length of the byte[] (assuming it is not shared between multiple
+     * instances).
+     */
+    static final long BASE_BYTES_PER_BYTESREF =
+        // shallow memory usage of the BytesRef object
+        RamUsageEstimator.shallowSizeOfInstance(BytesRef.class) +
+            // header of the byte[] array
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER +
+            // with an alignment size (-XX:ObjectAlignmentInBytes) of 8 (default),
+            // there could be between 0 and 7 lost bytes, so we account for 3
+            // lost bytes on average
+            3;
+
+    /**
+     * Bytes used by having CHM point to a key/value.
+     */
+    static final long BASE_BYTES_PER_CHM_ENTRY;
+
+    static {
+        // use the same impl as the stores do
+        Map<Integer, Integer> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+        map.put(0, 0);
+        long chmEntryShallowSize = RamUsageEstimator.shallowSizeOf(map.entrySet().iterator().next());
+        // assume a load factor of 50%
+        // for each entry, we need two object refs, one for the entry itself
+        // and one for the free space that is due to the fact hash tables can
+        // not be fully loaded
+        BASE_BYTES_PER_CHM_ENTRY = chmEntryShallowSize + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+    }
+
+    /** Tracks bytes used by this store, i.e. what is freed on refresh. */
+    private final AtomicLong ramBytesUsed = new AtomicLong();
+
+    private final Map<BytesRef, VersionValue> map;
+
+    HeapLiveVersionStore(int expectedSize) {
+        this(ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency(expectedSize));
+    }
+
+    private HeapLiveVersionStore(Map<BytesRef, VersionValue> map) {
+        this.map = map;
+    }
+
+    @Override
+    public VersionValue get(BytesRef uid) {
+        return map.get(uid);
+    }
+
+    @Override
+    public VersionValue put(BytesRef uid, IndexVersionValue version) {
+        long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
+        long ramAccounting = BASE_BYTES_PER_CHM_ENTRY + version.ramBytesUsed() + uidRAMBytesUsed;
+        VersionValue previousValue = map.put(uid, version);
+        ramAccounting += previousValue == null ? 0 : -(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed);
+        adjustRam(ramAccounting);
+        return previousValue;
+    }
+
+    @Override
+    public VersionValue remove(BytesRef uid) {
+        VersionValue previousValue = map.remove(uid);
+        if (previousValue != null) {
+            long uidRAMBytesUsed = BASE_BYTES_PER_BYTESREF + uid.bytes.length;
+            adjustRam(-(BASE_BYTES_PER_CHM_ENTRY + previousValue.ramBytesUsed() + uidRAMBytesUsed));
+        }
+        return previousValue;
+    }
+
+    private void adjustRam(long value) {
+        if (value != 0) {
+            long v = ramBytesUsed.addAndGet(value);
+            assert v >= 0 : "bytes=" + v;
+        }
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed.get();
+    }
+
+    @Override
+    public Map<BytesRef, VersionValue> asMap() {
+        return map;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release, the map is garbage collected once it is no longer referenced
+    }
+}
@@ -58,6 +58,7 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.SuppressForbidden;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.LoggerInfoStream;
 import org.elasticsearch.common.lucene.Lucene;
@@ -65,8 +66,11 @@ import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver;
 import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver.DocIdAndSeqNo;
+import org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver.DocIdAndVersion;
 import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.KeyedLock;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.core.internal.io.IOUtils;
@@ -100,6 +104,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -139,7 +144,7 @@ public class InternalEngine extends Engine {
 
     // A uid (in the form of BytesRef) to the version map
     // we use the hashed variant since we iterate over it and check removal and additions on existing keys
-    private final LiveVersionMap versionMap = new LiveVersionMap();
+    private final LiveVersionMap versionMap;
 
     private volatile SegmentInfos lastCommittedSegmentInfos;
 
@@ -162,6 +167,10 @@ public class InternalEngine extends Engine {
     private final AtomicLong maxSeqNoOfUpdatesOrDeletes;
     private final CounterMetric numVersionLookups = new CounterMetric();
     private final CounterMetric numIndexVersionsLookups = new CounterMetric();
+    private final CounterMetric numPreloadedVersionLookups = new CounterMetric();
+    // versions that were resolved from the index for the uids of batches that are being applied, see #preloadDocVersions
+    private final Map<BytesRef, PreloadedDocVersion> preloadedDocVersions =
+        ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
     // Lucene operations since this engine was opened - not include operations from existing segments.
     private final CounterMetric numDocDeletes = new CounterMetric();
     private final CounterMetric numDocAppends = new CounterMetric();
@@ -189,6 +198,7 @@ public class InternalEngine extends Engine {
                 engineConfig.getIndexSettings().getTranslogRetentionSize().getBytes(),
                 engineConfig.getIndexSettings().getTranslogRetentionAge().getMillis()
         );
+        this.versionMap = createVersionMap(engineConfig);
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -271,6 +281,20 @@ public class InternalEngine extends Engine {
         logger.trace("created new InternalEngine");
     }
 
+    private static LiveVersionMap createVersionMap(EngineConfig engineConfig) {
+        final String storage = EngineConfig.INDEX_VERSION_MAP_STORAGE_SETTING.get(engineConfig.getIndexSettings().getSettings());
+        switch (LiveVersionStore.Type.fromString(storage)) {
+            case HEAP:
+                return new LiveVersionMap();
+            case PAGED:
+                // versions are added after the operation was applied to lucene so we must not trip the breaker but only account for them
+                final BigArrays bigArrays = engineConfig.getTranslogConfig().getBigArrays().withBreaker(CircuitBreaker.ACCOUNTING);
+                return new LiveVersionMap(expectedSize -> new PagedLiveVersionStore(expectedSize, bigArrays));
+            default:
+                throw new IllegalArgumentException("unknown version map storage [" + storage + "]");
+        }
+    }
+
     private LocalCheckpointTracker createLocalCheckpointTracker(
         BiFunction<Long, Long, LocalCheckpointTracker> localCheckpointTrackerSupplier) throws IOException {
         final long maxSeqNo;
@@ -731,9 +755,9 @@ public class InternalEngine extends Engine {
         VersionValue versionValue = getVersionFromMap(op.uid().bytes());
         if (versionValue == null) {
             assert incrementIndexVersionLookup(); // used for asserting in tests
-            final VersionsAndSeqNoResolver.DocIdAndVersion docIdAndVersion;
+            final DocIdAndVersion docIdAndVersion;
             try (Searcher searcher = acquireSearcher("load_version", SearcherScope.INTERNAL)) {
-                 docIdAndVersion = VersionsAndSeqNoResolver.loadDocIdAndVersion(searcher.getIndexReader(), op.uid(), loadSeqNo);
+                 docIdAndVersion = loadDocIdAndVersion(searcher.getIndexReader(), op.uid(), loadSeqNo);
             }
             if (docIdAndVersion != null) {
                 versionValue = new IndexVersionValue(null, docIdAndVersion.version, docIdAndVersion.seqNo, docIdAndVersion.primaryTerm);
@@ -745,7 +769,69 @@ public class InternalEngine extends Engine {
         return versionValue;
     }
 
+    private DocIdAndVersion loadDocIdAndVersion(IndexReader reader, Term uid, boolean loadSeqNo) throws IOException {
+        final PreloadedDocVersion preloaded = preloadedDocVersions.get(uid.bytes());
+        // the preloaded version is only accurate if the reader was not refreshed in the meantime
+        if (preloaded != null && preloaded.readerKey == reader.getReaderCacheHelper().getKey()) {
+            assert incrementPreloadedVersionLookup();
+            final DocIdAndVersion docIdAndVersion = preloaded.docIdAndVersion;
+            if (docIdAndVersion == null || loadSeqNo) {
+                return docIdAndVersion;
+            }
+            return new DocIdAndVersion(docIdAndVersion.docId, docIdAndVersion.version, SequenceNumbers.UNASSIGNED_SEQ_NO,
+                SequenceNumbers.UNASSIGNED_PRIMARY_TERM, docIdAndVersion.reader, docIdAndVersion.docBase);
+        }
+        return VersionsAndSeqNoResolver.loadDocIdAndVersion(reader, uid, loadSeqNo);
+    }
+
+    @Override
+    public Releasable preloadDocVersions(Collection<BytesRef> uids) throws IOException {
+        final BytesRef[] sortedUids = uids.stream().sorted().distinct().toArray(BytesRef[]::new);
+        if (sortedUids.length == 0) {
+            return () -> {};
+        }
+        final Map<BytesRef, PreloadedDocVersion> preloaded = new HashMap<>(sortedUids.length);
+        try (ReleasableLock ignored = readLock.acquire()) {
+            ensureOpen();
+            // operations on these uids will require safe access to the version map, switch to it before we open the searcher
+            // as switching might need a refresh
+            ensureSafeVersionMapAccess();
+            try (Searcher searcher = acquireSearcher("preload_versions", SearcherScope.INTERNAL)) {
+                final IndexReader reader = searcher.getIndexReader();
+                final IndexReader.CacheKey readerKey = reader.getReaderCacheHelper().getKey();
+                final DocIdAndVersion[] docIdAndVersions =
+                    VersionsAndSeqNoResolver.loadDocIdsAndVersions(reader, IdFieldMapper.NAME, sortedUids, true);
+                for (int i = 0; i < sortedUids.length; i++) {
+                    final PreloadedDocVersion preloadedDocVersion = new PreloadedDocVersion(readerKey, docIdAndVersions[i]);
+                    preloaded.put(sortedUids[i], preloadedDocVersion);
+                    // concurrent batches might preload the same uid, the last one wins and the others fall back to a regular lookup
+                    preloadedDocVersions.put(sortedUids[i], preloadedDocVersion);
+                }
+            }
+        } catch (Exception e) {
+            preloaded.forEach(preloadedDocVersions::remove);
+            throw e;
+        }
+        return () -> preloaded.forEach(preloadedDocVersions::remove);
+    }
+
+    private static final class PreloadedDocVersion {
+        final IndexReader.CacheKey readerKey;
+        @Nullable
+        final DocIdAndVersion docIdAndVersion;
+
+        PreloadedDocVersion(IndexReader.CacheKey readerKey, @Nullable DocIdAndVersion docIdAndVersion) {
+            this.readerKey = readerKey;
+            this.docIdAndVersion = docIdAndVersion;
+        }
+    }
+
     private VersionValue getVersionFromMap(BytesRef id) {
+        ensureSafeVersionMapAccess();
+        return versionMap.getUnderLock(id);
+    }
+
+    private void ensureSafeVersionMapAccess() {
         if (versionMap.isUnsafe()) {
             synchronized (versionMap) {
                 // we are switching from an unsafe map to a safe map. This might happen concurrently
@@ -757,7 +843,6 @@ public class InternalEngine extends Engine {
                 versionMap.enforceSafeAccess();
             }
         }
-        return versionMap.getUnderLock(id);
     }
 
     private boolean canOptimizeAddDocument(Index index) {
@@ -2492,6 +2577,19 @@ public class InternalEngine extends Engine {
         return true;
     }
 
+    /**
+     * Returns the number of times a version was looked up from the versions that were preloaded for a batch.
+     * Note this is only available if assertions are enabled
+     */
+    long getNumPreloadedVersionLookups() { // for testing
+        return numPreloadedVersionLookups.count();
+    }
+
+    private boolean incrementPreloadedVersionLookup() {
+        numPreloadedVersionLookups.inc();
+        return true;
+    }
+
     private boolean incrementIndexVersionLookup() {
         numIndexVersionsLookups.inc();
         return true;
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Holds the versions of the uids that were indexed since the last refresh for a {@link LiveVersionMap}. A new store is created for every
+ * refresh cycle and released once its entries are visible through the newly opened reader. Implementations must be safe for concurrent
+ * access to different uids; accesses to the same uid are serialized by the uid lock of the {@link LiveVersionMap}. Lookups on a store
+ * that was already released must behave as if the store was empty.
+ */
+interface LiveVersionStore extends Releasable {
+
+    /**
+     * The available implementations, selected per index through {@link EngineConfig#INDEX_VERSION_MAP_STORAGE_SETTING}.
+     */
+    enum Type {
+        /** uids and versions are kept in a concurrent hash map of objects, see {@link HeapLiveVersionStore} */
+        HEAP,
+        /** uids and versions are packed into recycled pages, see {@link PagedLiveVersionStore} */
+        PAGED;
+
+        public static Type fromString(String type) {
+            switch (type) {
+                case "heap":
+                    return HEAP;
+                case "paged":
+                    return PAGED;
+                default:
+                    throw new IllegalArgumentException("unknown version map storage [" + type + "], must be one of [heap, paged]");
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Returns the version for the given uid or {@code null} if the uid is not contained in this store.
+     */
+    VersionValue get(BytesRef uid);
+
+    /**
+     * Associates the given version with the uid and returns the previous version or {@code null} if there was none.
+     */
+    VersionValue put(BytesRef uid, IndexVersionValue version);
+
+    /**
+     * Removes the given uid and returns its previous version or {@code null} if there was none.
+     */
+    VersionValue remove(BytesRef uid);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of bytes that are freed once this store is released.
+     */
+    long ramBytesUsed();
+
+    /**
+     * Returns a point in time view of the entries of this store.
+     */
+    Map<BytesRef, VersionValue> asMap();
+}
@@ -0,0 +1,263 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link LiveVersionStore} that packs uids and versions into {@link BigArrays} pages instead of keeping several objects per uid.
+ * Uids are stored in an open-addressing {@link BytesRefHash} keyed by the murmur3 hash of their bytes, the version, seq# and term as
+ * well as the translog location live in parallel arrays indexed by the id that the hash assigns to the uid. Since the pages are
+ * allocated through {@link BigArrays} they are recycled across refreshes and accounted for in the circuit breaker of the given
+ * {@link BigArrays} instance.
+ * <p>
+ * The hash is split into independently locked stripes, selected by the high bits of the uid hash, such that indexing threads that work on
+ * different uids rarely contend. Entries can't be removed from the hash, removed uids are only marked as such and their space is
+ * reclaimed when the whole store is released after the next refresh.
+ */
+final class PagedLiveVersionStore implements LiveVersionStore {
+
+    private static final int STRIPES = 16;
+    private static final int STRIPE_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+    private static final int MIN_STRIPE_CAPACITY = 16;
+
+    // stored in the location generation array if the version has no translog location, generations are never negative
+    private static final long NO_LOCATION = -1;
+    // stored in the location generation array if the uid was removed
+    private static final long REMOVED = -2;
+
+    private final Stripe[] stripes;
+
+    PagedLiveVersionStore(int expectedSize, BigArrays bigArrays) {
+        final int stripeCapacity = Math.max(MIN_STRIPE_CAPACITY, expectedSize / STRIPES);
+        stripes = new Stripe[STRIPES];
+        boolean success = false;
+        try {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe(stripeCapacity, bigArrays);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(stripes);
+            }
+        }
+    }
+
+    private Stripe stripe(int code) {
+        return stripes[code >>> STRIPE_SHIFT];
+    }
+
+    @Override
+    public VersionValue get(BytesRef uid) {
+        final int code = uid.hashCode();
+        return stripe(code).get(uid, code);
+    }
+
+    @Override
+    public VersionValue put(BytesRef uid, IndexVersionValue version) {
+        final int code = uid.hashCode();
+        return stripe(code).put(uid, code, version);
+    }
+
+    @Override
+    public VersionValue remove(BytesRef uid) {
+        final int code = uid.hashCode();
+        return stripe(code).remove(uid, code);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size;
+        }
+        return size;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Stripe stripe : stripes) {
+            ramBytesUsed += stripe.ramBytesUsed;
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Map<BytesRef, VersionValue> asMap() {
+        final Map<BytesRef, VersionValue> map = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.copyTo(map);
+        }
+        return map;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(stripes);
+    }
+
+    private static final class Stripe implements Releasable {
+
+        private final BigArrays bigArrays;
+        private final BytesRefHash uids;
+        private final BytesRef spare = new BytesRef();
+        private LongArray versions;
+        private LongArray seqNos;
+        private LongArray terms;
+        private LongArray locationGenerations;
+        private LongArray locationOffsets;
+        private IntArray locationSizes;
+        private boolean closed;
+        // the number of live entries and the bytes used by this stripe, written under lock but read without it
+        private volatile int size;
+        private volatile long ramBytesUsed;
+
+        Stripe(int capacity, BigArrays bigArrays) {
+            this.bigArrays = bigArrays;
+            boolean success = false;
+            try {
+                uids = new BytesRefHash(capacity, bigArrays);
+                versions = bigArrays.newLongArray(capacity, false);
+                seqNos = bigArrays.newLongArray(capacity, false);
+                terms = bigArrays.newLongArray(capacity, false);
+                locationGenerations = bigArrays.newLongArray(capacity, false);
+                locationOffsets = bigArrays.newLongArray(capacity, false);
+                locationSizes = bigArrays.newIntArray(capacity, false);
+                success = true;
+            } finally {
+                if (success == false) {
+                    close();
+                }
+            }
+            updateRamBytesUsed();
+        }
+
+        synchronized VersionValue get(BytesRef uid, int code) {
+            if (closed) {
+                return null;
+            }
+            final long id = uids.find(uid, code);
+            return id < 0 ? null : read(id);
+        }
+
+        synchronized VersionValue put(BytesRef uid, int code, IndexVersionValue version) {
+            if (closed) {
+                // a concurrent refresh or close released this store, its content doesn't matter anymore
+                return null;
+            }
+            long id = uids.add(uid, code);
+            final VersionValue previous;
+            if (id < 0) {
+                id = -1 - id;
+                previous = read(id);
+            } else {
+                previous = null;
+                versions = bigArrays.grow(versions, id + 1);
+                seqNos = bigArrays.grow(seqNos, id + 1);
+                terms = bigArrays.grow(terms, id + 1);
+                locationGenerations = bigArrays.grow(locationGenerations, id + 1);
+                locationOffsets = bigArrays.grow(locationOffsets, id + 1);
+                locationSizes = bigArrays.grow(locationSizes, id + 1);
+                updateRamBytesUsed();
+            }
+            versions.set(id, version.version);
+            seqNos.set(id, version.seqNo);
+            terms.set(id, version.term);
+            final Translog.Location location = version.getLocation();
+            if (location == null) {
+                locationGenerations.set(id, NO_LOCATION);
+            } else {
+                assert location.generation >= 0 : "negative translog generation " + location;
+                locationGenerations.set(id, location.generation);
+                locationOffsets.set(id, location.translogLocation);
+                locationSizes.set(id, location.size);
+            }
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+
+        synchronized VersionValue remove(BytesRef uid, int code) {
+            if (closed) {
+                return null;
+            }
+            final long id = uids.find(uid, code);
+            if (id < 0) {
+                return null;
+            }
+            final VersionValue previous = read(id);
+            if (previous != null) {
+                locationGenerations.set(id, REMOVED);
+                size--;
+            }
+            return previous;
+        }
+
+        private VersionValue read(long id) {
+            final long locationGeneration = locationGenerations.get(id);
+            if (locationGeneration == REMOVED) {
+                return null;
+            }
+            final Translog.Location location = locationGeneration == NO_LOCATION ? null :
+                new Translog.Location(locationGeneration, locationOffsets.get(id), locationSizes.get(id));
+            return new IndexVersionValue(location, versions.get(id), seqNos.get(id), terms.get(id));
+        }
+
+        synchronized void copyTo(Map<BytesRef, VersionValue> map) {
+            if (closed) {
+                return;
+            }
+            for (long id = 0; id < uids.size(); id++) {
+                final VersionValue value = read(id);
+                if (value != null) {
+                    map.put(BytesRef.deepCopyOf(uids.get(id, spare)), value);
+                }
+            }
+        }
+
+        private void updateRamBytesUsed() {
+            ramBytesUsed = uids.ramBytesUsed() + versions.ramBytesUsed() + seqNos.ramBytesUsed() + terms.ramBytesUsed()
+                + locationGenerations.ramBytesUsed() + locationOffsets.ramBytesUsed() + locationSizes.ramBytesUsed();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed == false) {
+                closed = true;
+                size = 0;
+                ramBytesUsed = 0;
+                Releasables.close(uids, versions, seqNos, terms, locationGenerations, locationOffsets, locationSizes);
+            }
+        }
+    }
+}
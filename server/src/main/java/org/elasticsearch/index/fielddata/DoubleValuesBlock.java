@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata;
+
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * A reusable buffer for the double values of a block of documents, see
+ * {@link SortedNumericDoubleValues#readValues(int[], int, DoubleValuesBlock)}.
+ */
+public final class DoubleValuesBlock {
+
+    private double[] values = new double[16];
+    private int size;
+
+    /**
+     * Returns the values of the block, only the first {@link #size()} entries are valid.
+     */
+    public double[] values() {
+        return values;
+    }
+
+    /**
+     * Returns the number of values in the block.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all the values of the block.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Makes sure that {@code count} more values can be added without growing the buffer.
+     */
+    public void ensureCapacity(int count) {
+        values = ArrayUtil.grow(values, size + count);
+    }
+
+    /**
+     * Adds a value to the block, {@link #ensureCapacity(int)} must have been called before.
+     */
+    public void add(double value) {
+        values[size++] = value;
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.fielddata;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.FieldMemoryStats;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -26,6 +27,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
@@ -39,10 +41,19 @@ public class FieldDataStats implements Streamable, Writeable, ToXContentFragment
     private static final String MEMORY_SIZE_IN_BYTES = "memory_size_in_bytes";
     private static final String EVICTIONS = "evictions";
     private static final String FIELDS = "fields";
+    private static final String GLOBAL_ORDINALS = "global_ordinals";
+    private static final String BUILD_COUNT = "build_count";
+    private static final String INCREMENTAL_BUILD_COUNT = "incremental_build_count";
+    private static final String BUILD_TIME = "build_time";
+    private static final String BUILD_TIME_IN_MILLIS = "build_time_in_millis";
     private long memorySize;
     private long evictions;
     @Nullable
     private FieldMemoryStats fields;
+    private long globalOrdinalsMemorySize;
+    private long globalOrdinalsBuildCount;
+    private long globalOrdinalsIncrementalBuildCount;
+    private long globalOrdinalsBuildTimeInMillis;
 
     public FieldDataStats() {
 
@@ -52,12 +63,27 @@ public class FieldDataStats implements Streamable, Writeable, ToXContentFragment
         memorySize = in.readVLong();
         evictions = in.readVLong();
         fields = in.readOptionalWriteable(FieldMemoryStats::new);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            globalOrdinalsMemorySize = in.readVLong();
+            globalOrdinalsBuildCount = in.readVLong();
+            globalOrdinalsIncrementalBuildCount = in.readVLong();
+            globalOrdinalsBuildTimeInMillis = in.readVLong();
+        }
     }
 
     public FieldDataStats(long memorySize, long evictions, @Nullable FieldMemoryStats fields) {
+        this(memorySize, evictions, fields, 0, 0, 0, 0);
+    }
+
+    public FieldDataStats(long memorySize, long evictions, @Nullable FieldMemoryStats fields, long globalOrdinalsMemorySize,
+                          long globalOrdinalsBuildCount, long globalOrdinalsIncrementalBuildCount, long globalOrdinalsBuildTimeInMillis) {
         this.memorySize = memorySize;
         this.evictions = evictions;
         this.fields = fields;
+        this.globalOrdinalsMemorySize = globalOrdinalsMemorySize;
+        this.globalOrdinalsBuildCount = globalOrdinalsBuildCount;
+        this.globalOrdinalsIncrementalBuildCount = globalOrdinalsIncrementalBuildCount;
+        this.globalOrdinalsBuildTimeInMillis = globalOrdinalsBuildTimeInMillis;
     }
 
     public void add(FieldDataStats stats) {
@@ -70,6 +96,10 @@ public class FieldDataStats implements Streamable, Writeable, ToXContentFragment
                 fields.add(stats.fields);
             }
         }
+        this.globalOrdinalsMemorySize += stats.globalOrdinalsMemorySize;
+        this.globalOrdinalsBuildCount += stats.globalOrdinalsBuildCount;
+        this.globalOrdinalsIncrementalBuildCount += stats.globalOrdinalsIncrementalBuildCount;
+        this.globalOrdinalsBuildTimeInMillis += stats.globalOrdinalsBuildTimeInMillis;
     }
 
     public long getMemorySizeInBytes() {
@@ -89,6 +119,40 @@ public class FieldDataStats implements Streamable, Writeable, ToXContentFragment
         return fields;
     }
 
+    /**
+     * Returns the memory used by global ordinals, which is included in {@link #getMemorySizeInBytes()}.
+     */
+    public long getGlobalOrdinalsMemorySizeInBytes() {
+        return globalOrdinalsMemorySize;
+    }
+
+    public ByteSizeValue getGlobalOrdinalsMemorySize() {
+        return new ByteSizeValue(globalOrdinalsMemorySize);
+    }
+
+    /**
+     * Returns the number of times that global ordinals were built.
+     */
+    public long getGlobalOrdinalsBuildCount() {
+        return globalOrdinalsBuildCount;
+    }
+
+    /**
+     * Returns the number of times that global ordinals were built from the ones of a previous reader, out of
+     * {@link #getGlobalOrdinalsBuildCount()}.
+     */
+    public long getGlobalOrdinalsIncrementalBuildCount() {
+        return globalOrdinalsIncrementalBuildCount;
+    }
+
+    public long getGlobalOrdinalsBuildTimeInMillis() {
+        return globalOrdinalsBuildTimeInMillis;
+    }
+
+    public TimeValue getGlobalOrdinalsBuildTime() {
+        return new TimeValue(globalOrdinalsBuildTimeInMillis);
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         throw new UnsupportedOperationException("usage of Streamable is to be replaced by Writeable");
@@ -99,6 +163,12 @@ public class FieldDataStats implements Streamable, Writeable, ToXContentFragment
         out.writeVLong(memorySize);
         out.writeVLong(evictions);
         out.writeOptionalWriteable(fields);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(globalOrdinalsMemorySize);
+            out.writeVLong(globalOrdinalsBuildCount);
+            out.writeVLong(globalOrdinalsIncrementalBuildCount);
+            out.writeVLong(globalOrdinalsBuildTimeInMillis);
+        }
     }
 
     @Override
@@ -109,6 +179,14 @@ public class FieldDataStats implements Streamable, Writeable, ToXContentFragment
         if (fields != null) {
             fields.toXContent(builder, FIELDS, MEMORY_SIZE_IN_BYTES, MEMORY_SIZE);
         }
+        if (globalOrdinalsBuildCount > 0) {
+            builder.startObject(GLOBAL_ORDINALS);
+            builder.humanReadableField(MEMORY_SIZE_IN_BYTES, MEMORY_SIZE, getGlobalOrdinalsMemorySize());
+            builder.field(BUILD_COUNT, globalOrdinalsBuildCount);
+            builder.field(INCREMENTAL_BUILD_COUNT, globalOrdinalsIncrementalBuildCount);
+            builder.humanReadableField(BUILD_TIME_IN_MILLIS, BUILD_TIME, getGlobalOrdinalsBuildTime());
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -120,11 +198,16 @@ public class FieldDataStats implements Streamable, Writeable, ToXContentFragment
         FieldDataStats that = (FieldDataStats) o;
         return memorySize == that.memorySize &&
             evictions == that.evictions &&
-            Objects.equals(fields, that.fields);
+            Objects.equals(fields, that.fields) &&
+            globalOrdinalsMemorySize == that.globalOrdinalsMemorySize &&
+            globalOrdinalsBuildCount == that.globalOrdinalsBuildCount &&
+            globalOrdinalsIncrementalBuildCount == that.globalOrdinalsIncrementalBuildCount &&
+            globalOrdinalsBuildTimeInMillis == that.globalOrdinalsBuildTimeInMillis;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(memorySize, evictions, fields);
+        return Objects.hash(memorySize, evictions, fields, globalOrdinalsMemorySize, globalOrdinalsBuildCount,
+            globalOrdinalsIncrementalBuildCount, globalOrdinalsBuildTimeInMillis);
     }
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.Accountable;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.shard.ShardId;
 
 /**
@@ -34,6 +35,23 @@ public interface IndexFieldDataCache {
     <FD extends AtomicFieldData, IFD extends IndexFieldData.Global<FD>> IFD load(DirectoryReader indexReader, IFD indexFieldData)
         throws Exception;
 
+    /**
+     * Returns whether the global field data of the given reader is cached. Unlike {@link #load(DirectoryReader, IndexFieldData.Global)}
+     * this never loads it.
+     */
+    default boolean isGlobalCached(DirectoryReader indexReader) {
+        return false;
+    }
+
+    /**
+     * Returns the global field data that this cache last loaded for the shard of the given reader, if it is still in use,
+     * so that global ordinals can be built from the ones of the previous reader of the shard. Returns {@code null} otherwise.
+     */
+    @Nullable
+    default IndexFieldData.Global<?> getPreviousGlobal(DirectoryReader indexReader) {
+        return null;
+    }
+
     /**
      * Clears all the field data stored cached in on this index.
      */
@@ -55,6 +73,13 @@ public interface IndexFieldDataCache {
          * Called after the fielddata is unloaded
          */
         default void onRemoval(ShardId shardId, String fieldName, boolean wasEvicted, long sizeInBytes){}
+
+        /**
+         * Called after the fielddata is unloaded, with the fielddata that was unloaded
+         */
+        default void onRemoval(ShardId shardId, String fieldName, boolean wasEvicted, Accountable ramUsage) {
+            onRemoval(shardId, fieldName, wasEvicted, ramUsage.ramBytesUsed());
+        }
     }
 
     class None implements IndexFieldDataCache {
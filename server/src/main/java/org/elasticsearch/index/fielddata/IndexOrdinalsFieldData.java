@@ -22,6 +22,7 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.util.LongValues;
 
 
 /**
@@ -48,10 +49,27 @@ public interface IndexOrdinalsFieldData extends IndexFieldData.Global<AtomicOrdi
      */
     OrdinalMap getOrdinalMap();
 
+    /**
+     * Returns the mapping from the ordinals of the segment at the given index to global ordinals, or null if segment
+     * ordinals are global ordinals. It doesn't require to build the {@link #getOrdinalMap() OrdinalMap}.
+     */
+    default LongValues getGlobalOrds(int segmentIndex) {
+        final OrdinalMap ordinalMap = getOrdinalMap();
+        return ordinalMap == null ? null : ordinalMap.getGlobalOrds(segmentIndex);
+    }
+
     /**
      * Whether this field data is able to provide a mapping between global and segment ordinals,
      * by returning the underlying {@link OrdinalMap}. If this method returns false, then calling
      * {@link #getOrdinalMap} will result in an {@link UnsupportedOperationException}.
      */
     boolean supportsGlobalOrdinalsMapping();
+
+    /**
+     * Whether {@link #loadGlobal} would return global ordinals for the given {@link IndexReader} without building them,
+     * because they are cached or because the reader has a single segment.
+     */
+    default boolean hasGlobalOrdinals(DirectoryReader indexReader) {
+        return true;
+    }
 }
@@ -54,4 +54,15 @@ final class SingletonSortedNumericDoubleValues extends SortedNumericDoubleValues
         return in.doubleValue();
     }
 
+    @Override
+    public void readValues(int[] docs, int count, DoubleValuesBlock block) throws IOException {
+        block.clear();
+        block.ensureCapacity(count);
+        for (int i = 0; i < count; ++i) {
+            if (in.advanceExact(docs[i])) {
+                block.add(in.doubleValue());
+            }
+        }
+    }
+
 }
@@ -53,4 +53,23 @@ public abstract class SortedNumericDoubleValues {
      */
     public abstract int docValueCount();
 
+    /**
+     * Reads the values of the first {@code count} documents of {@code docs} into {@code block}, which is cleared first.
+     * Documents must be in increasing order and the first document must be greater than or equal to the current doc ID.
+     * The values of each document are added in the order of {@link #nextValue()}, documents without values are skipped.
+     * This instance is positioned on the last document after this call.
+     */
+    public void readValues(int[] docs, int count, DoubleValuesBlock block) throws IOException {
+        block.clear();
+        for (int i = 0; i < count; ++i) {
+            if (advanceExact(docs[i])) {
+                final int valueCount = docValueCount();
+                block.ensureCapacity(valueCount);
+                for (int j = 0; j < valueCount; ++j) {
+                    block.add(nextValue());
+                }
+            }
+        }
+    }
+
 }
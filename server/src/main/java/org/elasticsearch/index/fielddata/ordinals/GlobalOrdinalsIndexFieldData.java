@@ -25,6 +25,7 @@ import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.LongValues;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.IndexSettings;
@@ -49,25 +50,30 @@ import java.util.function.Function;
  * Each instance of {@link Consumer} uses a new set of {@link TermsEnum} that can be reused during the collection,
  * this is done to avoid creating all segment's {@link TermsEnum} each time we want to access the values of a single
  * segment.
+ * The global ordinals are built incrementally from the ones of the previous reader of the shard when possible, see
+ * {@link IncrementalOrdinalMap}.
  */
 public final class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent implements IndexOrdinalsFieldData, Accountable {
 
     private final String fieldName;
     private final long memorySizeInBytes;
+    private final long buildTimeInNanos;
 
-    private final OrdinalMap ordinalMap;
+    private final IncrementalOrdinalMap ordinalMap;
     private final AtomicOrdinalsFieldData[] segmentAfd;
     private final Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction;
 
     protected GlobalOrdinalsIndexFieldData(IndexSettings indexSettings,
                                            String fieldName,
                                            AtomicOrdinalsFieldData[] segmentAfd,
-                                           OrdinalMap ordinalMap,
+                                           IncrementalOrdinalMap ordinalMap,
                                            long memorySizeInBytes,
+                                           long buildTimeInNanos,
                                            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) {
         super(indexSettings);
         this.fieldName = fieldName;
         this.memorySizeInBytes = memorySizeInBytes;
+        this.buildTimeInNanos = buildTimeInNanos;
         this.ordinalMap = ordinalMap;
         this.segmentAfd = segmentAfd;
         this.scriptFunction = scriptFunction;
@@ -121,9 +127,26 @@ public final class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent i
         throw new IllegalStateException("load(LeafReaderContext) should not be called in this context");
     }
 
+    /**
+     * {@inheritDoc}
+     * Global ordinals that {@link GlobalOrdinalsBuilder} built incrementally from the ones of a previous reader or with small
+     * segments kept apart don't have one, so consumers that need it must ask for a single {@link OrdinalMap} of all segments
+     * when building global ordinals. Prefer {@link #getGlobalOrds(int)}.
+     *
+     * @throws IllegalStateException if these global ordinals don't have an {@link OrdinalMap}
+     */
     @Override
     public OrdinalMap getOrdinalMap() {
-        return ordinalMap;
+        final OrdinalMap map = ordinalMap.getOrdinalMap();
+        if (map == null) {
+            throw new IllegalStateException("global ordinals of field [" + fieldName + "] are not backed by a single ordinal map");
+        }
+        return map;
+    }
+
+    @Override
+    public LongValues getGlobalOrds(int segmentIndex) {
+        return ordinalMap.getGlobalOrds(segmentIndex);
     }
 
     @Override
@@ -131,6 +154,24 @@ public final class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent i
         return true;
     }
 
+    IncrementalOrdinalMap getIncrementalOrdinalMap() {
+        return ordinalMap;
+    }
+
+    /**
+     * Returns whether these global ordinals were built from the ones of a previous reader.
+     */
+    public boolean isIncremental() {
+        return ordinalMap.isIncremental();
+    }
+
+    /**
+     * Returns how long it took to build these global ordinals, in nanoseconds.
+     */
+    public long getBuildTimeInNanos() {
+        return buildTimeInNanos;
+    }
+
     /**
      * A non-thread safe {@link IndexOrdinalsFieldData} for global ordinals that creates the {@link TermsEnum} of each
      * segment once and use them to provide a single lookup per segment.
@@ -237,7 +278,12 @@ public final class GlobalOrdinalsIndexFieldData extends AbstractIndexComponent i
 
         @Override
         public OrdinalMap getOrdinalMap() {
-            return ordinalMap;
+            return GlobalOrdinalsIndexFieldData.this.getOrdinalMap();
+        }
+
+        @Override
+        public LongValues getGlobalOrds(int segmentIndex) {
+            return ordinalMap.getGlobalOrds(segmentIndex);
         }
 
     }
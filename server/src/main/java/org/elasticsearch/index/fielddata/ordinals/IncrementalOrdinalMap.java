@@ -0,0 +1,521 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps segment ordinals to global ordinals like Lucene's {@link OrdinalMap}, but can reuse the mapping of a previous reader.
+ * The terms of the large segments of a reader are merged into a <i>base</i> {@link OrdinalMap}, and the terms of the other
+ * segments into a <i>delta</i> {@link OrdinalMap}. The global ordinals are the ordinals of the union of both, which only
+ * requires to find where each term of the delta map would be inserted among the terms of the base map. A later reader
+ * whose segments still contain all the segments of the base map, for instance after a refresh that only flushed or merged
+ * small segments, reuses the base map as-is and only merges the terms of its other segments into a new delta map.
+ * Segments are identified by their core cache key and the generation of the doc values of the field, so that doc values
+ * updates are never missed. The global ordinals of the segments of the delta map are computed when the map is built, so that
+ * looking them up costs the same as with an {@link OrdinalMap}. The global ordinal of a term of a segment of the base map is
+ * its ordinal in the base map plus the number of new terms that go before it. This number is sampled every
+ * {@value #BLOCK_SIZE} ordinals of the base map when the map is built. This costs a pass over the new terms and a few bits
+ * of memory per {@value #BLOCK_SIZE} terms of the base map, but never rewrites the mapping of the large segments. Lookups
+ * then only need to count the new terms that go before the term within its block, which usually has none.
+ */
+final class IncrementalOrdinalMap implements Accountable {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IncrementalOrdinalMap.class);
+    // segments that hold less than 1/MIN_BASE_SEGMENT_RATIO of the documents of the reader are likely to be merged
+    // soon, so they are kept out of the base map
+    private static final int MIN_BASE_SEGMENT_RATIO = 100;
+    // the number of new terms that go before a term of the base map is sampled every BLOCK_SIZE ordinals of the base map
+    private static final int BLOCK_SHIFT = 6;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private final OrdinalMap base;
+    private final IndexReader.CacheKey[] baseCoreKeys;
+    private final long[] baseDocValuesGens;
+    // the index of the leaf of each segment of the base and delta maps
+    private final int[] baseLeaves;
+    private final int[] deltaLeaves;
+    // for each leaf, the index of its segment in the base map, or -1 minus the index of its segment in the delta map
+    private final int[] leafSegments;
+    @Nullable
+    private final OrdinalMap delta;
+    // the global ordinals of each segment of the delta map
+    private final PackedLongValues[] deltaSegmentToGlobalOrds;
+    // for each term of the delta map that is not in the base map, in ascending order, its ordinal in the delta map and
+    // the number of terms of the base map that are smaller, so that its global ordinal is this number plus its index
+    private final PackedLongValues newTermDeltaOrds;
+    private final PackedLongValues newTermInsertionPoints;
+    // for each block of BLOCK_SIZE ordinals of the base map, and for the end of the base map, the number of new terms that go
+    // before the first ordinal of the block
+    private final PackedLongValues newTermsBeforeBlocks;
+    private final boolean incremental;
+
+    private IncrementalOrdinalMap(OrdinalMap base, IndexReader.CacheKey[] baseCoreKeys, long[] baseDocValuesGens, int[] baseLeaves,
+                                  int[] deltaLeaves, @Nullable OrdinalMap delta, PackedLongValues[] deltaSegmentToGlobalOrds,
+                                  PackedLongValues newTermDeltaOrds, PackedLongValues newTermInsertionPoints,
+                                  PackedLongValues newTermsBeforeBlocks, boolean incremental) {
+        this.base = base;
+        this.baseCoreKeys = baseCoreKeys;
+        this.baseDocValuesGens = baseDocValuesGens;
+        this.baseLeaves = baseLeaves;
+        this.deltaLeaves = deltaLeaves;
+        this.delta = delta;
+        this.deltaSegmentToGlobalOrds = deltaSegmentToGlobalOrds;
+        this.newTermDeltaOrds = newTermDeltaOrds;
+        this.newTermInsertionPoints = newTermInsertionPoints;
+        this.newTermsBeforeBlocks = newTermsBeforeBlocks;
+        this.incremental = incremental;
+        this.leafSegments = new int[baseLeaves.length + deltaLeaves.length];
+        for (int i = 0; i < baseLeaves.length; i++) {
+            leafSegments[baseLeaves[i]] = i;
+        }
+        for (int i = 0; i < deltaLeaves.length; i++) {
+            leafSegments[deltaLeaves[i]] = -1 - i;
+        }
+    }
+
+    /**
+     * Builds the global ordinals of the given field over the given leaves, reusing the base map of {@code previous} if all its
+     * segments are still part of the leaves.
+     *
+     * @param subs the ordinals of each leaf
+     */
+    static IncrementalOrdinalMap build(String field, List<LeafReaderContext> leaves, SortedSetDocValues[] subs,
+                                       @Nullable IncrementalOrdinalMap previous) throws IOException {
+        assert leaves.size() == subs.length;
+        final IndexReader.CacheKey[] coreKeys = coreKeys(leaves);
+        final long[] docValuesGens = docValuesGens(field, leaves);
+        long maxDoc = 0;
+        for (LeafReaderContext leaf : leaves) {
+            maxDoc += leaf.reader().maxDoc();
+        }
+
+        if (previous != null) {
+            final int[] baseLeaves = previous.findBaseLeaves(coreKeys, docValuesGens);
+            if (baseLeaves != null) {
+                final IncrementalOrdinalMap map = withDelta(previous.base, previous.baseCoreKeys, previous.baseDocValuesGens,
+                    baseLeaves, subs, true);
+                if (map != null) {
+                    return map;
+                }
+            }
+        }
+
+        int numBaseLeaves = 0;
+        final int[] largeLeaves = new int[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            if ((long) leaves.get(i).reader().maxDoc() * MIN_BASE_SEGMENT_RATIO >= maxDoc) {
+                largeLeaves[numBaseLeaves++] = i;
+            }
+        }
+        if (numBaseLeaves > 0 && numBaseLeaves < leaves.size()) {
+            final int[] baseLeaves = Arrays.copyOf(largeLeaves, numBaseLeaves);
+            final OrdinalMap base = OrdinalMap.build(null, select(subs, baseLeaves), PackedInts.DEFAULT);
+            final IncrementalOrdinalMap map = withDelta(base, select(coreKeys, baseLeaves), select(docValuesGens, baseLeaves),
+                baseLeaves, subs, false);
+            if (map != null) {
+                return map;
+            }
+        }
+        return full(coreKeys, docValuesGens, subs);
+    }
+
+    /**
+     * Builds the global ordinals of the given field over the given leaves with a single {@link OrdinalMap} of all leaves, which
+     * is then returned by {@link #getOrdinalMap()}.
+     *
+     * @param subs the ordinals of each leaf
+     */
+    static IncrementalOrdinalMap buildFull(String field, List<LeafReaderContext> leaves, SortedSetDocValues[] subs) throws IOException {
+        assert leaves.size() == subs.length;
+        return full(coreKeys(leaves), docValuesGens(field, leaves), subs);
+    }
+
+    private static IncrementalOrdinalMap full(IndexReader.CacheKey[] coreKeys, long[] docValuesGens,
+                                              SortedSetDocValues[] subs) throws IOException {
+        final int[] allLeaves = new int[subs.length];
+        for (int i = 0; i < allLeaves.length; i++) {
+            allLeaves[i] = i;
+        }
+        final OrdinalMap base = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+        final IncrementalOrdinalMap map = withDelta(base, coreKeys, docValuesGens, allLeaves, subs, false);
+        assert map != null;
+        return map;
+    }
+
+    private static IndexReader.CacheKey[] coreKeys(List<LeafReaderContext> leaves) {
+        final IndexReader.CacheKey[] coreKeys = new IndexReader.CacheKey[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            final IndexReader.CacheHelper cacheHelper = leaves.get(i).reader().getCoreCacheHelper();
+            coreKeys[i] = cacheHelper == null ? null : cacheHelper.getKey();
+        }
+        return coreKeys;
+    }
+
+    private static long[] docValuesGens(String field, List<LeafReaderContext> leaves) {
+        final long[] docValuesGens = new long[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            final FieldInfo fieldInfo = leaves.get(i).reader().getFieldInfos().fieldInfo(field);
+            docValuesGens[i] = fieldInfo == null ? -1 : fieldInfo.getDocValuesGen();
+        }
+        return docValuesGens;
+    }
+
+    /**
+     * Returns the index of the leaf of each segment of the base map, or {@code null} if one of them isn't part of the leaves.
+     */
+    @Nullable
+    private int[] findBaseLeaves(IndexReader.CacheKey[] coreKeys, long[] docValuesGens) {
+        final Map<IndexReader.CacheKey, Integer> leafByCoreKey = new HashMap<>();
+        for (int i = 0; i < coreKeys.length; i++) {
+            if (coreKeys[i] != null) {
+                leafByCoreKey.put(coreKeys[i], i);
+            }
+        }
+        final int[] leaves = new int[baseCoreKeys.length];
+        for (int i = 0; i < baseCoreKeys.length; i++) {
+            final Integer leaf = baseCoreKeys[i] == null ? null : leafByCoreKey.get(baseCoreKeys[i]);
+            if (leaf == null || docValuesGens[leaf] != baseDocValuesGens[i]) {
+                return null;
+            }
+            leaves[i] = leaf;
+        }
+        return leaves;
+    }
+
+    /**
+     * Merges the terms of the leaves that are not in the base map into a delta map, or returns {@code null} if seeking
+     * the terms of the delta map in the segments of the base map is likely to be slower than building a new base map.
+     */
+    @Nullable
+    private static IncrementalOrdinalMap withDelta(OrdinalMap base, IndexReader.CacheKey[] baseCoreKeys, long[] baseDocValuesGens,
+                                                   int[] baseLeaves, SortedSetDocValues[] subs, boolean incremental) throws IOException {
+        final boolean[] isBaseLeaf = new boolean[subs.length];
+        for (int leaf : baseLeaves) {
+            isBaseLeaf[leaf] = true;
+        }
+        final int[] deltaLeaves = new int[subs.length - baseLeaves.length];
+        for (int leaf = 0, i = 0; leaf < subs.length; leaf++) {
+            if (isBaseLeaf[leaf] == false) {
+                deltaLeaves[i++] = leaf;
+            }
+        }
+        final PackedLongValues.Builder deltaToGlobalOrds = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        final PackedLongValues.Builder newTermDeltaOrds = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        final PackedLongValues.Builder newTermInsertionPoints = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        if (deltaLeaves.length == 0) {
+            final PackedLongValues insertionPoints = newTermInsertionPoints.build();
+            return new IncrementalOrdinalMap(base, baseCoreKeys, baseDocValuesGens, baseLeaves, deltaLeaves, null,
+                new PackedLongValues[0], newTermDeltaOrds.build(), insertionPoints, sampleNewTermsBeforeBlocks(base, insertionPoints),
+                incremental);
+        }
+        final SortedSetDocValues[] deltaSubs = select(subs, deltaLeaves);
+        final OrdinalMap delta = OrdinalMap.build(null, deltaSubs, PackedInts.DEFAULT);
+        if (delta.getValueCount() * baseLeaves.length > base.getValueCount()) {
+            return null;
+        }
+
+        final TermsEnum[] deltaTermsEnums = new TermsEnum[deltaSubs.length];
+        for (int i = 0; i < deltaSubs.length; i++) {
+            deltaTermsEnums[i] = deltaSubs[i].termsEnum();
+        }
+        final TermsEnum[] baseTermsEnums = new TermsEnum[baseLeaves.length];
+        final LongValues[] baseGlobalOrds = new LongValues[baseLeaves.length];
+        // the ordinal of the term that each base segment is positioned on, or -1 if it is exhausted
+        final long[] baseSegmentOrds = new long[baseLeaves.length];
+        for (int i = 0; i < baseLeaves.length; i++) {
+            baseTermsEnums[i] = subs[baseLeaves[i]].termsEnum();
+            baseGlobalOrds[i] = base.getGlobalOrds(i);
+            baseSegmentOrds[i] = baseTermsEnums[i].next() == null ? -1 : 0;
+        }
+
+        long numNewTerms = 0;
+        for (long deltaOrd = 0; deltaOrd < delta.getValueCount(); deltaOrd++) {
+            final TermsEnum deltaTermsEnum = deltaTermsEnums[delta.getFirstSegmentNumber(deltaOrd)];
+            deltaTermsEnum.seekExact(delta.getFirstSegmentOrd(deltaOrd));
+            final BytesRef term = deltaTermsEnum.term();
+            // terms come in ascending order, so each base segment only moves forward to the smallest term that is
+            // greater than or equal to the current term, and the smallest of these terms is where the term goes
+            long insertionPoint = base.getValueCount();
+            long baseOrd = -1;
+            for (int i = 0; i < baseLeaves.length && baseOrd == -1; i++) {
+                if (baseSegmentOrds[i] == -1) {
+                    continue;
+                }
+                int cmp = baseTermsEnums[i].term().compareTo(term);
+                if (cmp < 0) {
+                    final TermsEnum.SeekStatus status = baseTermsEnums[i].seekCeil(term);
+                    if (status == TermsEnum.SeekStatus.END) {
+                        baseSegmentOrds[i] = -1;
+                        continue;
+                    }
+                    baseSegmentOrds[i] = baseTermsEnums[i].ord();
+                    cmp = status == TermsEnum.SeekStatus.FOUND ? 0 : 1;
+                }
+                final long globalOrd = baseGlobalOrds[i].get(baseSegmentOrds[i]);
+                if (cmp == 0) {
+                    baseOrd = globalOrd;
+                } else {
+                    insertionPoint = Math.min(insertionPoint, globalOrd);
+                }
+            }
+            if (baseOrd != -1) {
+                // all the new terms so far are smaller than this term
+                deltaToGlobalOrds.add(baseOrd + numNewTerms);
+            } else {
+                deltaToGlobalOrds.add(insertionPoint + numNewTerms);
+                newTermDeltaOrds.add(deltaOrd);
+                newTermInsertionPoints.add(insertionPoint);
+                numNewTerms++;
+            }
+        }
+        final PackedLongValues insertionPoints = newTermInsertionPoints.build();
+        final PackedLongValues[] deltaSegmentToGlobalOrds = remapDeltaSegments(delta, deltaSubs, deltaToGlobalOrds.build());
+        return new IncrementalOrdinalMap(base, baseCoreKeys, baseDocValuesGens, baseLeaves, deltaLeaves, delta,
+            deltaSegmentToGlobalOrds, newTermDeltaOrds.build(), insertionPoints, sampleNewTermsBeforeBlocks(base, insertionPoints),
+            incremental);
+    }
+
+    /**
+     * Counts the new terms that go before the first ordinal of each block of {@link #BLOCK_SIZE} ordinals of the base map, and
+     * before the end of the base map.
+     */
+    private static PackedLongValues sampleNewTermsBeforeBlocks(OrdinalMap base, PackedLongValues newTermInsertionPoints) {
+        final PackedLongValues.Builder newTermsBeforeBlocks = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        if (newTermInsertionPoints.size() == 0) {
+            // base segments use the global ordinals of the base map
+            return newTermsBeforeBlocks.build();
+        }
+        final long numBlocks = (base.getValueCount() + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+        final PackedLongValues.Iterator insertionPoints = newTermInsertionPoints.iterator();
+        long nextInsertionPoint = insertionPoints.next();
+        long numNewTermsBefore = 0;
+        for (long block = 0; block <= numBlocks; block++) {
+            final long firstOrd = block << BLOCK_SHIFT;
+            // both block starts and insertion points are ascending
+            while (nextInsertionPoint < firstOrd) {
+                numNewTermsBefore++;
+                nextInsertionPoint = insertionPoints.hasNext() ? insertionPoints.next() : Long.MAX_VALUE;
+            }
+            newTermsBeforeBlocks.add(numNewTermsBefore);
+        }
+        return newTermsBeforeBlocks.build();
+    }
+
+    /**
+     * Computes the global ordinals of the terms of each segment of the delta map from the global ordinals of the terms of the
+     * delta map.
+     */
+    private static PackedLongValues[] remapDeltaSegments(OrdinalMap delta, SortedSetDocValues[] deltaSubs,
+                                                         PackedLongValues deltaToGlobalOrds) {
+        final PackedLongValues[] segmentToGlobalOrds = new PackedLongValues[deltaSubs.length];
+        for (int i = 0; i < deltaSubs.length; i++) {
+            final LongValues deltaOrds = delta.getGlobalOrds(i);
+            final PackedLongValues.Builder globalOrds = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+            final long valueCount = deltaSubs[i].getValueCount();
+            for (long segmentOrd = 0; segmentOrd < valueCount; segmentOrd++) {
+                globalOrds.add(deltaToGlobalOrds.get(deltaOrds.get(segmentOrd)));
+            }
+            segmentToGlobalOrds[i] = globalOrds.build();
+        }
+        return segmentToGlobalOrds;
+    }
+
+    private static SortedSetDocValues[] select(SortedSetDocValues[] values, int[] indices) {
+        final SortedSetDocValues[] selected = new SortedSetDocValues[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = values[indices[i]];
+        }
+        return selected;
+    }
+
+    private static IndexReader.CacheKey[] select(IndexReader.CacheKey[] values, int[] indices) {
+        final IndexReader.CacheKey[] selected = new IndexReader.CacheKey[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = values[indices[i]];
+        }
+        return selected;
+    }
+
+    private static long[] select(long[] values, int[] indices) {
+        final long[] selected = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = values[indices[i]];
+        }
+        return selected;
+    }
+
+    /**
+     * Returns whether the base map was reused from the global ordinals of a previous reader.
+     */
+    boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * Returns the total number of unique terms in the global ordinals space.
+     */
+    long getValueCount() {
+        return base.getValueCount() + newTermDeltaOrds.size();
+    }
+
+    /**
+     * Returns the {@link OrdinalMap} of all segments if the base map covers all of them in the order of the leaves,
+     * {@code null} otherwise.
+     */
+    @Nullable
+    OrdinalMap getOrdinalMap() {
+        if (delta != null) {
+            return null;
+        }
+        for (int i = 0; i < baseLeaves.length; i++) {
+            if (baseLeaves[i] != i) {
+                return null;
+            }
+        }
+        return base;
+    }
+
+    /**
+     * Returns the mapping from the ordinals of the leaf at the given index to global ordinals.
+     */
+    LongValues getGlobalOrds(int leaf) {
+        final int segment = leafSegments[leaf];
+        if (segment >= 0) {
+            if (newTermDeltaOrds.size() == 0) {
+                return base.getGlobalOrds(segment);
+            }
+            final LongValues baseGlobalOrds = base.getGlobalOrds(segment);
+            return new LongValues() {
+                @Override
+                public long get(long segmentOrd) {
+                    final long baseOrd = baseGlobalOrds.get(segmentOrd);
+                    return baseOrd + countNewTermsBefore(baseOrd);
+                }
+            };
+        }
+        return deltaSegmentToGlobalOrds[-1 - segment];
+    }
+
+    /**
+     * Returns the index of the first leaf that contains the term of the given global ordinal.
+     */
+    int getFirstSegmentNumber(long globalOrd) {
+        final long newTerm = findNewTerm(globalOrd);
+        if (newTerm >= 0) {
+            return deltaLeaves[delta.getFirstSegmentNumber(newTermDeltaOrds.get(newTerm))];
+        }
+        return baseLeaves[base.getFirstSegmentNumber(globalOrd - (-1 - newTerm))];
+    }
+
+    /**
+     * Returns the ordinal of the term of the given global ordinal in the {@link #getFirstSegmentNumber(long) first leaf}
+     * that contains it.
+     */
+    long getFirstSegmentOrd(long globalOrd) {
+        final long newTerm = findNewTerm(globalOrd);
+        if (newTerm >= 0) {
+            return delta.getFirstSegmentOrd(newTermDeltaOrds.get(newTerm));
+        }
+        return base.getFirstSegmentOrd(globalOrd - (-1 - newTerm));
+    }
+
+    /**
+     * Returns the number of new terms that go before the term of the base map with the given ordinal.
+     */
+    private long countNewTermsBefore(long baseOrd) {
+        final long block = baseOrd >>> BLOCK_SHIFT;
+        long lo = newTermsBeforeBlocks.get(block);
+        long hi = newTermsBeforeBlocks.get(block + 1);
+        // only the new terms that go within the block of the term need to be searched, there are usually none
+        while (lo < hi) {
+            final long mid = (lo + hi) >>> 1;
+            if (newTermInsertionPoints.get(mid) <= baseOrd) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Returns the index of the new term with the given global ordinal if it is not in the base map, or -1 minus the number of
+     * new terms that are smaller otherwise.
+     */
+    private long findNewTerm(long globalOrd) {
+        long lo = 0;
+        long hi = newTermInsertionPoints.size();
+        while (lo < hi) {
+            final long mid = (lo + hi) >>> 1;
+            final long newTermGlobalOrd = newTermInsertionPoints.get(mid) + mid;
+            if (newTermGlobalOrd < globalOrd) {
+                lo = mid + 1;
+            } else if (newTermGlobalOrd > globalOrd) {
+                hi = mid;
+            } else {
+                return mid;
+            }
+        }
+        return -1 - lo;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + base.ramBytesUsed() + (delta == null ? 0 : delta.ramBytesUsed())
+            + RamUsageEstimator.shallowSizeOf(baseCoreKeys) + RamUsageEstimator.sizeOf(baseDocValuesGens)
+            + RamUsageEstimator.sizeOf(baseLeaves) + RamUsageEstimator.sizeOf(deltaLeaves) + RamUsageEstimator.sizeOf(leafSegments)
+            + ramBytesUsed(deltaSegmentToGlobalOrds) + newTermDeltaOrds.ramBytesUsed() + newTermInsertionPoints.ramBytesUsed()
+            + newTermsBeforeBlocks.ramBytesUsed();
+    }
+
+    private static long ramBytesUsed(PackedLongValues[] values) {
+        long ramBytesUsed = RamUsageEstimator.shallowSizeOf(values);
+        for (PackedLongValues value : values) {
+            ramBytesUsed += value.ramBytesUsed();
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+}
@@ -71,6 +71,11 @@ public abstract class AbstractIndexOrdinalsFieldData extends AbstractIndexFieldD
         }
     }
 
+    @Override
+    public boolean hasGlobalOrdinals(DirectoryReader indexReader) {
+        return indexReader.leaves().size() <= 1 || cache.isGlobalCached(indexReader);
+    }
+
     private IndexOrdinalsFieldData loadGlobalInternal(DirectoryReader indexReader) {
         if (indexReader.leaves().size() <= 1) {
             // ordinals are already global
@@ -107,8 +112,8 @@ public abstract class AbstractIndexOrdinalsFieldData extends AbstractIndexFieldD
 
     @Override
     public IndexOrdinalsFieldData localGlobalDirect(DirectoryReader indexReader) throws Exception {
-        return GlobalOrdinalsBuilder.build(indexReader, this, indexSettings, breakerService, logger,
-                AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
+        return GlobalOrdinalsBuilder.build(indexReader, this, cache.getPreviousGlobal(indexReader), indexSettings, breakerService,
+                logger, AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
     }
 
     @Override
@@ -20,12 +20,14 @@
 package org.elasticsearch.index.fielddata.plain;
 
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
+import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.ScriptDocValues;
 import org.elasticsearch.index.mapper.IdFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
@@ -71,6 +73,7 @@ public abstract class DocValuesIndexFieldData {
 
         private NumericType numericType;
         private Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction = AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION;
+        private boolean requireOrdinalMap;
 
         public Builder numericType(NumericType type) {
             this.numericType = type;
@@ -82,6 +85,15 @@ public abstract class DocValuesIndexFieldData {
             return this;
         }
 
+        /**
+         * Whether global ordinals must be built with a single {@link OrdinalMap} of all segments, for consumers that need
+         * {@link IndexOrdinalsFieldData#getOrdinalMap()}. Otherwise they are built incrementally when possible.
+         */
+        public Builder requireOrdinalMap(boolean requireOrdinalMap) {
+            this.requireOrdinalMap = requireOrdinalMap;
+            return this;
+        }
+
         @Override
         public IndexFieldData<?> build(IndexSettings indexSettings, MappedFieldType fieldType, IndexFieldDataCache cache,
                                        CircuitBreakerService breakerService, MapperService mapperService) {
@@ -93,7 +105,8 @@ public abstract class DocValuesIndexFieldData {
             } else if (numericType != null) {
                 return new SortedNumericDVIndexFieldData(indexSettings.getIndex(), fieldName, numericType);
             } else {
-                return new SortedSetDVOrdinalsIndexFieldData(indexSettings, cache, fieldName, breakerService, scriptFunction);
+                return new SortedSetDVOrdinalsIndexFieldData(indexSettings, cache, fieldName, breakerService, scriptFunction,
+                    requireOrdinalMap);
             }
         }
 
@@ -20,8 +20,14 @@
 package org.elasticsearch.index.translog;
 
 import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -60,6 +66,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -114,6 +121,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
     static final Pattern PARSE_STRICT_ID_PATTERN = Pattern.compile("^" + TRANSLOG_FILE_PREFIX + "(\\d+)(\\.tlog)$");
     public static final int DEFAULT_HEADER_SIZE_IN_BYTES = TranslogHeader.headerSizeInBytes(UUIDs.randomBase64UUID());
+    // compressors hold a hash table that is worth reusing across operations, but they are not thread-safe
+    private static final ThreadLocal<Compressor> SOURCE_COMPRESSOR = ThreadLocal.withInitial(CompressionMode.FAST::newCompressor);
 
     // the list of translog readers is guaranteed to be in order of translog generation
     private final List<TranslogReader> readers = new ArrayList<>();
@@ -131,6 +140,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     private final String translogUUID;
     private final TranslogDeletionPolicy deletionPolicy;
     private final LongConsumer persistedSequenceNumberConsumer;
+    private final TranslogSyncCoordinator syncCoordinator;
 
     /**
      * Creates a new Translog instance. This method will create a new transaction log unless the given {@link TranslogGeneration} is
@@ -162,6 +172,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         this.persistedSequenceNumberConsumer = persistedSequenceNumberConsumer;
         this.deletionPolicy = deletionPolicy;
         this.translogUUID = translogUUID;
+        this.syncCoordinator = new TranslogSyncCoordinator(config.getIndexSettings());
         bigArrays = config.getBigArrays();
         ReadWriteLock rwl = new ReentrantReadWriteLock();
         readLock = new ReleasableLock(rwl.readLock());
@@ -507,7 +518,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
                 config.getBufferSize(),
                 initialMinTranslogGen, initialGlobalCheckpoint,
                 globalCheckpointSupplier, this::getMinFileGeneration, primaryTermSupplier.getAsLong(), tragedy,
-                persistedSequenceNumberConsumer);
+                persistedSequenceNumberConsumer, syncCoordinator);
         } catch (final IOException e) {
             throw new TranslogException(shardId, "failed to create new translog file", e);
         }
@@ -526,7 +537,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         try {
             final long start = out.position();
             out.skip(Integer.BYTES);
-            writeOperationNoSize(new BufferedChecksumStreamOutput(out), operation);
+            final Compressor sourceCompressor = indexSettings.isTranslogCompressionEnabled() ? SOURCE_COMPRESSOR.get() : null;
+            writeOperationNoSize(new BufferedChecksumStreamOutput(out), operation, sourceCompressor);
             final long end = out.position();
             final int operationSize = (int) (end - Integer.BYTES - start);
             out.seek(start);
@@ -859,7 +871,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         try (ReleasableLock lock = readLock.acquire()) {
             final long uncommittedGen = deletionPolicy.getTranslogGenerationOfLastCommit();
             return new TranslogStats(totalOperations(), sizeInBytes(), totalOperationsByMinGen(uncommittedGen),
-                sizeInBytesByMinGen(uncommittedGen), earliestLastModifiedAge());
+                sizeInBytesByMinGen(uncommittedGen), earliestLastModifiedAge(), syncCoordinator.getSyncs(),
+                syncCoordinator.getSyncedOperations(), TimeUnit.NANOSECONDS.toMillis(syncCoordinator.getSyncTimeInNanos()));
         }
     }
 
@@ -1072,12 +1085,21 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
          * Writes the type and translog operation to the given stream
          */
         static void writeOperation(final StreamOutput output, final Operation operation) throws IOException {
+            writeOperation(output, operation, null);
+        }
+
+        /**
+         * Writes the type and translog operation to the given stream, compressing the source of index operations with the given
+         * compressor if it is not {@code null}.
+         */
+        static void writeOperation(final StreamOutput output, final Operation operation,
+                                   @Nullable final Compressor sourceCompressor) throws IOException {
             output.writeByte(operation.opType().id());
             switch(operation.opType()) {
                 case CREATE:
                     // the serialization logic in Index was identical to that of Create when create was deprecated
                 case INDEX:
-                    ((Index) operation).write(output);
+                    ((Index) operation).write(output, sourceCompressor);
                     break;
                 case DELETE:
                     ((Delete) operation).write(output);
@@ -1109,6 +1131,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         public static final int FORMAT_NO_PARENT = 9; // since 7.0
         public static final int FORMAT_NO_VERSION_TYPE = FORMAT_NO_PARENT + 1;
         public static final int SERIALIZATION_FORMAT = FORMAT_NO_VERSION_TYPE;
+        // only written to translog files, never sent over the wire: LZ4 compressed source and variable length numbers
+        public static final int FORMAT_COMPRESSED_SOURCE = FORMAT_NO_VERSION_TYPE + 1;
 
         private final String id;
         private final long autoGeneratedIdTimestamp;
@@ -1124,18 +1148,62 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             assert format >= FORMAT_NO_PARENT : "format was: " + format;
             id = in.readString();
             type = in.readString();
-            source = in.readBytesReference();
-            routing = in.readOptionalString();
-            if (format < FORMAT_NO_PARENT) {
-                in.readOptionalString(); // _parent
-            }
-            this.version = in.readLong();
-            if (format < FORMAT_NO_VERSION_TYPE) {
-                in.readByte(); // _version_type
+            if (format == FORMAT_COMPRESSED_SOURCE) {
+                source = readCompressedSource(in);
+                routing = in.readOptionalString();
+                this.version = in.readZLong();
+                this.autoGeneratedIdTimestamp = in.readZLong();
+                seqNo = in.readZLong();
+                primaryTerm = in.readVLong();
+            } else {
+                source = in.readBytesReference();
+                routing = in.readOptionalString();
+                if (format < FORMAT_NO_PARENT) {
+                    in.readOptionalString(); // _parent
+                }
+                this.version = in.readLong();
+                if (format < FORMAT_NO_VERSION_TYPE) {
+                    in.readByte(); // _version_type
+                }
+                this.autoGeneratedIdTimestamp = in.readLong();
+                seqNo = in.readLong();
+                primaryTerm = in.readLong();
             }
-            this.autoGeneratedIdTimestamp = in.readLong();
-            seqNo = in.readLong();
-            primaryTerm = in.readLong();
+        }
+
+        private static BytesReference readCompressedSource(final StreamInput in) throws IOException {
+            final int length = in.readVInt();
+            final BytesRef bytes = new BytesRef();
+            // the decompressor consumes exactly the bytes that the compressor wrote
+            CompressionMode.FAST.newDecompressor().decompress(new DataInput() {
+                @Override
+                public byte readByte() throws IOException {
+                    return in.readByte();
+                }
+
+                @Override
+                public void readBytes(byte[] b, int offset, int len) throws IOException {
+                    in.readBytes(b, offset, len);
+                }
+            }, length, 0, length, bytes);
+            return new BytesArray(bytes);
+        }
+
+        private static void writeCompressedSource(final StreamOutput out, final BytesReference source,
+                                                  final Compressor compressor) throws IOException {
+            final BytesRef bytes = source.toBytesRef();
+            out.writeVInt(bytes.length);
+            compressor.compress(bytes.bytes, bytes.offset, bytes.length, new DataOutput() {
+                @Override
+                public void writeByte(byte b) throws IOException {
+                    out.writeByte(b);
+                }
+
+                @Override
+                public void writeBytes(byte[] b, int offset, int length) throws IOException {
+                    out.writeBytes(b, offset, length);
+                }
+            });
         }
 
         public Index(Engine.Index index, Engine.IndexResult indexResult) {
@@ -1210,7 +1278,19 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             return new Source(source, routing);
         }
 
-        private void write(final StreamOutput out) throws IOException {
+        private void write(final StreamOutput out, @Nullable final Compressor sourceCompressor) throws IOException {
+            if (sourceCompressor != null) {
+                out.writeVInt(FORMAT_COMPRESSED_SOURCE);
+                out.writeString(id);
+                out.writeString(type);
+                writeCompressedSource(out, source, sourceCompressor);
+                out.writeOptionalString(routing);
+                out.writeZLong(version);
+                out.writeZLong(autoGeneratedIdTimestamp);
+                out.writeZLong(seqNo);
+                out.writeVLong(primaryTerm);
+                return;
+            }
             final int format = SERIALIZATION_FORMAT;
             out.writeVInt(format);
             out.writeString(id);
@@ -1599,11 +1679,16 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op) throws IOException {
+        writeOperationNoSize(out, op, null);
+    }
+
+    static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op,
+                                     @Nullable Compressor sourceCompressor) throws IOException {
         // This BufferedChecksumStreamOutput remains unclosed on purpose,
         // because closing it closes the underlying stream, which we don't
         // want to do here.
         out.resetDigest();
-        Translog.Operation.writeOperation(out, op);
+        Translog.Operation.writeOperation(out, op, sourceCompressor);
         long checksum = out.getChecksum();
         out.writeInt((int) checksum);
     }
@@ -1878,7 +1963,8 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             location.resolve(getFilename(1)), channelFactory,
             new ByteSizeValue(10), 1, initialGlobalCheckpoint,
             () -> { throw new UnsupportedOperationException(); }, () -> { throw new UnsupportedOperationException(); }, primaryTerm,
-                new TragicExceptionHolder(), seqNo -> { throw new UnsupportedOperationException(); });
+                new TragicExceptionHolder(), seqNo -> { throw new UnsupportedOperationException(); },
+                TranslogSyncCoordinator.noGroupCommit());
         writer.close();
         return translogUUID;
     }
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.index.IndexSettings;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Coordinates the fsyncs of the translog writers of a single {@link Translog} such that operations written by concurrent requests
+ * are made durable by a single fsync (group commit). A writer that is about to fsync waits until either the group commit window
+ * has passed since the previous fsync started or enough un-synced bytes have been buffered, and then syncs everything written up
+ * to that point on behalf of all waiting requests. The coordinator outlives the individual writers and accumulates the fsync stats
+ * reported in {@link TranslogStats}.
+ */
+final class TranslogSyncCoordinator {
+
+    /**
+     * A coordinator that never delays a sync, used where no index settings are available.
+     */
+    static TranslogSyncCoordinator noGroupCommit() {
+        return new TranslogSyncCoordinator(() -> 0L, () -> Long.MAX_VALUE);
+    }
+
+    private final LongSupplier windowInNanos;
+    private final LongSupplier maxSizeInBytes;
+
+    private final CounterMetric syncs = new CounterMetric();
+    private final CounterMetric syncedOperations = new CounterMetric();
+    private final CounterMetric syncTimeInNanos = new CounterMetric();
+
+    TranslogSyncCoordinator(IndexSettings indexSettings) {
+        this(() -> indexSettings.getTranslogSyncGroupCommitWindow().nanos(),
+            () -> indexSettings.getTranslogSyncGroupCommitMaxSize().getBytes());
+    }
+
+    TranslogSyncCoordinator(LongSupplier windowInNanos, LongSupplier maxSizeInBytes) {
+        this.windowInNanos = windowInNanos;
+        this.maxSizeInBytes = maxSizeInBytes;
+    }
+
+    /**
+     * The maximum time in nanoseconds between the start of two consecutive fsyncs of a writer, {@code 0} if syncs are never delayed.
+     */
+    long windowInNanos() {
+        return windowInNanos.getAsLong();
+    }
+
+    /**
+     * The amount of un-synced bytes after which a pending sync is no longer delayed.
+     */
+    long maxSizeInBytes() {
+        return maxSizeInBytes.getAsLong();
+    }
+
+    /**
+     * Records a completed fsync.
+     *
+     * @param operations  the number of operations made durable by this fsync
+     * @param tookInNanos the time it took to fsync the translog file and write the checkpoint
+     */
+    void onSync(int operations, long tookInNanos) {
+        syncs.inc();
+        syncedOperations.inc(operations);
+        syncTimeInNanos.inc(tookInNanos);
+    }
+
+    long getSyncs() {
+        return syncs.count();
+    }
+
+    long getSyncedOperations() {
+        return syncedOperations.count();
+    }
+
+    long getSyncTimeInNanos() {
+        return syncTimeInNanos.count();
+    }
+}
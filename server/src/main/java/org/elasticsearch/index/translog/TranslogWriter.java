@@ -43,6 +43,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.LongConsumer;
 import java.util.function.LongSupplier;
@@ -76,6 +77,12 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
 
     private LongArrayList nonFsyncedSequenceNumbers;
 
+    private final TranslogSyncCoordinator syncCoordinator;
+    // the time the last fsync started, write protected by syncLock
+    private long lastSyncStartNanos;
+    // true while a sync waits for concurrent writes to join its group commit, protected by synchronized(this)
+    private boolean groupCommitPending;
+
     private final Map<Long, Tuple<BytesReference, Exception>> seenSequenceNumbers;
 
     private TranslogWriter(
@@ -87,7 +94,8 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         final ByteSizeValue bufferSize,
         final LongSupplier globalCheckpointSupplier, LongSupplier minTranslogGenerationSupplier, TranslogHeader header,
         TragicExceptionHolder tragedy,
-        final LongConsumer persistedSequenceNumberConsumer)
+        final LongConsumer persistedSequenceNumberConsumer,
+        final TranslogSyncCoordinator syncCoordinator)
             throws
             IOException {
         super(initialCheckpoint.generation, channel, path, header);
@@ -110,12 +118,15 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         this.persistedSequenceNumberConsumer = persistedSequenceNumberConsumer;
         this.seenSequenceNumbers = Assertions.ENABLED ? new HashMap<>() : null;
         this.tragedy = tragedy;
+        this.syncCoordinator = syncCoordinator;
+        this.lastSyncStartNanos = System.nanoTime() - syncCoordinator.windowInNanos();
     }
 
     public static TranslogWriter create(ShardId shardId, String translogUUID, long fileGeneration, Path file, ChannelFactory channelFactory,
                                         ByteSizeValue bufferSize, final long initialMinTranslogGen, long initialGlobalCheckpoint,
                                         final LongSupplier globalCheckpointSupplier, final LongSupplier minTranslogGenerationSupplier,
-                                        final long primaryTerm, TragicExceptionHolder tragedy, LongConsumer persistedSequenceNumberConsumer)
+                                        final long primaryTerm, TragicExceptionHolder tragedy, LongConsumer persistedSequenceNumberConsumer,
+                                        TranslogSyncCoordinator syncCoordinator)
         throws IOException {
         final FileChannel channel = channelFactory.open(file);
         try {
@@ -136,7 +147,8 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                 writerGlobalCheckpointSupplier = globalCheckpointSupplier;
             }
             return new TranslogWriter(channelFactory, shardId, checkpoint, channel, file, bufferSize,
-                writerGlobalCheckpointSupplier, minTranslogGenerationSupplier, header, tragedy, persistedSequenceNumberConsumer);
+                writerGlobalCheckpointSupplier, minTranslogGenerationSupplier, header, tragedy, persistedSequenceNumberConsumer,
+                syncCoordinator);
         } catch (Exception exception) {
             // if we fail to bake the file-generation into the checkpoint we stick with the file and once we recover and that
             // file exists we remove it. We only apply this logic to the checkpoint.generation+1 any other file with a higher generation
@@ -177,6 +189,10 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
             throw ex;
         }
         totalOffset += data.length();
+        if (groupCommitPending && totalOffset - lastSyncedCheckpoint.offset >= syncCoordinator.maxSizeInBytes()) {
+            // enough has been written to make the pending group commit worthwhile
+            notifyAll();
+        }
 
         if (minSeqNo == SequenceNumbers.NO_OPS_PERFORMED) {
             assert operationCounter == 0;
@@ -264,7 +280,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
      * raising the exception.
      */
     public void sync() throws IOException {
-        syncUpTo(Long.MAX_VALUE);
+        syncUpTo(Long.MAX_VALUE, false);
     }
 
     /**
@@ -346,11 +362,16 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
     }
 
     /**
-     * Syncs the translog up to at least the given offset unless already synced
+     * Syncs the translog up to at least the given offset unless already synced. The sync might be delayed by up to the group commit
+     * window in order to make operations of concurrent requests durable with the same fsync.
      *
      * @return <code>true</code> if this call caused an actual sync operation
      */
     public boolean syncUpTo(long offset) throws IOException {
+        return syncUpTo(offset, true);
+    }
+
+    private boolean syncUpTo(long offset, boolean groupCommit) throws IOException {
         boolean synced = false;
         if (lastSyncedCheckpoint.offset < offset && syncNeeded()) {
             LongArrayList flushedSequenceNumbers = null;
@@ -361,6 +382,9 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                     final Checkpoint checkpointToSync;
                     synchronized (this) {
                         ensureOpen();
+                        if (groupCommit) {
+                            awaitGroupCommit();
+                        }
                         try {
                             outputStream.flush();
                             checkpointToSync = getCheckpoint();
@@ -373,6 +397,8 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                     }
                     // now do the actual fsync outside of the synchronized block such that
                     // we can continue writing to the buffer etc.
+                    final long syncStartNanos = System.nanoTime();
+                    lastSyncStartNanos = syncStartNanos;
                     try {
                         channel.force(false);
                         writeCheckpoint(channelFactory, path.getParent(), checkpointToSync);
@@ -380,6 +406,7 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
                         closeWithTragicEvent(ex);
                         throw ex;
                     }
+                    syncCoordinator.onSync(flushedSequenceNumbers.size(), System.nanoTime() - syncStartNanos);
                     assert lastSyncedCheckpoint.offset <= checkpointToSync.offset :
                         "illegal state: " + lastSyncedCheckpoint.offset + " <= " + checkpointToSync.offset;
                     lastSyncedCheckpoint = checkpointToSync; // write protected by syncLock
@@ -393,6 +420,36 @@ public class TranslogWriter extends BaseTranslogReader implements Closeable {
         return synced;
     }
 
+    /**
+     * Delays the pending sync until the group commit window since the start of the previous sync has passed or enough un-synced
+     * data has been written, such that operations of concurrent requests that are written in the meantime are made durable by
+     * the same fsync. Returns immediately if group commit is disabled or the previous sync started long enough ago.
+     * Must be called while holding the sync lock and the monitor of this writer; the latter is released while waiting.
+     */
+    private void awaitGroupCommit() {
+        assert Thread.holdsLock(syncLock) && Thread.holdsLock(this);
+        final long windowInNanos = syncCoordinator.windowInNanos();
+        if (windowInNanos <= 0) {
+            return;
+        }
+        final long deadline = lastSyncStartNanos + windowInNanos;
+        final long maxSizeInBytes = syncCoordinator.maxSizeInBytes();
+        long remainingNanos = deadline - System.nanoTime();
+        try {
+            while (remainingNanos > 0 && totalOffset - lastSyncedCheckpoint.offset < maxSizeInBytes && isClosed() == false) {
+                groupCommitPending = true;
+                TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+                remainingNanos = deadline - System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            // sync right away, waiting is only an optimization
+            Thread.currentThread().interrupt();
+        } finally {
+            groupCommitPending = false;
+        }
+        ensureOpen();
+    }
+
     @Override
     protected void readBytes(ByteBuffer targetBuffer, long position) throws IOException {
         try {
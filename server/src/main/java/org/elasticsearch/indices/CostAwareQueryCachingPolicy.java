@@ -0,0 +1,58 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A {@link UsageTrackingQueryCachingPolicy} that scales the number of times a query needs to be used before it gets cached with
+ * the measured cost of its type. Queries whose type takes more time to evaluate per byte of cache than the average query are
+ * cached after fewer uses, down to the first one, and queries that are cheaper per byte need up to
+ * {@value #MAX_FREQUENCY_FACTOR} times more uses than what {@link UsageTrackingQueryCachingPolicy} requires. Queries whose type
+ * has not been measured yet are cached like {@link UsageTrackingQueryCachingPolicy} does.
+ */
+final class CostAwareQueryCachingPolicy extends UsageTrackingQueryCachingPolicy {
+
+    static final int MAX_FREQUENCY_FACTOR = 4;
+
+    private final ToDoubleFunction<Query> relativeCostPerByte;
+
+    /**
+     * @param relativeCostPerByte the time it takes to build the cached doc id set of the type of a query per byte that this doc id
+     *                            set uses, divided by the same ratio over all queries, or {@link Double#NaN} if it is unknown
+     */
+    CostAwareQueryCachingPolicy(ToDoubleFunction<Query> relativeCostPerByte) {
+        this.relativeCostPerByte = relativeCostPerByte;
+    }
+
+    @Override
+    protected int minFrequencyToCache(Query query) {
+        final int minFrequency = super.minFrequencyToCache(query);
+        final double relativeCost = relativeCostPerByte.applyAsDouble(query);
+        if (Double.isNaN(relativeCost)) {
+            return minFrequency;
+        }
+        final double scaledFrequency = Math.ceil(minFrequency / relativeCost);
+        return (int) Math.max(1, Math.min(scaledFrequency, (long) minFrequency * MAX_FREQUENCY_FACTOR));
+    }
+}
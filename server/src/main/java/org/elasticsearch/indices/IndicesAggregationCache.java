@@ -0,0 +1,304 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.cache.request.ShardRequestCache;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The indices aggregations cache caches the shard level results of top level aggregations, so that requests that share
+ * an aggregation but differ otherwise, for instance with other sibling aggregations or another size, can reuse it. Entries
+ * are keyed by the shard, the index reader cache key, the query that selects the documents that the aggregation collects
+ * and the serialized aggregation, which makes the cache coherent with the semantics of NRT like the
+ * {@link IndicesRequestCache}. Entries are evicted in LRU order once the cache is full and their memory is accounted on
+ * the {@link CircuitBreaker#ACCOUNTING accounting circuit breaker}, results that would trip it are not cached.
+ */
+public final class IndicesAggregationCache implements RemovalListener<IndicesAggregationCache.Key, BytesReference>, Closeable {
+
+    private static final Logger logger = LogManager.getLogger(IndicesAggregationCache.class);
+
+    public static final Setting<ByteSizeValue> INDICES_AGGREGATIONS_CACHE_SIZE =
+        Setting.memorySizeSetting("indices.aggregations.cache.size", "1%", Property.NodeScope);
+    public static final Setting<TimeValue> INDICES_AGGREGATIONS_CACHE_EXPIRE =
+        Setting.positiveTimeSetting("indices.aggregations.cache.expire", new TimeValue(0), Property.NodeScope);
+
+    private static final String BREAKER_LABEL = "<aggregations_cache>";
+
+    private final ConcurrentMap<CleanupKey, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
+    private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
+    private final ByteSizeValue size;
+    private final CircuitBreaker breaker;
+    private final Cache<Key, BytesReference> cache;
+
+    IndicesAggregationCache(Settings settings, CircuitBreaker breaker) {
+        this.size = INDICES_AGGREGATIONS_CACHE_SIZE.get(settings);
+        this.breaker = breaker;
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.<Key, BytesReference>builder()
+            .setMaximumWeight(size.getBytes()).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this);
+        if (INDICES_AGGREGATIONS_CACHE_EXPIRE.exists(settings)) {
+            cacheBuilder.setExpireAfterAccess(INDICES_AGGREGATIONS_CACHE_EXPIRE.get(settings));
+        }
+        cache = cacheBuilder.build();
+    }
+
+    /**
+     * Returns whether the cache may hold any entry, it is disabled by setting its size to 0.
+     */
+    boolean isEnabled() {
+        return size.getBytes() > 0;
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    void clear(CacheEntity entity) {
+        keysToClean.add(new CleanupKey(entity, null));
+        cleanCache();
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        final Key key = notification.getKey();
+        final BytesReference value = notification.getValue();
+        breaker.addWithoutBreaking(-(key.ramBytesUsed() + value.ramBytesUsed()));
+        key.entity.stats().onAggregationRemoval(key, value,
+            notification.getRemovalReason() == RemovalNotification.RemovalReason.EVICTED);
+    }
+
+    /**
+     * Returns the cached result of an aggregation, or {@code null} if it is not cached.
+     *
+     * @param query the query that selects the documents that the aggregation collects
+     * @param queryRamBytesUsed the estimated memory usage of the query, used if the query doesn't report it
+     * @param aggregationKey the serialized aggregation, including everything else its result depends on
+     */
+    BytesReference get(CacheEntity entity, DirectoryReader reader, Query query, long queryRamBytesUsed, BytesReference aggregationKey) {
+        assert reader.getReaderCacheHelper() != null;
+        final BytesReference value = cache.get(new Key(entity, reader.getReaderCacheHelper().getKey(), query, queryRamBytesUsed,
+            aggregationKey));
+        if (value == null) {
+            entity.stats().onAggregationMiss();
+        } else {
+            entity.stats().onAggregationHit();
+        }
+        return value;
+    }
+
+    /**
+     * Caches the result of an aggregation, unless its memory would trip the circuit breaker.
+     *
+     * @see #get(CacheEntity, DirectoryReader, Query, long, BytesReference)
+     */
+    void put(CacheEntity entity, DirectoryReader reader, Query query, long queryRamBytesUsed, BytesReference aggregationKey,
+             BytesReference value) {
+        assert reader.getReaderCacheHelper() != null;
+        final Key key = new Key(entity, reader.getReaderCacheHelper().getKey(), query, queryRamBytesUsed, aggregationKey);
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(key.ramBytesUsed() + value.ramBytesUsed(), BREAKER_LABEL);
+        } catch (CircuitBreakingException e) {
+            logger.trace("not caching the result of an aggregation", e);
+            return;
+        }
+        // account for the entry before it is added so that it can't be removed before
+        entity.stats().onAggregationCached(key, value);
+        cache.put(key, value);
+        // see if its the first time we see this reader, and make sure to register a cleanup key
+        final CleanupKey cleanupKey = new CleanupKey(entity, key.readerCacheKey);
+        if (registeredClosedListeners.containsKey(cleanupKey) == false) {
+            Boolean previous = registeredClosedListeners.putIfAbsent(cleanupKey, Boolean.TRUE);
+            if (previous == null) {
+                ElasticsearchDirectoryReader.addReaderCloseListener(reader, cleanupKey);
+            }
+        }
+    }
+
+    /**
+     * The shard an entry belongs to, similar to {@link IndicesRequestCache.CacheEntity}.
+     */
+    interface CacheEntity {
+
+        /**
+         * Returns the stats of the shard.
+         */
+        ShardRequestCache stats();
+
+        /**
+         * Returns <code>true</code> iff the shard is still open ie. its entries can remain in the cache.
+         */
+        boolean isOpen();
+
+        /**
+         * Returns the cache identity, the shard that entries of different entity instances are grouped by.
+         */
+        Object getCacheIdentity();
+    }
+
+    static class Key implements Accountable {
+        private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+        final CacheEntity entity; // use as identity equality
+        final IndexReader.CacheKey readerCacheKey;
+        final Query query;
+        final BytesReference aggregationKey;
+        private final long ramBytesUsed;
+
+        Key(CacheEntity entity, IndexReader.CacheKey readerCacheKey, Query query, long queryRamBytesUsed, BytesReference aggregationKey) {
+            this.entity = entity;
+            this.readerCacheKey = Objects.requireNonNull(readerCacheKey);
+            this.query = Objects.requireNonNull(query);
+            this.aggregationKey = aggregationKey;
+            if (query instanceof Accountable) {
+                queryRamBytesUsed = ((Accountable) query).ramBytesUsed();
+            }
+            this.ramBytesUsed = BASE_RAM_BYTES_USED + queryRamBytesUsed + aggregationKey.ramBytesUsed();
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return ramBytesUsed;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return readerCacheKey.equals(key.readerCacheKey)
+                && entity.getCacheIdentity().equals(key.entity.getCacheIdentity())
+                && aggregationKey.equals(key.aggregationKey)
+                && query.equals(key.query);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = entity.getCacheIdentity().hashCode();
+            result = 31 * result + readerCacheKey.hashCode();
+            result = 31 * result + query.hashCode();
+            result = 31 * result + aggregationKey.hashCode();
+            return result;
+        }
+    }
+
+    private class CleanupKey implements IndexReader.ClosedListener {
+        final CacheEntity entity;
+        final IndexReader.CacheKey readerCacheKey;
+
+        private CleanupKey(CacheEntity entity, IndexReader.CacheKey readerCacheKey) {
+            this.entity = entity;
+            this.readerCacheKey = readerCacheKey;
+        }
+
+        @Override
+        public void onClose(IndexReader.CacheKey cacheKey) {
+            Boolean remove = registeredClosedListeners.remove(this);
+            if (remove != null) {
+                keysToClean.add(this);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CleanupKey that = (CleanupKey) o;
+            return Objects.equals(readerCacheKey, that.readerCacheKey)
+                && entity.getCacheIdentity().equals(that.entity.getCacheIdentity());
+        }
+
+        @Override
+        public int hashCode() {
+            int result = entity.getCacheIdentity().hashCode();
+            result = 31 * result + Objects.hashCode(readerCacheKey);
+            return result;
+        }
+    }
+
+    synchronized void cleanCache() {
+        final Set<CleanupKey> currentKeysToClean = new HashSet<>();
+        final Set<Object> currentFullClean = new HashSet<>();
+        for (Iterator<CleanupKey> iterator = keysToClean.iterator(); iterator.hasNext(); ) {
+            CleanupKey cleanupKey = iterator.next();
+            iterator.remove();
+            if (cleanupKey.readerCacheKey == null || cleanupKey.entity.isOpen() == false) {
+                // null indicates full cleanup, as does a closed shard
+                currentFullClean.add(cleanupKey.entity.getCacheIdentity());
+            } else {
+                currentKeysToClean.add(cleanupKey);
+            }
+        }
+        if (currentKeysToClean.isEmpty() == false || currentFullClean.isEmpty() == false) {
+            for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+                Key key = iterator.next();
+                if (currentFullClean.contains(key.entity.getCacheIdentity())
+                        || currentKeysToClean.contains(new CleanupKey(key.entity, key.readerCacheKey))) {
+                    iterator.remove();
+                }
+            }
+        }
+        cache.refresh();
+    }
+
+    /**
+     * Returns the number of entries in the cache
+     */
+    int count() {
+        return cache.count();
+    }
+
+    int numRegisteredCloseListeners() { // for testing
+        return registeredClosedListeners.size();
+    }
+}
@@ -24,6 +24,8 @@ import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.Query;
@@ -32,22 +34,30 @@ import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.ScorerSupplier;
 import org.apache.lucene.search.Weight;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.lucene.ShardCoreKeyMap;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 
 public class IndicesQueryCache implements QueryCache, Closeable {
@@ -63,11 +73,28 @@ public class IndicesQueryCache implements QueryCache, Closeable {
     // enables caching on all segments instead of only the larger ones, for testing only
     public static final Setting<Boolean> INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING = 
             Setting.boolSetting("indices.queries.cache.all_segments", false, Property.NodeScope);
+    // the memory out of the heap that large doc id sets may use, the off-heap tier is disabled by default
+    public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_OFF_HEAP_SIZE_SETTING =
+            Setting.byteSizeSetting("indices.queries.cache.off_heap.size", new ByteSizeValue(0), Property.NodeScope);
 
-    private final LRUQueryCache cache;
+    // the off-heap tier may use at most this fraction of the direct memory of the JVM
+    static final int MAX_DIRECT_MEMORY_OFF_HEAP_RATIO = 2;
+    // smaller doc id sets are kept on heap since the heap overhead of an off-heap set would be a large part of their size
+    static final long MIN_OFF_HEAP_RAM_BYTES_USED = 1024;
+
+    private final ElasticsearchLRUQueryCache cache;
     private final ShardCoreKeyMap shardKeyMap = new ShardCoreKeyMap();
     private final Map<ShardId, Stats> shardStats = new ConcurrentHashMap<>();
     private volatile long sharedRamBytesUsed;
+    // the cost of building the cached doc id sets of all shards, per query type and in total
+    private final Map<String, QueryTypeCosts> queryTypeCosts = new ConcurrentHashMap<>();
+    private final QueryTypeCosts totalCosts = new QueryTypeCosts();
+
+    // off-heap doc id sets release their memory when they are garbage collected, their references are enqueued then
+    private final long offHeapMaxBytesUsed;
+    private final AtomicLong offHeapBytesUsed = new AtomicLong();
+    private final ReferenceQueue<OffHeapDocIdSet> releasedOffHeapSets = new ReferenceQueue<>();
+    private final Set<OffHeapReference> offHeapReferences = ConcurrentCollections.newConcurrentSet();
 
     // This is a hack for the fact that the close listener for the
     // ShardCoreKeyMap will be called before onDocIdSetEviction
@@ -75,10 +102,23 @@ public class IndicesQueryCache implements QueryCache, Closeable {
     private final Map<Object, StatsAndCount> stats2 = Collections.synchronizedMap(new IdentityHashMap<>());
 
     public IndicesQueryCache(Settings settings) {
+        this(settings, maxDirectMemory(JvmInfo.jvmInfo()));
+    }
+
+    IndicesQueryCache(Settings settings, long maxDirectMemory) {
         final ByteSizeValue size = INDICES_CACHE_QUERY_SIZE_SETTING.get(settings);
         final int count = INDICES_CACHE_QUERY_COUNT_SETTING.get(settings);
-        logger.debug("using [node] query cache with size [{}] max filter count [{}]",
-                size, count);
+        final ByteSizeValue offHeapSize = INDICES_CACHE_QUERY_OFF_HEAP_SIZE_SETTING.get(settings);
+        // the network layer also allocates direct memory, so the off-heap tier may only use a part of it
+        final long maxOffHeapSize = maxDirectMemory / MAX_DIRECT_MEMORY_OFF_HEAP_RATIO;
+        if (offHeapSize.getBytes() > maxOffHeapSize) {
+            throw new IllegalArgumentException("[" + INDICES_CACHE_QUERY_OFF_HEAP_SIZE_SETTING.getKey() + "] must be at most ["
+                + new ByteSizeValue(maxOffHeapSize) + "], 1/" + MAX_DIRECT_MEMORY_OFF_HEAP_RATIO + " of the max direct memory of the JVM ["
+                + new ByteSizeValue(maxDirectMemory) + "], but was [" + offHeapSize + "]");
+        }
+        logger.debug("using [node] query cache with size [{}] max filter count [{}] off-heap size [{}]",
+                size, count, offHeapSize);
+        offHeapMaxBytesUsed = offHeapSize.getBytes();
         if (INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.get(settings)) {
             cache = new ElasticsearchLRUQueryCache(count, size.getBytes(), context -> true);
         } else {
@@ -87,8 +127,17 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         sharedRamBytesUsed = 0;
     }
 
+    /**
+     * Returns the max direct memory of the JVM, which defaults to the max heap size if {@code -XX:MaxDirectMemorySize} isn't set.
+     */
+    static long maxDirectMemory(JvmInfo jvmInfo) {
+        final long configured = jvmInfo.getConfiguredMaxDirectMemorySize();
+        return configured > 0 ? configured : jvmInfo.getMem().getHeapMax().getBytes();
+    }
+
     /** Get usage statistics for the given shard. */
     public QueryCacheStats getStats(ShardId shard) {
+        releaseOffHeapSets();
         final Map<ShardId, QueryCacheStats> stats = new HashMap<>();
         for (Map.Entry<ShardId, Stats> entry : shardStats.entrySet()) {
             stats.put(entry.getKey(), entry.getValue().toQueryCacheStats());
@@ -114,6 +163,75 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         return shardStats;
     }
 
+    /**
+     * Returns a new policy that caches queries after fewer uses when their type is expensive to evaluate compared to the memory
+     * that their cached doc id sets use, and after more uses when it is cheap.
+     */
+    public QueryCachingPolicy newCachingPolicy() {
+        return new CostAwareQueryCachingPolicy(this::relativeCostPerByte);
+    }
+
+    /**
+     * Returns the time it took to build the cached doc id sets of the type of the given query per byte of these doc id sets,
+     * relative to the same ratio for all queries, or {@link Double#NaN} if too few doc id sets of this type have been built.
+     */
+    double relativeCostPerByte(Query query) {
+        final QueryTypeCosts costs = queryTypeCosts.get(queryType(query));
+        if (costs == null || costs.cacheCount.sum() < QueryTypeCosts.MIN_SAMPLES) {
+            return Double.NaN;
+        }
+        return costs.costPerByte() / totalCosts.costPerByte();
+    }
+
+    static String queryType(Query query) {
+        final String name = query.getClass().getSimpleName();
+        // anonymous classes have no simple name
+        return name.isEmpty() ? query.getClass().getName() : name;
+    }
+
+    /**
+     * Returns the number of bytes that doc id sets stored out of the heap use, including those that have been evicted but not
+     * garbage collected yet.
+     */
+    long offHeapBytesUsed() {
+        releaseOffHeapSets();
+        return offHeapBytesUsed.get();
+    }
+
+    private boolean reserveOffHeap(long bytes) {
+        long used;
+        do {
+            used = offHeapBytesUsed.get();
+            if (used + bytes > offHeapMaxBytesUsed) {
+                return false;
+            }
+        } while (offHeapBytesUsed.compareAndSet(used, used + bytes) == false);
+        return true;
+    }
+
+    private void releaseOffHeapSets() {
+        for (Reference<?> ref = releasedOffHeapSets.poll(); ref != null; ref = releasedOffHeapSets.poll()) {
+            final OffHeapReference released = (OffHeapReference) ref;
+            if (offHeapReferences.remove(released)) {
+                offHeapBytesUsed.addAndGet(-released.bytes);
+                released.stats.offHeapRamBytesUsed.add(-released.bytes);
+                released.stats.offHeapCacheSize.decrement();
+            }
+        }
+    }
+
+    private static class OffHeapReference extends PhantomReference<OffHeapDocIdSet> {
+
+        final long bytes;
+        final Stats stats;
+
+        OffHeapReference(OffHeapDocIdSet set, ReferenceQueue<OffHeapDocIdSet> queue, Stats stats) {
+            super(set, queue);
+            this.bytes = set.offHeapBytesUsed();
+            this.stats = stats;
+        }
+    }
+
     @Override
     public Weight doCache(Weight weight, QueryCachingPolicy policy) {
         while (weight instanceof CachingWeightWrapper) {
@@ -145,22 +263,62 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             return in.explain(context, doc);
         }
 
+        // the cache looks up and builds doc id sets in the below methods, which record the last miss of the thread. The weights of
+        // sub queries are wrapped too, so each call hides the miss of the enclosing query until it returns, and forgets its own miss.
+
         @Override
         public Scorer scorer(LeafReaderContext context) throws IOException {
             shardKeyMap.add(context.reader());
-            return in.scorer(context);
+            final Tuple<Query, Stats> enclosingMiss = cache.swapLastMiss(null);
+            try {
+                return in.scorer(context);
+            } finally {
+                cache.swapLastMiss(enclosingMiss);
+            }
         }
 
         @Override
         public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
             shardKeyMap.add(context.reader());
-            return in.scorerSupplier(context);
+            final Tuple<Query, Stats> enclosingMiss = cache.swapLastMiss(null);
+            final ScorerSupplier supplier;
+            final Tuple<Query, Stats> miss;
+            try {
+                supplier = in.scorerSupplier(context);
+            } finally {
+                miss = cache.swapLastMiss(enclosingMiss);
+            }
+            if (supplier == null || miss == null) {
+                return supplier;
+            }
+            // LRUQueryCache builds the doc id set of a missed query lazily when the scorer is pulled, e.g. for filter clauses
+            return new ScorerSupplier() {
+                @Override
+                public Scorer get(long leadCost) throws IOException {
+                    final Tuple<Query, Stats> previousMiss = cache.swapLastMiss(miss);
+                    try {
+                        return supplier.get(leadCost);
+                    } finally {
+                        cache.swapLastMiss(previousMiss);
+                    }
+                }
+
+                @Override
+                public long cost() {
+                    return supplier.cost();
+                }
+            };
         }
 
         @Override
         public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
             shardKeyMap.add(context.reader());
-            return in.bulkScorer(context);
+            final Tuple<Query, Stats> enclosingMiss = cache.swapLastMiss(null);
+            try {
+                return in.bulkScorer(context);
+            } finally {
+                cache.swapLastMiss(enclosingMiss);
+            }
         }
 
         @Override
@@ -169,6 +327,14 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         }
     }
 
+    /**
+     * Returns the query that was last missed by the current thread and whose doc id set hasn't been built, if any.
+     */
+    Query lastMiss() {
+        final Tuple<Query, Stats> lastMiss = cache.lastMiss.get();
+        return lastMiss == null ? null : lastMiss.v1();
+    }
+
     /** Clear all entries that belong to the given index. */
     public void clearIndex(String index) {
         final Set<Object> coreCacheKeys = shardKeyMap.getCoreKeysForIndex(index);
@@ -205,13 +371,27 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         volatile long missCount;
         volatile long cacheCount;
         volatile long cacheSize;
+        // doc id sets are built outside of the lock of the cache so these are updated concurrently
+        final Map<String, QueryTypeCosts> queryTypeCosts = new ConcurrentHashMap<>();
+        final LongAdder offHeapRamBytesUsed = new LongAdder();
+        final LongAdder offHeapReadCount = new LongAdder();
+        final LongAdder offHeapCacheCount = new LongAdder();
+        final LongAdder offHeapCacheSize = new LongAdder();
 
         Stats(ShardId shardId) {
             this.shardId = shardId;
         }
 
         QueryCacheStats toQueryCacheStats() {
-            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize);
+            final Map<String, QueryCacheStats.QueryTypeStats> queryTypeStats = new HashMap<>(queryTypeCosts.size());
+            for (Map.Entry<String, QueryTypeCosts> entry : queryTypeCosts.entrySet()) {
+                queryTypeStats.put(entry.getKey(), entry.getValue().toQueryTypeStats());
+            }
+            final long offHeapCacheCount = this.offHeapCacheCount.sum();
+            // LRUQueryCache reads the doc id sets that it builds once, all other reads are hits
+            final long offHeapHitCount = Math.max(0, offHeapReadCount.sum() - offHeapCacheCount);
+            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, queryTypeStats,
+                    offHeapRamBytesUsed.sum(), offHeapHitCount, offHeapCacheCount, offHeapCacheSize.sum());
         }
 
         @Override
@@ -221,6 +401,36 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         }
     }
 
+    private static class QueryTypeCosts {
+
+        // the number of doc id sets of a query type that need to be built before we trust its cost
+        static final int MIN_SAMPLES = 10;
+
+        final LongAdder cacheCount = new LongAdder();
+        final LongAdder buildTimeInNanos = new LongAdder();
+        final LongAdder docCount = new LongAdder();
+        final LongAdder matchCount = new LongAdder();
+        final LongAdder ramBytesUsed = new LongAdder();
+
+        void add(long tookInNanos, int maxDoc, long matches, long ramBytes) {
+            cacheCount.increment();
+            buildTimeInNanos.add(tookInNanos);
+            docCount.add(maxDoc);
+            matchCount.add(matches);
+            ramBytesUsed.add(ramBytes);
+        }
+
+        double costPerByte() {
+            // empty doc id sets may not use any memory
+            return (double) buildTimeInNanos.sum() / Math.max(1, ramBytesUsed.sum());
+        }
+
+        QueryCacheStats.QueryTypeStats toQueryTypeStats() {
+            return new QueryCacheStats.QueryTypeStats(cacheCount.sum(), buildTimeInNanos.sum(), docCount.sum(), matchCount.sum(),
+                    ramBytesUsed.sum());
+        }
+    }
+
     private static class StatsAndCount {
         volatile int count;
         final Stats stats;
@@ -250,6 +460,11 @@ public class IndicesQueryCache implements QueryCache, Closeable {
 
     private class ElasticsearchLRUQueryCache extends LRUQueryCache {
 
+        // the query that was last missed by the current thread and the stats of its shard: LRUQueryCache calls onMiss before it
+        // builds the doc id set in cacheImpl, but cacheImpl doesn't know about the query. cacheImpl runs on the same thread,
+        // either in the same call or in ScorerSupplier#get, see CachingWeightWrapper
+        private final ThreadLocal<Tuple<Query, Stats>> lastMiss = new ThreadLocal<>();
+
         ElasticsearchLRUQueryCache(int maxSize, long maxRamBytesUsed, Predicate<LeafReaderContext> leavesToCache) {
             super(maxSize, maxRamBytesUsed, leavesToCache);
         }
@@ -258,6 +473,21 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super(maxSize, maxRamBytesUsed);
         }
 
+        /**
+         * Replace the last miss of the current thread with the given one and return the previous one. The last miss is still set
+         * if the caching policy decided not to cache the query, or if its doc id set is built lazily by a {@link ScorerSupplier}.
+         */
+        Tuple<Query, Stats> swapLastMiss(Tuple<Query, Stats> miss) {
+            final Tuple<Query, Stats> previous = lastMiss.get();
+            if (miss == null) {
+                // don't retain the query in the thread
+                lastMiss.remove();
+            } else {
+                lastMiss.set(miss);
+            }
+            return previous;
+        }
+
         private Stats getStats(Object coreKey) {
             final ShardId shardId = shardKeyMap.getShardId(coreKey);
             if (shardId == null) {
@@ -353,6 +583,52 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super.onMiss(readerCoreKey, filter);
             final Stats shardStats = getOrCreateStats(readerCoreKey);
             shardStats.missCount += 1;
+            lastMiss.set(new Tuple<>(filter, shardStats));
+        }
+
+        @Override
+        protected DocIdSet cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+            final long startTime = System.nanoTime();
+            final DocIdSet docIdSet = super.cacheImpl(scorer, maxDoc);
+            final long tookInNanos = System.nanoTime() - startTime;
+            final Tuple<Query, Stats> missed = lastMiss.get();
+            if (missed == null) {
+                return docIdSet;
+            }
+            lastMiss.remove();
+            final DocIdSetIterator iterator = docIdSet.iterator();
+            // the cost of the iterators of cached doc id sets is their exact cardinality
+            final long matchCount = iterator == null ? 0 : iterator.cost();
+            final long ramBytesUsed = docIdSet.ramBytesUsed();
+            final String queryType = queryType(missed.v1());
+            queryTypeCosts.computeIfAbsent(queryType, k -> new QueryTypeCosts()).add(tookInNanos, maxDoc, matchCount, ramBytesUsed);
+            totalCosts.add(tookInNanos, maxDoc, matchCount, ramBytesUsed);
+            missed.v2().queryTypeCosts.computeIfAbsent(queryType, k -> new QueryTypeCosts())
+                .add(tookInNanos, maxDoc, matchCount, ramBytesUsed);
+
+            if (offHeapMaxBytesUsed > 0 && ramBytesUsed >= MIN_OFF_HEAP_RAM_BYTES_USED) {
+                final OffHeapDocIdSet offHeapSet = moveOffHeap(docIdSet, maxDoc, missed.v2());
+                if (offHeapSet != null) {
+                    return offHeapSet;
+                }
+            }
+            return docIdSet;
+        }
+
+        /**
+         * Copy the given doc id set out of the heap, or return {@code null} if the off-heap tier is full.
+         */
+        private OffHeapDocIdSet moveOffHeap(DocIdSet docIdSet, int maxDoc, Stats shardStats) throws IOException {
+            releaseOffHeapSets();
+            final OffHeapDocIdSet offHeapSet = OffHeapDocIdSet.copyOf(docIdSet, maxDoc, IndicesQueryCache.this::reserveOffHeap,
+                bytes -> offHeapBytesUsed.addAndGet(-bytes), shardStats.offHeapReadCount::increment);
+            if (offHeapSet != null) {
+                offHeapReferences.add(new OffHeapReference(offHeapSet, releasedOffHeapSets, shardStats));
+                shardStats.offHeapRamBytesUsed.add(offHeapSet.offHeapBytesUsed());
+                shardStats.offHeapCacheCount.increment();
+                shardStats.offHeapCacheSize.increment();
+            }
+            return offHeapSet;
         }
     }
 }
@@ -74,6 +74,12 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
      */
     public static final Setting<Boolean> INDEX_CACHE_REQUEST_ENABLED_SETTING =
         Setting.boolSetting("index.requests.cache.enable", true, Property.Dynamic, Property.IndexScope);
+    /**
+     * The maximum number of top hits, {@code from + size}, of requests that are cached without setting the {@code request_cache}
+     * flag. It defaults to 0 so that only requests with {@code size: 0} are cached by default.
+     */
+    public static final Setting<Integer> INDEX_CACHE_REQUEST_MAX_HITS_SETTING =
+        Setting.intSetting("index.requests.cache.max_hits", 0, 0, Property.Dynamic, Property.IndexScope);
     public static final Setting<ByteSizeValue> INDICES_CACHE_QUERY_SIZE =
         Setting.memorySizeSetting("indices.requests.cache.size", "1%", Property.NodeScope);
     public static final Setting<TimeValue> INDICES_CACHE_QUERY_EXPIRE =
@@ -90,7 +96,9 @@ public final class IndicesRequestCache implements RemovalListener<IndicesRequest
         this.expire = INDICES_CACHE_QUERY_EXPIRE.exists(settings) ? INDICES_CACHE_QUERY_EXPIRE.get(settings) : null;
         long sizeInBytes = size.getBytes();
         CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.<Key, BytesReference>builder()
-            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this);
+            .setMaximumWeight(sizeInBytes).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).removalListener(this)
+            // keep the results of requests that are repeated, like dashboards, over the results of one-off requests
+            .setFrequencyBasedAdmission(true);
         if (expire != null) {
             cacheBuilder.setExpireAfterAccess(expire);
         }
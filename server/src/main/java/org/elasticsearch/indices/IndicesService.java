@@ -119,6 +119,9 @@ import org.elasticsearch.plugins.IndexStorePlugin;
 import org.elasticsearch.plugins.PluginsService;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationResultCache;
+import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
@@ -133,6 +136,7 @@ import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -196,6 +200,7 @@ public class IndicesService extends AbstractLifecycleComponent
     private final IndexingMemoryController indexingMemoryController;
     private final TimeValue cleanInterval;
     final IndicesRequestCache indicesRequestCache; // pkg-private for testing
+    final IndicesAggregationCache indicesAggregationCache; // pkg-private for testing
     private final IndicesQueryCache indicesQueryCache;
     private final MetaStateService metaStateService;
     private final Collection<Function<IndexSettings, Optional<EngineFactory>>> engineFactoryProviders;
@@ -233,6 +238,8 @@ public class IndicesService extends AbstractLifecycleComponent
                                                                 () -> Iterables.flatten(this).iterator());
         this.indexScopedSettings = indexScopedSettings;
         this.circuitBreakerService = circuitBreakerService;
+        this.indicesAggregationCache = new IndicesAggregationCache(settings,
+            circuitBreakerService.getBreaker(CircuitBreaker.ACCOUNTING));
         this.bigArrays = bigArrays;
         this.scriptService = scriptService;
         this.client = client;
@@ -245,7 +252,8 @@ public class IndicesService extends AbstractLifecycleComponent
             }
         });
         this.cleanInterval = INDICES_CACHE_CLEAN_INTERVAL_SETTING.get(settings);
-        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache,  logger, threadPool, this.cleanInterval);
+        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache, indicesAggregationCache, logger, threadPool,
+            this.cleanInterval);
         this.metaStateService = metaStateService;
         this.engineFactoryProviders = engineFactoryProviders;
 
@@ -272,6 +280,7 @@ public class IndicesService extends AbstractLifecycleComponent
                             indicesFieldDataCache,
                             cacheCleaner,
                             indicesRequestCache,
+                            indicesAggregationCache,
                             indicesQueryCache);
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
@@ -1183,14 +1192,17 @@ public class IndicesService extends AbstractLifecycleComponent
         private final TimeValue interval;
         private final AtomicBoolean closed = new AtomicBoolean(false);
         private final IndicesRequestCache requestCache;
+        private final IndicesAggregationCache aggregationCache;
 
         CacheCleaner(IndicesFieldDataCache cache,
                      IndicesRequestCache requestCache,
+                     IndicesAggregationCache aggregationCache,
                      Logger logger,
                      ThreadPool threadPool,
                      TimeValue interval) {
             this.cache = cache;
             this.requestCache = requestCache;
+            this.aggregationCache = aggregationCache;
             this.logger = logger;
             this.threadPool = threadPool;
             this.interval = interval;
@@ -1217,6 +1229,11 @@ public class IndicesService extends AbstractLifecycleComponent
             } catch (Exception e) {
                 logger.warn("Exception during periodic request cache cleanup:", e);
             }
+            try {
+                this.aggregationCache.cleanCache();
+            } catch (Exception e) {
+                logger.warn("Exception during periodic aggregations cache cleanup:", e);
+            }
             // Reschedule itself to run again if not closed
             if (closed.get() == false) {
                 threadPool.scheduleUnlessShuttingDown(interval, ThreadPool.Names.SAME, this);
@@ -1254,9 +1271,10 @@ public class IndicesService extends AbstractLifecycleComponent
         if (request.requestCache() == null) {
             if (settings.getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING) == false) {
                 return false;
-            } else if (context.size() != 0) {
+            } else if (context.size() != 0 && canCacheHits(settings, context) == false) {
                 // If no request cache query parameter and shard request cache
-                // is enabled in settings don't cache for requests with size > 0
+                // is enabled in settings only cache requests with size > 0
+                // if they ask for few enough top hits
                 return false;
             }
         } else if (request.requestCache() == false) {
@@ -1274,6 +1292,147 @@ public class IndicesService extends AbstractLifecycleComponent
 
     }
 
+    /**
+     * Whether the top hits of a request with a size greater than 0 may be cached without the {@code request_cache} flag. The
+     * doc ids and sort values of the top hits only depend on the reader, which is part of the cache key, and on the request,
+     * including its {@code from}, {@code size} and {@code sort}, so we only need to bound how many of them are cached.
+     */
+    private static boolean canCacheHits(IndexSettings settings, SearchContext context) {
+        final int maxHits = settings.getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_MAX_HITS_SETTING);
+        final long numHits = (long) Math.max(context.from(), 0) + Math.max(context.size(), 0);
+        // profiled requests must run to be profiled
+        return numHits <= maxHits && context.getProfilers() == null;
+    }
+
+    /**
+     * Can the results of the top level aggregations of the shard request be cached?
+     */
+    public boolean canCacheAggregations(ShardSearchRequest request, SearchContext context) {
+        if (context.aggregations() == null || indicesAggregationCache.isEnabled() == false) {
+            return false;
+        }
+        // same as the request cache, except that the size of the request doesn't matter
+        if (request.scroll() != null || SearchType.QUERY_THEN_FETCH != context.searchType()) {
+            return false;
+        }
+        if (request.requestCache() == null) {
+            if (context.indexShard().indexSettings().getValue(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING) == false) {
+                return false;
+            }
+        } else if (request.requestCache() == false) {
+            return false;
+        }
+        // these options change the documents that aggregations collect without being part of the query,
+        // and profiled aggregations must run to be profiled
+        if (context.minimumScore() != null || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || context.getProfilers() != null) {
+            return false;
+        }
+        return context.getQueryShardContext().isCacheable();
+    }
+
+    /**
+     * Returns the cache of the results of the top level aggregations of the shard request, which must be
+     * {@link #canCacheAggregations(ShardSearchRequest, SearchContext) cacheable}.
+     */
+    public AggregationResultCache aggregationResultCache(ShardSearchRequest request, SearchContext context) {
+        assert canCacheAggregations(request, context);
+        return new ShardAggregationResultCache(request, context);
+    }
+
+    private final class ShardAggregationResultCache implements AggregationResultCache {
+        private final ShardSearchRequest request;
+        private final SearchContext context;
+        private final IndexShardAggregationCacheEntity cacheEntity;
+        private final Map<AggregationBuilder, BytesReference> cacheKeys = new IdentityHashMap<>();
+        private long queryRamBytesUsed = -1;
+
+        private ShardAggregationResultCache(ShardSearchRequest request, SearchContext context) {
+            this.request = request;
+            this.context = context;
+            this.cacheEntity = new IndexShardAggregationCacheEntity(context.indexShard());
+        }
+
+        @Override
+        public InternalAggregation get(AggregationBuilder aggregation) throws IOException {
+            final BytesReference bytes = indicesAggregationCache.get(cacheEntity, context.searcher().getDirectoryReader(),
+                context.query(), queryRamBytesUsed(), cacheKey(aggregation));
+            if (bytes == null) {
+                return null;
+            }
+            try (StreamInput in = new NamedWriteableAwareStreamInput(bytes.streamInput(), namedWriteableRegistry)) {
+                return in.readNamedWriteable(InternalAggregation.class);
+            }
+        }
+
+        @Override
+        public void put(AggregationBuilder aggregation, InternalAggregation result) throws IOException {
+            if (context.queryResult().searchTimedOut()) {
+                // the aggregation only collected part of the documents
+                return;
+            }
+            // see IndicesService#cacheShardLevelResult for the expected size
+            try (BytesStreamOutput out = new BytesStreamOutput(512)) {
+                out.writeNamedWriteable(result);
+                indicesAggregationCache.put(cacheEntity, context.searcher().getDirectoryReader(), context.query(),
+                    queryRamBytesUsed(), cacheKey(aggregation), out.bytes());
+            }
+        }
+
+        /**
+         * Estimates the memory usage of the query of the request with the serialized size of the query and the alias filter
+         * that it is parsed from, since most Lucene queries don't report their memory usage.
+         */
+        private long queryRamBytesUsed() throws IOException {
+            if (queryRamBytesUsed == -1) {
+                try (BytesStreamOutput out = new BytesStreamOutput()) {
+                    out.writeOptionalNamedWriteable(request.source().query());
+                    request.getAliasFilter().writeTo(out);
+                    queryRamBytesUsed = RamUsageEstimator.shallowSizeOf(context.query()) + out.size();
+                }
+            }
+            return queryRamBytesUsed;
+        }
+
+        private BytesReference cacheKey(AggregationBuilder aggregation) throws IOException {
+            BytesReference cacheKey = cacheKeys.get(aggregation);
+            if (cacheKey == null) {
+                try (BytesStreamOutput out = new BytesStreamOutput()) {
+                    // the shard size of some aggregations depends on the number of shards, and hits of top_hits
+                    // aggregations hold the cluster alias
+                    out.writeVInt(request.numberOfShards());
+                    out.writeOptionalString(request.getClusterAlias());
+                    out.writeNamedWriteable(aggregation);
+                    cacheKey = out.bytes();
+                }
+                cacheKeys.put(aggregation, cacheKey);
+            }
+            return cacheKey;
+        }
+    }
+
+    private static final class IndexShardAggregationCacheEntity implements IndicesAggregationCache.CacheEntity {
+        private final IndexShard indexShard;
+
+        private IndexShardAggregationCacheEntity(IndexShard indexShard) {
+            this.indexShard = indexShard;
+        }
+
+        @Override
+        public ShardRequestCache stats() {
+            return indexShard.requestCache();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return indexShard.state() != IndexShardState.CLOSED;
+        }
+
+        @Override
+        public Object getCacheIdentity() {
+            return indexShard;
+        }
+    }
 
     /**
      * Loads the cache result, computing it if needed by executing the query phase and otherwise deserializing the cached
@@ -1427,6 +1586,7 @@ public class IndicesService extends AbstractLifecycleComponent
             final boolean clearedAtLeastOne = service.clearCaches(queryCache, fieldDataCache, fields);
             if ((requestCache || (clearedAtLeastOne == false && fields.length == 0)) && shard != null) {
                 indicesRequestCache.clear(new IndexShardCacheEntity(shard));
+                indicesAggregationCache.clear(new IndexShardAggregationCacheEntity(shard));
             }
         }
     }
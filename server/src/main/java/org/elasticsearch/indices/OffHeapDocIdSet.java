@@ -0,0 +1,338 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * A {@link DocIdSet} that is stored in a direct {@link ByteBuffer}, out of the heap. Doc ids are split in blocks of 2^16 doc
+ * ids like in {@link org.apache.lucene.util.RoaringDocIdSet}, and the doc ids of each block are encoded as a sorted array of
+ * shorts if this is smaller than a bitmap of the block, as a bitmap otherwise, and not at all if all doc ids of the block are in
+ * the set. The last block only spans up to {@code maxDoc}. The buffer starts with a header that gives the id, the offset of the
+ * data and the cardinality of the blocks that have at least one doc id, sorted by block id.
+ * The memory of the buffer is only released once the set is garbage collected, so that searches that are still iterating over
+ * an evicted set never read freed memory.
+ */
+final class OffHeapDocIdSet extends DocIdSet {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OffHeapDocIdSet.class)
+        + RamUsageEstimator.shallowSizeOfInstance(ByteBuffer.allocateDirect(0).getClass());
+
+    private static final int BLOCK_SHIFT = 16;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int ARRAY = 0;
+    private static final int BITMAP = 1;
+    private static final int FULL = 2;
+    // block id, data offset and cardinality
+    private static final int HEADER_ENTRY_BYTES = 3 * Integer.BYTES;
+
+    /**
+     * Copy the given set into a new off-heap set.
+     *
+     * @param reserve called with the number of bytes that the copy needs before they are allocated, if it returns
+     *                {@code false} then no copy is made and this method returns {@code null}
+     * @param release called with the number of reserved bytes if the copy fails after they were reserved
+     * @param onRead  called every time an iterator over the copy is created
+     */
+    static OffHeapDocIdSet copyOf(DocIdSet set, int maxDoc, LongPredicate reserve, LongConsumer release,
+                                  Runnable onRead) throws IOException {
+        return copyOf(set, maxDoc, reserve, release, onRead, ByteBuffer::allocateDirect);
+    }
+
+    static OffHeapDocIdSet copyOf(DocIdSet set, int maxDoc, LongPredicate reserve, LongConsumer release, Runnable onRead,
+                                  IntFunction<ByteBuffer> allocator) throws IOException {
+        final int[] cardinalities = new int[(maxDoc + BLOCK_SIZE - 1) >>> BLOCK_SHIFT];
+        final DocIdSetIterator iterator = set.iterator();
+        if (iterator != null) {
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                cardinalities[doc >>> BLOCK_SHIFT]++;
+            }
+        }
+        int blockCount = 0;
+        long cardinality = 0;
+        long dataBytes = 0;
+        for (int block = 0; block < cardinalities.length; ++block) {
+            if (cardinalities[block] > 0) {
+                blockCount++;
+                cardinality += cardinalities[block];
+                dataBytes += dataBytes(cardinalities[block], blockLength(block, maxDoc));
+            }
+        }
+        final int bytes = Math.toIntExact(blockCount * HEADER_ENTRY_BYTES + dataBytes);
+        if (reserve.test(bytes) == false) {
+            return null;
+        }
+        boolean success = false;
+        try {
+            final ByteBuffer buffer = allocator.apply(bytes);
+            final OffHeapDocIdSet copy = fill(buffer, set, maxDoc, cardinalities, blockCount, cardinality, onRead);
+            success = true;
+            return copy;
+        } finally {
+            if (success == false) {
+                release.accept(bytes);
+            }
+        }
+    }
+
+    private static OffHeapDocIdSet fill(ByteBuffer buffer, DocIdSet set, int maxDoc, int[] cardinalities, int blockCount,
+                                        long cardinality, Runnable onRead) throws IOException {
+        int headerOffset = 0;
+        int dataOffset = blockCount * HEADER_ENTRY_BYTES;
+        for (int block = 0; block < cardinalities.length; ++block) {
+            if (cardinalities[block] > 0) {
+                buffer.putInt(headerOffset, block);
+                buffer.putInt(headerOffset + Integer.BYTES, dataOffset);
+                buffer.putInt(headerOffset + 2 * Integer.BYTES, cardinalities[block]);
+                headerOffset += HEADER_ENTRY_BYTES;
+                dataOffset += dataBytes(cardinalities[block], blockLength(block, maxDoc));
+            }
+        }
+        final DocIdSetIterator iterator = set.iterator();
+        if (iterator != null) {
+            int block = -1;
+            int blockDataOffset = 0;
+            int index = 0;
+            headerOffset = -HEADER_ENTRY_BYTES;
+            for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+                if (doc >>> BLOCK_SHIFT != block) {
+                    block = doc >>> BLOCK_SHIFT;
+                    headerOffset += HEADER_ENTRY_BYTES;
+                    blockDataOffset = buffer.getInt(headerOffset + Integer.BYTES);
+                    index = 0;
+                }
+                final int low = doc & (BLOCK_SIZE - 1);
+                final int type = blockType(cardinalities[block], blockLength(block, maxDoc));
+                if (type == ARRAY) {
+                    buffer.putShort(blockDataOffset + index++ * Short.BYTES, (short) low);
+                } else if (type == BITMAP) {
+                    // the buffer is zero-filled on allocation
+                    final int wordOffset = blockDataOffset + (low >>> 6) * Long.BYTES;
+                    buffer.putLong(wordOffset, buffer.getLong(wordOffset) | (1L << low));
+                }
+            }
+        }
+        return new OffHeapDocIdSet(buffer, maxDoc, blockCount, cardinality, onRead);
+    }
+
+    private static int blockLength(int block, int maxDoc) {
+        return Math.min(BLOCK_SIZE, maxDoc - (block << BLOCK_SHIFT));
+    }
+
+    private static int bitmapBytes(int blockLength) {
+        return ((blockLength + Long.SIZE - 1) >>> 6) * Long.BYTES;
+    }
+
+    private static int blockType(int blockCardinality, int blockLength) {
+        if (blockCardinality == blockLength) {
+            return FULL;
+        } else if (blockCardinality * Short.BYTES <= bitmapBytes(blockLength)) {
+            return ARRAY;
+        } else {
+            return BITMAP;
+        }
+    }
+
+    private static int dataBytes(int blockCardinality, int blockLength) {
+        switch (blockType(blockCardinality, blockLength)) {
+            case ARRAY:
+                return blockCardinality * Short.BYTES;
+            case BITMAP:
+                return bitmapBytes(blockLength);
+            default:
+                return 0;
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final int maxDoc;
+    private final int blockCount;
+    private final long cardinality;
+    private final Runnable onRead;
+
+    private OffHeapDocIdSet(ByteBuffer buffer, int maxDoc, int blockCount, long cardinality, Runnable onRead) {
+        this.buffer = buffer;
+        this.maxDoc = maxDoc;
+        this.blockCount = blockCount;
+        this.cardinality = cardinality;
+        this.onRead = onRead;
+    }
+
+    /**
+     * Return the number of bytes that this set uses out of the heap.
+     */
+    long offHeapBytesUsed() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Return the number of doc ids in this set.
+     */
+    long cardinality() {
+        return cardinality;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+        onRead.run();
+        if (blockCount == 0) {
+            return null;
+        }
+        return new Iterator();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(blocks=" + blockCount + ",cardinality=" + cardinality + ",offHeapBytes="
+            + offHeapBytesUsed() + ")";
+    }
+
+    // only relies on absolute reads of the buffer, which are thread-safe, so that iterators can share it
+    private class Iterator extends DocIdSetIterator {
+
+        private int block = -1;
+        private int blockBase;
+        private int blockCardinality;
+        private int blockLength;
+        private int blockType;
+        private int dataOffset;
+        // the index of the current doc id in the array of the current block
+        private int index;
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            if (block == -1 || target >>> BLOCK_SHIFT != blockBase >>> BLOCK_SHIFT) {
+                if (moveToBlock(target >>> BLOCK_SHIFT) == false) {
+                    return doc = NO_MORE_DOCS;
+                }
+                target = Math.max(target, blockBase);
+            }
+            int low = advanceWithinBlock(target & (BLOCK_SIZE - 1));
+            while (low == -1) {
+                if (block + 1 == blockCount) {
+                    return doc = NO_MORE_DOCS;
+                }
+                loadBlock(block + 1);
+                low = advanceWithinBlock(0);
+            }
+            return doc = blockBase | low;
+        }
+
+        /**
+         * Move to the first block whose id is greater than or equal to the given one.
+         */
+        private boolean moveToBlock(int targetBlockId) {
+            int lo = block + 1;
+            int hi = blockCount - 1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                if (buffer.getInt(mid * HEADER_ENTRY_BYTES) < targetBlockId) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (lo == blockCount) {
+                block = blockCount;
+                return false;
+            }
+            loadBlock(lo);
+            return true;
+        }
+
+        private void loadBlock(int block) {
+            this.block = block;
+            final int headerOffset = block * HEADER_ENTRY_BYTES;
+            final int blockId = buffer.getInt(headerOffset);
+            blockBase = blockId << BLOCK_SHIFT;
+            dataOffset = buffer.getInt(headerOffset + Integer.BYTES);
+            blockCardinality = buffer.getInt(headerOffset + 2 * Integer.BYTES);
+            blockLength = blockLength(blockId, maxDoc);
+            blockType = blockType(blockCardinality, blockLength);
+            index = 0;
+        }
+
+        /**
+         * Return the lowest 16 bits of the first doc id of the current block that is greater than or equal to the given one,
+         * or -1 if there is none.
+         */
+        private int advanceWithinBlock(int target) {
+            if (target >= blockLength) {
+                return -1;
+            }
+            if (blockType == ARRAY) {
+                int lo = index;
+                int hi = blockCardinality - 1;
+                while (lo <= hi) {
+                    final int mid = (lo + hi) >>> 1;
+                    if (Short.toUnsignedInt(buffer.getShort(dataOffset + mid * Short.BYTES)) < target) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid - 1;
+                    }
+                }
+                index = lo;
+                return lo == blockCardinality ? -1 : Short.toUnsignedInt(buffer.getShort(dataOffset + lo * Short.BYTES));
+            } else if (blockType == BITMAP) {
+                final int numWords = bitmapBytes(blockLength) / Long.BYTES;
+                int wordIndex = target >>> 6;
+                long word = buffer.getLong(dataOffset + wordIndex * Long.BYTES) & (-1L << target);
+                while (word == 0) {
+                    if (++wordIndex == numWords) {
+                        return -1;
+                    }
+                    word = buffer.getLong(dataOffset + wordIndex * Long.BYTES);
+                }
+                return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+            } else {
+                return target;
+            }
+        }
+
+        @Override
+        public long cost() {
+            return cardinality;
+        }
+    }
+}
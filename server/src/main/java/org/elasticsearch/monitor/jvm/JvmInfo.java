@@ -101,6 +101,7 @@ public class JvmInfo implements Writeable, ToXContentFragment {
         String useSerialGC = "unknown";
         long configuredInitialHeapSize = -1;
         long configuredMaxHeapSize = -1;
+        long configuredMaxDirectMemorySize = -1;
         try {
             @SuppressWarnings("unchecked") Class<? extends PlatformManagedObject> clazz =
                     (Class<? extends PlatformManagedObject>)Class.forName("com.sun.management.HotSpotDiagnosticMXBean");
@@ -145,6 +146,12 @@ public class JvmInfo implements Writeable, ToXContentFragment {
             } catch (Exception ignored) {
             }
 
+            try {
+                Object maxDirectMemorySizeVmOptionObject = vmOptionMethod.invoke(hotSpotDiagnosticMXBean, "MaxDirectMemorySize");
+                configuredMaxDirectMemorySize = Long.parseLong((String) valueMethod.invoke(maxDirectMemorySizeVmOptionObject));
+            } catch (Exception ignored) {
+            }
+
             try {
                 Object useSerialGCVmOptionObject = vmOptionMethod.invoke(hotSpotDiagnosticMXBean, "UseSerialGC");
                 useSerialGC = (String) valueMethod.invoke(useSerialGCVmOptionObject);
@@ -169,6 +176,7 @@ public class JvmInfo implements Writeable, ToXContentFragment {
                 runtimeMXBean.getStartTime(),
                 configuredInitialHeapSize,
                 configuredMaxHeapSize,
+                configuredMaxDirectMemorySize,
                 mem,
                 inputArguments,
                 bootClassPath,
@@ -217,6 +225,7 @@ public class JvmInfo implements Writeable, ToXContentFragment {
     private final long startTime;
     private final long configuredInitialHeapSize;
     private final long configuredMaxHeapSize;
+    private final long configuredMaxDirectMemorySize;
     private final Mem mem;
     private final String[] inputArguments;
     private final String bootClassPath;
@@ -231,10 +240,10 @@ public class JvmInfo implements Writeable, ToXContentFragment {
     private final String useSerialGC;
 
     private JvmInfo(long pid, String version, String vmName, String vmVersion, String vmVendor, boolean bundledJdk, Boolean usingBundledJdk,
-                    long startTime, long configuredInitialHeapSize, long configuredMaxHeapSize, Mem mem, String[] inputArguments,
-                    String bootClassPath, String classPath, Map<String, String> systemProperties, String[] gcCollectors,
-                    String[] memoryPools, String onError, String onOutOfMemoryError, String useCompressedOops, String useG1GC,
-                    String useSerialGC) {
+                    long startTime, long configuredInitialHeapSize, long configuredMaxHeapSize, long configuredMaxDirectMemorySize,
+                    Mem mem, String[] inputArguments, String bootClassPath, String classPath, Map<String, String> systemProperties,
+                    String[] gcCollectors, String[] memoryPools, String onError, String onOutOfMemoryError, String useCompressedOops,
+                    String useG1GC, String useSerialGC) {
         this.pid = pid;
         this.version = version;
         this.vmName = vmName;
@@ -245,6 +254,7 @@ public class JvmInfo implements Writeable, ToXContentFragment {
         this.startTime = startTime;
         this.configuredInitialHeapSize = configuredInitialHeapSize;
         this.configuredMaxHeapSize = configuredMaxHeapSize;
+        this.configuredMaxDirectMemorySize = configuredMaxDirectMemorySize;
         this.mem = mem;
         this.inputArguments = inputArguments;
         this.bootClassPath = bootClassPath;
@@ -287,6 +297,7 @@ public class JvmInfo implements Writeable, ToXContentFragment {
         //the following members are only used locally for bootstrap checks, never serialized nor printed out
         this.configuredMaxHeapSize = -1;
         this.configuredInitialHeapSize = -1;
+        this.configuredMaxDirectMemorySize = -1;
         this.onError = null;
         this.onOutOfMemoryError = null;
         this.useG1GC = "unknown";
@@ -458,6 +469,14 @@ public class JvmInfo implements Writeable, ToXContentFragment {
         return configuredMaxHeapSize;
     }
 
+    /**
+     * Returns the value of {@code -XX:MaxDirectMemorySize}, {@code 0} if it isn't set and the JVM uses the max heap size instead,
+     * or {@code -1} if it is unknown.
+     */
+    public long getConfiguredMaxDirectMemorySize() {
+        return configuredMaxDirectMemorySize;
+    }
+
     public String onError() {
         return onError;
     }
@@ -204,21 +204,35 @@ public class RestController implements HttpServerTransport.Dispatcher {
         }
     }
 
+    @Override
+    public boolean supportsIncrementalContent(RestRequest.Method method, String uri) {
+        // requests are dispatched to the first handler that is registered for their method, see tryAllHandlers
+        for (Iterator<MethodHandlers> it = handlers.retrieveAll(RestRequest.path(uri), HashMap::new); it.hasNext(); ) {
+            final Optional<RestHandler> mHandler = Optional.ofNullable(it.next()).flatMap(mh -> mh.getHandler(method));
+            if (mHandler.isPresent()) {
+                return mHandler.get().supportsIncrementalContent();
+            }
+        }
+        return false;
+    }
+
     /**
      * Dispatch the request, if possible, returning true if a response was sent or false otherwise.
      */
     boolean dispatchRequest(final RestRequest request, final RestChannel channel, final NodeClient client,
                             final Optional<RestHandler> mHandler) throws Exception {
         final int contentLength = request.hasContent() ? request.content().length() : 0;
+        // the content of requests that is received after they were dispatched is checked the same way
+        final boolean hasContent = contentLength > 0 || request.hasContentStream();
 
         RestChannel responseChannel = channel;
         // Indicator of whether a response was sent or not
         boolean requestHandled;
 
-        if (contentLength > 0 && mHandler.map(h -> hasContentType(request, h) == false).orElse(false)) {
+        if (hasContent && mHandler.map(h -> hasContentType(request, h) == false).orElse(false)) {
             sendContentTypeErrorMessage(request, channel);
             requestHandled = true;
-        } else if (contentLength > 0 && mHandler.map(h -> h.supportsContentStream()).orElse(false) &&
+        } else if (hasContent && mHandler.map(h -> h.supportsContentStream()).orElse(false) &&
             request.getXContentType() != XContentType.JSON && request.getXContentType() != XContentType.SMILE) {
             channel.sendResponse(BytesRestResponse.createSimpleErrorResponse(channel,
                 RestStatus.NOT_ACCEPTABLE, "Content-Type [" + request.getXContentType() +
@@ -234,6 +248,9 @@ public class RestController implements HttpServerTransport.Dispatcher {
                 }
                 // iff we could reserve bytes for the request we need to send the response also over this channel
                 responseChannel = new ResourceHandlingHttpChannel(channel, circuitBreakerService, contentLength);
+                if (mHandler.get().allowsUnsafeBuffers() == false) {
+                    request.ensureSafeBuffers();
+                }
 
                 final RestHandler wrappedHandler = mHandler.map(h -> handlerWrapper.apply(h)).get();
                 wrappedHandler.handleRequest(request, responseChannel, client);
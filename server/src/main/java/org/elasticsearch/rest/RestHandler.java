@@ -47,4 +47,22 @@ public interface RestHandler {
     default boolean supportsContentStream() {
         return false;
     }
+
+    /**
+     * Indicates if the RestHandler supports working with pooled buffers. If a handler doesn't let the content of the request or any
+     * buffers sliced from it escape beyond the point where it sends the response, the content doesn't need to be copied to unpooled
+     * heap buffers before the handler is invoked. Pooled buffers are released once the response was sent.
+     */
+    default boolean allowsUnsafeBuffers() {
+        return false;
+    }
+
+    /**
+     * Indicates if the RestHandler accepts the content of requests chunk by chunk, as it is received after the request was dispatched.
+     * Such a handler must read the content of requests that have a {@link RestRequest#contentStream()} from the stream rather than
+     * from {@link RestRequest#content()}, which is empty for them.
+     */
+    default boolean supportsIncrementalContent() {
+        return false;
+    }
 }
@@ -36,6 +36,7 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.http.HttpChannel;
+import org.elasticsearch.http.HttpContentStream;
 import org.elasticsearch.http.HttpRequest;
 
 import java.io.IOException;
@@ -63,7 +64,7 @@ public class RestRequest implements ToXContent.Params {
     private final String rawPath;
     private final Set<String> consumedParams = new HashSet<>();
     private final SetOnce<XContentType> xContentType = new SetOnce<>();
-    private final HttpRequest httpRequest;
+    private HttpRequest httpRequest;
     private final HttpChannel httpChannel;
 
     private boolean contentConsumed = false;
@@ -125,7 +126,7 @@ public class RestRequest implements ToXContent.Params {
         return params;
     }
 
-    private static String path(final String uri) {
+    static String path(final String uri) {
         final int index = uri.indexOf('?');
         if (index >= 0) {
             return uri.substring(0, index);
@@ -197,6 +198,24 @@ public class RestRequest implements ToXContent.Params {
         return httpRequest.content();
     }
 
+    /**
+     * Whether the content of this request is received chunk by chunk after it was dispatched, see {@link #contentStream()}.
+     */
+    public final boolean hasContentStream() {
+        return httpRequest.contentStream() != null;
+    }
+
+    /**
+     * The stream of the content of this request if it is received chunk by chunk after it was dispatched, or {@code null} otherwise.
+     * Only handlers that {@link RestHandler#supportsIncrementalContent() support incremental content} get such requests, and their
+     * {@link #content()} is empty.
+     */
+    @Nullable
+    public final HttpContentStream contentStream() {
+        this.contentConsumed = true;
+        return httpRequest.contentStream();
+    }
+
     /**
      * @return content of the request body or throw an exception if the body or content type is missing
      */
@@ -263,6 +282,14 @@ public class RestRequest implements ToXContent.Params {
         return httpRequest;
     }
 
+    /**
+     * Copies the content of this request to unpooled heap buffers if it is backed by pooled buffers, such that it can safely be
+     * referenced after the response was sent.
+     */
+    void ensureSafeBuffers() {
+        httpRequest = httpRequest.releaseAndCopy();
+    }
+
     public final boolean hasParam(String key) {
         return params.containsKey(key);
     }
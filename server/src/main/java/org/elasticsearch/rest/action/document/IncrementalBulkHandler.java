@@ -0,0 +1,296 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.document;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.http.HttpContentStream;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.action.RestStatusToXContentListener;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Parses the body of a bulk request chunk by chunk, as it is received, and executes its items in batches of about
+ * {@code batchSizeInBytes}, at most {@code maxBatchesInFlight} at a time, while the rest of the body is received. Reading the body is
+ * paused while a batch that is full waits for an earlier one to complete. The items of all batches are returned in a single response
+ * once all of them completed. If the body can't be parsed or a batch fails, the remaining items are not executed and the failure is
+ * returned once the batches in flight completed.
+ */
+final class IncrementalBulkHandler implements HttpContentStream.Handler {
+
+    /**
+     * Adds the complete items at the start of the data to a batch, see {@link BulkRequest#addIncrementally}.
+     */
+    @FunctionalInterface
+    interface BatchParser {
+        int parse(BulkRequest batch, BytesReference data, boolean lastData, int firstLine) throws IOException;
+    }
+
+    private final HttpContentStream stream;
+    private final RestChannel channel;
+    private final BulkRequest firstBatch;
+    private final BatchParser parser;
+    private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> executor;
+    private final byte marker;
+    private final long batchSizeInBytes;
+    private final int maxBatchesInFlight;
+
+    // the received chunks that were not fully parsed yet
+    private final List<BytesReference> unparsed = new ArrayList<>();
+    private int parsedLines;
+    private long receivedBytes;
+    private BulkRequest currentBatch;
+    // batches that are full and wait for a batch in flight to complete
+    private final Deque<BulkRequest> fullBatches = new ArrayDeque<>();
+    private int batchesInFlight;
+    // the responses of all batches in the order they were executed, null for those in flight
+    private final List<BulkResponse> responses = new ArrayList<>();
+    private long startTimeNanos;
+    private boolean lastChunkReceived;
+    private boolean paused;
+    private boolean responded;
+    @Nullable
+    private Exception failure;
+
+    IncrementalBulkHandler(HttpContentStream stream, RestChannel channel, BulkRequest firstBatch, BatchParser parser,
+                           BiConsumer<BulkRequest, ActionListener<BulkResponse>> executor, byte marker, long batchSizeInBytes,
+                           int maxBatchesInFlight) {
+        this.stream = stream;
+        this.channel = channel;
+        this.firstBatch = firstBatch;
+        this.parser = parser;
+        this.executor = executor;
+        this.marker = marker;
+        this.batchSizeInBytes = batchSizeInBytes;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        this.currentBatch = firstBatch;
+    }
+
+    @Override
+    public void onChunk(BytesReference chunk, boolean isLast) {
+        synchronized (this) {
+            if (failure != null) {
+                // the rest of the body is discarded
+                return;
+            }
+            receivedBytes += chunk.length();
+            if (chunk.length() > 0) {
+                unparsed.add(chunk);
+            }
+            // items can only be complete once a line ends in this chunk
+            if (isLast || chunk.indexOf(marker, 0) != -1) {
+                try {
+                    if (isLast && receivedBytes == 0) {
+                        throw new ElasticsearchParseException("request body is required");
+                    }
+                    parse(isLast);
+                } catch (Exception e) {
+                    onFailureLocked(e);
+                }
+            }
+            if (failure == null) {
+                if (currentBatch.estimatedSizeInBytes() >= batchSizeInBytes) {
+                    fullBatches.add(currentBatch);
+                    currentBatch = newBatch();
+                }
+                if (isLast) {
+                    lastChunkReceived = true;
+                    // an empty request is executed anyway to report it as invalid
+                    if (currentBatch.numberOfActions() > 0 || (responses.isEmpty() && fullBatches.isEmpty())) {
+                        fullBatches.add(currentBatch);
+                    }
+                    currentBatch = null;
+                }
+            }
+        }
+        executeBatches();
+    }
+
+    @Override
+    public void onFailure(Exception e) {
+        synchronized (this) {
+            if (failure == null) {
+                onFailureLocked(e);
+            }
+        }
+        executeBatches();
+    }
+
+    private void parse(boolean isLast) throws IOException {
+        final BytesReference data;
+        if (unparsed.isEmpty()) {
+            data = BytesArray.EMPTY;
+        } else if (unparsed.size() == 1) {
+            data = unparsed.get(0);
+        } else {
+            data = new CompositeBytesReference(unparsed.toArray(new BytesReference[0]));
+        }
+        final int parsedBytes = parser.parse(currentBatch, data, isLast, parsedLines);
+        for (int i = data.indexOf(marker, 0); i != -1 && i < parsedBytes; i = data.indexOf(marker, i + 1)) {
+            parsedLines++;
+        }
+        // only keep the chunks of the incomplete item at the end of the data
+        int remainingBytes = parsedBytes;
+        while (remainingBytes > 0) {
+            final BytesReference first = unparsed.get(0);
+            if (first.length() <= remainingBytes) {
+                remainingBytes -= first.length();
+                unparsed.remove(0);
+            } else {
+                unparsed.set(0, first.slice(remainingBytes, first.length() - remainingBytes));
+                remainingBytes = 0;
+            }
+        }
+    }
+
+    private BulkRequest newBatch() {
+        return new BulkRequest()
+            .waitForActiveShards(firstBatch.waitForActiveShards())
+            .timeout(firstBatch.timeout())
+            .pipeline(firstBatch.pipeline())
+            .routing(firstBatch.routing())
+            .setRefreshPolicy(firstBatch.getRefreshPolicy());
+    }
+
+    private void onFailureLocked(Exception e) {
+        assert Thread.holdsLock(this);
+        failure = e;
+        fullBatches.clear();
+        currentBatch = null;
+        unparsed.clear();
+    }
+
+    /**
+     * Executes the full batches while less than {@code maxBatchesInFlight} are in flight, pauses or resumes reading the body depending
+     * on whether full batches are left, and sends the response once the last batch completed.
+     */
+    private void executeBatches() {
+        while (true) {
+            final BulkRequest batch;
+            final int batchIndex;
+            synchronized (this) {
+                if (failure == null && fullBatches.isEmpty() == false && batchesInFlight < maxBatchesInFlight) {
+                    batch = fullBatches.poll();
+                    batchIndex = responses.size();
+                    responses.add(null);
+                    batchesInFlight++;
+                    if (batchIndex == 0) {
+                        startTimeNanos = System.nanoTime();
+                    }
+                } else {
+                    // pause and resume are called under the lock to keep their calls in order
+                    final boolean pause = failure == null && lastChunkReceived == false && fullBatches.isEmpty() == false;
+                    if (pause != paused) {
+                        paused = pause;
+                        if (pause) {
+                            stream.pause();
+                        } else {
+                            stream.resume();
+                        }
+                    }
+                    break;
+                }
+            }
+            executor.accept(batch, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    synchronized (IncrementalBulkHandler.this) {
+                        responses.set(batchIndex, response);
+                        batchesInFlight--;
+                    }
+                    executeBatches();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    synchronized (IncrementalBulkHandler.this) {
+                        batchesInFlight--;
+                        if (failure == null) {
+                            onFailureLocked(e);
+                        }
+                    }
+                    executeBatches();
+                }
+            });
+        }
+        maybeRespond();
+    }
+
+    private void maybeRespond() {
+        final Exception e;
+        final BulkResponse response;
+        synchronized (this) {
+            final boolean done = failure != null || (lastChunkReceived && fullBatches.isEmpty());
+            if (responded || batchesInFlight > 0 || done == false) {
+                return;
+            }
+            responded = true;
+            e = failure;
+            response = failure == null ? mergeResponses() : null;
+        }
+        final RestStatusToXContentListener<BulkResponse> listener = new RestStatusToXContentListener<>(channel);
+        if (e != null) {
+            listener.onFailure(e);
+        } else {
+            listener.onResponse(response);
+        }
+    }
+
+    private BulkResponse mergeResponses() {
+        assert Thread.holdsLock(this);
+        if (responses.size() == 1) {
+            return responses.get(0);
+        }
+        final List<BulkItemResponse> items = new ArrayList<>();
+        long ingestTookInMillis = BulkResponse.NO_INGEST_TOOK;
+        for (BulkResponse response : responses) {
+            // the ids of the items are their positions in the bulk request
+            final int offset = items.size();
+            for (BulkItemResponse item : response.getItems()) {
+                final int id = offset + item.getItemId();
+                if (item.isFailed()) {
+                    items.add(new BulkItemResponse(id, item.getOpType(), item.getFailure()));
+                } else {
+                    items.add(new BulkItemResponse(id, item.getOpType(), item.<DocWriteResponse>getResponse()));
+                }
+            }
+            if (response.getIngestTookInMillis() != BulkResponse.NO_INGEST_TOOK) {
+                ingestTookInMillis = Math.max(ingestTookInMillis, 0) + response.getIngestTookInMillis();
+            }
+        }
+        final long tookInMillis = TimeValue.nsecToMSec(System.nanoTime() - startTimeNanos);
+        return new BulkResponse(items.toArray(new BulkItemResponse[0]), tookInMillis, ingestTookInMillis);
+    }
+}
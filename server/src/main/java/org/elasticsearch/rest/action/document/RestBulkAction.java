@@ -26,7 +26,11 @@ import org.elasticsearch.action.support.ActiveShardCount;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.logging.DeprecationLogger;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.RestController;
@@ -51,7 +55,22 @@ import static org.elasticsearch.rest.RestRequest.Method.PUT;
  */
 public class RestBulkAction extends BaseRestHandler {
 
+    /**
+     * The size of the batches in which the items of bulk requests are executed while the rest of the request is received, if the
+     * http layer passes on the content of bulk requests chunk by chunk.
+     */
+    public static final Setting<ByteSizeValue> INCREMENTAL_BATCH_SIZE = Setting.byteSizeSetting("rest.action.bulk.incremental.batch_size",
+        new ByteSizeValue(10, ByteSizeUnit.MB), Property.NodeScope);
+    /**
+     * The maximum number of batches of a bulk request that are executed concurrently, see {@link #INCREMENTAL_BATCH_SIZE}. Reading the
+     * request is paused while another batch is full.
+     */
+    public static final Setting<Integer> INCREMENTAL_MAX_BATCHES_IN_FLIGHT =
+        Setting.intSetting("rest.action.bulk.incremental.max_batches_in_flight", 2, 1, Property.NodeScope);
+
     private final boolean allowExplicitIndex;
+    private final long incrementalBatchSize;
+    private final int incrementalMaxBatchesInFlight;
     private static final DeprecationLogger deprecationLogger = new DeprecationLogger(LogManager.getLogger(RestSearchAction.class));
     public static final String TYPES_DEPRECATION_MESSAGE = "[types removal]" +
     " Specifying types in bulk requests is deprecated.";
@@ -68,6 +87,8 @@ public class RestBulkAction extends BaseRestHandler {
         controller.registerHandler(PUT, "/{index}/{type}/_bulk", this);
 
         this.allowExplicitIndex = MULTI_ALLOW_EXPLICIT_INDEX.get(settings);
+        this.incrementalBatchSize = INCREMENTAL_BATCH_SIZE.get(settings).getBytes();
+        this.incrementalMaxBatchesInFlight = INCREMENTAL_MAX_BATCHES_IN_FLIGHT.get(settings);
     }
 
     @Override
@@ -94,6 +115,15 @@ public class RestBulkAction extends BaseRestHandler {
         }
         bulkRequest.timeout(request.paramAsTime("timeout", BulkShardRequest.DEFAULT_TIMEOUT));
         bulkRequest.setRefreshPolicy(request.param("refresh"));
+        if (request.hasContentStream()) {
+            final String type = defaultType;
+            final IncrementalBulkHandler.BatchParser parser = (batch, data, lastData, firstLine) -> batch.addIncrementally(data,
+                lastData, firstLine, defaultIndex, type, defaultRouting, defaultFetchSourceContext, defaultPipeline, allowExplicitIndex,
+                request.getXContentType());
+            final byte marker = request.getXContentType().xContent().streamSeparator();
+            return channel -> request.contentStream().setHandler(new IncrementalBulkHandler(request.contentStream(), channel,
+                bulkRequest, parser, client::bulk, marker, incrementalBatchSize, incrementalMaxBatchesInFlight));
+        }
         bulkRequest.add(request.requiredContent(), defaultIndex, defaultType, defaultRouting,
             defaultFetchSourceContext, defaultPipeline, allowExplicitIndex, request.getXContentType());
 
@@ -104,4 +134,16 @@ public class RestBulkAction extends BaseRestHandler {
     public boolean supportsContentStream() {
         return true;
     }
+
+    @Override
+    public boolean supportsIncrementalContent() {
+        return true;
+    }
+
+    @Override
+    public boolean allowsUnsafeBuffers() {
+        // the sources of the items are slices of the request content, but the bulk response is only sent after all items were
+        // applied on all shard copies, hence the content of large bulks doesn't need to be copied
+        return true;
+    }
 }
@@ -24,6 +24,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRunnable;
 import org.elasticsearch.action.OriginalIndices;
@@ -31,6 +32,7 @@ import org.elasticsearch.action.search.SearchTask;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -92,6 +94,8 @@ import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
 import org.elasticsearch.search.rescore.RescorerBuilder;
 import org.elasticsearch.search.searchafter.SearchAfterBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.MinAndMax;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.elasticsearch.search.suggest.Suggest;
@@ -114,6 +118,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
@@ -140,6 +145,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     public static final Setting<Boolean> LOW_LEVEL_CANCELLATION_SETTING =
         Setting.boolSetting("search.low_level_cancellation", true, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Enables the concurrent reduction of sibling aggregations and of the sub aggregations of large bucket lists on the
+     * {@link Names#SEARCH_REDUCE} thread pool of the coordinating node.
+     */
+    public static final Setting<Boolean> AGGS_PARALLEL_REDUCE_SETTING =
+        Setting.boolSetting("search.aggs.parallel_reduce", true, Property.Dynamic, Property.NodeScope);
+
     public static final TimeValue NO_TIMEOUT = timeValueMillis(-1);
     public static final Setting<TimeValue> DEFAULT_SEARCH_TIMEOUT_SETTING =
         Setting.timeSetting("search.default_search_timeout", NO_TIMEOUT, Property.Dynamic, Property.NodeScope);
@@ -182,6 +194,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private volatile int maxOpenScrollContext;
 
+    private volatile boolean parallelReduce;
+
     private final Cancellable keepAliveReaper;
 
     private final AtomicLong idGenerator = new AtomicLong();
@@ -226,6 +240,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
         lowLevelCancellation = LOW_LEVEL_CANCELLATION_SETTING.get(settings);
         clusterService.getClusterSettings().addSettingsUpdateConsumer(LOW_LEVEL_CANCELLATION_SETTING, this::setLowLevelCancellation);
+
+        parallelReduce = AGGS_PARALLEL_REDUCE_SETTING.get(settings);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(AGGS_PARALLEL_REDUCE_SETTING, this::setParallelReduce);
     }
 
     private void validateKeepAlives(TimeValue defaultKeepAlive, TimeValue maxKeepAlive) {
@@ -262,6 +279,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         this.lowLevelCancellation = lowLevelCancellation;
     }
 
+    private void setParallelReduce(boolean parallelReduce) {
+        this.parallelReduce = parallelReduce;
+    }
+
     @Override
     public void afterIndexRemoved(Index index, IndexSettings indexSettings, IndexRemovalReason reason) {
         // once an index is removed due to deletion or closing, we can just clean up all the pending search context information
@@ -328,6 +349,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
      */
     private void loadOrExecuteQueryPhase(final ShardSearchRequest request, final SearchContext context) throws Exception {
         final boolean canCache = indicesService.canCache(request, context);
+        if (indicesService.canCacheAggregations(request, context)) {
+            context.aggregations().resultCache(indicesService.aggregationResultCache(request, context));
+        }
         context.getQueryShardContext().freezeContext();
         if (canCache) {
             indicesService.loadIntoContext(request, context, queryPhase);
@@ -1003,21 +1027,35 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
      * shard.
      */
     public boolean canMatch(ShardSearchRequest request) throws IOException {
+        return executeCanMatch(request).canMatch();
+    }
+
+    /**
+     * Returns whether the query of the provided <code>request</code> can potentially match any documents on the current shard as well
+     * as the minimum and maximum values of the primary sort field on the shard, if the request is sorted on a field that supports
+     * them. See {@link FieldSortBuilder#getMinMaxOrNull(QueryShardContext, FieldSortBuilder)}.
+     */
+    private CanMatchResponse executeCanMatch(ShardSearchRequest request) throws IOException {
         assert request.searchType() == SearchType.QUERY_THEN_FETCH : "unexpected search type: " + request.searchType();
         try (DefaultSearchContext context = createSearchContext(request, defaultSearchTimeout, false, "can_match")) {
             SearchSourceBuilder source = context.request().source();
+            final boolean canMatch;
             if (canRewriteToMatchNone(source)) {
                 QueryBuilder queryBuilder = source.query();
-                return queryBuilder instanceof MatchNoneQueryBuilder == false;
+                canMatch = queryBuilder instanceof MatchNoneQueryBuilder == false;
+            } else {
+                canMatch = true; // null query means match_all
             }
-            return true; // null query means match_all
+            final FieldSortBuilder sortBuilder = FieldSortBuilder.getPrimaryFieldSortOrNull(source);
+            final MinAndMax<?> minAndMax = canMatch && sortBuilder != null ?
+                FieldSortBuilder.getMinMaxOrNull(context.getQueryShardContext(), sortBuilder) : null;
+            return new CanMatchResponse(canMatch, minAndMax);
         }
     }
 
-
     public void canMatch(ShardSearchRequest request, ActionListener<CanMatchResponse> listener) {
         try {
-            listener.onResponse(new CanMatchResponse(canMatch(request)));
+            listener.onResponse(executeCanMatch(request));
         } catch (IOException e) {
             listener.onFailure(e);
         }
@@ -1071,31 +1109,59 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     }
 
     public InternalAggregation.ReduceContext createReduceContext(boolean finalReduce) {
-        return new InternalAggregation.ReduceContext(bigArrays, scriptService,
-            finalReduce ? multiBucketConsumerService.create() : bucketCount -> {}, finalReduce);
+        final IntConsumer multiBucketConsumer = finalReduce ? multiBucketConsumerService.create() : bucketCount -> {};
+        if (parallelReduce == false) {
+            return new InternalAggregation.ReduceContext(bigArrays, scriptService, multiBucketConsumer, finalReduce);
+        }
+        // the reducing thread helps the threads of the pool
+        final int maxConcurrency = threadPool.info(Names.SEARCH_REDUCE).getMax() + 1;
+        return new InternalAggregation.ReduceContext(bigArrays, scriptService, multiBucketConsumer, finalReduce,
+            threadPool.executor(Names.SEARCH_REDUCE), maxConcurrency);
     }
 
     public static final class CanMatchResponse extends SearchPhaseResult {
         private final boolean canMatch;
+        private final MinAndMax<?> minAndMax;
 
         public CanMatchResponse(StreamInput in) throws IOException {
             super(in);
             this.canMatch = in.readBoolean();
+            if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+                minAndMax = in.readOptionalWriteable(MinAndMax::new);
+            } else {
+                minAndMax = null;
+            }
         }
 
         public CanMatchResponse(boolean canMatch) {
+            this(canMatch, null);
+        }
+
+        public CanMatchResponse(boolean canMatch, @Nullable MinAndMax<?> minAndMax) {
             this.canMatch = canMatch;
+            this.minAndMax = minAndMax;
         }
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
             out.writeBoolean(canMatch);
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                out.writeOptionalWriteable(minAndMax);
+            }
         }
 
         public boolean canMatch() {
             return canMatch;
         }
+
+        /**
+         * Returns the minimum and maximum values of the primary sort field on the shard or <code>null</code> if they are unknown.
+         */
+        @Nullable
+        public MinAndMax<?> minAndMax() {
+            return minAndMax;
+        }
     }
 
     /**
@@ -23,6 +23,9 @@ import org.apache.lucene.search.Query;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.search.SearchPhase;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
@@ -52,22 +55,24 @@ public class AggregationPhase implements SearchPhase {
             Aggregator[] aggregators;
             try {
                 AggregatorFactories factories = context.aggregations().factories();
-                aggregators = factories.createTopLevelAggregators();
+                AggregationResultCache resultCache = context.aggregations().resultCache();
+                if (resultCache == null) {
+                    aggregators = factories.createTopLevelAggregators();
+                } else {
+                    aggregators = createTopLevelAggregators(context, factories, resultCache);
+                }
                 for (int i = 0; i < aggregators.length; i++) {
-                    if (aggregators[i] instanceof GlobalAggregator == false) {
+                    if (aggregators[i] != null && aggregators[i] instanceof GlobalAggregator == false) {
                         collectors.add(aggregators[i]);
                     }
                 }
                 context.aggregations().aggregators(aggregators);
                 if (!collectors.isEmpty()) {
-                    Collector collector = MultiBucketCollector.wrap(collectors);
-                    ((BucketCollector)collector).preCollection();
-                    if (context.getProfilers() != null) {
-                        collector = new InternalProfileCollector(collector, CollectorResult.REASON_AGGREGATION,
-                                // TODO: report on child aggs as well
-                                Collections.emptyList());
+                    BucketCollector bucketCollector = createBucketCollector(context, collectors);
+                    if (bucketCollector instanceof BlockBucketCollector) {
+                        context.aggregations().blockCollector((BlockBucketCollector) bucketCollector);
                     }
-                    context.queryCollectors().put(AggregationPhase.class, collector);
+                    context.queryCollectors().put(AggregationPhase.class, createQueryCollector(context, bucketCollector));
                 }
             } catch (IOException e) {
                 throw new AggregationInitializationException("Could not initialize aggregators", e);
@@ -75,6 +80,92 @@ public class AggregationPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Creates the collector of the top level aggregators of another slice of the segments that the query phase searches
+     * concurrently. The aggregators are created like the ones that {@link #preProcess} registered, except for the global
+     * aggregators and the cached results that don't collect the documents that match the query, and their results are
+     * reduced with the results of the other slices when the aggregations are built.
+     */
+    public static Collector createSliceCollector(SearchContext context) throws IOException {
+        AggregatorFactories factories = context.aggregations().factories();
+        Aggregator[] aggregators = context.aggregations().aggregators();
+        Aggregator[] sliceAggregators = new Aggregator[aggregators.length];
+        List<Aggregator> collectors = new ArrayList<>();
+        for (int i = 0; i < aggregators.length; i++) {
+            if (aggregators[i] != null && aggregators[i] instanceof GlobalAggregator == false) {
+                sliceAggregators[i] = factories.createTopLevelAggregator(i);
+                collectors.add(sliceAggregators[i]);
+            }
+        }
+        assert collectors.isEmpty() == false : "slices are only collected if the query collects aggregations";
+        BucketCollector bucketCollector = createBucketCollector(context, collectors);
+        context.aggregations().addSlice(sliceAggregators,
+            bucketCollector instanceof BlockBucketCollector ? (BlockBucketCollector) bucketCollector : null);
+        return createQueryCollector(context, bucketCollector);
+    }
+
+    /**
+     * Wraps the provided top level aggregators in a single collector, that buffers the collected docs if the aggregators
+     * don't need scores, and prepares them for collection.
+     */
+    private static BucketCollector createBucketCollector(SearchContext context, List<Aggregator> collectors) throws IOException {
+        BucketCollector bucketCollector = MultiBucketCollector.wrap(collectors);
+        // profiled aggregators time each call to collect so they collect docs one at a time
+        if (bucketCollector.scoreMode().needsScores() == false && context.getProfilers() == null) {
+            bucketCollector = new BlockBucketCollector(bucketCollector);
+        }
+        bucketCollector.preCollection();
+        return bucketCollector;
+    }
+
+    private static Collector createQueryCollector(SearchContext context, BucketCollector bucketCollector) {
+        if (context.getProfilers() == null) {
+            return bucketCollector;
+        }
+        return new InternalProfileCollector(bucketCollector, CollectorResult.REASON_AGGREGATION,
+                // TODO: report on child aggs as well
+                Collections.emptyList());
+    }
+
+    /**
+     * Creates the top level aggregators whose results are not cached, and registers the cached results instead of the
+     * others. Global aggregations are never cached since they don't collect the documents that match the query.
+     */
+    private static Aggregator[] createTopLevelAggregators(SearchContext context, AggregatorFactories factories,
+                                                          AggregationResultCache resultCache) throws IOException {
+        List<AggregationBuilder> builders = cacheableBuilders(context);
+        Aggregator[] aggregators = new Aggregator[builders.size()];
+        InternalAggregation[] cachedAggregations = null;
+        for (int i = 0; i < aggregators.length; i++) {
+            InternalAggregation cached = builders.get(i) == null ? null : resultCache.get(builders.get(i));
+            if (cached == null) {
+                aggregators[i] = factories.createTopLevelAggregator(i);
+            } else {
+                if (cachedAggregations == null) {
+                    cachedAggregations = new InternalAggregation[aggregators.length];
+                }
+                cachedAggregations[i] = cached;
+            }
+        }
+        context.aggregations().cachedAggregations(cachedAggregations);
+        return aggregators;
+    }
+
+    /**
+     * Returns the top level aggregation builders of the request, in the order of their factories, with null in place of
+     * the ones that can't be cached.
+     */
+    private static List<AggregationBuilder> cacheableBuilders(SearchContext context) {
+        List<AggregationBuilder> builders = new ArrayList<>(context.request().source().aggregations().getAggregatorFactories());
+        assert builders.size() == context.aggregations().factories().countAggregators();
+        for (int i = 0; i < builders.size(); i++) {
+            if (builders.get(i) instanceof GlobalAggregationBuilder) {
+                builders.set(i, null);
+            }
+        }
+        return builders;
+    }
+
     @Override
     public void execute(SearchContext context) {
         if (context.aggregations() == null) {
@@ -98,6 +189,9 @@ public class AggregationPhase implements SearchPhase {
         // optimize the global collector based execution
         if (!globals.isEmpty()) {
             BucketCollector globalsCollector = MultiBucketCollector.wrap(globals);
+            if (globalsCollector.scoreMode().needsScores() == false && context.getProfilers() == null) {
+                globalsCollector = new BlockBucketCollector(globalsCollector);
+            }
             Query query = context.buildFilteredQuery(Queries.newMatchAllQuery());
 
             try {
@@ -115,6 +209,9 @@ public class AggregationPhase implements SearchPhase {
                 }
                 globalsCollector.preCollection();
                 context.searcher().search(query, collector);
+                if (globalsCollector instanceof BlockBucketCollector) {
+                    ((BlockBucketCollector) globalsCollector).flush();
+                }
             } catch (Exception e) {
                 throw new QueryPhaseExecutionException(context, "Failed to execute global aggregators", e);
             } finally {
@@ -122,15 +219,39 @@ public class AggregationPhase implements SearchPhase {
             }
         }
 
+        try {
+            // collect the docs that are still buffered before building the aggregations
+            if (context.aggregations().blockCollector() != null) {
+                context.aggregations().blockCollector().flush();
+            }
+            for (BlockBucketCollector sliceBlockCollector : context.aggregations().sliceBlockCollectors()) {
+                sliceBlockCollector.flush();
+            }
+        } catch (IOException e) {
+            throw new AggregationExecutionException("Failed to collect aggregations", e);
+        }
+
         List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
         context.aggregations().resetBucketMultiConsumer();
-        for (Aggregator aggregator : context.aggregations().aggregators()) {
-            try {
-                aggregator.postCollection();
-                aggregations.add(aggregator.buildAggregation(0));
-            } catch (IOException e) {
-                throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+        AggregationResultCache resultCache = context.aggregations().resultCache();
+        InternalAggregation[] cachedAggregations = context.aggregations().cachedAggregations();
+        List<AggregationBuilder> builders = resultCache == null ? null : cacheableBuilders(context);
+        for (int i = 0; i < aggregators.length; i++) {
+            if (aggregators[i] == null) {
+                // count the buckets of cached results like the aggregators would when building them
+                context.aggregations().multiBucketConsumer()
+                    .accept(InternalMultiBucketAggregation.countInnerBucket(cachedAggregations[i]));
+                aggregations.add(cachedAggregations[i]);
+                continue;
+            }
+            InternalAggregation aggregation = buildAggregation(aggregators[i]);
+            if (context.aggregations().sliceAggregators().isEmpty() == false && aggregators[i] instanceof GlobalAggregator == false) {
+                aggregation = reduceSlices(context, i, aggregation);
             }
+            if (builders != null && builders.get(i) != null) {
+                resultCache.put(builders.get(i), aggregation);
+            }
+            aggregations.add(aggregation);
         }
         List<PipelineAggregator> pipelineAggregators = context.aggregations().factories().createPipelineAggregators();
         List<SiblingPipelineAggregator> siblingPipelineAggregators = new ArrayList<>(pipelineAggregators.size());
@@ -150,4 +271,36 @@ public class AggregationPhase implements SearchPhase {
         context.queryCollectors().remove(AggregationPhase.class);
     }
 
+    private static InternalAggregation buildAggregation(Aggregator aggregator) {
+        try {
+            aggregator.postCollection();
+            return aggregator.buildAggregation(0);
+        } catch (IOException e) {
+            throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+        }
+    }
+
+    /**
+     * Reduces the result of the top level aggregator at the provided <code>index</code>, that collected the first slice of the
+     * segments, with the results of the aggregators of the other slices into the result of the shard. The reduce isn't final so
+     * that the coordinating node reduces the result like the result of a shard that was searched sequentially.
+     */
+    private static InternalAggregation reduceSlices(SearchContext context, int index, InternalAggregation aggregation) {
+        MultiBucketConsumer multiBucketConsumer = context.aggregations().multiBucketConsumer();
+        List<InternalAggregation> sliceAggregations = new ArrayList<>();
+        sliceAggregations.add(aggregation);
+        // each slice is checked against the bucket limit on its own, then the reduced result is counted instead of the slices
+        multiBucketConsumer.accept(-InternalMultiBucketAggregation.countInnerBucket(aggregation));
+        for (Aggregator[] sliceAggregators : context.aggregations().sliceAggregators()) {
+            InternalAggregation sliceAggregation = buildAggregation(sliceAggregators[index]);
+            multiBucketConsumer.accept(-InternalMultiBucketAggregation.countInnerBucket(sliceAggregation));
+            sliceAggregations.add(sliceAggregation);
+        }
+        ReduceContext reduceContext =
+            new ReduceContext(context.bigArrays(), context.getQueryShardContext().getScriptService(), false);
+        InternalAggregation reduced = aggregation.reduce(sliceAggregations, reduceContext);
+        multiBucketConsumer.accept(InternalMultiBucketAggregation.countInnerBucket(reduced));
+        return reduced;
+    }
+
 }
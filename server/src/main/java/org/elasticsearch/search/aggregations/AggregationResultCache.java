@@ -0,0 +1,42 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.common.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Caches the shard level results of the top level aggregations of a search request. Results are only valid for the reader
+ * and the query of the request, implementations are expected to include them in the cache key.
+ */
+public interface AggregationResultCache {
+
+    /**
+     * Returns the cached result of the given aggregation, or {@code null} if it is not cached.
+     */
+    @Nullable
+    InternalAggregation get(AggregationBuilder aggregation) throws IOException;
+
+    /**
+     * Caches the result of the given aggregation.
+     */
+    void put(AggregationBuilder aggregation, InternalAggregation result) throws IOException;
+}
@@ -206,21 +206,43 @@ public class AggregatorFactories {
     }
 
     public Aggregator[] createTopLevelAggregators() throws IOException {
-        // These aggregators are going to be used with a single bucket ordinal, no need to wrap the PER_BUCKET ones
         Aggregator[] aggregators = new Aggregator[factories.length];
         for (int i = 0; i < factories.length; i++) {
-            // top-level aggs only get called with bucket 0
-            final boolean collectsFromSingleBucket = true;
-            Aggregator factory = factories[i].create(null, collectsFromSingleBucket);
-            Profilers profilers = factory.context().getProfilers();
-            if (profilers != null) {
-                factory = new ProfilingAggregator(factory, profilers.getAggregationProfiler());
-            }
-            aggregators[i] = factory;
+            aggregators[i] = createTopLevelAggregator(i);
         }
         return aggregators;
     }
 
+    /**
+     * Create the top level aggregator of the factory at the given index, in the order of the aggregation builders
+     * that these factories were built from.
+     */
+    public Aggregator createTopLevelAggregator(int index) throws IOException {
+        // These aggregators are going to be used with a single bucket ordinal, no need to wrap the PER_BUCKET ones
+        // top-level aggs only get called with bucket 0
+        final boolean collectsFromSingleBucket = true;
+        Aggregator factory = factories[index].create(null, collectsFromSingleBucket);
+        Profilers profilers = factory.context().getProfilers();
+        if (profilers != null) {
+            factory = new ProfilingAggregator(factory, profilers.getAggregationProfiler());
+        }
+        return factory;
+    }
+
+    /**
+     * Returns whether all the factories support collecting the documents of a shard in concurrent slices of segments.
+     *
+     * @see AggregatorFactory#supportsConcurrentSlices()
+     */
+    public boolean supportsConcurrentSlices() {
+        for (AggregatorFactory factory : factories) {
+            if (factory.supportsConcurrentSlices() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * @return the number of sub-aggregator factories not including pipeline
      *         aggregator factories
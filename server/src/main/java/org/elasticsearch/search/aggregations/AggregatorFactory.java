@@ -221,6 +221,15 @@ public abstract class AggregatorFactory {
         return parent;
     }
 
+    /**
+     * Returns whether the documents of a shard can be collected in slices of segments by distinct aggregators of this factory
+     * and of its sub-factories, whose results are then reduced into the result of the shard. Factories must return false if
+     * the result of a shard depends on all the documents of the shard being collected by the same aggregator.
+     */
+    public boolean supportsConcurrentSlices() {
+        return factories.supportsConcurrentSlices();
+    }
+
     /**
      * Utility method. Given an {@link AggregatorFactory} that creates
      * {@link Aggregator}s that only know how to collect bucket {@code 0}, this
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreMode;
+
+import java.io.IOException;
+
+/**
+ * A {@link BucketCollector} that buffers the docs that are collected in the first bucket and passes them in blocks to
+ * {@link LeafBucketCollector#collect(int[], int, long)} of the wrapped collector. This replaces a virtual call per doc
+ * and per aggregator with a call per block, in which aggregators can run tight loops over the values of the block.
+ * Buffered docs are flushed when the block is full, before moving to the next segment and on {@link #postCollection()}
+ * or {@link #flush()}. Scores are not buffered so this collector can only wrap collectors that don't need them.
+ */
+public final class BlockBucketCollector extends BucketCollector {
+
+    public static final int DEFAULT_BLOCK_SIZE = 128;
+
+    private final BucketCollector in;
+    private final int[] docs;
+    private LeafBucketCollector leafCollector;
+    private int count;
+
+    public BlockBucketCollector(BucketCollector in) {
+        this(in, DEFAULT_BLOCK_SIZE);
+    }
+
+    BlockBucketCollector(BucketCollector in, int blockSize) {
+        if (in.scoreMode().needsScores()) {
+            throw new IllegalArgumentException("cannot collect blocks of docs with a collector that needs scores");
+        }
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("[blockSize] must be >= 1, got " + blockSize);
+        }
+        this.in = in;
+        this.docs = new int[blockSize];
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        flush();
+        leafCollector = in.getLeafCollector(ctx);
+        if (leafCollector == LeafBucketCollector.NO_OP_COLLECTOR) {
+            leafCollector = null;
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorable scorer) throws IOException {
+                leafCollector.setScorer(scorer);
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                docs[count++] = doc;
+                if (count == docs.length) {
+                    collectBlock();
+                }
+            }
+        };
+    }
+
+    private void collectBlock() throws IOException {
+        final int count = this.count;
+        this.count = 0;
+        try {
+            leafCollector.collect(docs, count, 0);
+        } catch (CollectionTerminatedException e) {
+            leafCollector = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Passes the docs that are buffered to the wrapped collector.
+     */
+    public void flush() throws IOException {
+        if (leafCollector != null) {
+            try {
+                if (count > 0) {
+                    collectBlock();
+                }
+            } catch (CollectionTerminatedException e) {
+                // the collector doesn't need the remaining docs of the segment
+            }
+            leafCollector = null;
+        }
+        count = 0;
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        in.preCollection();
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        flush();
+        in.postCollection();
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return in.scoreMode();
+    }
+
+    @Override
+    public String toString() {
+        return in.toString();
+    }
+}
@@ -18,21 +18,33 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.NamedWriteable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.IntConsumer;
 
 /**
@@ -46,16 +58,31 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         private final ScriptService scriptService;
         private final IntConsumer multiBucketConsumer;
         private final boolean isFinalReduce;
+        @Nullable
+        private final ExecutorService executor;
+        private final int maxConcurrency;
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService, boolean isFinalReduce) {
             this(bigArrays, scriptService, (s) -> {}, isFinalReduce);
         }
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService, IntConsumer multiBucketConsumer, boolean isFinalReduce) {
+            this(bigArrays, scriptService, multiBucketConsumer, isFinalReduce, null, 1);
+        }
+
+        /**
+         * @param executor       the executor to reduce independent parts of the aggregation tree concurrently on, or {@code null}
+         *                       to reduce on the calling thread only
+         * @param maxConcurrency the maximum number of threads, including the calling thread, that reduce the same list of items
+         */
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, IntConsumer multiBucketConsumer, boolean isFinalReduce,
+                             @Nullable ExecutorService executor, int maxConcurrency) {
             this.bigArrays = bigArrays;
             this.scriptService = scriptService;
             this.multiBucketConsumer = multiBucketConsumer;
             this.isFinalReduce = isFinalReduce;
+            this.executor = executor;
+            this.maxConcurrency = maxConcurrency;
         }
 
         /**
@@ -82,6 +109,87 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         public void consumeBucketsAndMaybeBreak(int size) {
             multiBucketConsumer.accept(size);
         }
+
+        /**
+         * Reduces each of the {@code items} with {@code reducer}, then passes the reduced items to {@code consumer} in the order of
+         * {@code items} on the calling thread. Items are reduced concurrently in tasks of at least {@code minItemsPerTask} items
+         * if this context has an executor, the calling thread runs the tasks that no other thread has started yet so that nested
+         * calls can't dead lock on a busy executor.
+         * The buckets that an item creates are counted with its own context and added to the buckets of this context right
+         * before it is consumed, so that the response fails on the same limit as if the items were reduced one after the other.
+         */
+        public <T, R> void reduceConcurrently(List<T> items, int minItemsPerTask, BiFunction<T, ReduceContext, R> reducer,
+                                              Consumer<R> consumer) {
+            final int numTasks = executor == null ? 1 : Math.min(maxConcurrency, items.size() / Math.max(1, minItemsPerTask));
+            if (numTasks <= 1) {
+                for (T item : items) {
+                    consumer.accept(reducer.apply(item, this));
+                }
+                return;
+            }
+
+            final List<R> reduced = new ArrayList<>(Collections.nCopies(items.size(), null));
+            final MultiBucketConsumer[] bucketConsumers = new MultiBucketConsumer[items.size()];
+            final int limit = multiBucketConsumer instanceof MultiBucketConsumer
+                ? ((MultiBucketConsumer) multiBucketConsumer).getLimit()
+                : Integer.MAX_VALUE;
+            final List<FutureTask<Void>> tasks = new ArrayList<>(numTasks);
+            for (int i = 0; i < numTasks; i++) {
+                final int from = (int) ((long) items.size() * i / numTasks);
+                final int to = (int) ((long) items.size() * (i + 1) / numTasks);
+                tasks.add(new FutureTask<>(() -> {
+                    for (int j = from; j < to; j++) {
+                        bucketConsumers[j] = new MultiBucketConsumer(limit);
+                        final ReduceContext context = new ReduceContext(bigArrays, scriptService, bucketConsumers[j], isFinalReduce,
+                            executor, maxConcurrency);
+                        reduced.set(j, reducer.apply(items.get(j), context));
+                    }
+                    return null;
+                }));
+            }
+            for (FutureTask<Void> task : tasks.subList(1, tasks.size())) {
+                try {
+                    // not submitted as a future since the executor expects futures to be done after they ran
+                    executor.execute(task::run);
+                } catch (EsRejectedExecutionException e) {
+                    // the calling thread runs the task below
+                }
+            }
+            // running a task that another thread already started is a no-op
+            for (FutureTask<Void> task : tasks) {
+                task.run();
+            }
+            // errors are rethrown as is, like a sequential reduce would, rather than wrapped as an uncategorized failure
+            RuntimeException failure = null;
+            Error error = null;
+            for (FutureTask<Void> task : tasks) {
+                try {
+                    task.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Future got interrupted", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error) {
+                        error = ExceptionsHelper.useOrSuppress(error, (Error) e.getCause());
+                    } else {
+                        failure = ExceptionsHelper.useOrSuppress(failure, FutureUtils.rethrowExecutionException(e));
+                    }
+                }
+            }
+            if (error != null) {
+                if (failure != null) {
+                    error.addSuppressed(failure);
+                }
+                throw error;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            for (int i = 0; i < items.size(); i++) {
+                consumeBucketsAndMaybeBreak(bucketConsumers[i].getCount());
+                consumer.accept(reduced.get(i));
+            }
+        }
     }
 
     protected final String name;
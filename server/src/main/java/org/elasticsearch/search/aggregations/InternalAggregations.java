@@ -112,16 +112,16 @@ public final class InternalAggregations extends Aggregations implements Writeabl
             }
         }
 
-        // now we can use the first aggregation of each list to handle the reduce of its list
+        // now we can use the first aggregation of each list to handle the reduce of its list, sibling aggregations are
+        // independent so they may be reduced concurrently
         List<InternalAggregation> reducedAggregations = new ArrayList<>();
-        for (Map.Entry<String, List<InternalAggregation>> entry : aggByName.entrySet()) {
-            List<InternalAggregation> aggregations = entry.getValue();
+        context.reduceConcurrently(new ArrayList<>(aggByName.values()), 1, (aggregations, reduceContext) -> {
             // Sort aggregations so that unmapped aggs come last in the list
             // If all aggs are unmapped, the agg that leads the reduction will just return itself
             aggregations.sort(INTERNAL_AGG_COMPARATOR);
             InternalAggregation first = aggregations.get(0); // the list can't be empty as it's created on demand
-            reducedAggregations.add(first.reduce(aggregations, context));
-        }
+            return first.reduce(aggregations, reduceContext);
+        }, reducedAggregations::add);
 
         if (context.isFinalReduce()) {
             for (SiblingPipelineAggregator pipelineAggregator : topLevelPipelineAggregators) {
@@ -20,6 +20,7 @@
 package org.elasticsearch.search.aggregations;
 
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
 import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregation;
@@ -33,6 +34,8 @@ public abstract class InternalMultiBucketAggregation<A extends InternalMultiBuck
             B extends InternalMultiBucketAggregation.InternalBucket>
         extends InternalAggregation implements MultiBucketsAggregation {
 
+    private static final int MIN_BUCKETS_PER_REDUCE_TASK = 64;
+
     public InternalMultiBucketAggregation(String name, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
         super(name, pipelineAggregators, metaData);
     }
@@ -85,6 +88,106 @@ public abstract class InternalMultiBucketAggregation<A extends InternalMultiBuck
         }
     }
 
+    /**
+     * Returns the minimum number of buckets like {@code bucket} that are worth reducing in a task of their own, see
+     * {@link ReduceContext#reduceConcurrently}. Buckets without sub aggregations are cheap to reduce so they are always
+     * reduced on the calling thread.
+     */
+    protected static int minBucketsPerReduceTask(InternalBucket bucket) {
+        return bucket.getAggregations().asList().isEmpty() ? Integer.MAX_VALUE : MIN_BUCKETS_PER_REDUCE_TASK;
+    }
+
+    /**
+     * Writes the doc counts and then the sub aggregations of {@code buckets}, column by column, for implementations that
+     * serialize their buckets as columns rather than one by one. Sub aggregations are only written if at least one of the
+     * buckets has some, so leaf buckets cost nothing more than their doc count, and empty lists of buckets cost nothing.
+     * See {@link #readBucketColumns}.
+     */
+    protected static void writeBucketColumns(StreamOutput out, List<? extends InternalBucket> buckets) throws IOException {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        boolean hasSubAggregations = false;
+        for (InternalBucket bucket : buckets) {
+            out.writeVLong(bucket.getDocCount());
+            InternalAggregations aggregations = (InternalAggregations) bucket.getAggregations();
+            hasSubAggregations |= aggregations.asList().isEmpty() == false
+                || aggregations.getTopLevelPipelineAggregators().isEmpty() == false;
+        }
+        out.writeBoolean(hasSubAggregations);
+        if (hasSubAggregations) {
+            for (InternalBucket bucket : buckets) {
+                ((InternalAggregations) bucket.getAggregations()).writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Reads the columns that {@link #writeBucketColumns} wrote into arrays whose length is the number of buckets.
+     */
+    protected static void readBucketColumns(StreamInput in, long[] docCounts, InternalAggregations[] aggregations) throws IOException {
+        assert docCounts.length == aggregations.length;
+        if (docCounts.length == 0) {
+            return;
+        }
+        for (int i = 0; i < docCounts.length; i++) {
+            docCounts[i] = in.readVLong();
+        }
+        final boolean hasSubAggregations = in.readBoolean();
+        for (int i = 0; i < aggregations.length; i++) {
+            aggregations[i] = hasSubAggregations ? new InternalAggregations(in) : InternalAggregations.EMPTY;
+        }
+    }
+
+    /**
+     * Writes a column of {@code long} keys as the deltas between consecutive keys, divided by their greatest common divisor.
+     * Keys that are sorted and evenly spaced, like the keys of histograms, take a single byte each. The divisor is only
+     * written if there are at least two keys.
+     */
+    protected static void writeLongKeys(StreamOutput out, long[] keys) throws IOException {
+        long gcd = 1;
+        if (keys.length > 1) {
+            gcd = 0;
+            for (int i = 1; i < keys.length; i++) {
+                final long delta = keys[i] - keys[i - 1];
+                gcd = delta == Long.MIN_VALUE ? 1 : gcd(gcd, Math.abs(delta));
+            }
+            gcd = Math.max(1, gcd);
+            out.writeVLong(gcd);
+        }
+        long previous = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0) {
+                out.writeZLong(keys[i]);
+            } else {
+                // deltas may overflow but they are decoded with the same wrapping arithmetic
+                out.writeZLong((keys[i] - previous) / gcd);
+            }
+            previous = keys[i];
+        }
+    }
+
+    /**
+     * Reads the {@code size} keys that {@link #writeLongKeys} wrote.
+     */
+    protected static long[] readLongKeys(StreamInput in, int size) throws IOException {
+        final long gcd = size > 1 ? in.readVLong() : 1;
+        final long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i == 0 ? in.readZLong() : keys[i - 1] + in.readZLong() * gcd;
+        }
+        return keys;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            final long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
     /**
      * Counts the number of inner buckets inside the provided {@link InternalBucket}
      */
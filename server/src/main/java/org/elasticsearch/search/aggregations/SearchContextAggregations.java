@@ -18,6 +18,11 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.elasticsearch.common.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 
 /**
@@ -28,6 +33,11 @@ public class SearchContextAggregations {
     private final AggregatorFactories factories;
     private final MultiBucketConsumer multiBucketConsumer;
     private Aggregator[] aggregators;
+    private BlockBucketCollector blockCollector;
+    private AggregationResultCache resultCache;
+    private InternalAggregation[] cachedAggregations;
+    private final List<Aggregator[]> sliceAggregators = new ArrayList<>();
+    private final List<BlockBucketCollector> sliceBlockCollectors = new ArrayList<>();
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -54,6 +64,73 @@ public class SearchContextAggregations {
         this.aggregators = aggregators;
     }
 
+    /**
+     * Returns the collector that buffers the docs collected by the top level aggregators, or null if they are collected
+     * one at a time.
+     */
+    BlockBucketCollector blockCollector() {
+        return blockCollector;
+    }
+
+    /**
+     * Registers the collector that buffers the docs collected by the top level aggregators, its buffered docs must be
+     * flushed before the aggregations are built.
+     */
+    void blockCollector(BlockBucketCollector blockCollector) {
+        this.blockCollector = blockCollector;
+    }
+
+    /**
+     * Returns the cache of the results of the top level aggregations, or null if they can't be cached.
+     */
+    public AggregationResultCache resultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Registers the cache of the results of the top level aggregations, it must only be set if the results of the
+     * aggregations only depend on the reader and on the query of the search execution.
+     */
+    public void resultCache(AggregationResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    /**
+     * Returns the results of the top level aggregations that were loaded from the {@link #resultCache() cache}, indexed
+     * like {@link #aggregators()}, or null if there are none.
+     */
+    InternalAggregation[] cachedAggregations() {
+        return cachedAggregations;
+    }
+
+    void cachedAggregations(InternalAggregation[] cachedAggregations) {
+        this.cachedAggregations = cachedAggregations;
+    }
+
+    /**
+     * Registers the top level aggregators of another slice of the segments that the query phase searches concurrently, indexed
+     * like {@link #aggregators()} with null in place of the aggregators that don't collect the documents that match the query,
+     * and the collector that buffers their docs if any.
+     */
+    void addSlice(Aggregator[] aggregators, @Nullable BlockBucketCollector blockCollector) {
+        sliceAggregators.add(aggregators);
+        if (blockCollector != null) {
+            sliceBlockCollectors.add(blockCollector);
+        }
+    }
+
+    /**
+     * Returns the top level aggregators of the other slices of the segments that the query phase searched concurrently, their
+     * results are reduced with the results of {@link #aggregators()}.
+     */
+    List<Aggregator[]> sliceAggregators() {
+        return sliceAggregators;
+    }
+
+    List<BlockBucketCollector> sliceBlockCollectors() {
+        return sliceBlockCollectors;
+    }
+
     /**
      * Returns a consumer for multi bucket aggregation that checks the total number of buckets
      * created in the response
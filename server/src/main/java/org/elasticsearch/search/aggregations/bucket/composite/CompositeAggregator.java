@@ -20,18 +20,30 @@
 package org.elasticsearch.search.aggregations.bucket.composite;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.queries.SearchAfterSortedDocQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.RoaringDocIdSet;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.IndexSortConfig;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
@@ -59,11 +71,11 @@ import static org.elasticsearch.search.aggregations.MultiBucketConsumerService.M
 
 final class CompositeAggregator extends BucketsAggregator {
     private final int size;
-    private final SortedDocsProducer sortedDocsProducer;
     private final List<String> sourceNames;
     private final int[] reverseMuls;
     private final List<DocValueFormat> formats;
 
+    private final CompositeValuesSourceConfig[] sourceConfigs;
     private final SingleDimensionValuesSource<?>[] sources;
     private final CompositeValuesCollectorQueue queue;
 
@@ -80,6 +92,7 @@ final class CompositeAggregator extends BucketsAggregator {
         this.sourceNames = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::name).collect(Collectors.toList());
         this.reverseMuls = Arrays.stream(sourceConfigs).mapToInt(CompositeValuesSourceConfig::reverseMul).toArray();
         this.formats = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::format).collect(Collectors.toList());
+        this.sourceConfigs = sourceConfigs;
         this.sources = new SingleDimensionValuesSource[sourceConfigs.length];
         // check that the provided size is not greater than the search.max_buckets setting
         int bucketLimit = context.aggregations().multiBucketConsumer().getLimit();
@@ -92,7 +105,6 @@ final class CompositeAggregator extends BucketsAggregator {
             this.sources[i] = createValuesSource(context.bigArrays(), context.searcher().getIndexReader(), sourceConfigs[i], size);
         }
         this.queue = new CompositeValuesCollectorQueue(context.bigArrays(), sources, size, rawAfterKey);
-        this.sortedDocsProducer = sources[0].createSortedDocsProducerOrNull(context.searcher().getIndexReader(), context.query());
     }
 
     @Override
@@ -155,10 +167,190 @@ final class CompositeAggregator extends BucketsAggregator {
         }
     }
 
+    /**
+     * Returns the longest prefix of the index sort of the segment that matches the leading sources, or null if
+     * the leading source doesn't match the first index sort field. If the leading source matches the first index
+     * sort field in the reverse order, the returned prefix contains this field only.
+     */
+    private Sort buildIndexSortPrefix(LeafReaderContext ctx) throws IOException {
+        final Sort indexSort = ctx.reader().getMetaData().getSort();
+        if (indexSort == null) {
+            return null;
+        }
+        final List<SortField> sortFields = new ArrayList<>();
+        for (int i = 0; i < indexSort.getSort().length && i < sources.length; i++) {
+            final CompositeValuesSourceConfig sourceConfig = sourceConfigs[i];
+            final SingleDimensionValuesSource<?> source = sources[i];
+            final SortField indexSortField = indexSort.getSort()[i];
+            if (source.fieldType == null
+                    || source.missingBucket
+                    || sourceConfig.hasScript()
+                    || indexSortField.getField().equals(source.fieldType.name()) == false
+                    || isMaybeMultivalued(ctx, indexSortField)) {
+                break;
+            }
+            if (indexSortField.getReverse() != (source.reverseMul == -1)) {
+                if (i == 0) {
+                    // the documents are visited in the reverse order of the leading source
+                    return new Sort(indexSortField);
+                }
+                break;
+            }
+            sortFields.add(indexSortField);
+            if (isRounding(sourceConfig)) {
+                // the rounding squashes distinct values in the same bucket so the documents
+                // of a bucket are not sorted by the subsequent index sort fields anymore
+                break;
+            }
+        }
+        return sortFields.isEmpty() ? null : new Sort(sortFields.toArray(new SortField[0]));
+    }
+
+    /**
+     * Returns the number of leading sources that match the provided index sort prefix, or -1
+     * if the leading source matches the index sort in the reverse order.
+     */
+    private int computeSortPrefixLen(Sort indexSortPrefix) {
+        if (indexSortPrefix == null) {
+            return 0;
+        }
+        if (indexSortPrefix.getSort()[0].getReverse() != (sources[0].reverseMul == -1)) {
+            assert indexSortPrefix.getSort().length == 1;
+            return -1;
+        }
+        return indexSortPrefix.getSort().length;
+    }
+
+    private static boolean isRounding(CompositeValuesSourceConfig config) {
+        return config.valuesSource() instanceof RoundingValuesSource || config.valuesSource() instanceof HistogramValuesSource;
+    }
+
+    private static boolean isMaybeMultivalued(LeafReaderContext ctx, SortField sortField) throws IOException {
+        switch (IndexSortConfig.getSortFieldType(sortField)) {
+            case STRING:
+                final SortedSetDocValues ords = ctx.reader().getSortedSetDocValues(sortField.getField());
+                return ords != null && DocValues.unwrapSingleton(ords) == null;
+
+            case DOUBLE:
+            case FLOAT:
+            case LONG:
+            case INT:
+                final SortedNumericDocValues values = ctx.reader().getSortedNumericDocValues(sortField.getField());
+                return values != null && DocValues.unwrapSingleton(values) == null;
+
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Returns a query that matches the documents of the segment that are sorted after the after key, using the leading
+     * sources that match the index sort, or null if the after key cannot be translated in the index sort.
+     */
+    private Query buildSearchAfterQuery(Sort indexSortPrefix) {
+        final List<SortField> sortFields = new ArrayList<>();
+        final List<Object> afterValues = new ArrayList<>();
+        for (int i = 0; i < indexSortPrefix.getSort().length; i++) {
+            final SortField sortField = indexSortPrefix.getSort()[i];
+            if (sortField.getReverse() && isRounding(sourceConfigs[i])) {
+                // the after value is the lower bound of the rounded bucket so documents of this bucket can sort before it
+                break;
+            }
+            final Object afterValue = toIndexSortValue(sortField, sources[i].getAfter());
+            if (afterValue == null) {
+                break;
+            }
+            sortFields.add(sortField);
+            afterValues.add(afterValue);
+        }
+        if (sortFields.isEmpty()) {
+            return null;
+        }
+        // Documents that are equal to the after key on the prefix can still belong to a competitive bucket
+        // so we set the doc id to -1 in order to include them.
+        final FieldDoc after = new FieldDoc(-1, Float.NaN, afterValues.toArray());
+        return new SearchAfterSortedDocQuery(new Sort(sortFields.toArray(new SortField[0])), after);
+    }
+
+    /**
+     * Converts the after value of a source to a value that can be compared with the provided index sort field. Values that don't
+     * fit in the sort type are rounded towards the documents that come first in the index so that no competitive document is skipped.
+     * Returns null if the value cannot be converted.
+     */
+    private static Object toIndexSortValue(SortField sortField, Comparable afterValue) {
+        if (afterValue == null) {
+            return null;
+        }
+        final boolean reverse = sortField.getReverse();
+        switch (IndexSortConfig.getSortFieldType(sortField)) {
+            case STRING:
+                return afterValue instanceof BytesRef ? afterValue : null;
+
+            case DOUBLE:
+                return afterValue instanceof Double ? afterValue : null;
+
+            case LONG:
+            case INT:
+                final long value;
+                if (afterValue instanceof Long) {
+                    value = (Long) afterValue;
+                } else if (afterValue instanceof Double) {
+                    value = (long) (reverse ? Math.ceil((Double) afterValue) : Math.floor((Double) afterValue));
+                } else {
+                    return null;
+                }
+                if (IndexSortConfig.getSortFieldType(sortField) == SortField.Type.INT) {
+                    return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+                }
+                return value;
+
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Collects the documents of the segment that match the query and that are sorted after the after key in the index.
+     */
+    private void processLeafFromQuery(LeafReaderContext ctx, Query searchAfterQuery, int sortPrefixLen) throws IOException {
+        final Query newQuery;
+        if (context.query() != null) {
+            newQuery = new BooleanQuery.Builder()
+                .add(context.query(), BooleanClause.Occur.MUST)
+                .add(searchAfterQuery, BooleanClause.Occur.FILTER)
+                .build();
+        } else {
+            newQuery = searchAfterQuery;
+        }
+        final Weight weight = context.searcher().createWeight(context.searcher().rewrite(newQuery), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        final Scorer scorer = weight.scorer(ctx);
+        if (scorer != null) {
+            final DocIdSetIterator docIt = scorer.iterator();
+            final Bits liveDocs = ctx.reader().getLiveDocs();
+            final LeafBucketCollector inner = queue.getLeafCollector(ctx, getFirstPassCollector(docIdSetBuilder, sortPrefixLen));
+            inner.setScorer(scorer);
+            try {
+                for (int doc = docIt.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docIt.nextDoc()) {
+                    if (liveDocs == null || liveDocs.get(doc)) {
+                        inner.collect(doc);
+                    }
+                }
+            } catch (CollectionTerminatedException e) {
+                // the rest of the segment is not competitive
+            }
+        }
+    }
+
     @Override
     protected LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
         finishLeaf();
         boolean fillDocIdSet = deferredCollectors != NO_OP_COLLECTOR;
+
+        final Sort indexSortPrefix = buildIndexSortPrefix(ctx);
+        final int sortPrefixLen = computeSortPrefixLen(indexSortPrefix);
+        final SortedDocsProducer sortedDocsProducer = sortPrefixLen <= 0 ?
+            sources[0].createSortedDocsProducerOrNull(ctx.reader(), context.query()) : null;
+        final Query searchAfterQuery = sortPrefixLen > 0 && queue.isAfterKeySet() ? buildSearchAfterQuery(indexSortPrefix) : null;
         if (sortedDocsProducer != null) {
             /*
               The producer will visit documents sorted by the leading source of the composite definition
@@ -181,7 +373,19 @@ final class CompositeAggregator extends BucketsAggregator {
                 currentLeaf = ctx;
                 docIdSetBuilder = new RoaringDocIdSet.Builder(ctx.reader().maxDoc());
             }
-            final LeafBucketCollector inner = queue.getLeafCollector(ctx, getFirstPassCollector(docIdSetBuilder));
+            if (searchAfterQuery != null) {
+                /*
+                  The leading sources match the index sort so we jump directly to the first document that is
+                  sorted after the after key and collect the segment from there.
+                 */
+                processLeafFromQuery(ctx, searchAfterQuery, sortPrefixLen);
+                throw new CollectionTerminatedException();
+            }
+            /*
+              If the leading sources match the index sort, the first pass terminates the collection of the
+              segment as soon as the remaining documents cannot produce a competitive composite bucket.
+             */
+            final LeafBucketCollector inner = queue.getLeafCollector(ctx, getFirstPassCollector(docIdSetBuilder, sortPrefixLen));
             return new LeafBucketCollector() {
                 @Override
                 public void collect(int doc, long zeroBucket) throws IOException {
@@ -194,14 +398,16 @@ final class CompositeAggregator extends BucketsAggregator {
 
     /**
      * The first pass selects the top composite buckets from all matching documents.
+     * @param indexSortPrefix The number of leading sources that match the index sort of the segment, see
+     *                        {@link CompositeValuesCollectorQueue#addIfCompetitive(int)}.
      */
-    private LeafBucketCollector getFirstPassCollector(RoaringDocIdSet.Builder builder) {
+    private LeafBucketCollector getFirstPassCollector(RoaringDocIdSet.Builder builder, int indexSortPrefix) {
         return new LeafBucketCollector() {
             int lastDoc = -1;
 
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                int slot = queue.addIfCompetitive();
+                int slot = queue.addIfCompetitive(indexSortPrefix);
                 if (slot != -1) {
                     if (builder != null && lastDoc != doc) {
                         builder.add(doc);
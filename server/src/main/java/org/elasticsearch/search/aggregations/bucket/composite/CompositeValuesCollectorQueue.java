@@ -20,6 +20,7 @@
 package org.elasticsearch.search.aggregations.bucket.composite;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.util.PriorityQueue;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
@@ -101,6 +102,13 @@ final class CompositeValuesCollectorQueue extends PriorityQueue<Integer> impleme
         return size() >= maxSize;
     }
 
+    /**
+     * Whether an after key was provided.
+     */
+    boolean isAfterKeySet() {
+        return afterKeyIsSet;
+    }
+
     /**
      * Compares the current candidate with the values in the queue and returns
      * the slot if the candidate is already in the queue or null if the candidate is not present.
@@ -142,6 +150,7 @@ final class CompositeValuesCollectorQueue extends PriorityQueue<Integer> impleme
 
     /**
      * Compares the values in <code>slot1</code> with the values in <code>slot2</code>.
+     * The absolute value of the result is the position (starting at 1) of the first source that differs.
      */
     int compare(int slot1, int slot2) {
         assert slot2 != CANDIDATE_SLOT;
@@ -153,7 +162,7 @@ final class CompositeValuesCollectorQueue extends PriorityQueue<Integer> impleme
                 cmp = arrays[i].compare(slot1, slot2);
             }
             if (cmp != 0) {
-                return cmp;
+                return cmp > 0 ? i + 1 : -(i + 1);
             }
         }
         return 0;
@@ -190,13 +199,14 @@ final class CompositeValuesCollectorQueue extends PriorityQueue<Integer> impleme
     }
 
     /**
-     * Compares the after values with the values in <code>slot</code>.
+     * Compares the current candidate with the after values.
+     * The absolute value of the result is the position (starting at 1) of the first source that differs.
      */
     private int compareCurrentWithAfter() {
         for (int i = 0; i < arrays.length; i++) {
             int cmp = arrays[i].compareCurrentWithAfter();
             if (cmp != 0) {
-                return cmp;
+                return cmp > 0 ? i + 1 : -(i + 1);
             }
         }
         return 0;
@@ -247,6 +257,18 @@ final class CompositeValuesCollectorQueue extends PriorityQueue<Integer> impleme
      * @return The target slot of the candidate or -1 is the candidate is not competitive.
      */
     int addIfCompetitive() {
+        return addIfCompetitive(0);
+    }
+
+    /**
+     * Check if the current candidate should be added in the queue.
+     * @param indexSortSourcePrefix The number of leading sources that match the index sort of the segment that is collected,
+     *                              or -1 if the leading source matches the index sort in the reverse order.
+     * @return The target slot of the candidate or -1 is the candidate is not competitive.
+     * @throws CollectionTerminatedException if the index sort guarantees that the remaining documents of the segment
+     *                                       cannot produce a competitive candidate.
+     */
+    int addIfCompetitive(int indexSortSourcePrefix) {
         // checks if the candidate key is competitive
         Integer topSlot = compareCurrent();
         if (topSlot != null) {
@@ -254,15 +276,30 @@ final class CompositeValuesCollectorQueue extends PriorityQueue<Integer> impleme
             docCounts.increment(topSlot, 1);
             return topSlot;
         }
-        if (afterKeyIsSet && compareCurrentWithAfter() <= 0) {
-            // this key is greater than the top value collected in the previous round, skip it
-            return -1;
+        if (afterKeyIsSet) {
+            int cmp = compareCurrentWithAfter();
+            if (cmp <= 0) {
+                if (indexSortSourcePrefix < 0 && cmp == indexSortSourcePrefix) {
+                    // the leading source is sorted in the reverse order in the index so the remaining documents of
+                    // the segment can only have leading values that were collected in a previous round.
+                    throw new CollectionTerminatedException();
+                }
+                // this key is greater than the top value collected in the previous round, skip it
+                return -1;
+            }
         }
-        if (size() >= maxSize
-                // the tree map is full, check if the candidate key should be kept
-                && compare(CANDIDATE_SLOT, top()) > 0) {
-            // the candidate key is not competitive, skip it
-            return -1;
+        if (size() >= maxSize) {
+            // the tree map is full, check if the candidate key should be kept
+            int cmp = compare(CANDIDATE_SLOT, top());
+            if (cmp > 0) {
+                if (cmp <= indexSortSourcePrefix) {
+                    // the candidate differs from the last key of the queue on a source that is part of the index sort,
+                    // so the remaining documents of the segment cannot produce a competitive key.
+                    throw new CollectionTerminatedException();
+                }
+                // the candidate key is not competitive, skip it
+                return -1;
+            }
         }
 
         // the candidate key is competitive
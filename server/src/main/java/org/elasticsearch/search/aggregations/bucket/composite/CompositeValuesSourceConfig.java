@@ -33,6 +33,7 @@ class CompositeValuesSourceConfig {
     private final DocValueFormat format;
     private final int reverseMul;
     private final boolean missingBucket;
+    private final boolean hasScript;
 
     /**
      * Creates a new {@link CompositeValuesSourceConfig}.
@@ -41,15 +42,18 @@ class CompositeValuesSourceConfig {
      * @param vs The underlying {@link ValuesSource}.
      * @param format The {@link DocValueFormat} of this source.
      * @param order The sort order associated with this source.
+     * @param missingBucket If true, an explicit `null bucket represents documents with missing values.
+     * @param hasScript If true, the values are computed by a script.
      */
     CompositeValuesSourceConfig(String name, @Nullable MappedFieldType fieldType, ValuesSource vs, DocValueFormat format,
-                                SortOrder order, boolean missingBucket) {
+                                SortOrder order, boolean missingBucket, boolean hasScript) {
         this.name = name;
         this.fieldType = fieldType;
         this.vs = vs;
         this.format = format;
         this.reverseMul = order == SortOrder.ASC ? 1 : -1;
         this.missingBucket = missingBucket;
+        this.hasScript = hasScript;
     }
 
     /**
@@ -88,6 +92,13 @@ class CompositeValuesSourceConfig {
         return missingBucket;
     }
 
+    /**
+     * Returns true if the source contains a script that can change the value.
+     */
+    boolean hasScript() {
+        return hasScript;
+    }
+
     /**
      * The sort order for the values source (e.g. -1 for descending and 1 for ascending).
      */
@@ -20,6 +20,7 @@ package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.util.CollectionUtil;
 import org.elasticsearch.common.Nullable;
@@ -47,7 +48,9 @@ import java.util.Map;
 
 /**
  * An aggregator for date values. Every date is rounded down using a configured
- * {@link Rounding}.
+ * {@link Rounding}. When a {@link DatePreAggregationsCollector} or a {@link DatePointsBucketCounter}
+ * is provided, segments are collected from their pre-aggregations or counted from the points of the field rather than
+ * collected document by document when possible.
  *
  * @see Rounding
  */
@@ -65,10 +68,13 @@ class DateHistogramAggregator extends BucketsAggregator {
 
     private final LongHash bucketOrds;
     private long offset;
+    private final DatePreAggregationsCollector preAggregationsCollector;
+    private final DatePointsBucketCounter pointsCounter;
 
     DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, Rounding shardRounding,
             long offset, BucketOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
+            @Nullable DatePreAggregationsCollector preAggregationsCollector, @Nullable DatePointsBucketCounter pointsCounter,
             DocValueFormat formatter, SearchContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
@@ -81,6 +87,9 @@ class DateHistogramAggregator extends BucketsAggregator {
         this.minDocCount = minDocCount;
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
+        this.preAggregationsCollector = preAggregationsCollector == null ? null
+            : preAggregationsCollector.withSubAggregators(subAggregators);
+        this.pointsCounter = pointsCounter;
         this.formatter = formatter;
 
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
@@ -100,6 +109,15 @@ class DateHistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (preAggregationsCollector != null
+                && preAggregationsCollector.collect(ctx.reader(), shardRounding, offset, this::incrementBucket)) {
+            // the segment has been collected from its pre-aggregations, we don't need to collect its documents
+            throw new CollectionTerminatedException();
+        }
+        if (pointsCounter != null && pointsCounter.countBuckets(ctx.reader(), shardRounding, offset, this::incrementBucket)) {
+            // the documents of the segment have been counted, we don't need to collect them
+            throw new CollectionTerminatedException();
+        }
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -132,6 +150,15 @@ class DateHistogramAggregator extends BucketsAggregator {
         };
     }
 
+    private long incrementBucket(long key, int docCount) {
+        long bucketOrd = bucketOrds.add(key);
+        if (bucketOrd < 0) { // already seen
+            bucketOrd = -1 - bucketOrd;
+        }
+        incrementBucketDocCount(bucketOrd, docCount);
+        return bucketOrd;
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
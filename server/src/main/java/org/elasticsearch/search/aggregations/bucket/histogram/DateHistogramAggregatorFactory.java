@@ -76,8 +76,16 @@ public final class DateHistogramAggregatorFactory
 
     private Aggregator createAggregator(ValuesSource.Numeric valuesSource, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
+        // top level histograms may collect segments from their pre-aggregations, or count documents from the points of the
+        // field if they have no sub aggregations, unless the collection of the documents that match the query is cut short
+        DatePreAggregationsCollector preAggregationsCollector = null;
+        DatePointsBucketCounter pointsCounter = null;
+        if (valuesSource != null && context.terminateAfter() == SearchContext.DEFAULT_TERMINATE_AFTER && context.minimumScore() == null) {
+            preAggregationsCollector = DatePreAggregationsCollector.createOrNull(context.query(), parent, config);
+            pointsCounter = DatePointsBucketCounter.createOrNull(context.query(), parent, factories, config);
+        }
         return new DateHistogramAggregator(name, factories, rounding, shardRounding, offset, order, keyed, minDocCount, extendedBounds,
-                valuesSource, config.format(), context, parent, pipelineAggregators, metaData);
+                valuesSource, preAggregationsCollector, pointsCounter, config.format(), context, parent, pipelineAggregators, metaData);
     }
 
     @Override
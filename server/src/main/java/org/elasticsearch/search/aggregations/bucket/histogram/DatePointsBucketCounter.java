@@ -0,0 +1,240 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DocValuesFieldExistsQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.Rounding;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+
+import java.io.IOException;
+
+/**
+ * Counts the documents per bucket of a date histogram with the points of the date field rather than by collecting the
+ * documents, for top level histograms without sub aggregations whose query is a match all or a range on the same field.
+ * Each bucket is counted with a {@link PointValues#intersect} of its range, which only visits the values of the leaves
+ * of the tree that cross the bounds of the bucket. Segments with deleted documents or with documents that have several
+ * values are collected as usual since points don't tell which documents are live and how many distinct buckets a document
+ * falls into.
+ */
+final class DatePointsBucketCounter {
+
+    /**
+     * Counting a bucket visits up to two leaves of the tree, with hundreds of values each, so counting documents with
+     * points is only faster than collecting them if buckets hold many more documents than that on average.
+     */
+    static final int MIN_DOCS_PER_BUCKET = 2048;
+
+    @FunctionalInterface
+    interface BucketConsumer {
+        void accept(long key, int docCount) throws IOException;
+    }
+
+    private final String field;
+    // the bounds of the query, inclusive
+    private final long lowerBound;
+    private final long upperBound;
+
+    private DatePointsBucketCounter(String field, long lowerBound, long upperBound) {
+        this.field = field;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    /**
+     * Returns a counter if the documents that the histogram collects can be counted with points, or {@code null} otherwise.
+     */
+    static DatePointsBucketCounter createOrNull(Query query, Aggregator parent, AggregatorFactories factories,
+                                                ValuesSourceConfig<ValuesSource.Numeric> config) {
+        if (parent != null || factories.countAggregators() > 0) {
+            return null;
+        }
+        final long[] bounds = queryBoundsOrNull(query, config);
+        if (bounds == null) {
+            return null;
+        }
+        return new DatePointsBucketCounter(config.fieldContext().fieldType().name(), bounds[0], bounds[1]);
+    }
+
+    /**
+     * Returns the inclusive bounds of the values of the histogram field that {@code query} matches, if the histogram aggregates
+     * the millisecond values of a date field and if the query matches all documents that have a value within these bounds,
+     * or {@code null} otherwise.
+     */
+    static long[] queryBoundsOrNull(Query query, ValuesSourceConfig<ValuesSource.Numeric> config) {
+        if (config.fieldContext() == null || config.script() != null || config.missing() != null) {
+            return null;
+        }
+        final MappedFieldType fieldType = config.fieldContext().fieldType();
+        // points of date_nanos fields are in nanoseconds while the histogram works on milliseconds
+        if (fieldType == null || fieldType.getClass() != DateFieldMapper.DateFieldType.class || fieldType.isSearchable() == false
+                || ((DateFieldMapper.DateFieldType) fieldType).resolution() != DateFieldMapper.Resolution.MILLISECONDS) {
+            return null;
+        }
+        final long[] bounds = new long[] { Long.MIN_VALUE, Long.MAX_VALUE };
+        if (query != null && intersectBounds(query, fieldType.name(), bounds) == false) {
+            return null;
+        }
+        return bounds;
+    }
+
+    /**
+     * Intersects {@code bounds} with the range of the values of {@code field} that match {@code query}, and returns whether
+     * this range is all that the query matches.
+     */
+    private static boolean intersectBounds(Query query, String field, long[] bounds) {
+        if (query instanceof MatchAllDocsQuery) {
+            return true;
+        } else if (query instanceof ConstantScoreQuery) {
+            return intersectBounds(((ConstantScoreQuery) query).getQuery(), field, bounds);
+        } else if (query instanceof BoostQuery) {
+            return intersectBounds(((BoostQuery) query).getQuery(), field, bounds);
+        } else if (query instanceof IndexOrDocValuesQuery) {
+            return intersectBounds(((IndexOrDocValuesQuery) query).getIndexQuery(), field, bounds);
+        } else if (query instanceof DocValuesFieldExistsQuery) {
+            return ((DocValuesFieldExistsQuery) query).getField().equals(field);
+        } else if (query instanceof PointRangeQuery) {
+            final PointRangeQuery rangeQuery = (PointRangeQuery) query;
+            if (rangeQuery.getField().equals(field) == false || rangeQuery.getNumDims() != 1
+                    || rangeQuery.getBytesPerDim() != Long.BYTES) {
+                return false;
+            }
+            bounds[0] = Math.max(bounds[0], LongPoint.decodeDimension(rangeQuery.getLowerPoint(), 0));
+            bounds[1] = Math.min(bounds[1], LongPoint.decodeDimension(rangeQuery.getUpperPoint(), 0));
+            return true;
+        } else if (query instanceof BooleanQuery) {
+            final BooleanQuery booleanQuery = (BooleanQuery) query;
+            boolean hasRequiredClause = false;
+            for (BooleanClause clause : booleanQuery.clauses()) {
+                if (clause.isRequired() == false) {
+                    return false;
+                }
+                hasRequiredClause = true;
+                if (intersectBounds(clause.getQuery(), field, bounds) == false) {
+                    return false;
+                }
+            }
+            return hasRequiredClause;
+        }
+        return false;
+    }
+
+    /**
+     * Counts the documents of the segment per bucket, rounded like {@link DateHistogramAggregator} does, and returns
+     * {@code false} without counting anything if the documents of the segment must be collected instead.
+     */
+    boolean countBuckets(LeafReader reader, Rounding rounding, long offset, BucketConsumer consumer) throws IOException {
+        return countBuckets(reader, rounding, offset, MIN_DOCS_PER_BUCKET, consumer);
+    }
+
+    // pkg-private for testing
+    boolean countBuckets(LeafReader reader, Rounding rounding, long offset, int minDocsPerBucket,
+                         BucketConsumer consumer) throws IOException {
+        final PointValues points = reader.getPointValues(field);
+        if (points == null || reader.getLiveDocs() != null || points.getDocCount() != points.size()
+                || points.getNumDataDimensions() != 1 || points.getBytesPerDimension() != Long.BYTES) {
+            return false;
+        }
+        final long min = Math.max(lowerBound, LongPoint.decodeDimension(points.getMinPackedValue(), 0));
+        final long max = Math.min(upperBound, LongPoint.decodeDimension(points.getMaxPackedValue(), 0));
+        if (min > max) {
+            return true;
+        }
+        final long maxBuckets = Math.max(1, points.getDocCount() / minDocsPerBucket);
+        long numBuckets = 0;
+        for (long key = round(rounding, offset, min); key <= max; key = nextKey(rounding, offset, key)) {
+            if (++numBuckets > maxBuckets) {
+                return false;
+            }
+        }
+        for (long key = round(rounding, offset, min); key <= max; ) {
+            final long nextKey = nextKey(rounding, offset, key);
+            // the last key may overflow when the segment holds the maximum date
+            final long bucketMax = nextKey > key ? Math.min(max, nextKey - 1) : max;
+            final int docCount = count(points, Math.max(min, key), bucketMax);
+            if (docCount > 0) {
+                consumer.accept(key, docCount);
+            }
+            if (nextKey <= key) {
+                break;
+            }
+            key = nextKey;
+        }
+        return true;
+    }
+
+    private static long round(Rounding rounding, long offset, long value) {
+        return rounding.round(value - offset) + offset;
+    }
+
+    private static long nextKey(Rounding rounding, long offset, long key) {
+        return rounding.nextRoundingValue(key - offset) + offset;
+    }
+
+    /**
+     * Counts the values in {@code [from, to]}, which is the number of documents since each document has a single value.
+     */
+    private static int count(PointValues points, long from, long to) throws IOException {
+        final int[] count = new int[1];
+        points.intersect(new PointValues.IntersectVisitor() {
+            @Override
+            public void visit(int docID) {
+                count[0]++;
+            }
+
+            @Override
+            public void visit(int docID, byte[] packedValue) {
+                final long value = LongPoint.decodeDimension(packedValue, 0);
+                if (value >= from && value <= to) {
+                    count[0]++;
+                }
+            }
+
+            @Override
+            public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                final long minValue = LongPoint.decodeDimension(minPackedValue, 0);
+                final long maxValue = LongPoint.decodeDimension(maxPackedValue, 0);
+                if (maxValue < from || minValue > to) {
+                    return PointValues.Relation.CELL_OUTSIDE_QUERY;
+                }
+                if (minValue >= from && maxValue <= to) {
+                    return PointValues.Relation.CELL_INSIDE_QUERY;
+                }
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+        });
+        return count[0];
+    }
+}
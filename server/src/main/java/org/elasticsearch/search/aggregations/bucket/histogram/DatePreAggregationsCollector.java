@@ -0,0 +1,164 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.Rounding;
+import org.elasticsearch.index.codec.PreAggregations;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.metrics.PreAggregatedMetricsAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+
+import java.io.IOException;
+
+/**
+ * Collects the buckets of a date histogram from the {@link PreAggregations} of segments rather than by collecting their
+ * documents, for top level histograms whose sub aggregations are all {@link PreAggregatedMetricsAggregator}s and whose
+ * query is a match all or a range on the histogram field, see {@link DatePointsBucketCounter#queryBoundsOrNull}.
+ * Pre-aggregations are only used if each of their buckets is either fully inside or fully outside of the range of the
+ * query, and falls into a single bucket of the histogram, so the rounding of the histogram must be coarser than and
+ * aligned with the interval of the pre-aggregations.
+ */
+final class DatePreAggregationsCollector {
+
+    @FunctionalInterface
+    interface BucketConsumer {
+        /**
+         * Adds {@code docCount} documents to the bucket of the given key and returns the ordinal of this bucket.
+         */
+        long accept(long key, int docCount) throws IOException;
+    }
+
+    private final String field;
+    // the bounds of the query, inclusive
+    private final long lowerBound;
+    private final long upperBound;
+    private final PreAggregatedMetricsAggregator[] metrics;
+    private final String[] metricFields;
+
+    private DatePreAggregationsCollector(String field, long lowerBound, long upperBound, PreAggregatedMetricsAggregator[] metrics,
+                                         String[] metricFields) {
+        this.field = field;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.metrics = metrics;
+        this.metricFields = metricFields;
+    }
+
+    /**
+     * Returns a collector if the histogram may be collected from pre-aggregations, or {@code null} otherwise. Sub aggregators
+     * are checked with {@link #withSubAggregators} once they are created.
+     */
+    static DatePreAggregationsCollector createOrNull(Query query, Aggregator parent, ValuesSourceConfig<ValuesSource.Numeric> config) {
+        if (parent != null) {
+            return null;
+        }
+        final long[] bounds = DatePointsBucketCounter.queryBoundsOrNull(query, config);
+        if (bounds == null) {
+            return null;
+        }
+        return new DatePreAggregationsCollector(config.fieldContext().fieldType().name(), bounds[0], bounds[1],
+            new PreAggregatedMetricsAggregator[0], new String[0]);
+    }
+
+    /**
+     * Returns a collector that also collects the given sub aggregators, or {@code null} if one of them can't collect
+     * pre-aggregated values.
+     */
+    DatePreAggregationsCollector withSubAggregators(Aggregator[] subAggregators) {
+        final PreAggregatedMetricsAggregator[] metrics = new PreAggregatedMetricsAggregator[subAggregators.length];
+        final String[] metricFields = new String[subAggregators.length];
+        for (int i = 0; i < subAggregators.length; i++) {
+            if (subAggregators[i] instanceof PreAggregatedMetricsAggregator == false) {
+                return null;
+            }
+            metrics[i] = (PreAggregatedMetricsAggregator) subAggregators[i];
+            metricFields[i] = metrics[i].preAggregatedField();
+            if (metricFields[i] == null) {
+                return null;
+            }
+        }
+        return new DatePreAggregationsCollector(field, lowerBound, upperBound, metrics, metricFields);
+    }
+
+    /**
+     * Collects the buckets of the segment from its pre-aggregations and returns {@code true}, or returns {@code false} without
+     * collecting anything if the documents of the segment must be collected instead.
+     */
+    boolean collect(LeafReader reader, Rounding rounding, long offset, BucketConsumer consumer) throws IOException {
+        // pre-aggregations cover all documents and fields of the segment, which the reader might hide
+        final FieldInfos fieldInfos = reader.getFieldInfos();
+        if (reader.getLiveDocs() != null || fieldInfos.fieldInfo(field) == null) {
+            return false;
+        }
+        final PreAggregations preAggregations = PreAggregations.get(reader);
+        if (preAggregations == null || preAggregations.timestampField().equals(field) == false) {
+            return false;
+        }
+        final int[] metricIndices = new int[metrics.length];
+        for (int i = 0; i < metrics.length; i++) {
+            metricIndices[i] = preAggregations.metricFields().indexOf(metricFields[i]);
+            if (metricIndices[i] < 0 || fieldInfos.fieldInfo(metricFields[i]) == null) {
+                return false;
+            }
+        }
+        final long interval = preAggregations.interval();
+        PreAggregations.BucketIterator buckets = preAggregations.iterator();
+        while (buckets.next()) {
+            final long first = buckets.key();
+            if (first > Long.MAX_VALUE - (interval - 1)) {
+                return false;
+            }
+            final long last = first + interval - 1;
+            if (last < lowerBound || first > upperBound) {
+                continue;
+            }
+            // rounding is monotonic so the whole bucket rounds to the same key if both of its ends do
+            if (first < lowerBound || last > upperBound || round(rounding, offset, first) != round(rounding, offset, last)) {
+                return false;
+            }
+        }
+        buckets = preAggregations.iterator();
+        while (buckets.next()) {
+            final long first = buckets.key();
+            final long last = first + interval - 1;
+            if (last < lowerBound || first > upperBound) {
+                continue;
+            }
+            final long bucketOrd = consumer.accept(round(rounding, offset, first), buckets.docCount());
+            for (int i = 0; i < metrics.length; i++) {
+                final int metric = metricIndices[i];
+                final long valueCount = buckets.valueCount(metric);
+                if (valueCount > 0) {
+                    metrics[i].collectPreAggregated(bucketOrd, valueCount, buckets.sum(metric), buckets.min(metric),
+                        buckets.max(metric));
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long round(Rounding rounding, long offset, long value) {
+        return rounding.round(value - offset) + offset;
+    }
+}
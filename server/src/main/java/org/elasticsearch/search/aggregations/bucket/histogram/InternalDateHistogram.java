@@ -20,6 +20,7 @@ package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.util.CollectionUtil;
 import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Rounding;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -251,7 +252,19 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
         offset = in.readLong();
         format = in.readNamedWriteable(DocValueFormat.class);
         keyed = in.readBoolean();
-        buckets = in.readList(stream -> new Bucket(stream, keyed, format));
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            final int size = in.readVInt();
+            final long[] keys = readLongKeys(in, size);
+            final long[] docCounts = new long[size];
+            final InternalAggregations[] aggregations = new InternalAggregations[size];
+            readBucketColumns(in, docCounts, aggregations);
+            buckets = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                buckets.add(new Bucket(keys[i], docCounts[i], keyed, format, aggregations[i]));
+            }
+        } else {
+            buckets = in.readList(stream -> new Bucket(stream, keyed, format));
+        }
     }
 
     @Override
@@ -264,7 +277,18 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
         out.writeLong(offset);
         out.writeNamedWriteable(format);
         out.writeBoolean(keyed);
-        out.writeList(buckets);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            // buckets are written column by column, keys are sorted on shards so they are delta-encoded
+            out.writeVInt(buckets.size());
+            final long[] keys = new long[buckets.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = buckets.get(i).key;
+            }
+            writeLongKeys(out, keys);
+            writeBucketColumns(out, buckets);
+        } else {
+            out.writeList(buckets);
+        }
     }
 
     @Override
@@ -331,9 +355,9 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
             }
         }
 
-        List<Bucket> reducedBuckets = new ArrayList<>();
+        // lists of buckets coming from different shards that have the same key, in key order
+        final List<List<Bucket>> sameKeyBucketLists = new ArrayList<>();
         if (pq.size() > 0) {
-            // list of buckets coming from different shards that have the same key
             List<Bucket> currentBuckets = new ArrayList<>();
             double key = pq.top().current.key;
 
@@ -341,15 +365,9 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
                 final IteratorAndCurrent top = pq.top();
 
                 if (top.current.key != key) {
-                    // the key changes, reduce what we already buffered and reset the buffer for current buckets
-                    final Bucket reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                    if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
-                        reduceContext.consumeBucketsAndMaybeBreak(1);
-                        reducedBuckets.add(reduced);
-                    } else {
-                        reduceContext.consumeBucketsAndMaybeBreak(-countInnerBucket(reduced));
-                    }
-                    currentBuckets.clear();
+                    // the key changes, buffer a new list for the current buckets
+                    sameKeyBucketLists.add(currentBuckets);
+                    currentBuckets = new ArrayList<>();
                     key = top.current.key;
                 }
 
@@ -365,16 +383,20 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
                 }
             } while (pq.size() > 0);
 
-            if (currentBuckets.isEmpty() == false) {
-                final Bucket reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
+            sameKeyBucketLists.add(currentBuckets);
+        }
+
+        List<Bucket> reducedBuckets = new ArrayList<>();
+        final int minBucketsPerTask = sameKeyBucketLists.isEmpty() ? 1 : minBucketsPerReduceTask(sameKeyBucketLists.get(0).get(0));
+        reduceContext.reduceConcurrently(sameKeyBucketLists, minBucketsPerTask,
+            (sameKeyBuckets, context) -> sameKeyBuckets.get(0).reduce(sameKeyBuckets, context), reduced -> {
                 if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
                     reduceContext.consumeBucketsAndMaybeBreak(1);
                     reducedBuckets.add(reduced);
                 } else {
                     reduceContext.consumeBucketsAndMaybeBreak(-countInnerBucket(reduced));
                 }
-            }
-        }
+            });
 
         return reducedBuckets;
     }
@@ -96,4 +96,9 @@ public class DiversifiedAggregatorFactory extends ValuesSourceAggregatorFactory<
         };
     }
 
+    @Override
+    public boolean supportsConcurrentSlices() {
+        // the sample of a shard holds the best {@code shard_size} documents of all its segments
+        return false;
+    }
 }
@@ -45,4 +45,9 @@ public class SamplerAggregatorFactory extends AggregatorFactory {
         return new SamplerAggregator(name, shardSize, factories, context, parent, pipelineAggregators, metaData);
     }
 
+    @Override
+    public boolean supportsConcurrentSlices() {
+        // the sample of a shard holds the best {@code shard_size} documents of all its segments
+        return false;
+    }
 }
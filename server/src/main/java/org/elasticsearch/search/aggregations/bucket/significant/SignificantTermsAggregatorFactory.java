@@ -355,4 +355,10 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
             termsEnum = null;
         }
     }
+
+    @Override
+    public boolean supportsConcurrentSlices() {
+        // the background frequencies are read from the whole shard, they would be summed once per slice
+        return false;
+    }
 }
@@ -187,4 +187,10 @@ public class SignificantTextAggregatorFactory extends AggregatorFactory
                 incExcFilter, significanceHeuristic, this, indexedFieldName, sourceFieldNames, filterDuplicateText, metaData);
 
     }
+
+    @Override
+    public boolean supportsConcurrentSlices() {
+        // the background frequencies are read from the whole shard, they would be summed once per slice
+        return false;
+    }
 }
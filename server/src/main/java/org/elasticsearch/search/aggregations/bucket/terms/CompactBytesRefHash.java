@@ -0,0 +1,271 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+
+import java.io.IOException;
+
+/**
+ * Hash table that maps {@link BytesRef} keys to dense ids, like {@link org.elasticsearch.common.util.BytesRefHash}, but
+ * that is laid out for tables with many keys. Each slot of the probe table is a single long that holds the hash code of
+ * the key together with its id. Probing therefore never leaves the table to reject a colliding key, and the hash codes
+ * don't need an array of their own, so this hash table uses less memory than a
+ * {@link org.elasticsearch.common.util.BytesRefHash}. The bytes of all keys are packed in {@link BigArrays} pages so that
+ * {@link #get(long, BytesRef)} can return them without copying. Collisions are resolved with linear probing and the table
+ * grows in place.
+ * This class is not thread-safe.
+ */
+public final class CompactBytesRefHash implements Releasable {
+
+    // ids are stored as id + 1 in the lower 32 bits of a slot, 0 encodes for an empty slot
+    private static final long MAX_ID = 0xFFFFFFFEL;
+    private static final float DEFAULT_MAX_LOAD_FACTOR = 0.6f;
+
+    private final BigArrays bigArrays;
+    private final float maxLoadFactor;
+    private long size;
+    private long maxSize;
+    private long mask;
+    private LongArray table;
+    private LongArray startOffsets;
+    private ByteArray bytes;
+    private final BytesRef spare;
+
+    public CompactBytesRefHash(long capacity, BigArrays bigArrays) {
+        this(capacity, DEFAULT_MAX_LOAD_FACTOR, bigArrays);
+    }
+
+    public CompactBytesRefHash(long capacity, float maxLoadFactor, BigArrays bigArrays) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be >= 0");
+        }
+        if (maxLoadFactor <= 0 || maxLoadFactor >= 1) {
+            throw new IllegalArgumentException("maxLoadFactor must be > 0 and < 1");
+        }
+        this.bigArrays = bigArrays;
+        this.maxLoadFactor = maxLoadFactor;
+        long buckets = 1L + (long) (capacity / maxLoadFactor);
+        buckets = Math.max(1, Long.highestOneBit(buckets - 1) << 1); // next power of two
+        maxSize = (long) (buckets * maxLoadFactor);
+        mask = buckets - 1;
+        boolean success = false;
+        try {
+            table = bigArrays.newLongArray(buckets, true);
+            startOffsets = bigArrays.newLongArray(capacity + 1, false);
+            startOffsets.set(0, 0);
+            bytes = bigArrays.newByteArray(capacity * 3, false);
+            success = true;
+        } finally {
+            if (success == false) {
+                close();
+            }
+        }
+        spare = new BytesRef();
+    }
+
+    /**
+     * Return the number of allocated slots of the probe table.
+     */
+    public long capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Return the number of keys in this hash table.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Return the key of the given <code>id</code>.
+     * <p>Beware that the content of the {@link BytesRef} may become invalid as soon as {@link #close()} is called</p>
+     */
+    public BytesRef get(long id, BytesRef dest) {
+        final long startOffset = startOffsets.get(id);
+        final int length = (int) (startOffsets.get(id + 1) - startOffset);
+        bytes.get(startOffset, length, dest);
+        return dest;
+    }
+
+    /**
+     * Get the id associated with <code>key</code> or -1 if the key is not in the hash table.
+     */
+    public long find(BytesRef key) {
+        final int code = hash(key);
+        for (long slot = slot(code); ; slot = nextSlot(slot)) {
+            final long header = table.get(slot);
+            if (header == 0) {
+                return -1;
+            }
+            if (matches(header, key, code)) {
+                return id(header);
+            }
+        }
+    }
+
+    /**
+     * Try to add <code>key</code>. Return its newly allocated id if it wasn't in the hash table yet, or <code>-1-id</code>
+     * if it was already present in the hash table.
+     */
+    public long add(BytesRef key) {
+        ensureCapacity(size + 1);
+        return set(key, hash(key));
+    }
+
+    /**
+     * Adds the values of the document that <code>values</code> is positioned on, skipping the values that are rejected by
+     * <code>filter</code> and values that are equal to the previous one, and writes their ids to <code>ids</code> with the
+     * same encoding as {@link #add(BytesRef)}. The hash table grows at most once per document.
+     *
+     * @param ids an array whose length is at least the {@link SortedBinaryDocValues#docValueCount() number of values}
+     *            of the document
+     * @return the number of ids that were written to <code>ids</code>
+     */
+    public int add(SortedBinaryDocValues values, @Nullable IncludeExclude.StringFilter filter, long[] ids) throws IOException {
+        final int valueCount = values.docValueCount();
+        assert ids.length >= valueCount;
+        ensureCapacity(size + valueCount);
+        int count = 0;
+        long previousId = -1;
+        for (int i = 0; i < valueCount; ++i) {
+            final BytesRef value = values.nextValue();
+            if (filter != null && filter.accept(value) == false) {
+                continue;
+            }
+            final long id = set(value, hash(value));
+            // values are sorted so duplicates are consecutive and map to the same id
+            final long decoded = id < 0 ? -1 - id : id;
+            if (decoded != previousId) {
+                ids[count++] = id;
+                previousId = decoded;
+            }
+        }
+        return count;
+    }
+
+    private long set(BytesRef key, int code) {
+        assert size < maxSize;
+        for (long slot = slot(code); ; slot = nextSlot(slot)) {
+            final long header = table.get(slot);
+            if (header == 0) {
+                final long id = size;
+                if (id > MAX_ID) {
+                    throw new IllegalStateException("can't hold more than [" + (MAX_ID + 1) + "] keys");
+                }
+                table.set(slot, ((long) code << 32) | (id + 1));
+                append(id, key);
+                ++size;
+                return id;
+            }
+            if (matches(header, key, code)) {
+                return -1 - id(header);
+            }
+        }
+    }
+
+    private boolean matches(long header, BytesRef key, int code) {
+        return (int) (header >>> 32) == code && key.bytesEquals(get(id(header), spare));
+    }
+
+    private void append(long id, BytesRef key) {
+        final long startOffset = startOffsets.get(id);
+        bytes = bigArrays.grow(bytes, startOffset + key.length);
+        bytes.set(startOffset, key.bytes, key.offset, key.length);
+        startOffsets = bigArrays.grow(startOffsets, id + 2);
+        startOffsets.set(id + 1, startOffset + key.length);
+    }
+
+    private void ensureCapacity(long expectedSize) {
+        while (expectedSize > maxSize) {
+            grow();
+        }
+    }
+
+    private void grow() {
+        // grows in place like org.elasticsearch.common.util.AbstractPagedHashMap: the slots that moved are re-added
+        // in a first pass, the second pass re-adds the slots that wrapped around the end of the table before
+        final long buckets = capacity();
+        final long newBuckets = buckets << 1;
+        table = bigArrays.resize(table, newBuckets);
+        mask = newBuckets - 1;
+        for (long i = 0; i < buckets; ++i) {
+            if (table.get(i) != 0) {
+                removeAndAdd(i);
+            }
+        }
+        for (long i = buckets; i < newBuckets; ++i) {
+            if (table.get(i) != 0) {
+                removeAndAdd(i);
+            } else {
+                break;
+            }
+        }
+        maxSize = (long) (newBuckets * maxLoadFactor);
+    }
+
+    private void removeAndAdd(long index) {
+        final long header = table.set(index, 0);
+        for (long slot = slot((int) (header >>> 32)); ; slot = nextSlot(slot)) {
+            if (table.get(slot) == 0) {
+                table.set(slot, header);
+                return;
+            }
+        }
+    }
+
+    private long slot(int code) {
+        return code & 0xFFFFFFFFL & mask;
+    }
+
+    private long nextSlot(long slot) {
+        return (slot + 1) & mask; // linear probing
+    }
+
+    private static long id(long header) {
+        return (header & 0xFFFFFFFFL) - 1;
+    }
+
+    private static int hash(BytesRef key) {
+        // BytesRef#hashCode is a murmur3 hash of the bytes, rehash it anyway like BytesRefHash does
+        return BitMixer.mix32(key.hashCode());
+    }
+
+    /**
+     * Returns the number of bytes used by the arrays of this hash table.
+     */
+    public long ramBytesUsed() {
+        return table.ramBytesUsed() + startOffsets.ramBytesUsed() + bytes.ramBytesUsed();
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(table, startOffsets, bytes);
+    }
+}
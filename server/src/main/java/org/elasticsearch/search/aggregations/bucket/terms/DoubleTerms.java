@@ -117,7 +117,23 @@ public class DoubleTerms extends InternalMappedTerms<DoubleTerms, DoubleTerms.Bu
      * Read from a stream.
      */
     public DoubleTerms(StreamInput in) throws IOException {
-        super(in, Bucket::new);
+        super(in, Bucket::new, DoubleTerms::readBuckets);
+    }
+
+    private static List<Bucket> readBuckets(StreamInput in, long[] docCounts, long[] docCountErrors, InternalAggregations[] aggregations,
+                                            DocValueFormat format, boolean showDocCountError) throws IOException {
+        final List<Bucket> buckets = new ArrayList<>(docCounts.length);
+        for (int i = 0; i < docCounts.length; i++) {
+            buckets.add(new Bucket(in.readDouble(), docCounts[i], aggregations[i], showDocCountError, docCountErrors[i], format));
+        }
+        return buckets;
+    }
+
+    @Override
+    protected void writeTermsTo(StreamOutput out) throws IOException {
+        for (Bucket bucket : buckets) {
+            out.writeDouble(bucket.term);
+        }
     }
 
     @Override
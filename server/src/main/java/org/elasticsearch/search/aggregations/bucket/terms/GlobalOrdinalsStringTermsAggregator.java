@@ -38,6 +38,7 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalOrder;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
@@ -121,7 +122,7 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         }
     }
 
-    private SortedSetDocValues getGlobalOrds(LeafReaderContext ctx) throws IOException {
+    protected SortedSetDocValues getGlobalOrds(LeafReaderContext ctx) throws IOException {
         return acceptedGlobalOrdinals == null ?
             valuesSource.globalOrdinalsValues(ctx) : new FilteredOrdinals(valuesSource.globalOrdinalsValues(ctx), acceptedGlobalOrdinals);
     }
@@ -391,6 +392,135 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         }
     }
 
+    /**
+     * Variant of {@link GlobalOrdinalsStringTermsAggregator} that counts global ordinals in a {@link SpaceSavingSketch}
+     * rather than in one bucket per term, so that its memory usage doesn't depend on the cardinality of the field.
+     * Doc counts of the returned terms are lower bounds of their true counts and their doc count errors are the
+     * maximum amount by which they are off. The doc count error of the shard bounds the counts of the terms that are not
+     * returned. Counts are exact as long as the field has fewer unique values than the capacity of the sketch.
+     */
+    static class HeavyHitters extends GlobalOrdinalsStringTermsAggregator {
+
+        static final int MIN_CAPACITY = 1 << 12;
+        static final int MAX_CAPACITY = 1 << 20;
+        static final int CAPACITY_PER_SHARD_BUCKET = 32;
+
+        private final SpaceSavingSketch sketch;
+
+        HeavyHitters(String name,
+                     AggregatorFactories factories,
+                     ValuesSource.Bytes.WithOrdinals valuesSource,
+                     BucketOrder order,
+                     DocValueFormat format,
+                     BucketCountThresholds bucketCountThresholds,
+                     IncludeExclude.OrdinalsFilter includeExclude,
+                     SearchContext context,
+                     Aggregator parent,
+                     boolean showTermDocCountError,
+                     List<PipelineAggregator> pipelineAggregators,
+                     Map<String, Object> metaData) throws IOException {
+            super(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude,
+                context, parent, false, SubAggCollectionMode.DEPTH_FIRST, showTermDocCountError, pipelineAggregators, metaData);
+            assert factories == null || factories.countAggregators() == 0;
+            assert InternalOrder.isCountDesc(order);
+            this.sketch = new SpaceSavingSketch(capacity(bucketCountThresholds.getShardSize()), context.bigArrays());
+        }
+
+        /**
+         * The number of counters of the sketch for the given shard size. Using many more counters than the number of
+         * returned terms keeps the error low on skewed distributions, while the maximum bounds memory usage.
+         */
+        static int capacity(int shardSize) {
+            return (int) Math.min(MAX_CAPACITY, Math.max(MIN_CAPACITY, (long) shardSize * CAPACITY_PER_SHARD_BUCKET));
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+            assert sub == LeafBucketCollector.NO_OP_COLLECTOR;
+            final SortedSetDocValues globalOrds = getGlobalOrds(ctx);
+            final SortedDocValues singleValues = DocValues.unwrapSingleton(globalOrds);
+            if (singleValues != null) {
+                return new LeafBucketCollectorBase(sub, globalOrds) {
+                    @Override
+                    public void collect(int doc, long bucket) throws IOException {
+                        assert bucket == 0;
+                        if (singleValues.advanceExact(doc)) {
+                            sketch.add(singleValues.ordValue());
+                        }
+                    }
+                };
+            } else {
+                return new LeafBucketCollectorBase(sub, globalOrds) {
+                    @Override
+                    public void collect(int doc, long bucket) throws IOException {
+                        assert bucket == 0;
+                        if (globalOrds.advanceExact(doc)) {
+                            for (long globalOrd = globalOrds.nextOrd(); globalOrd != NO_MORE_ORDS; globalOrd = globalOrds.nextOrd()) {
+                                sketch.add(globalOrd);
+                            }
+                        }
+                    }
+                };
+            }
+        }
+
+        @Override
+        public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+            assert owningBucketOrdinal == 0;
+            if (valueCount == 0) { // no context in this reader
+                return buildEmptyAggregation();
+            }
+
+            final int size = Math.min(sketch.size(), bucketCountThresholds.getShardSize());
+            BucketPriorityQueue<OrdBucket> ordered = new BucketPriorityQueue<>(size, order.comparator(this));
+            OrdBucket spare = new OrdBucket(-1, 0, null, showTermDocCountError, 0);
+            // the highest count of the tracked terms that are not returned
+            long maxOtherCount = 0;
+            for (int id = 0; id < sketch.size(); id++) {
+                spare.globalOrd = sketch.key(id);
+                spare.bucketOrd = id;
+                spare.docCount = sketch.count(id) - sketch.error(id);
+                spare.docCountError = sketch.error(id);
+                OrdBucket rejected = spare;
+                if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
+                    rejected = ordered.insertWithOverflow(spare);
+                    if (rejected == null) {
+                        consumeBucketsAndMaybeBreak(1);
+                        spare = new OrdBucket(-1, 0, null, showTermDocCountError, 0);
+                    } else {
+                        spare = rejected;
+                    }
+                }
+                if (rejected != null) {
+                    maxOtherCount = Math.max(maxOtherCount, sketch.count((int) rejected.bucketOrd));
+                }
+            }
+
+            long otherDocCount = sketch.totalCount();
+            final StringTerms.Bucket[] list = new StringTerms.Bucket[ordered.size()];
+            for (int i = ordered.size() - 1; i >= 0; --i) {
+                final OrdBucket bucket = ordered.pop();
+                BytesRef scratch = new BytesRef();
+                copy(lookupGlobalOrd.apply(bucket.globalOrd), scratch);
+                list[i] = new StringTerms.Bucket(scratch, bucket.docCount, bucketEmptyAggregations(), showTermDocCountError,
+                    bucket.docCountError, format);
+                otherDocCount -= list[i].docCount;
+            }
+
+            // terms that are not tracked occurred at most as many times as the least frequent tracked term
+            final long docCountError = sketch.hasEvictions() ? Math.max(maxOtherCount, sketch.minCount()) : 0;
+            return new StringTerms(name, order, bucketCountThresholds.getRequiredSize(), bucketCountThresholds.getMinDocCount(),
+                    pipelineAggregators(), metaData(), format, bucketCountThresholds.getShardSize(), showTermDocCountError,
+                    otherDocCount, Arrays.asList(list), docCountError);
+        }
+
+        @Override
+        protected void doClose() {
+            super.doClose();
+            Releasables.close(sketch);
+        }
+    }
+
     private static final class FilteredOrdinals extends AbstractSortedSetDocValues {
 
         private final SortedSetDocValues inner;
@@ -19,10 +19,12 @@
 
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.BucketOrder;
 
@@ -61,14 +63,27 @@ public abstract class InternalMappedTerms<A extends InternalTerms<A, B>, B exten
     /**
      * Read from a stream.
      */
-    protected InternalMappedTerms(StreamInput in, Bucket.Reader<B> bucketReader) throws IOException {
+    protected InternalMappedTerms(StreamInput in, Bucket.Reader<B> bucketReader, Bucket.ColumnsReader<B> columnsReader)
+            throws IOException {
         super(in);
         docCountError = in.readZLong();
         format = in.readNamedWriteable(DocValueFormat.class);
         shardSize = readSize(in);
         showTermDocCountError = in.readBoolean();
         otherDocCount = in.readVLong();
-        buckets = in.readList(stream -> bucketReader.read(stream, format, showTermDocCountError));
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            final int size = in.readVInt();
+            final long[] docCounts = new long[size];
+            final InternalAggregations[] aggregations = new InternalAggregations[size];
+            readBucketColumns(in, docCounts, aggregations);
+            final long[] docCountErrors = new long[size];
+            for (int i = 0; i < size; i++) {
+                docCountErrors[i] = showTermDocCountError ? in.readZLong() : -1;
+            }
+            buckets = columnsReader.read(in, docCounts, docCountErrors, aggregations, format, showTermDocCountError);
+        } else {
+            buckets = in.readList(stream -> bucketReader.read(stream, format, showTermDocCountError));
+        }
     }
 
     @Override
@@ -78,9 +93,25 @@ public abstract class InternalMappedTerms<A extends InternalTerms<A, B>, B exten
         writeSize(shardSize, out);
         out.writeBoolean(showTermDocCountError);
         out.writeVLong(otherDocCount);
-        out.writeList(buckets);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVInt(buckets.size());
+            writeBucketColumns(out, buckets);
+            if (showTermDocCountError) {
+                for (B bucket : buckets) {
+                    out.writeZLong(bucket.docCountError);
+                }
+            }
+            writeTermsTo(out);
+        } else {
+            out.writeList(buckets);
+        }
     }
 
+    /**
+     * Writes the terms of the buckets as a single column, see {@link Bucket.ColumnsReader}.
+     */
+    protected abstract void writeTermsTo(StreamOutput out) throws IOException;
+
     @Override
     protected void setDocCountError(long docCountError) {
         this.docCountError = docCountError;
@@ -57,6 +57,16 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
             B read(StreamInput in, DocValueFormat format, boolean showDocCountError) throws IOException;
         }
 
+        /**
+         * Reads the terms of buckets that were serialized column by column and creates the buckets from them and from the
+         * other columns, which were already read. Should be a static method reference.
+         */
+        @FunctionalInterface
+        public interface ColumnsReader<B extends Bucket<B>> {
+            List<B> read(StreamInput in, long[] docCounts, long[] docCountErrors, InternalAggregations[] aggregations,
+                         DocValueFormat format, boolean showDocCountError) throws IOException;
+        }
+
         long bucketOrd;
 
         protected long docCount;
@@ -222,6 +232,10 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
         long sumDocCountError = 0;
         long otherDocCount = 0;
         InternalTerms<A, B> referenceTerms = null;
+        // a single result is exact unless it comes with its own error, eg. when it was counted with a sketch
+        final long singleResultDocCountError = aggregations.size() == 1
+            ? ((InternalTerms<?, ?>) aggregations.get(0)).getDocCountError()
+            : 0;
         for (InternalAggregation aggregation : aggregations) {
             @SuppressWarnings("unchecked")
             InternalTerms<A, B> terms = (InternalTerms<A, B>) aggregation;
@@ -282,25 +296,30 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
 
         final int size = reduceContext.isFinalReduce() == false ? buckets.size() : Math.min(requiredSize, buckets.size());
         final BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, order.comparator(null));
-        for (List<B> sameTermBuckets : buckets.values()) {
-            final B b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
-            if (sumDocCountError == -1) {
-                b.docCountError = -1;
-            } else {
-                b.docCountError += sumDocCountError;
-            }
-            if (b.docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
-                B removed = ordered.insertWithOverflow(b);
-                if (removed != null) {
-                    otherDocCount += removed.getDocCount();
-                    reduceContext.consumeBucketsAndMaybeBreak(-countInnerBucket(removed));
+        final List<List<B>> sameTermBucketLists = new ArrayList<>(buckets.values());
+        final long finalSumDocCountError = sumDocCountError;
+        final long[] removedDocCount = new long[1];
+        final int minBucketsPerTask = sameTermBucketLists.isEmpty() ? 1 : minBucketsPerReduceTask(sameTermBucketLists.get(0).get(0));
+        reduceContext.reduceConcurrently(sameTermBucketLists, minBucketsPerTask,
+            (sameTermBuckets, context) -> sameTermBuckets.get(0).reduce(sameTermBuckets, context), b -> {
+                if (finalSumDocCountError == -1) {
+                    b.docCountError = -1;
                 } else {
-                    reduceContext.consumeBucketsAndMaybeBreak(1);
+                    b.docCountError += finalSumDocCountError;
                 }
-            } else {
-                reduceContext.consumeBucketsAndMaybeBreak(-countInnerBucket(b));
-            }
-        }
+                if (b.docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
+                    B removed = ordered.insertWithOverflow(b);
+                    if (removed != null) {
+                        removedDocCount[0] += removed.getDocCount();
+                        reduceContext.consumeBucketsAndMaybeBreak(-countInnerBucket(removed));
+                    } else {
+                        reduceContext.consumeBucketsAndMaybeBreak(1);
+                    }
+                } else {
+                    reduceContext.consumeBucketsAndMaybeBreak(-countInnerBucket(b));
+                }
+            });
+        otherDocCount += removedDocCount[0];
         B[] list = createBucketsArray(ordered.size());
         for (int i = ordered.size() - 1; i >= 0; i--) {
             list[i] = ordered.pop();
@@ -309,7 +328,7 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
         if (sumDocCountError == -1) {
             docCountError = -1;
         } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
+            docCountError = aggregations.size() == 1 ? Math.max(0, singleResultDocCountError) : sumDocCountError;
         }
         return create(name, Arrays.asList(list), docCountError, otherDocCount);
     }
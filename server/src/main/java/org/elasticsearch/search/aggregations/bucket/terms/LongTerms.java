@@ -117,7 +117,26 @@ public class LongTerms extends InternalMappedTerms<LongTerms, LongTerms.Bucket>
      * Read from a stream.
      */
     public LongTerms(StreamInput in) throws IOException {
-        super(in, Bucket::new);
+        super(in, Bucket::new, LongTerms::readBuckets);
+    }
+
+    private static List<Bucket> readBuckets(StreamInput in, long[] docCounts, long[] docCountErrors, InternalAggregations[] aggregations,
+                                            DocValueFormat format, boolean showDocCountError) throws IOException {
+        final long[] terms = readLongKeys(in, docCounts.length);
+        final List<Bucket> buckets = new ArrayList<>(terms.length);
+        for (int i = 0; i < terms.length; i++) {
+            buckets.add(new Bucket(terms[i], docCounts[i], aggregations[i], showDocCountError, docCountErrors[i], format));
+        }
+        return buckets;
+    }
+
+    @Override
+    protected void writeTermsTo(StreamOutput out) throws IOException {
+        final long[] terms = new long[buckets.size()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = buckets.get(i).term;
+        }
+        writeLongKeys(out, terms);
     }
 
     @Override
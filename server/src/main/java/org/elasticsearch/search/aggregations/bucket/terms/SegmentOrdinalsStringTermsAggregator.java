@@ -0,0 +1,182 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.lucene.index.SortedSetDocValues.NO_MORE_ORDS;
+
+/**
+ * An aggregator of string values that collects segment ordinals and never needs global ordinals. Terms are resolved once per
+ * segment ordinal and merged by value into the buckets of {@link StringTermsAggregator}, so it avoids building global ordinals
+ * on readers that don't have them yet, at the cost of a hash lookup per term of each segment.
+ * When there are no sub aggregations, doc counts are accumulated per segment ordinal and only added to the buckets when the
+ * collection of the segment is over.
+ */
+public class SegmentOrdinalsStringTermsAggregator extends StringTermsAggregator {
+
+    private final ValuesSource.Bytes.WithOrdinals valuesSource;
+    private final IncludeExclude.StringFilter includeExclude;
+    // the doc counts of the current segment, indexed by segment ordinal
+    private IntArray segmentDocCounts;
+    // the bucket ordinals of the current segment plus one, indexed by segment ordinal: 0 means that the term has not been seen
+    // yet in the segment and -1 that it is rejected by the include/exclude filter
+    private LongArray segmentToBucketOrds;
+    // the ordinals of the segment whose doc counts have not been added to the buckets yet
+    private SortedSetDocValues pendingOrds;
+
+    public SegmentOrdinalsStringTermsAggregator(String name, AggregatorFactories factories, ValuesSource.Bytes.WithOrdinals valuesSource,
+            BucketOrder order, DocValueFormat format, BucketCountThresholds bucketCountThresholds,
+            IncludeExclude.StringFilter includeExclude, SearchContext context,
+            Aggregator parent, SubAggCollectionMode collectionMode, boolean showTermDocCountError,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude, context, parent, collectionMode,
+                showTermDocCountError, pipelineAggregators, metaData);
+        this.valuesSource = valuesSource;
+        this.includeExclude = includeExclude;
+        this.segmentDocCounts = context.bigArrays().newIntArray(1, true);
+        this.segmentToBucketOrds = context.bigArrays().newLongArray(1, true);
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx,
+            final LeafBucketCollector sub) throws IOException {
+        addPendingDocCounts();
+        final SortedSetDocValues segmentOrds = valuesSource.ordinalsValues(ctx);
+        final long valueCount = segmentOrds.getValueCount();
+        if (sub == LeafBucketCollector.NO_OP_COLLECTOR) {
+            segmentDocCounts = context.bigArrays().grow(segmentDocCounts, valueCount);
+            pendingOrds = segmentOrds;
+            final SortedDocValues singleValues = DocValues.unwrapSingleton(segmentOrds);
+            if (singleValues != null) {
+                return new LeafBucketCollectorBase(sub, segmentOrds) {
+                    @Override
+                    public void collect(int doc, long bucket) throws IOException {
+                        assert bucket == 0;
+                        if (singleValues.advanceExact(doc)) {
+                            segmentDocCounts.increment(singleValues.ordValue(), 1);
+                        }
+                    }
+                };
+            }
+            return new LeafBucketCollectorBase(sub, segmentOrds) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assert bucket == 0;
+                    if (segmentOrds.advanceExact(doc)) {
+                        for (long ord = segmentOrds.nextOrd(); ord != NO_MORE_ORDS; ord = segmentOrds.nextOrd()) {
+                            segmentDocCounts.increment(ord, 1);
+                        }
+                    }
+                }
+            };
+        }
+
+        segmentToBucketOrds = context.bigArrays().grow(segmentToBucketOrds, valueCount);
+        segmentToBucketOrds.fill(0, valueCount, 0);
+        return new LeafBucketCollectorBase(sub, segmentOrds) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                if (segmentOrds.advanceExact(doc)) {
+                    for (long ord = segmentOrds.nextOrd(); ord != NO_MORE_ORDS; ord = segmentOrds.nextOrd()) {
+                        final long bucketOrd = segmentToBucketOrds.get(ord);
+                        if (bucketOrd > 0) {
+                            collectExistingBucket(sub, doc, bucketOrd - 1);
+                        } else if (bucketOrd == 0) {
+                            // first time we see this term in the segment
+                            final BytesRef term = segmentOrds.lookupOrd(ord);
+                            if (includeExclude != null && includeExclude.accept(term) == false) {
+                                segmentToBucketOrds.set(ord, -1);
+                                continue;
+                            }
+                            final long newBucketOrd = bucketOrds.add(term);
+                            if (newBucketOrd < 0) { // already seen in a previous segment
+                                segmentToBucketOrds.set(ord, -newBucketOrd);
+                                collectExistingBucket(sub, doc, -1 - newBucketOrd);
+                            } else {
+                                segmentToBucketOrds.set(ord, newBucketOrd + 1);
+                                collectBucket(sub, doc, newBucketOrd);
+                            }
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    protected void doPostCollection() throws IOException {
+        addPendingDocCounts();
+    }
+
+    /**
+     * Adds the doc counts of the last collected segment to the buckets of the matching terms.
+     */
+    private void addPendingDocCounts() throws IOException {
+        if (pendingOrds == null) {
+            return;
+        }
+        final long valueCount = pendingOrds.getValueCount();
+        for (long ord = 0; ord < valueCount; ++ord) {
+            // We use set(...) here, because we need to reset the slot to 0 for the next segment
+            final int inc = segmentDocCounts.set(ord, 0);
+            if (inc == 0) {
+                continue;
+            }
+            final BytesRef term = pendingOrds.lookupOrd(ord);
+            if (includeExclude != null && includeExclude.accept(term) == false) {
+                continue;
+            }
+            long bucketOrd = bucketOrds.add(term);
+            if (bucketOrd < 0) {
+                bucketOrd = -1 - bucketOrd;
+            }
+            incrementBucketDocCount(bucketOrd, inc);
+        }
+        pendingOrds = null;
+    }
+
+    @Override
+    public void doClose() {
+        super.doClose();
+        Releasables.close(segmentDocCounts, segmentToBucketOrds);
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+
+/**
+ * Space-Saving sketch (Metwally et al., "Efficient Computation of Frequent and Top-k Elements in Data Streams") that tracks the
+ * most frequent {@code long} keys with at most {@link #capacity()} counters. Once all counters are used, a key that isn't tracked
+ * replaces the key with the lowest count, and inherits this count as its error. The count of a tracked key is thus an upper bound
+ * of its true frequency, and its count minus its error is a lower bound. Keys that are not tracked occurred at most
+ * {@link #minCount()} times.
+ * Counters live in {@link BigArrays} and a min-heap over the counts finds the counter to replace. Keys are mapped to counters by
+ * an open-addressing table that supports removals. This class is not thread-safe.
+ */
+final class SpaceSavingSketch implements Releasable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final BigArrays bigArrays;
+    private final int capacity;
+    private int size;
+    private long totalCount;
+    private long evictions;
+
+    // counters, indexed by counter id
+    private LongArray keys;
+    private LongArray counts;
+    private LongArray errors;
+    private IntArray heapIndex;
+    // min-heap of counter ids ordered by count
+    private IntArray heap;
+    // counter id + 1 for each slot, 0 if the slot is empty, with linear probing
+    private IntArray table;
+    private long mask;
+
+    SpaceSavingSketch(int capacity, BigArrays bigArrays) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        this.bigArrays = bigArrays;
+        this.capacity = capacity;
+        final int initialCapacity = Math.min(capacity, INITIAL_CAPACITY);
+        boolean success = false;
+        try {
+            keys = bigArrays.newLongArray(initialCapacity, false);
+            counts = bigArrays.newLongArray(initialCapacity, false);
+            errors = bigArrays.newLongArray(initialCapacity, false);
+            heapIndex = bigArrays.newIntArray(initialCapacity, false);
+            heap = bigArrays.newIntArray(initialCapacity, false);
+            table = bigArrays.newIntArray(tableSize(initialCapacity), true);
+            mask = table.size() - 1;
+            success = true;
+        } finally {
+            if (success == false) {
+                close();
+            }
+        }
+    }
+
+    // keeps the load factor of the table at most 0.5
+    private static long tableSize(int counters) {
+        return Long.highestOneBit(counters) << 2;
+    }
+
+    /**
+     * Return the maximum number of keys that this sketch tracks.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Return the number of keys that are tracked, counter ids are dense in {@code [0, size())}.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Return the number of times {@link #add(long)} was called.
+     */
+    long totalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Return whether a tracked key was ever replaced, if not counts are exact.
+     */
+    boolean hasEvictions() {
+        return evictions > 0;
+    }
+
+    /**
+     * Return the smallest count of all tracked keys, an upper bound of the frequency of keys that are not tracked.
+     */
+    long minCount() {
+        return size == 0 ? 0 : counts.get(heap.get(0));
+    }
+
+    long key(int id) {
+        return keys.get(id);
+    }
+
+    /**
+     * Return an upper bound of the frequency of the key tracked by the given counter.
+     */
+    long count(int id) {
+        return counts.get(id);
+    }
+
+    /**
+     * Return by how much {@link #count(int)} may overestimate the frequency of the key tracked by the given counter.
+     */
+    long error(int id) {
+        return errors.get(id);
+    }
+
+    /**
+     * Record an occurrence of {@code key}.
+     */
+    void add(long key) {
+        totalCount++;
+        long slot = slot(key);
+        for (int id = table.get(slot); id != 0; id = table.get(slot)) {
+            if (keys.get(id - 1) == key) {
+                counts.increment(id - 1, 1);
+                siftDown(heapIndex.get(id - 1));
+                return;
+            }
+            slot = nextSlot(slot);
+        }
+        if (size < capacity) {
+            if (size == keys.size()) {
+                grow();
+                slot = findEmptySlot(key);
+            }
+            final int id = size++;
+            keys.set(id, key);
+            counts.set(id, 1);
+            errors.set(id, 0);
+            heap.set(id, id);
+            heapIndex.set(id, id);
+            siftUp(id);
+            table.set(slot, id + 1);
+        } else {
+            // replace the key with the lowest count
+            final int id = heap.get(0);
+            remove(keys.get(id));
+            final long minCount = counts.get(id);
+            keys.set(id, key);
+            errors.set(id, minCount);
+            counts.set(id, minCount + 1);
+            siftDown(0);
+            table.set(findEmptySlot(key), id + 1);
+            evictions++;
+        }
+    }
+
+    private long findEmptySlot(long key) {
+        long slot = slot(key);
+        while (table.get(slot) != 0) {
+            slot = nextSlot(slot);
+        }
+        return slot;
+    }
+
+    private void remove(long key) {
+        long hole = slot(key);
+        while (keys.get(table.get(hole) - 1) != key) {
+            hole = nextSlot(hole);
+        }
+        table.set(hole, 0);
+        // shift back the entries that follow the removed one in its cluster so that lookups don't stop early
+        for (long slot = nextSlot(hole); table.get(slot) != 0; slot = nextSlot(slot)) {
+            final int id = table.get(slot);
+            final long ideal = slot(keys.get(id - 1));
+            if (((slot - ideal) & mask) >= ((slot - hole) & mask)) {
+                table.set(hole, id);
+                table.set(slot, 0);
+                hole = slot;
+            }
+        }
+    }
+
+    private void grow() {
+        final int newSize = (int) Math.min(capacity, (long) keys.size() << 1);
+        keys = bigArrays.resize(keys, newSize);
+        counts = bigArrays.resize(counts, newSize);
+        errors = bigArrays.resize(errors, newSize);
+        heapIndex = bigArrays.resize(heapIndex, newSize);
+        heap = bigArrays.resize(heap, newSize);
+        final long newTableSize = tableSize(newSize);
+        if (newTableSize > table.size()) {
+            table.close();
+            table = null;
+            table = bigArrays.newIntArray(newTableSize, true);
+            mask = newTableSize - 1;
+            for (int id = 0; id < size; id++) {
+                table.set(findEmptySlot(keys.get(id)), id + 1);
+            }
+        }
+    }
+
+    private void siftUp(int index) {
+        final int id = heap.get(index);
+        final long count = counts.get(id);
+        while (index > 0) {
+            final int parentIndex = (index - 1) >>> 1;
+            final int parent = heap.get(parentIndex);
+            if (counts.get(parent) <= count) {
+                break;
+            }
+            heap.set(index, parent);
+            heapIndex.set(parent, index);
+            index = parentIndex;
+        }
+        heap.set(index, id);
+        heapIndex.set(id, index);
+    }
+
+    private void siftDown(int index) {
+        final int id = heap.get(index);
+        final long count = counts.get(id);
+        while (true) {
+            int childIndex = (index << 1) + 1;
+            if (childIndex >= size) {
+                break;
+            }
+            int child = heap.get(childIndex);
+            if (childIndex + 1 < size) {
+                final int right = heap.get(childIndex + 1);
+                if (counts.get(right) < counts.get(child)) {
+                    childIndex++;
+                    child = right;
+                }
+            }
+            if (count <= counts.get(child)) {
+                break;
+            }
+            heap.set(index, child);
+            heapIndex.set(child, index);
+            index = childIndex;
+        }
+        heap.set(index, id);
+        heapIndex.set(id, index);
+    }
+
+    private long slot(long key) {
+        return BitMixer.mix64(key) & mask;
+    }
+
+    private long nextSlot(long slot) {
+        return (slot + 1) & mask; // linear probing
+    }
+
+    /**
+     * Returns the number of bytes used by the arrays of this sketch.
+     */
+    long ramBytesUsed() {
+        return keys.ramBytesUsed() + counts.ramBytesUsed() + errors.ramBytesUsed() + heapIndex.ramBytesUsed() + heap.ramBytesUsed()
+            + table.ramBytesUsed();
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(keys, counts, errors, heapIndex, heap, table);
+    }
+}
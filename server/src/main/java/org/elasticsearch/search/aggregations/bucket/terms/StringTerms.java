@@ -28,6 +28,7 @@ import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.BucketOrder;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -120,7 +121,43 @@ public class StringTerms extends InternalMappedTerms<StringTerms, StringTerms.Bu
      * Read from a stream.
      */
     public StringTerms(StreamInput in) throws IOException {
-        super(in, Bucket::new);
+        super(in, Bucket::new, StringTerms::readBuckets);
+    }
+
+    private static List<Bucket> readBuckets(StreamInput in, long[] docCounts, long[] docCountErrors, InternalAggregations[] aggregations,
+                                            DocValueFormat format, boolean showDocCountError) throws IOException {
+        final List<Bucket> buckets = new ArrayList<>(docCounts.length);
+        BytesRef previous = new BytesRef();
+        for (int i = 0; i < docCounts.length; i++) {
+            final int prefixLength = in.readVInt();
+            final int suffixLength = in.readVInt();
+            final byte[] bytes = new byte[prefixLength + suffixLength];
+            System.arraycopy(previous.bytes, previous.offset, bytes, 0, prefixLength);
+            in.readBytes(bytes, prefixLength, suffixLength);
+            final BytesRef term = new BytesRef(bytes);
+            buckets.add(new Bucket(term, docCounts[i], aggregations[i], showDocCountError, docCountErrors[i], format));
+            previous = term;
+        }
+        return buckets;
+    }
+
+    @Override
+    protected void writeTermsTo(StreamOutput out) throws IOException {
+        // each term only writes the suffix that it doesn't share with the previous term
+        BytesRef previous = new BytesRef();
+        for (Bucket bucket : buckets) {
+            final BytesRef term = bucket.termBytes;
+            final int maxPrefixLength = Math.min(previous.length, term.length);
+            int prefixLength = 0;
+            while (prefixLength < maxPrefixLength
+                    && previous.bytes[previous.offset + prefixLength] == term.bytes[term.offset + prefixLength]) {
+                prefixLength++;
+            }
+            out.writeVInt(prefixLength);
+            out.writeVInt(term.length - prefixLength);
+            out.writeBytes(term.bytes, term.offset + prefixLength, term.length - prefixLength);
+            previous = term;
+        }
     }
 
     @Override
@@ -20,10 +20,9 @@ package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
-import org.apache.lucene.util.BytesRefBuilder;
 import org.elasticsearch.common.lease.Releasables;
-import org.elasticsearch.common.util.BytesRefHash;
 import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -48,7 +47,7 @@ import java.util.Map;
 public class StringTermsAggregator extends AbstractStringTermsAggregator {
 
     private final ValuesSource valuesSource;
-    protected final BytesRefHash bucketOrds;
+    protected final CompactBytesRefHash bucketOrds;
     private final IncludeExclude.StringFilter includeExclude;
 
     public StringTermsAggregator(String name, AggregatorFactories factories, ValuesSource valuesSource,
@@ -61,7 +60,7 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
                 pipelineAggregators, metaData);
         this.valuesSource = valuesSource;
         this.includeExclude = includeExclude;
-        bucketOrds = new BytesRefHash(1, context.bigArrays());
+        bucketOrds = new CompactBytesRefHash(1, context.bigArrays());
     }
 
     @Override
@@ -77,33 +76,26 @@ public class StringTermsAggregator extends AbstractStringTermsAggregator {
             final LeafBucketCollector sub) throws IOException {
         final SortedBinaryDocValues values = valuesSource.bytesValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
-            final BytesRefBuilder previous = new BytesRefBuilder();
+            long[] ords = new long[1];
 
             @Override
             public void collect(int doc, long bucket) throws IOException {
                 assert bucket == 0;
                 if (values.advanceExact(doc)) {
                     final int valuesCount = values.docValueCount();
-
-                    // SortedBinaryDocValues don't guarantee uniqueness so we
-                    // need to take care of dups
-                    previous.clear();
-                    for (int i = 0; i < valuesCount; ++i) {
-                        final BytesRef bytes = values.nextValue();
-                        if (includeExclude != null && !includeExclude.accept(bytes)) {
-                            continue;
-                        }
-                        if (i > 0 && previous.get().equals(bytes)) {
-                            continue;
-                        }
-                        long bucketOrdinal = bucketOrds.add(bytes);
+                    if (ords.length < valuesCount) {
+                        ords = new long[ArrayUtil.oversize(valuesCount, Long.BYTES)];
+                    }
+                    // SortedBinaryDocValues don't guarantee uniqueness, the hash skips the dups
+                    final int count = bucketOrds.add(values, includeExclude, ords);
+                    for (int i = 0; i < count; ++i) {
+                        long bucketOrdinal = ords[i];
                         if (bucketOrdinal < 0) { // already seen
                             bucketOrdinal = -1 - bucketOrdinal;
                             collectExistingBucket(sub, doc, bucketOrdinal);
                         } else {
                             collectBucket(sub, doc, bucketOrdinal);
                         }
-                        previous.copyBytes(bytes);
                     }
                 }
             }
@@ -20,6 +20,7 @@
 package org.elasticsearch.search.aggregations.bucket.terms;
 
 import org.apache.logging.log4j.LogManager;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.IndexSearcher;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.logging.DeprecationLogger;
@@ -49,7 +50,13 @@ import java.util.Map;
 public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSource> {
     private static final DeprecationLogger deprecationLogger = new DeprecationLogger(LogManager.getLogger(TermsAggregatorFactory.class));
 
-    static Boolean REMAP_GLOBAL_ORDS, COLLECT_SEGMENT_ORDS;
+    static Boolean REMAP_GLOBAL_ORDS, COLLECT_SEGMENT_ORDS, SKIP_GLOBAL_ORDS;
+
+    /**
+     * The maximum number of segments of a reader that doesn't have global ordinals yet for which terms are merged
+     * by value rather than building global ordinals.
+     */
+    static final int MAX_SEGMENTS_WITHOUT_GLOBAL_ORDS = 8;
 
     private final BucketOrder order;
     private final IncludeExclude includeExclude;
@@ -109,6 +116,12 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
         }
     }
 
+    @Override
+    public boolean supportsConcurrentSlices() {
+        // shard_min_doc_count applies to the doc counts of the whole shard, not to the doc counts of a slice
+        return bucketCountThresholds.getShardMinDocCount() <= 1 && super.supportsConcurrentSlices();
+    }
+
     @Override
     protected Aggregator doCreateInternal(ValuesSource valuesSource, Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
@@ -133,6 +146,7 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
             if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false) {
                 execution = ExecutionMode.MAP;
             }
+            final boolean skipGlobalOrds = execution == null && skipGlobalOrds(valuesSource, parent, context.searcher());
             final long maxOrd = execution == ExecutionMode.GLOBAL_ORDINALS ? getMaxOrd(valuesSource, context.searcher()) : -1;
             if (execution == null) {
                 execution = ExecutionMode.GLOBAL_ORDINALS;
@@ -152,6 +166,11 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                         + "include/exclude clauses");
             }
 
+            if (skipGlobalOrds) {
+                final IncludeExclude.StringFilter filter = includeExclude == null ? null : includeExclude.convertToStringFilter(format);
+                return new SegmentOrdinalsStringTermsAggregator(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource, order,
+                        format, bucketCountThresholds, filter, context, parent, cm, showTermDocCountError, pipelineAggregators, metaData);
+            }
             return execution.create(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude, context, parent,
                     cm, showTermDocCountError, pipelineAggregators, metaData);
         }
@@ -206,6 +225,28 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
         return SubAggCollectionMode.DEPTH_FIRST;
     }
 
+    /**
+     * Whether terms of the provided {@link ValuesSource} should be collected on segment ordinals and merged by value instead of
+     * building global ordinals. Global ordinals are only worth building when they are reused by subsequent requests, so this is
+     * the case when they are not available yet and the reader has few segments, which is typical of the first requests after a
+     * refresh.
+     */
+    static boolean skipGlobalOrds(ValuesSource source, Aggregator parent, IndexSearcher searcher) {
+        if (source instanceof ValuesSource.Bytes.WithOrdinals == false
+                // per-segment arrays would be allocated for each parent bucket
+                || Aggregator.descendsFromBucketAggregator(parent)) {
+            return false;
+        }
+        if (SKIP_GLOBAL_ORDS != null) {
+            // we use the static SKIP_GLOBAL_ORDS to allow tests to force specific optimizations
+            return SKIP_GLOBAL_ORDS.booleanValue();
+        }
+        final IndexReader reader = searcher.getIndexReader();
+        final int numSegments = reader.leaves().size();
+        return numSegments > 1 && numSegments <= MAX_SEGMENTS_WITHOUT_GLOBAL_ORDS
+            && ((ValuesSource.Bytes.WithOrdinals) source).hasGlobalOrdinals(reader) == false;
+    }
+
     /**
      * Get the maximum global ordinal value for the provided {@link ValuesSource} or -1
      * if the values source is not an instance of {@link ValuesSource.Bytes.WithOrdinals}.
@@ -310,6 +351,42 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                         format, bucketCountThresholds, filter, context, parent, remapGlobalOrds, subAggCollectMode, showTermDocCountError,
                         pipelineAggregators, metaData);
             }
+        },
+        HEAVY_HITTERS(new ParseField("heavy_hitters")) {
+
+            @Override
+            Aggregator create(String name,
+                              AggregatorFactories factories,
+                              ValuesSource valuesSource,
+                              BucketOrder order,
+                              DocValueFormat format,
+                              TermsAggregator.BucketCountThresholds bucketCountThresholds,
+                              IncludeExclude includeExclude,
+                              SearchContext context, Aggregator parent,
+                              SubAggCollectionMode subAggCollectMode,
+                              boolean showTermDocCountError,
+                              List<PipelineAggregator> pipelineAggregators,
+                              Map<String, Object> metaData) throws IOException {
+                if (factories != AggregatorFactories.EMPTY ||
+                        Aggregator.descendsFromBucketAggregator(parent) ||
+                        InternalOrder.isCountDesc(order) == false ||
+                        bucketCountThresholds.getMinDocCount() == 0) {
+                    /*
+                     * The sketch can only be used iff this aggregator:
+                     *  - has no sub-aggregator, since buckets are recycled AND
+                     *  - is not a child of a bucket aggregator, which would create a sketch per parent bucket AND
+                     *  - sorts by descending doc count AND
+                     *  - doesn't need to return terms that don't match any document.
+                     * Otherwise the hint is ignored.
+                     */
+                    return GLOBAL_ORDINALS.create(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude,
+                        context, parent, subAggCollectMode, showTermDocCountError, pipelineAggregators, metaData);
+                }
+                assert valuesSource instanceof ValuesSource.Bytes.WithOrdinals;
+                final IncludeExclude.OrdinalsFilter filter = includeExclude == null ? null : includeExclude.convertToOrdinalsFilter(format);
+                return new GlobalOrdinalsStringTermsAggregator.HeavyHitters(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource,
+                    order, format, bucketCountThresholds, filter, context, parent, showTermDocCountError, pipelineAggregators, metaData);
+            }
         };
 
         public static ExecutionMode fromString(String value, final DeprecationLogger deprecationLogger) {
@@ -318,8 +395,11 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                     return GLOBAL_ORDINALS;
                 case "map":
                     return MAP;
+                case "heavy_hitters":
+                    return HEAVY_HITTERS;
                 default:
-                    throw new IllegalArgumentException("Unknown `execution_hint`: [" + value + "], expected any of [map, global_ordinals]");
+                    throw new IllegalArgumentException("Unknown `execution_hint`: [" + value + "], "
+                        + "expected any of [map, global_ordinals, heavy_hitters]");
             }
         }
 
@@ -24,6 +24,7 @@ import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
 import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.fielddata.DoubleValuesBlock;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -38,7 +39,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
-class AvgAggregator extends NumericMetricsAggregator.SingleValue {
+class AvgAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatedMetricsAggregator {
 
     final ValuesSource.Numeric valuesSource;
 
@@ -73,6 +74,7 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final DoubleValuesBlock block = new DoubleValuesBlock();
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -103,9 +105,50 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
                     compensations.set(bucket, compensation);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                counts = bigArrays.grow(counts, bucket + 1);
+                sums = bigArrays.grow(sums, bucket + 1);
+                compensations = bigArrays.grow(compensations, bucket + 1);
+
+                values.readValues(docs, count, block);
+                final double[] blockValues = block.values();
+                final int size = block.size();
+                counts.increment(bucket, size);
+                double sum = sums.get(bucket);
+                double compensation = compensations.get(bucket);
+                for (int i = 0; i < size; i++) {
+                    final double value = blockValues[i];
+                    if (Double.isFinite(value) == false) {
+                        sum += value;
+                    } else if (Double.isFinite(sum)) {
+                        double corrected = value - compensation;
+                        double newSum = sum + corrected;
+                        compensation = (newSum - sum) - corrected;
+                        sum = newSum;
+                    }
+                }
+                sums.set(bucket, sum);
+                compensations.set(bucket, compensation);
+            }
         };
     }
 
+    @Override
+    public String preAggregatedField() {
+        return PreAggregatedMetricsAggregator.fieldOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        counts = context.bigArrays().grow(counts, bucket + 1);
+        sums = context.bigArrays().grow(sums, bucket + 1);
+        compensations = context.bigArrays().grow(compensations, bucket + 1);
+        counts.increment(bucket, valueCount);
+        PreAggregatedMetricsAggregator.addCompensated(sums, compensations, bucket, sum);
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         if (valuesSource == null || owningBucketOrd >= sums.size()) {
@@ -28,6 +28,8 @@ import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.DoubleValuesBlock;
+import org.elasticsearch.index.fielddata.FieldData;
 import org.elasticsearch.index.fielddata.NumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
@@ -48,7 +50,7 @@ import java.util.function.Function;
 
 import static org.elasticsearch.search.aggregations.metrics.MinAggregator.getPointReaderOrNull;
 
-class MaxAggregator extends NumericMetricsAggregator.SingleValue {
+class MaxAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatedMetricsAggregator {
 
     final ValuesSource.Numeric valuesSource;
     final DocValueFormat formatter;
@@ -113,6 +115,9 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues allValues = valuesSource.doubleValues(ctx);
         final NumericDoubleValues values = MultiValueMode.MAX.select(allValues);
+        // reads the selected value of each document of a block
+        final SortedNumericDoubleValues selectedValues = FieldData.singleton(values);
+        final DoubleValuesBlock block = new DoubleValuesBlock();
         return new LeafBucketCollectorBase(sub, allValues) {
 
             @Override
@@ -130,9 +135,41 @@ class MaxAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                if (bucket >= maxes.size()) {
+                    long from = maxes.size();
+                    maxes = bigArrays.grow(maxes, bucket + 1);
+                    maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
+                }
+                selectedValues.readValues(docs, count, block);
+                final double[] blockValues = block.values();
+                final int size = block.size();
+                double max = maxes.get(bucket);
+                for (int i = 0; i < size; i++) {
+                    max = Math.max(max, blockValues[i]);
+                }
+                maxes.set(bucket, max);
+            }
+
         };
     }
 
+    @Override
+    public String preAggregatedField() {
+        return PreAggregatedMetricsAggregator.fieldOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        if (bucket >= maxes.size()) {
+            long from = maxes.size();
+            maxes = context.bigArrays().grow(maxes, bucket + 1);
+            maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
+        }
+        maxes.set(bucket, Math.max(maxes.get(bucket), max));
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         if (valuesSource == null || owningBucketOrd >= maxes.size()) {
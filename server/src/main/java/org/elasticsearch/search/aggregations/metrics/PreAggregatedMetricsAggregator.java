@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+/**
+ * A metrics aggregator that can collect the number, sum, min and max of the values of a field over a set of documents, that
+ * were computed ahead of time by {@link org.elasticsearch.index.codec.PreAggregatingDocValuesFormat}, instead of collecting
+ * these documents one by one.
+ */
+public interface PreAggregatedMetricsAggregator {
+
+    /**
+     * Returns the field whose values this aggregator collects, or {@code null} if it can't collect pre-aggregated values,
+     * for instance because it has a script or a missing value.
+     */
+    @Nullable
+    String preAggregatedField();
+
+    /**
+     * Collects {@code valueCount} values, whose sum, min and max are given, into {@code bucket}.
+     */
+    void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max);
+
+    /**
+     * Adds the pre-aggregated {@code sum} to the sum of {@code bucket} with the Kahan summation algorithm, like metrics aggregators
+     * do with the values of the documents they collect.
+     */
+    static void addCompensated(DoubleArray sums, DoubleArray compensations, long bucket, double sum) {
+        double total = sums.get(bucket);
+        if (Double.isFinite(sum) == false) {
+            total += sum;
+        } else if (Double.isFinite(total)) {
+            double compensation = compensations.get(bucket);
+            double corrected = sum - compensation;
+            double newSum = total + corrected;
+            compensations.set(bucket, (newSum - total) - corrected);
+            total = newSum;
+        }
+        sums.set(bucket, total);
+    }
+
+    /**
+     * Returns the field of a values source that reads the values of a field as-is, or {@code null} otherwise.
+     */
+    static String fieldOrNull(@Nullable ValuesSource valuesSource) {
+        if (valuesSource != null && valuesSource.getClass() == ValuesSource.Numeric.FieldData.class) {
+            return ((ValuesSource.Numeric.FieldData) valuesSource).getFieldName();
+        }
+        return null;
+    }
+}
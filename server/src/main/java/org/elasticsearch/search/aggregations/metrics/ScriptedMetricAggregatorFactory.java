@@ -150,4 +150,10 @@ class ScriptedMetricAggregatorFactory extends AggregatorFactory {
 
         return combined;
     }
+
+    @Override
+    public boolean supportsConcurrentSlices() {
+        // the map and combine scripts run once per shard on a single state
+        return false;
+    }
 }
@@ -23,6 +23,7 @@ import org.apache.lucene.search.ScoreMode;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.DoubleValuesBlock;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -37,7 +38,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
-class SumAggregator extends NumericMetricsAggregator.SingleValue {
+class SumAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatedMetricsAggregator {
 
     private final ValuesSource.Numeric valuesSource;
     private final DocValueFormat format;
@@ -69,6 +70,7 @@ class SumAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final DoubleValuesBlock block = new DoubleValuesBlock();
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -96,9 +98,46 @@ class SumAggregator extends NumericMetricsAggregator.SingleValue {
                     sums.set(bucket, sum);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                sums = bigArrays.grow(sums, bucket + 1);
+                compensations = bigArrays.grow(compensations, bucket + 1);
+
+                values.readValues(docs, count, block);
+                final double[] blockValues = block.values();
+                final int size = block.size();
+                double sum = sums.get(bucket);
+                double compensation = compensations.get(bucket);
+                for (int i = 0; i < size; i++) {
+                    final double value = blockValues[i];
+                    if (Double.isFinite(value) == false) {
+                        sum += value;
+                    } else if (Double.isFinite(sum)) {
+                        double corrected = value - compensation;
+                        double newSum = sum + corrected;
+                        compensation = (newSum - sum) - corrected;
+                        sum = newSum;
+                    }
+                }
+                compensations.set(bucket, compensation);
+                sums.set(bucket, sum);
+            }
         };
     }
 
+    @Override
+    public String preAggregatedField() {
+        return PreAggregatedMetricsAggregator.fieldOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        sums = context.bigArrays().grow(sums, bucket + 1);
+        compensations = context.bigArrays().grow(compensations, bucket + 1);
+        PreAggregatedMetricsAggregator.addCompensated(sums, compensations, bucket, sum);
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         if (valuesSource == null || owningBucketOrd >= sums.size()) {
@@ -41,7 +41,7 @@ import java.util.Map;
  * This aggregator works in a multi-bucket mode, that is, when serves as a sub-aggregator, a single aggregator instance aggregates the
  * counts for all buckets owned by the parent aggregator)
  */
-class ValueCountAggregator extends NumericMetricsAggregator.SingleValue {
+class ValueCountAggregator extends NumericMetricsAggregator.SingleValue implements PreAggregatedMetricsAggregator {
 
     final ValuesSource valuesSource;
 
@@ -80,6 +80,17 @@ class ValueCountAggregator extends NumericMetricsAggregator.SingleValue {
         };
     }
 
+    @Override
+    public String preAggregatedField() {
+        return PreAggregatedMetricsAggregator.fieldOrNull(valuesSource);
+    }
+
+    @Override
+    public void collectPreAggregated(long bucket, long valueCount, double sum, double min, double max) {
+        counts = context.bigArrays().grow(counts, bucket + 1);
+        counts.increment(bucket, valueCount);
+    }
+
     @Override
     public double metric(long owningBucketOrd) {
         return (valuesSource == null || owningBucketOrd >= counts.size()) ? 0 : counts.get(owningBucketOrd);
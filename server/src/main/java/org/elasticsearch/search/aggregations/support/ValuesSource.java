@@ -124,6 +124,14 @@ public abstract class ValuesSource {
             public abstract LongUnaryOperator globalOrdinalsMapping(LeafReaderContext context)
                     throws IOException;
 
+            /**
+             * Whether global ordinals for the given reader are available without building them, because
+             * they are cached or because the reader has a single segment.
+             */
+            public boolean hasGlobalOrdinals(IndexReader indexReader) {
+                return true;
+            }
+
             public long globalMaxOrd(IndexSearcher indexSearcher) throws IOException {
                 IndexReader indexReader = indexSearcher.getIndexReader();
                 if (indexReader.leaves().isEmpty()) {
@@ -167,15 +175,20 @@ public abstract class ValuesSource {
                     return indexFieldData.supportsGlobalOrdinalsMapping();
                 }
 
+                @Override
+                public boolean hasGlobalOrdinals(IndexReader indexReader) {
+                    return indexReader instanceof DirectoryReader == false
+                        || indexFieldData.hasGlobalOrdinals((DirectoryReader) indexReader);
+                }
+
                 @Override
                 public LongUnaryOperator globalOrdinalsMapping(LeafReaderContext context) throws IOException {
                     final IndexOrdinalsFieldData global = indexFieldData.loadGlobal((DirectoryReader)context.parent.reader());
-                    final OrdinalMap map = global.getOrdinalMap();
-                    if (map == null) {
+                    final org.apache.lucene.util.LongValues segmentToGlobalOrd = global.getGlobalOrds(context.ord);
+                    if (segmentToGlobalOrd == null) {
                         // segments and global ordinals are the same
                         return LongUnaryOperator.identity();
                     }
-                    final org.apache.lucene.util.LongValues segmentToGlobalOrd = map.getGlobalOrds(context.ord);
                     return segmentToGlobalOrd::get;
                 }
             }
@@ -367,6 +380,13 @@ public abstract class ValuesSource {
                 this.indexFieldData = indexFieldData;
             }
 
+            /**
+             * Returns the name of the field whose values this values source returns.
+             */
+            public String getFieldName() {
+                return indexFieldData.getFieldName();
+            }
+
             @Override
             public boolean isFloatingPoint() {
                 return indexFieldData.getNumericType().isFloatingPoint();
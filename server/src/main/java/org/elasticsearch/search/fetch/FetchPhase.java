@@ -21,8 +21,12 @@ package org.elasticsearch.search.fetch;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.codecs.StoredFieldsReader;
+import org.apache.lucene.index.CodecReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
@@ -34,6 +38,7 @@ import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.lucene.index.ElasticsearchLeafReader;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -56,9 +61,11 @@ import org.elasticsearch.search.fetch.subphase.InnerHitsContext;
 import org.elasticsearch.search.fetch.subphase.InnerHitsFetchSubPhase;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.lookup.SourceLookup;
+import org.elasticsearch.search.profile.fetch.FetchProfileShardResult;
 import org.elasticsearch.tasks.TaskCancelledException;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -141,25 +148,47 @@ public class FetchPhase implements SearchPhase {
         }
 
         try {
-            SearchHit[] hits = new SearchHit[context.docIdsToLoadSize()];
+            final long startTime = context.getProfilers() != null ? System.nanoTime() : 0L;
+            final int numHits = context.docIdsToLoadSize();
+            // visit the hits in doc id order, which is also segment order, so that stored fields are read sequentially
+            final long[] sortedDocs = new long[numHits];
+            for (int index = 0; index < numHits; index++) {
+                final int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
+                sortedDocs[index] = ((long) docId << 32) | index;
+            }
+            Arrays.sort(sortedDocs);
+
+            SearchHit[] hits = new SearchHit[numHits];
             FetchSubPhase.HitContext hitContext = new FetchSubPhase.HitContext();
-            for (int index = 0; index < context.docIdsToLoadSize(); index++) {
+            StoredFieldsLoader storedFieldsLoader = new StoredFieldsLoader();
+            List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+            LeafReaderContext subReaderContext = null;
+            int endDoc = -1;
+            for (int i = 0; i < numHits; i++) {
                 if (context.isCancelled()) {
                     throw new TaskCancelledException("cancelled");
                 }
-                int docId = context.docIdsToLoad()[context.docIdsToLoadFrom() + index];
-                int readerIndex = ReaderUtil.subIndex(docId, context.searcher().getIndexReader().leaves());
-                LeafReaderContext subReaderContext = context.searcher().getIndexReader().leaves().get(readerIndex);
+                final int docId = (int) (sortedDocs[i] >>> 32);
+                final int index = (int) sortedDocs[i];
+                if (docId >= endDoc) {
+                    subReaderContext = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                    endDoc = subReaderContext.docBase + subReaderContext.reader().maxDoc();
+                    int leafHits = 1;
+                    while (i + leafHits < numHits && (int) (sortedDocs[i + leafHits] >>> 32) < endDoc) {
+                        leafHits++;
+                    }
+                    storedFieldsLoader.setNextReader(subReaderContext, leafHits);
+                }
                 int subDocId = docId - subReaderContext.docBase;
 
                 final SearchHit searchHit;
                 int rootDocId = findRootDocumentIfNested(context, subReaderContext, subDocId);
                 if (rootDocId != -1) {
                     searchHit = createNestedSearchHit(context, docId, subDocId, rootDocId,
-                        storedToRequestedFields, subReaderContext);
+                        storedToRequestedFields, subReaderContext, storedFieldsLoader);
                 } else {
                     searchHit = createSearchHit(context, fieldsVisitor, docId, subDocId,
-                        storedToRequestedFields, subReaderContext);
+                        storedToRequestedFields, subReaderContext, storedFieldsLoader);
                 }
 
                 hits[index] = searchHit;
@@ -181,6 +210,10 @@ public class FetchPhase implements SearchPhase {
 
             TotalHits totalHits = context.queryResult().getTotalHits();
             context.fetchResult().hits(new SearchHits(hits, totalHits, context.queryResult().getMaxScore()));
+            if (context.getProfilers() != null) {
+                context.fetchResult().profileResult(new FetchProfileShardResult(System.nanoTime() - startTime, numHits,
+                    storedFieldsLoader.segments, storedFieldsLoader.loads, storedFieldsLoader.sequentialLoads));
+            }
         } catch (IOException e) {
             throw ExceptionsHelper.convertToElastic(e);
         }
@@ -203,7 +236,8 @@ public class FetchPhase implements SearchPhase {
                                       int docId,
                                       int subDocId,
                                       Map<String, Set<String>> storedToRequestedFields,
-                                      LeafReaderContext subReaderContext) {
+                                      LeafReaderContext subReaderContext,
+                                      StoredFieldsLoader storedFieldsLoader) {
         DocumentMapper documentMapper = context.mapperService().documentMapper();
         Text typeText = documentMapper.typeText();
         if (fieldsVisitor == null) {
@@ -211,7 +245,7 @@ public class FetchPhase implements SearchPhase {
         }
 
         Map<String, DocumentField> searchFields = getSearchFields(context, fieldsVisitor, subDocId,
-            storedToRequestedFields, subReaderContext);
+            storedToRequestedFields, storedFieldsLoader);
 
         SearchHit searchHit = new SearchHit(docId, fieldsVisitor.uid().id(), typeText, searchFields);
         // Set _source if requested.
@@ -227,8 +261,8 @@ public class FetchPhase implements SearchPhase {
                                                        FieldsVisitor fieldsVisitor,
                                                        int subDocId,
                                                        Map<String, Set<String>> storedToRequestedFields,
-                                                       LeafReaderContext subReaderContext) {
-        loadStoredFields(context, subReaderContext, fieldsVisitor, subDocId);
+                                                       StoredFieldsLoader storedFieldsLoader) {
+        loadStoredFields(context, storedFieldsLoader, fieldsVisitor, subDocId);
         fieldsVisitor.postProcess(context.mapperService());
 
         if (fieldsVisitor.fields().isEmpty()) {
@@ -256,7 +290,8 @@ public class FetchPhase implements SearchPhase {
                                             int nestedSubDocId,
                                             int rootSubDocId,
                                             Map<String, Set<String>> storedToRequestedFields,
-                                            LeafReaderContext subReaderContext) throws IOException {
+                                            LeafReaderContext subReaderContext,
+                                            StoredFieldsLoader storedFieldsLoader) throws IOException {
         // Also if highlighting is requested on nested documents we need to fetch the _source from the root document,
         // otherwise highlighting will attempt to fetch the _source from the nested doc, which will fail,
         // because the entire _source is only stored with the root document.
@@ -265,7 +300,7 @@ public class FetchPhase implements SearchPhase {
         final boolean needSource = context.sourceRequested() || context.highlight() != null;
         if (needSource || (context instanceof InnerHitsContext.InnerHitSubContext == false)) {
             FieldsVisitor rootFieldsVisitor = new FieldsVisitor(needSource);
-            loadStoredFields(context, subReaderContext, rootFieldsVisitor, rootSubDocId);
+            loadStoredFields(context, storedFieldsLoader, rootFieldsVisitor, rootSubDocId);
             rootFieldsVisitor.postProcess(context.mapperService());
             uid = rootFieldsVisitor.uid();
             source = rootFieldsVisitor.source();
@@ -279,7 +314,7 @@ public class FetchPhase implements SearchPhase {
         if (context.hasStoredFields() && !context.storedFieldsContext().fieldNames().isEmpty()) {
             FieldsVisitor nestedFieldsVisitor = new CustomFieldsVisitor(storedToRequestedFields.keySet(), false);
             searchFields = getSearchFields(context, nestedFieldsVisitor, nestedSubDocId,
-                storedToRequestedFields, subReaderContext);
+                storedToRequestedFields, storedFieldsLoader);
         }
 
         DocumentMapper documentMapper = context.mapperService().documentMapper();
@@ -405,12 +440,58 @@ public class FetchPhase implements SearchPhase {
         return nestedIdentity;
     }
 
-    private void loadStoredFields(SearchContext searchContext, LeafReaderContext readerContext, FieldsVisitor fieldVisitor, int docId) {
+    private void loadStoredFields(SearchContext searchContext, StoredFieldsLoader storedFieldsLoader, FieldsVisitor fieldVisitor,
+                                  int docId) {
         fieldVisitor.reset();
         try {
-            readerContext.reader().document(docId, fieldVisitor);
+            storedFieldsLoader.load(docId, fieldVisitor);
         } catch (IOException e) {
             throw new FetchPhaseExecutionException(searchContext, "Failed to fetch doc id [" + docId + "]", e);
         }
     }
+
+    /**
+     * Loads the stored fields of the hits segment by segment. Hits are visited in doc id order, so the stored fields of a
+     * segment that holds several hits are read through a {@link StoredFieldsReader} that is dedicated to the request: when
+     * consecutive hits live in the same compressed block this reader reuses the block it read last instead of looking it up
+     * in the stored fields index and reading its header again, and other stored fields reads on the same thread, such as the
+     * ones of inner hits, can't make it lose its position.
+     */
+    private static final class StoredFieldsLoader {
+        private LeafReader reader;
+        private StoredFieldsReader sequentialReader;
+        private int segments;
+        private long loads;
+        private long sequentialLoads;
+
+        void setNextReader(LeafReaderContext context, int numHits) {
+            segments++;
+            reader = context.reader();
+            sequentialReader = numHits > 1 ? sequentialStoredFieldsReader(reader) : null;
+        }
+
+        void load(int docId, StoredFieldVisitor visitor) throws IOException {
+            loads++;
+            if (sequentialReader != null) {
+                sequentialLoads++;
+                sequentialReader.visitDocument(docId, visitor);
+            } else {
+                reader.document(docId, visitor);
+            }
+        }
+
+        /**
+         * Returns a private copy of the stored fields reader of the segment, or <code>null</code> if the reader is wrapped
+         * by something else than an {@link ElasticsearchLeafReader}, for instance a reader that hides some of the fields.
+         */
+        private static StoredFieldsReader sequentialStoredFieldsReader(LeafReader reader) {
+            if (reader instanceof ElasticsearchLeafReader) {
+                reader = ((ElasticsearchLeafReader) reader).getDelegate();
+            }
+            if (reader instanceof CodecReader) {
+                return ((CodecReader) reader).getFieldsReader().clone();
+            }
+            return null;
+        }
+    }
 }
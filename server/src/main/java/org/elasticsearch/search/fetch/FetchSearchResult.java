@@ -19,12 +19,15 @@
 
 package org.elasticsearch.search.fetch;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.profile.fetch.FetchProfileShardResult;
 import org.elasticsearch.search.query.QuerySearchResult;
 
 import java.io.IOException;
@@ -32,6 +35,7 @@ import java.io.IOException;
 public final class FetchSearchResult extends SearchPhaseResult {
 
     private SearchHits hits;
+    private FetchProfileShardResult profileResult;
     // client side counter
     private transient int counter;
 
@@ -42,6 +46,9 @@ public final class FetchSearchResult extends SearchPhaseResult {
         super(in);
         requestId = in.readLong();
         hits = new SearchHits(in);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            profileResult = in.readOptionalWriteable(FetchProfileShardResult::new);
+        }
     }
 
     public FetchSearchResult(long id, SearchShardTarget shardTarget) {
@@ -75,6 +82,18 @@ public final class FetchSearchResult extends SearchPhaseResult {
         return hits;
     }
 
+    public void profileResult(FetchProfileShardResult profileResult) {
+        this.profileResult = profileResult;
+    }
+
+    /**
+     * Returns the profile of the fetch phase if the request was profiled, <code>null</code> otherwise.
+     */
+    @Nullable
+    public FetchProfileShardResult profileResult() {
+        return profileResult;
+    }
+
     public FetchSearchResult initCounter() {
         counter = 0;
         return this;
@@ -89,5 +108,8 @@ public final class FetchSearchResult extends SearchPhaseResult {
         super.writeTo(out);
         out.writeLong(requestId);
         hits.writeTo(out);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeOptionalWriteable(profileResult);
+        }
     }
 }
@@ -132,8 +132,12 @@ public class ContextIndexSearcher extends IndexSearcher {
         }
     }
 
+    /**
+     * Searches the given leaves, which may be a subset of the leaves of this searcher, with a weight that was created by this searcher.
+     * Public so that slices of the leaves can be searched concurrently by the query phase.
+     */
     @Override
-    protected void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+    public void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
         final Weight cancellableWeight;
         if (checkCancelled != null) {
             cancellableWeight = new Weight(weight.getQuery()) {
@@ -29,6 +29,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.index.shard.ShardId;
@@ -72,6 +73,8 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
     //these are the only two mutable fields, as they are subject to rewriting
     private AliasFilter aliasFilter;
     private SearchSourceBuilder source;
+    // set by the coordinating node right before the request is sent
+    private Object[] bottomSortValues;
 
     public ShardSearchLocalRequest(SearchRequest searchRequest, ShardId shardId, int numberOfShards, AliasFilter aliasFilter,
                                    float indexBoost, long nowInMillis, @Nullable String clusterAlias, String[] indexRoutings) {
@@ -128,6 +131,20 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
         allowPartialSearchResults = in.readBoolean();
         indexRoutings = in.readStringArray();
         preference = in.readOptionalString();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            bottomSortValues = readBottomSortValues(in);
+        }
+    }
+
+    private static Object[] readBottomSortValues(StreamInput in) throws IOException {
+        if (in.readBoolean() == false) {
+            return null;
+        }
+        final Object[] values = new Object[in.readVInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Lucene.readSortValue(in);
+        }
+        return values;
     }
 
     protected final void innerWriteTo(StreamOutput out, boolean asKey) throws IOException {
@@ -154,6 +171,18 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
             out.writeStringArray(indexRoutings);
             out.writeOptionalString(preference);
         }
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            // part of the cache key since the shard might skip its search based on these values
+            if (bottomSortValues == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                out.writeVInt(bottomSortValues.length);
+                for (Object value : bottomSortValues) {
+                    Lucene.writeSortValue(out, value);
+                }
+            }
+        }
     }
 
     @Override
@@ -235,6 +264,18 @@ public class ShardSearchLocalRequest implements ShardSearchRequest {
         return new BytesArray(out.bytes().toBytesRef(), true);// do a deep copy
     }
 
+    @Override
+    public Object[] getBottomSortValues() {
+        return bottomSortValues;
+    }
+
+    /**
+     * Sets the sort values of the least competitive document of the top hits collected so far, see {@link #getBottomSortValues()}.
+     */
+    public void setBottomSortValues(@Nullable Object[] bottomSortValues) {
+        this.bottomSortValues = bottomSortValues;
+    }
+
     @Override
     public String getClusterAlias() {
         return clusterAlias;
@@ -138,6 +138,14 @@ public interface ShardSearchRequest {
         }
     }
 
+    /**
+     * Returns the sort values of the least competitive document of the top hits that the coordinating node collected from other
+     * shards so far, or <code>null</code> if unknown. The search on this shard can be skipped if none of its documents sort before or
+     * on par with these values.
+     */
+    @Nullable
+    Object[] getBottomSortValues();
+
     /**
      * Returns the cluster alias in case the request is part of a cross-cluster search request, <code>null</code> otherwise.
      */
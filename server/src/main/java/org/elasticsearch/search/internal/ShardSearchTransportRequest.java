@@ -179,6 +179,15 @@ public class ShardSearchTransportRequest extends TransportRequest implements Sha
         return "shardId[" + shardSearchLocalRequest.shardId() + "]";
     }
 
+    @Override
+    public Object[] getBottomSortValues() {
+        return shardSearchLocalRequest.getBottomSortValues();
+    }
+
+    public void setBottomSortValues(@Nullable Object[] bottomSortValues) {
+        shardSearchLocalRequest.setBottomSortValues(bottomSortValues);
+    }
+
     @Override
     public String getClusterAlias() {
         return shardSearchLocalRequest.getClusterAlias();
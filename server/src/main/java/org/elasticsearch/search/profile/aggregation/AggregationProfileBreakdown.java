@@ -20,11 +20,52 @@
 package org.elasticsearch.search.profile.aggregation;
 
 import org.elasticsearch.search.profile.AbstractProfileBreakdown;
+import org.elasticsearch.search.profile.Timer;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The timings of the aggregators of the same path. When the query phase searches slices of segments concurrently, each
+ * slice has its own aggregators that share the breakdown of their path, so the threads that don't own the breakdown time
+ * with their own timers, and the timings of all threads are summed.
+ */
 public class AggregationProfileBreakdown extends AbstractProfileBreakdown<AggregationTimingType> {
 
+    private final Thread owner;
+    private final Map<Thread, ThreadBreakdown> threadBreakdowns = new ConcurrentHashMap<>();
+
     public AggregationProfileBreakdown() {
         super(AggregationTimingType.class);
+        this.owner = Thread.currentThread();
+    }
+
+    @Override
+    public Timer getTimer(AggregationTimingType timing) {
+        final Thread thread = Thread.currentThread();
+        if (thread == owner) {
+            return super.getTimer(timing);
+        }
+        return threadBreakdowns.computeIfAbsent(thread, t -> new ThreadBreakdown()).getTimer(timing);
+    }
+
+    @Override
+    public Map<String, Long> toTimingMap() {
+        if (threadBreakdowns.isEmpty()) {
+            return super.toTimingMap();
+        }
+        Map<String, Long> map = new HashMap<>(super.toTimingMap());
+        for (ThreadBreakdown threadBreakdown : threadBreakdowns.values()) {
+            threadBreakdown.toTimingMap().forEach((key, value) -> map.merge(key, value, Long::sum));
+        }
+        return Collections.unmodifiableMap(map);
     }
 
+    private static class ThreadBreakdown extends AbstractProfileBreakdown<AggregationTimingType> {
+        ThreadBreakdown() {
+            super(AggregationTimingType.class);
+        }
+    }
 }
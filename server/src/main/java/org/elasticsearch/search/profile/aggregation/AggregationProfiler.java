@@ -27,6 +27,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Profiles the aggregators by path. The aggregators of the slices of segments that the query phase searches concurrently
+ * share the breakdowns of their paths, and may look them up from several threads.
+ */
 public class AggregationProfiler extends AbstractProfiler<AggregationProfileBreakdown, Aggregator> {
 
     private final Map<List<String>, AggregationProfileBreakdown> profileBrakdownLookup = new HashMap<>();
@@ -36,7 +40,7 @@ public class AggregationProfiler extends AbstractProfiler<AggregationProfileBrea
     }
 
     @Override
-    public AggregationProfileBreakdown getQueryBreakdown(Aggregator agg) {
+    public synchronized AggregationProfileBreakdown getQueryBreakdown(Aggregator agg) {
         List<String> path = getAggregatorPath(agg);
         AggregationProfileBreakdown aggregationProfileBreakdown = profileBrakdownLookup.get(path);
         if (aggregationProfileBreakdown == null) {
@@ -46,6 +50,11 @@ public class AggregationProfiler extends AbstractProfiler<AggregationProfileBrea
         return aggregationProfileBreakdown;
     }
 
+    @Override
+    public synchronized void pollLastElement() {
+        super.pollLastElement();
+    }
+
     public static List<String> getAggregatorPath(Aggregator agg) {
         LinkedList<String> path = new LinkedList<>();
         while (agg != null) {
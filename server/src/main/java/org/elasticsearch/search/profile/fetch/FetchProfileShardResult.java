@@ -0,0 +1,188 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.profile.fetch;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContentFragment;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
+
+/**
+ * The profile of the fetch phase on a single shard. Hits are fetched in doc id order, segment by segment, and the stored fields
+ * of segments that hold several hits are read through a dedicated reader that keeps the current compressed block around.
+ */
+public final class FetchProfileShardResult implements Writeable, ToXContentFragment {
+
+    public static final String FETCH = "fetch";
+    static final ParseField TIME = new ParseField("time");
+    static final ParseField TIME_RAW = new ParseField("time_in_nanos");
+    static final ParseField HITS = new ParseField("hits");
+    static final ParseField SEGMENTS = new ParseField("segments");
+    static final ParseField STORED_FIELDS_LOADS = new ParseField("stored_fields_loads");
+    static final ParseField SEQUENTIAL_STORED_FIELDS_LOADS = new ParseField("sequential_stored_fields_loads");
+
+    private final long time;
+    private final int hits;
+    private final int segments;
+    private final long storedFieldsLoads;
+    private final long sequentialStoredFieldsLoads;
+
+    public FetchProfileShardResult(long time, int hits, int segments, long storedFieldsLoads, long sequentialStoredFieldsLoads) {
+        this.time = time;
+        this.hits = hits;
+        this.segments = segments;
+        this.storedFieldsLoads = storedFieldsLoads;
+        this.sequentialStoredFieldsLoads = sequentialStoredFieldsLoads;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public FetchProfileShardResult(StreamInput in) throws IOException {
+        time = in.readVLong();
+        hits = in.readVInt();
+        segments = in.readVInt();
+        storedFieldsLoads = in.readVLong();
+        sequentialStoredFieldsLoads = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(time);
+        out.writeVInt(hits);
+        out.writeVInt(segments);
+        out.writeVLong(storedFieldsLoads);
+        out.writeVLong(sequentialStoredFieldsLoads);
+    }
+
+    /**
+     * Returns the time spent in the fetch phase, in nanoseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the number of hits that were fetched.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of segments the fetched hits belong to.
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * Returns the number of documents whose stored fields were loaded, including the root documents of nested hits.
+     */
+    public long getStoredFieldsLoads() {
+        return storedFieldsLoads;
+    }
+
+    /**
+     * Returns how many of the stored fields loads went through a reader dedicated to the request, which only
+     * decompresses a block again when the next document isn't in the block that was read last.
+     */
+    public long getSequentialStoredFieldsLoads() {
+        return sequentialStoredFieldsLoads;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(FETCH);
+        if (builder.humanReadable()) {
+            builder.field(TIME.getPreferredName(), new TimeValue(time, TimeUnit.NANOSECONDS).toString());
+        }
+        builder.field(TIME_RAW.getPreferredName(), time);
+        builder.field(HITS.getPreferredName(), hits);
+        builder.field(SEGMENTS.getPreferredName(), segments);
+        builder.field(STORED_FIELDS_LOADS.getPreferredName(), storedFieldsLoads);
+        builder.field(SEQUENTIAL_STORED_FIELDS_LOADS.getPreferredName(), sequentialStoredFieldsLoads);
+        return builder.endObject();
+    }
+
+    public static FetchProfileShardResult fromXContent(XContentParser parser) throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        ensureExpectedToken(XContentParser.Token.START_OBJECT, token, parser::getTokenLocation);
+        String currentFieldName = null;
+        long time = 0;
+        int hits = 0;
+        int segments = 0;
+        long storedFieldsLoads = 0;
+        long sequentialStoredFieldsLoads = 0;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if (TIME_RAW.match(currentFieldName, parser.getDeprecationHandler())) {
+                    time = parser.longValue();
+                } else if (HITS.match(currentFieldName, parser.getDeprecationHandler())) {
+                    hits = parser.intValue();
+                } else if (SEGMENTS.match(currentFieldName, parser.getDeprecationHandler())) {
+                    segments = parser.intValue();
+                } else if (STORED_FIELDS_LOADS.match(currentFieldName, parser.getDeprecationHandler())) {
+                    storedFieldsLoads = parser.longValue();
+                } else if (SEQUENTIAL_STORED_FIELDS_LOADS.match(currentFieldName, parser.getDeprecationHandler())) {
+                    sequentialStoredFieldsLoads = parser.longValue();
+                } else {
+                    parser.skipChildren();
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new FetchProfileShardResult(time, hits, segments, storedFieldsLoads, sequentialStoredFieldsLoads);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FetchProfileShardResult that = (FetchProfileShardResult) o;
+        return time == that.time
+            && hits == that.hits
+            && segments == that.segments
+            && storedFieldsLoads == that.storedFieldsLoads
+            && sequentialStoredFieldsLoads == that.sequentialStoredFieldsLoads;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(time, hits, segments, storedFieldsLoads, sequentialStoredFieldsLoads);
+    }
+}
@@ -21,7 +21,12 @@ package org.elasticsearch.search.profile.query;
 
 import org.apache.lucene.search.Query;
 import org.elasticsearch.search.profile.AbstractProfiler;
+import org.elasticsearch.search.profile.ProfileResult;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -42,10 +47,23 @@ public final class QueryProfiler extends AbstractProfiler<QueryProfileBreakdown,
      */
     private InternalProfileCollector collector;
 
+    /**
+     * The profilers of the other slices of segments that the query is executed on concurrently
+     */
+    private final List<QueryProfiler> sliceProfilers = new ArrayList<>();
+
     public QueryProfiler() {
         super(new InternalQueryProfileTree());
     }
 
+    /**
+     * Adds the profiler of another slice of segments that the query is executed on concurrently, with its own weights and
+     * collector. Its timings are summed with the timings of this profiler, which profiles the first slice.
+     */
+    public void addSliceProfiler(QueryProfiler sliceProfiler) {
+        sliceProfilers.add(Objects.requireNonNull(sliceProfiler));
+    }
+
     /** Set the collector that is associated with this profiler. */
     public void setCollector(InternalProfileCollector collector) {
         if (this.collector != null) {
@@ -76,15 +94,73 @@ public final class QueryProfiler extends AbstractProfiler<QueryProfileBreakdown,
      * @return total time taken to rewrite all queries in this profile
      */
     public long getRewriteTime() {
-        return ((InternalQueryProfileTree) profileTree).getRewriteTime();
+        long rewriteTime = ((InternalQueryProfileTree) profileTree).getRewriteTime();
+        for (QueryProfiler sliceProfiler : sliceProfilers) {
+            rewriteTime += sliceProfiler.getRewriteTime();
+        }
+        return rewriteTime;
+    }
+
+    @Override
+    public List<ProfileResult> getTree() {
+        List<ProfileResult> tree = super.getTree();
+        for (QueryProfiler sliceProfiler : sliceProfilers) {
+            tree = mergeTrees(tree, sliceProfiler.getTree());
+        }
+        return tree;
     }
 
     /**
      * Return the current root Collector for this search
      */
     public CollectorResult getCollector() {
-        return collector.getCollectorTree();
+        CollectorResult result = collector.getCollectorTree();
+        for (QueryProfiler sliceProfiler : sliceProfilers) {
+            result = mergeCollectors(result, sliceProfiler.getCollector());
+        }
+        return result;
+    }
+
+    /**
+     * Sums the timings of the nodes of the profiled trees of two slices. Nodes are matched on their position as long as they
+     * profile the same query, the nodes that don't match are both kept.
+     */
+    private static List<ProfileResult> mergeTrees(List<ProfileResult> tree, List<ProfileResult> other) {
+        final List<ProfileResult> merged = new ArrayList<>(Math.max(tree.size(), other.size()));
+        for (int i = 0; i < Math.max(tree.size(), other.size()); i++) {
+            if (i >= other.size()) {
+                merged.add(tree.get(i));
+            } else if (i >= tree.size()) {
+                merged.add(other.get(i));
+            } else {
+                final ProfileResult node = tree.get(i);
+                final ProfileResult otherNode = other.get(i);
+                if (node.getQueryName().equals(otherNode.getQueryName())
+                        && node.getLuceneDescription().equals(otherNode.getLuceneDescription())) {
+                    final Map<String, Long> timings = new HashMap<>(node.getTimeBreakdown());
+                    otherNode.getTimeBreakdown().forEach((key, value) -> timings.merge(key, value, Long::sum));
+                    merged.add(new ProfileResult(node.getQueryName(), node.getLuceneDescription(), timings,
+                        mergeTrees(node.getProfiledChildren(), otherNode.getProfiledChildren())));
+                } else {
+                    merged.add(node);
+                    merged.add(otherNode);
+                }
+            }
+        }
+        return merged;
     }
 
+    /**
+     * Sums the times of the collectors of two slices, which are created from the same collector contexts.
+     */
+    private static CollectorResult mergeCollectors(CollectorResult collector, CollectorResult other) {
+        assert collector.getName().equals(other.getName()) && collector.getReason().equals(other.getReason())
+            : "slices have different collectors [" + collector.getName() + "] and [" + other.getName() + "]";
+        final List<CollectorResult> children = new ArrayList<>(collector.getProfiledChildren().size());
+        for (int i = 0; i < collector.getProfiledChildren().size(); i++) {
+            children.add(mergeCollectors(collector.getProfiledChildren().get(i), other.getProfiledChildren().get(i)));
+        }
+        return new CollectorResult(collector.getName(), collector.getReason(), collector.getTime() + other.getTime(), children);
+    }
 
 }
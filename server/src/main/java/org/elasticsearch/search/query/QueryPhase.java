@@ -36,29 +36,45 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.FutureUtils;
 import org.elasticsearch.common.util.concurrent.QueueResizingEsThreadPoolExecutor;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.profile.SearchProfileShardResults;
 import org.elasticsearch.search.profile.query.InternalProfileCollector;
+import org.elasticsearch.search.profile.query.QueryProfiler;
 import org.elasticsearch.search.rescore.RescorePhase;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.MinAndMax;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.suggest.SuggestPhase;
 import org.elasticsearch.tasks.TaskCancelledException;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
 import java.util.function.Consumer;
 
 import static org.elasticsearch.search.query.QueryCollectorContext.createCancellableCollectorContext;
@@ -105,6 +121,17 @@ public class QueryPhase implements SearchPhase {
             LOGGER.trace("{}", new SearchContextSourcePrinter(searchContext));
         }
 
+        if (canSkipWithBottomSortValues(searchContext)) {
+            // none of the documents of this shard can make it into the top hits that the coordinating node collected so far
+            final SortAndFormats sort = searchContext.sort();
+            final QuerySearchResult queryResult = searchContext.queryResult();
+            queryResult.from(searchContext.from());
+            queryResult.size(searchContext.size());
+            queryResult.topDocs(new TopDocsAndMaxScore(new TopFieldDocs(new TotalHits(0, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO),
+                Lucene.EMPTY_SCORE_DOCS, sort.sort.getSort()), Float.NaN), sort.formats);
+            return;
+        }
+
         // Pre-process aggregations as late as possible. In the case of a DFS_Q_T_F
         // request, preProcess is called on the DFS phase phase, this is why we pre-process them
         // here to make sure it happens during the QUERY phase
@@ -193,9 +220,11 @@ public class QueryPhase implements SearchPhase {
                 // this collector can filter documents during the collection
                 hasFilterCollector = true;
             }
+            QueryCollectorContext queryCollectorsContext = null;
             if (searchContext.queryCollectors().isEmpty() == false) {
                 // plug in additional collectors, like aggregations
-                collectors.add(createMultiCollectorContext(searchContext.queryCollectors().values()));
+                queryCollectorsContext = createMultiCollectorContext(searchContext.queryCollectors().values());
+                collectors.add(queryCollectorsContext);
             }
             if (searchContext.minimumScore() != null) {
                 // apply the minimum score after multi collector so we filter aggs as well
@@ -252,6 +281,13 @@ public class QueryPhase implements SearchPhase {
             collectors.add(createCancellableCollectorContext(searchContext.getTask()::isCancelled));
 
             final boolean doProfile = searchContext.getProfilers() != null;
+            final List<List<LeafReaderContext>> slices = concurrentSlices(searchContext, searcher, hasFilterCollector);
+            if (slices.size() > 1) {
+                final boolean shouldRescore = searchSlices(searchContext, (ContextIndexSearcher) searcher, query, collectors,
+                    queryCollectorsContext, hasFilterCollector, slices, timeoutSet);
+                captureThreadPoolStats(searchContext);
+                return shouldRescore;
+            }
             // create the top docs collector last when the other collectors are known
             final TopDocsCollectorContext topDocsFactory = createTopDocsCollectorContext(searchContext, reader, hasFilterCollector);
             // add the top docs collector, the first collector context in the chain
@@ -272,12 +308,7 @@ public class QueryPhase implements SearchPhase {
                 queryResult.terminatedEarly(true);
             } catch (TimeExceededException e) {
                 assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
-
-                if (searchContext.request().allowPartialSearchResults() == false) {
-                    // Can't rethrow TimeExceededException because not serializable
-                    throw new QueryPhaseExecutionException(searchContext, "Time exceeded");
-                }
-                queryResult.searchTimedOut(true);
+                onTimeExceeded(searchContext);
             } finally {
                 searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
             }
@@ -290,12 +321,7 @@ public class QueryPhase implements SearchPhase {
             for (QueryCollectorContext ctx : collectors) {
                 ctx.postProcess(result);
             }
-            ExecutorService executor = searchContext.indexShard().getThreadPool().executor(ThreadPool.Names.SEARCH);
-            if (executor instanceof QueueResizingEsThreadPoolExecutor) {
-                QueueResizingEsThreadPoolExecutor rExecutor = (QueueResizingEsThreadPoolExecutor) executor;
-                queryResult.nodeQueueSize(rExecutor.getCurrentQueueSize());
-                queryResult.serviceTimeEWMA((long) rExecutor.getTaskExecutionEWMA());
-            }
+            captureThreadPoolStats(searchContext);
             if (searchContext.getProfilers() != null) {
                 ProfileShardResult shardResults = SearchProfileShardResults.buildShardResults(searchContext.getProfilers());
                 result.profileResults(shardResults);
@@ -306,6 +332,309 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns whether the search of the provided <code>searchContext</code> can be skipped because the coordinating node already knows
+     * top hits that sort before all documents of the shard. The coordinating node only sends bottom sort values for requests that
+     * don't need to visit all matching documents.
+     */
+    static boolean canSkipWithBottomSortValues(SearchContext searchContext) throws QueryPhaseExecutionException {
+        final ShardSearchRequest request = searchContext.request();
+        if (request == null || request.getBottomSortValues() == null || searchContext.sort() == null
+                || searchContext.scrollContext() != null
+                || searchContext.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED) {
+            return false;
+        }
+        final FieldSortBuilder sortBuilder = FieldSortBuilder.getPrimaryFieldSortOrNull(request.source());
+        if (sortBuilder == null) {
+            return false;
+        }
+        try {
+            final MinAndMax<?> minAndMax = FieldSortBuilder.getMinMaxOrNull(searchContext.getQueryShardContext(), sortBuilder);
+            return minAndMax != null && minAndMax.canCompete(request.getBottomSortValues()[0], sortBuilder.order()) == false;
+        } catch (IOException e) {
+            throw new QueryPhaseExecutionException(searchContext, "Failed to read the bounds of the primary sort field", e);
+        }
+    }
+
+    private static void onTimeExceeded(SearchContext searchContext) {
+        if (searchContext.request().allowPartialSearchResults() == false) {
+            // Can't rethrow TimeExceededException because not serializable
+            throw new QueryPhaseExecutionException(searchContext, "Time exceeded");
+        }
+        searchContext.queryResult().searchTimedOut(true);
+    }
+
+    private static void captureThreadPoolStats(SearchContext searchContext) {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        ExecutorService executor = searchContext.indexShard().getThreadPool().executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof QueueResizingEsThreadPoolExecutor) {
+            QueueResizingEsThreadPoolExecutor rExecutor = (QueueResizingEsThreadPoolExecutor) executor;
+            queryResult.nodeQueueSize(rExecutor.getCurrentQueueSize());
+            queryResult.serviceTimeEWMA((long) rExecutor.getTaskExecutionEWMA());
+        }
+    }
+
+    /**
+     * Returns the slices of segments that the query of the provided <code>searchContext</code> should be executed on concurrently, or a
+     * single slice if the query should be executed on the calling thread. Scrolls, field collapsing, terminate_after and the
+     * aggregations that don't {@link AggregatorFactories#supportsConcurrentSlices() support concurrent slices} require sequential
+     * collection.
+     */
+    static List<List<LeafReaderContext>> concurrentSlices(SearchContext searchContext, IndexSearcher searcher,
+                                                          boolean hasFilterCollector) throws IOException {
+        final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        if (leaves.size() <= 1
+                || searcher instanceof ContextIndexSearcher == false
+                || searchContext.indexShard() == null
+                || searchContext.scrollContext() != null
+                || searchContext.collapse() != null
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || supportsConcurrentQueryCollectors(searchContext) == false) {
+            return Collections.singletonList(leaves);
+        }
+        final int maxSlices = searchContext.indexShard().indexSettings().getMaxConcurrentSearchSlices();
+        if (maxSlices <= 1) {
+            return Collections.singletonList(leaves);
+        }
+        if (searchContext.size() == 0 && searchContext.queryCollectors().isEmpty()
+                && hasShortcutTotalHitCount(searchContext, searcher.getIndexReader(), hasFilterCollector)) {
+            // the hit count is computed from the index statistics, there is nothing to collect
+            return Collections.singletonList(leaves);
+        }
+        return sliceLeaves(leaves, maxSlices);
+    }
+
+    /**
+     * Returns whether each slice of a concurrent search can collect its documents with its own query collectors, which is the case
+     * if the only query collector is the one of aggregations that support concurrent slices.
+     */
+    private static boolean supportsConcurrentQueryCollectors(SearchContext searchContext) {
+        for (Class<?> queryCollector : searchContext.queryCollectors().keySet()) {
+            if (queryCollector != AggregationPhase.class || searchContext.aggregations().factories().supportsConcurrentSlices() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the top docs collector contexts compute the total hit count from the index statistics rather than by counting
+     * the collected documents.
+     */
+    private static boolean hasShortcutTotalHitCount(SearchContext searchContext, IndexReader reader,
+                                                    boolean hasFilterCollector) throws IOException {
+        return hasFilterCollector == false && searchContext.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED
+            && TopDocsCollectorContext.shortcutTotalHitCount(reader, searchContext.query()) != -1;
+    }
+
+    /**
+     * Splits the provided <code>leaves</code> into at most <code>maxSlices</code> slices of consecutive leaves that hold roughly
+     * the same number of documents. Slices are consecutive so that merging their top docs in slice order tie-breaks on the doc id
+     * like a sequential search does.
+     */
+    static List<List<LeafReaderContext>> sliceLeaves(List<LeafReaderContext> leaves, int maxSlices) {
+        long remainingDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            remainingDocs += leaf.reader().maxDoc();
+        }
+        final List<List<LeafReaderContext>> slices = new ArrayList<>();
+        List<LeafReaderContext> slice = new ArrayList<>();
+        long sliceDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            slice.add(leaf);
+            sliceDocs += leaf.reader().maxDoc();
+            final int remainingSlices = maxSlices - slices.size();
+            // close the slice once it holds its share of the documents that are not assigned to a previous slice
+            if (remainingSlices > 1 && sliceDocs * remainingSlices >= remainingDocs) {
+                slices.add(slice);
+                remainingDocs -= sliceDocs;
+                slice = new ArrayList<>();
+                sliceDocs = 0;
+            }
+        }
+        if (slice.isEmpty() == false) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
+    /**
+     * Executes the query on the provided <code>slices</code> concurrently, each slice with its own top docs collector, aggregators and
+     * profiler, and merges the top docs of the slices into the query result of the <code>searchContext</code>. The aggregations of
+     * the slices are reduced when they are built. The first slice is searched on the calling thread with the collectors of the
+     * <code>searchContext</code>, the others on the {@link ThreadPool.Names#SEARCH_WORKER} thread pool.
+     * @param queryCollectorsContext the context of the query collectors of the <code>searchContext</code> in <code>collectors</code>,
+     *                               that the other slices replace with their own aggregators, or null if there are none
+     * @return whether the rescoring phase should be executed
+     */
+    private static boolean searchSlices(SearchContext searchContext, ContextIndexSearcher searcher, Query query,
+                                        List<QueryCollectorContext> collectors, @Nullable QueryCollectorContext queryCollectorsContext,
+                                        boolean hasFilterCollector, List<List<LeafReaderContext>> slices,
+                                        boolean timeoutSet) throws IOException {
+        final IndexReader reader = searcher.getIndexReader();
+        final QueryProfiler profiler = searchContext.getProfilers() == null ? null : searchContext.getProfilers().getCurrentQueryProfiler();
+        final Query rewritten = searcher.rewrite(query);
+        final List<TopDocsCollectorContext> topDocsContexts = new ArrayList<>(slices.size());
+        final List<Collector> sliceCollectors = new ArrayList<>(slices.size());
+        final List<Weight> weights = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            final TopDocsCollectorContext topDocsContext = createTopDocsCollectorContext(searchContext, reader, hasFilterCollector);
+            topDocsContexts.add(topDocsContext);
+            // the other collectors in the chain are stateless, except for the aggregators that are created per slice
+            final LinkedList<QueryCollectorContext> sliceContexts = new LinkedList<>();
+            for (QueryCollectorContext ctx : collectors) {
+                if (i > 0 && ctx == queryCollectorsContext) {
+                    sliceContexts.add(createMultiCollectorContext(
+                        Collections.singletonList(AggregationPhase.createSliceCollector(searchContext))));
+                } else {
+                    sliceContexts.add(ctx);
+                }
+            }
+            sliceContexts.addFirst(topDocsContext);
+            if (profiler == null) {
+                sliceCollectors.add(QueryCollectorContext.createQueryCollector(sliceContexts));
+                // weights are thread-safe unless they are profiled
+                weights.add(i == 0 ? searcher.createWeight(rewritten, sliceCollectors.get(0).scoreMode(), 1f) : weights.get(0));
+            } else {
+                final QueryProfiler sliceProfiler = i == 0 ? profiler : new QueryProfiler();
+                // the profiled weights of the post filter and of the query of each slice time the slice only
+                searcher.setProfiler(sliceProfiler);
+                final InternalProfileCollector profileCollector = QueryCollectorContext.createQueryCollectorWithProfiler(sliceContexts);
+                sliceProfiler.setCollector(profileCollector);
+                sliceCollectors.add(profileCollector);
+                weights.add(searcher.createWeight(rewritten, profileCollector.scoreMode(), 1f));
+                if (i > 0) {
+                    profiler.addSliceProfiler(sliceProfiler);
+                }
+            }
+        }
+        if (profiler != null) {
+            searcher.setProfiler(profiler);
+        }
+
+        boolean timedOut = false;
+        RuntimeException failure = null;
+        try {
+            final List<FutureTask<Boolean>> tasks = new ArrayList<>(slices.size());
+            for (int i = 0; i < slices.size(); i++) {
+                final List<LeafReaderContext> leaves = slices.get(i);
+                final Weight weight = weights.get(i);
+                final Collector collector = sliceCollectors.get(i);
+                tasks.add(new FutureTask<>(() -> searchSlice(searcher, leaves, weight, collector)));
+            }
+            final ExecutorService executor = searchContext.indexShard().getThreadPool().executor(ThreadPool.Names.SEARCH_WORKER);
+            for (FutureTask<Boolean> task : tasks.subList(1, tasks.size())) {
+                try {
+                    executor.execute(task);
+                } catch (EsRejectedExecutionException e) {
+                    // the pool is unbounded and only rejects when shutting down
+                    task.run();
+                }
+            }
+            tasks.get(0).run();
+            // wait for all slices, even if one of them failed, since they all use the searcher of this context
+            for (FutureTask<Boolean> task : tasks) {
+                try {
+                    timedOut |= FutureUtils.get(task);
+                } catch (RuntimeException e) {
+                    failure = ExceptionsHelper.useOrSuppress(failure, e);
+                }
+            }
+        } finally {
+            searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (timedOut) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            onTimeExceeded(searchContext);
+        }
+
+        final TopDocsAndMaxScore[] sliceTopDocs = new TopDocsAndMaxScore[slices.size()];
+        for (int i = 0; i < sliceTopDocs.length; i++) {
+            sliceTopDocs[i] = topDocsContexts.get(i).newTopDocs();
+        }
+        final TopDocsCollectorContext topDocsContext = topDocsContexts.get(0);
+        // a total hit count that is computed from the index statistics is reported by every slice
+        final boolean countedOnce = hasShortcutTotalHitCount(searchContext, reader, hasFilterCollector);
+        final TopDocsAndMaxScore topDocs = mergeSliceTopDocs(searchContext.sort(), topDocsContext.numHits(), sliceTopDocs, countedOnce);
+        // sort values are only returned with sorted hits, requests that don't collect hits produce plain top docs
+        final DocValueFormat[] sortValueFormats = topDocs.topDocs instanceof TopFieldDocs ? searchContext.sort().formats : null;
+        final QuerySearchResult result = searchContext.queryResult();
+        result.topDocs(topDocs, sortValueFormats);
+        // the other collector contexts are shared by all slices
+        for (QueryCollectorContext ctx : collectors) {
+            ctx.postProcess(result);
+        }
+        if (profiler != null) {
+            result.profileResults(SearchProfileShardResults.buildShardResults(searchContext.getProfilers()));
+        }
+        return topDocsContext.shouldRescore();
+    }
+
+    /**
+     * Searches a single slice and returns whether the search timed out.
+     */
+    private static boolean searchSlice(ContextIndexSearcher searcher, List<LeafReaderContext> leaves, Weight weight,
+                                       Collector collector) throws IOException {
+        try {
+            searcher.search(leaves, weight, collector);
+            return false;
+        } catch (TimeExceededException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Merges the top docs of the slices of a concurrent search into the top docs that a sequential search would have returned.
+     * @param countedOnce whether each slice reports the total hit count of the whole shard rather than of its own segments
+     */
+    static TopDocsAndMaxScore mergeSliceTopDocs(@Nullable SortAndFormats sortAndFormats, int numHits, TopDocsAndMaxScore[] slices,
+                                                boolean countedOnce) {
+        long totalHits = 0;
+        TotalHits.Relation relation = TotalHits.Relation.EQUAL_TO;
+        float maxScore = Float.NaN;
+        for (TopDocsAndMaxScore slice : slices) {
+            if (countedOnce) {
+                totalHits = slice.topDocs.totalHits.value;
+            } else {
+                totalHits += slice.topDocs.totalHits.value;
+            }
+            if (slice.topDocs.totalHits.relation == TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO) {
+                relation = TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO;
+            }
+            if (Float.isNaN(maxScore) || slice.maxScore > maxScore) {
+                maxScore = slice.maxScore;
+            }
+        }
+        final TopDocs merged;
+        if (sortAndFormats == null || numHits == 0) {
+            // requests that don't collect hits produce plain top docs, even if they are sorted
+            final TopDocs[] topDocs = new TopDocs[slices.length];
+            for (int i = 0; i < topDocs.length; i++) {
+                topDocs[i] = slices[i].topDocs;
+            }
+            // ties are broken on the slice index, slices hold consecutive segments so this is the same as breaking ties on the doc id
+            merged = TopDocs.merge(0, numHits, topDocs, true);
+        } else {
+            final TopFieldDocs[] topDocs = new TopFieldDocs[slices.length];
+            for (int i = 0; i < topDocs.length; i++) {
+                topDocs[i] = (TopFieldDocs) slices[i].topDocs;
+            }
+            merged = TopDocs.merge(sortAndFormats.sort, 0, numHits, topDocs, true);
+        }
+        for (ScoreDoc scoreDoc : merged.scoreDocs) {
+            // shard indices are set on the coordinating node
+            scoreDoc.shardIndex = -1;
+        }
+        final TotalHits mergedTotalHits = new TotalHits(totalHits, relation);
+        if (merged instanceof TopFieldDocs) {
+            return new TopDocsAndMaxScore(new TopFieldDocs(mergedTotalHits, merged.scoreDocs, ((TopFieldDocs) merged).fields), maxScore);
+        }
+        return new TopDocsAndMaxScore(new TopDocs(mergedTotalHits, merged.scoreDocs), maxScore);
+    }
+
     /**
      * Returns true if the provided <code>query</code> returns docs in index order (internal doc ids).
      * @param query The query to execute
@@ -19,8 +19,13 @@
 
 package org.elasticsearch.search.sort;
 
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.PointValues;
 import org.apache.lucene.search.SortField;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -33,7 +38,9 @@ import org.elasticsearch.index.fielddata.IndexFieldData.XFieldComparatorSource.N
 import org.elasticsearch.index.fielddata.IndexNumericFieldData;
 import org.elasticsearch.index.fielddata.IndexNumericFieldData.NumericType;
 import org.elasticsearch.index.fielddata.plain.SortedNumericDVIndexFieldData;
+import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.index.mapper.ObjectMapper;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryRewriteContext;
@@ -41,6 +48,7 @@ import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.query.QueryShardException;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 
 import java.io.IOException;
 import java.util.Locale;
@@ -362,6 +370,49 @@ public class FieldSortBuilder extends SortBuilder<FieldSortBuilder> {
         return new SortFieldAndFormat(field, fieldType.docValueFormat(null, null));
     }
 
+    /**
+     * Returns the {@link FieldSortBuilder} of the primary sort of the provided <code>source</code> if it sorts on a field other than
+     * {@value #DOC_FIELD_NAME}, <code>null</code> otherwise.
+     */
+    public static FieldSortBuilder getPrimaryFieldSortOrNull(@Nullable SearchSourceBuilder source) {
+        if (source == null || source.sorts() == null || source.sorts().isEmpty()) {
+            return null;
+        }
+        final SortBuilder<?> primarySort = source.sorts().get(0);
+        if (primarySort instanceof FieldSortBuilder && DOC_FIELD_NAME.equals(((FieldSortBuilder) primarySort).fieldName) == false) {
+            return (FieldSortBuilder) primarySort;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the minimum and maximum values of the field that the provided <code>sortBuilder</code> sorts on in the shard of the
+     * provided <code>context</code>, or <code>null</code> if these bounds can't be read from the points of the field. The bounds
+     * hold the sort value of every document of the shard, which is why only long and date fields that are sorted without a sum,
+     * a nested sort, a numeric type conversion or a missing value other than <code>_last</code> are supported.
+     */
+    public static MinAndMax<?> getMinMaxOrNull(QueryShardContext context, FieldSortBuilder sortBuilder) throws IOException {
+        if (sortBuilder.sortMode == SortMode.SUM || sortBuilder.nestedSort != null || sortBuilder.numericType != null
+                || (sortBuilder.missing != null && "_last".equals(sortBuilder.missing) == false)) {
+            return null;
+        }
+        final IndexReader reader = context.getIndexReader();
+        final MappedFieldType fieldType = context.fieldMapper(sortBuilder.fieldName);
+        if (reader == null || fieldType == null || fieldType.indexOptions() == IndexOptions.NONE) {
+            return null;
+        }
+        if (NumberFieldMapper.NumberType.LONG.typeName().equals(fieldType.typeName()) == false
+                && DateFieldMapper.CONTENT_TYPE.equals(fieldType.typeName()) == false) {
+            return null;
+        }
+        final byte[] min = PointValues.getMinPackedValue(reader, fieldType.name());
+        final byte[] max = PointValues.getMaxPackedValue(reader, fieldType.name());
+        if (min == null || max == null) {
+            return null;
+        }
+        return new MinAndMax<>(LongPoint.decodeDimension(min, 0), LongPoint.decodeDimension(max, 0));
+    }
+
     /**
      * Throws an exception if the provided <code>field</code> requires a nested context.
      */
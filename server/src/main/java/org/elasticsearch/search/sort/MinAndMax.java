@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.sort;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.lucene.Lucene;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * The minimum and maximum values of the primary sort field of a search request on a shard.
+ */
+public class MinAndMax<T extends Comparable<? super T>> implements Writeable {
+    private final T minValue;
+    private final T maxValue;
+
+    public MinAndMax(T minValue, T maxValue) {
+        this.minValue = Objects.requireNonNull(minValue);
+        this.maxValue = Objects.requireNonNull(maxValue);
+    }
+
+    @SuppressWarnings("unchecked")
+    public MinAndMax(StreamInput in) throws IOException {
+        this.minValue = (T) Lucene.readSortValue(in);
+        this.maxValue = (T) Lucene.readSortValue(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        Lucene.writeSortValue(out, minValue);
+        Lucene.writeSortValue(out, maxValue);
+    }
+
+    /**
+     * Return the minimum value.
+     */
+    public T getMin() {
+        return minValue;
+    }
+
+    /**
+     * Return the maximum value.
+     */
+    public T getMax() {
+        return maxValue;
+    }
+
+    /**
+     * Returns whether a document with a sort value within these bounds can sort before or on par with the provided
+     * <code>bottomValue</code> in the given <code>order</code>. Returns <code>true</code> if the value can't be compared with
+     * these bounds.
+     */
+    public boolean canCompete(Object bottomValue, SortOrder order) {
+        if (bottomValue == null || bottomValue.getClass() != minValue.getClass()) {
+            return true;
+        }
+        @SuppressWarnings("unchecked")
+        final T bottom = (T) bottomValue;
+        if (order == SortOrder.ASC) {
+            return minValue.compareTo(bottom) <= 0;
+        } else {
+            return maxValue.compareTo(bottom) >= 0;
+        }
+    }
+
+    /**
+     * Returns a {@link Comparator} that orders bounds such that the ones that contain the most competitive documents in the
+     * provided <code>order</code> come first, <code>null</code> bounds are sorted last.
+     */
+    public static Comparator<MinAndMax<?>> getComparator(SortOrder order) {
+        Comparator<MinAndMax<?>> cmp = order == SortOrder.ASC ?
+            (a, b) -> compareValues(a.getMin(), b.getMin()) : (a, b) -> compareValues(b.getMax(), a.getMax());
+        return Comparator.nullsLast(cmp);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Comparable a, Comparable b) {
+        return a.compareTo(b);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        MinAndMax<?> other = (MinAndMax<?>) o;
+        return minValue.equals(other.minValue) && maxValue.equals(other.maxValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minValue, maxValue);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + minValue + ", " + maxValue + "]";
+    }
+}
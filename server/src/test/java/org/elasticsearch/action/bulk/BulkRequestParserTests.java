@@ -25,6 +25,9 @@ import org.elasticsearch.rest.action.document.RestBulkAction;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class BulkRequestParserTests extends ESTestCase {
@@ -75,6 +78,33 @@ public class BulkRequestParserTests extends ESTestCase {
         assertTrue(parsed.get());
     }
 
+    public void testParseIncrementally() throws IOException {
+        final String first = "{ \"index\":{ \"_id\": \"1\" } }\n{}\n{ \"delete\":{ \"_id\": \"2\" } }\n";
+        final String second = "{ \"index\":{ \"_id\": \"3\" } }\n{}";
+        BulkRequestParser parser = new BulkRequestParser(randomBoolean());
+        final List<String> ids = new ArrayList<>();
+
+        // the last item is incomplete until its source ends with a newline
+        assertEquals(first.length(), parser.parseIncrementally(new BytesArray(first + second), false, 0, "foo", null, null, null,
+            null, false, XContentType.JSON, indexRequest -> ids.add(indexRequest.id()), req -> fail(),
+            deleteRequest -> ids.add(deleteRequest.id())));
+        assertEquals(Arrays.asList("1", "2"), ids);
+        assertEquals(0, parser.parseIncrementally(new BytesArray(second), false, 3, "foo", null, null, null, null, false,
+            XContentType.JSON, req -> fail(), req -> fail(), req -> fail()));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> parser.parseIncrementally(
+            new BytesArray(second), true, 3, "foo", null, null, null, null, false, XContentType.JSON,
+            req -> fail(), req -> fail(), req -> fail()));
+        assertEquals("The bulk request must be terminated by a newline [\\n]", e.getMessage());
+        assertEquals(second.length() + 1, parser.parseIncrementally(new BytesArray(second + "\n"), randomBoolean(), 3, "foo", null,
+            null, null, null, false, XContentType.JSON, indexRequest -> ids.add(indexRequest.id()), req -> fail(), req -> fail()));
+        assertEquals(Arrays.asList("1", "2", "3"), ids);
+
+        // lines are counted from the given line
+        e = expectThrows(IllegalArgumentException.class, () -> parser.parseIncrementally(new BytesArray("[]\n"), false, 5, "foo",
+            null, null, null, null, false, XContentType.JSON, req -> fail(), req -> fail(), req -> fail()));
+        assertEquals("Malformed action/metadata line [6], expected START_OBJECT but found [START_ARRAY]", e.getMessage());
+    }
+
     public void testBarfOnLackOfTrailingNewline() throws IOException {
         BytesArray request = new BytesArray("{ \"index\":{ \"_id\": \"bar\" } }\n{}");
         BulkRequestParser parser = new BulkRequestParser(randomBoolean());
@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESTestCase;
+
+public class BottomSortValuesCollectorTests extends ESTestCase {
+
+    public void testConsumeTopDocs() {
+        final int topNSize = randomIntBetween(1, 10);
+        for (SortOrder order : SortOrder.values()) {
+            final BottomSortValuesCollector collector = new BottomSortValuesCollector(topNSize, order);
+            assertNull(collector.getBottomSortValues());
+
+            // partial pages don't bound the global top hits
+            collector.consumeTopDocs(newTopDocs(order, topNSize - 1, 0L));
+            assertNull(collector.getBottomSortValues());
+            // neither do top docs that are not sorted on a field
+            collector.consumeTopDocs(new TopDocs(new TotalHits(topNSize, TotalHits.Relation.EQUAL_TO), new ScoreDoc[topNSize]));
+            assertNull(collector.getBottomSortValues());
+
+            collector.consumeTopDocs(newTopDocs(order, topNSize, 100L));
+            assertArrayEquals(new Object[] { bottomValue(order, topNSize, 100L) }, collector.getBottomSortValues());
+
+            // a less competitive bottom is ignored
+            collector.consumeTopDocs(newTopDocs(order, topNSize + randomIntBetween(0, 5), order == SortOrder.ASC ? 200L : 0L));
+            assertArrayEquals(new Object[] { bottomValue(order, topNSize, 100L) }, collector.getBottomSortValues());
+
+            // a more competitive bottom replaces the previous one
+            collector.consumeTopDocs(newTopDocs(order, topNSize, order == SortOrder.ASC ? 0L : 200L));
+            assertArrayEquals(new Object[] { bottomValue(order, topNSize, order == SortOrder.ASC ? 0L : 200L) },
+                collector.getBottomSortValues());
+        }
+    }
+
+    private static long bottomValue(SortOrder order, int topNSize, long start) {
+        return order == SortOrder.ASC ? start + topNSize - 1 : start - topNSize + 1;
+    }
+
+    /**
+     * Creates top docs sorted on a long field whose sort values start at <code>start</code> and move by one in the sort order.
+     */
+    private static TopFieldDocs newTopDocs(SortOrder order, int numDocs, long start) {
+        final FieldDoc[] docs = new FieldDoc[numDocs];
+        for (int i = 0; i < numDocs; i++) {
+            final long value = order == SortOrder.ASC ? start + i : start - i;
+            docs[i] = new FieldDoc(i, Float.NaN, new Object[] { value });
+        }
+        final SortField sortField = new SortField("field", SortField.Type.LONG, order == SortOrder.DESC);
+        return new TopFieldDocs(new TotalHits(numDocs, TotalHits.Relation.EQUAL_TO), docs, new SortField[] { sortField });
+    }
+}
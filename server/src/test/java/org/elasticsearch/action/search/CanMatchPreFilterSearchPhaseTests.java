@@ -29,13 +29,19 @@ import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.search.sort.MinAndMax;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.transport.Transport;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
@@ -247,4 +253,81 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
         latch.await();
         executor.shutdown();
     }
+
+    public void testSortShards() throws InterruptedException {
+        final TransportSearchAction.SearchTimeProvider timeProvider = new TransportSearchAction.SearchTimeProvider(0, System.nanoTime(),
+            System::nanoTime);
+        Map<String, Transport.Connection> lookup = new ConcurrentHashMap<>();
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        lookup.put("node1", new SearchAsyncActionTests.MockConnection(primaryNode));
+        lookup.put("node2", new SearchAsyncActionTests.MockConnection(replicaNode));
+
+        final int numShards = randomIntBetween(2, 20);
+        final MinAndMax<?>[] minAndMaxes = new MinAndMax<?>[numShards];
+        for (int i = 0; i < numShards; i++) {
+            if (rarely()) {
+                // shards without a value in the sort field are sorted last
+                continue;
+            }
+            long min = randomLongBetween(-1000, 1000);
+            minAndMaxes[i] = new MinAndMax<>(min, min + randomLongBetween(0, 1000));
+        }
+        SearchTransportService searchTransportService = new SearchTransportService(null, null) {
+            @Override
+            public void sendCanMatch(Transport.Connection connection, ShardSearchTransportRequest request, SearchTask task,
+                                     ActionListener<SearchService.CanMatchResponse> listener) {
+                new Thread(() -> listener.onResponse(new SearchService.CanMatchResponse(true, minAndMaxes[request.shardId().id()])))
+                    .start();
+            }
+        };
+
+        AtomicReference<GroupShardsIterator<SearchShardIterator>> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator<SearchShardIterator> shardsIter = SearchAsyncActionTests.getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards, randomBoolean(), primaryNode, replicaNode);
+        final SortOrder order = randomFrom(SortOrder.values());
+        final SearchRequest searchRequest = new SearchRequest();
+        searchRequest.source(new SearchSourceBuilder().sort(SortBuilders.fieldSort("timestamp").order(order)));
+        searchRequest.allowPartialSearchResults(true);
+
+        CanMatchPreFilterSearchPhase canMatchPhase = new CanMatchPreFilterSearchPhase(logger,
+            searchTransportService,
+            (clusterAlias, node) -> lookup.get(node),
+            Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)),
+            Collections.emptyMap(), Collections.emptyMap(), EsExecutors.newDirectExecutorService(),
+            searchRequest, null, shardsIter, timeProvider, 0, null,
+            (iter) -> new SearchPhase("test") {
+                @Override
+                public void run() {
+                    result.set(iter);
+                    latch.countDown();
+                }}, SearchResponse.Clusters.EMPTY);
+
+        canMatchPhase.start();
+        latch.await();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            expected.add(i);
+        }
+        expected.sort((a, b) -> {
+            int cmp = MinAndMax.getComparator(order).compare(minAndMaxes[a], minAndMaxes[b]);
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        });
+        List<Integer> actual = new ArrayList<>();
+        for (SearchShardIterator i : result.get()) {
+            assertFalse(i.skip());
+            actual.add(i.shardId().id());
+        }
+        assertEquals(expected, actual);
+    }
+
+    public void testShouldSortShards() {
+        assertFalse(CanMatchPreFilterSearchPhase.shouldSortShards(new MinAndMax<?>[] { null, null }));
+        assertTrue(CanMatchPreFilterSearchPhase.shouldSortShards(new MinAndMax<?>[] { null, new MinAndMax<>(1L, 2L) }));
+        assertTrue(CanMatchPreFilterSearchPhase.shouldSortShards(new MinAndMax<?>[] { new MinAndMax<>(3L, 4L), new MinAndMax<>(1L, 2L) }));
+        assertFalse(CanMatchPreFilterSearchPhase.shouldSortShards(new MinAndMax<?>[] { new MinAndMax<>(3L, 4L), new MinAndMax<>(1, 2) }));
+    }
 }
@@ -31,12 +31,19 @@ import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -50,6 +57,10 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.FetchSearchResult;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.search.profile.SearchProfileShardResults;
+import org.elasticsearch.search.profile.aggregation.AggregationProfileShardResult;
+import org.elasticsearch.search.profile.fetch.FetchProfileShardResult;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.search.suggest.SortBy;
 import org.elasticsearch.search.suggest.Suggest;
@@ -60,6 +71,7 @@ import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -72,6 +84,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
@@ -752,4 +765,127 @@ public class SearchPhaseControllerTests extends ESTestCase {
         assertNull(reduce.sortedTopDocs.collapseField);
         assertNull(reduce.sortedTopDocs.collapseValues);
     }
+
+    public void testConsumerAccountsBufferedTopDocs() {
+        final CircuitBreakerService breakerService = newCircuitBreakerService(ByteSizeValue.parseBytesSizeValue("1gb", "test"));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        final SearchPhaseController controller = new SearchPhaseController(
+            finalReduce -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, finalReduce), breakerService);
+        int expectedNumResults = randomIntBetween(3, 100);
+        int bufferSize = randomIntBetween(2, expectedNumResults - 1);
+        int size = randomIntBetween(1, 20);
+        SearchRequest request = randomSearchRequest();
+        request.source(new SearchSourceBuilder().size(size));
+        request.setBatchedReduceSize(bufferSize);
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        assertThat(consumer, instanceOf(SearchPhaseController.QueryPhaseResultConsumer.class));
+        SearchPhaseController.QueryPhaseResultConsumer resultConsumer = (SearchPhaseController.QueryPhaseResultConsumer) consumer;
+        List<Float> scores = new ArrayList<>();
+        long maxRamBytesUsed = 0;
+        for (int i = 0; i < expectedNumResults; i++) {
+            QuerySearchResult result = new QuerySearchResult(i, new SearchShardTarget("node", new ShardId("a", "b", i),
+                null, OriginalIndices.NONE));
+            ScoreDoc[] docs = new ScoreDoc[size];
+            for (int j = 0; j < size; j++) {
+                docs[j] = new ScoreDoc(j, randomFloat());
+                scores.add(docs[j].score);
+            }
+            Arrays.sort(docs, (a, b) -> Float.compare(b.score, a.score));
+            TopDocs topDocs = new TopDocs(new TotalHits(size, Relation.EQUAL_TO), docs);
+            maxRamBytesUsed = Math.max(maxRamBytesUsed, SearchPhaseController.ramBytesUsed(topDocs));
+            result.topDocs(new TopDocsAndMaxScore(topDocs, docs[0].score), new DocValueFormat[0]);
+            result.setShardIndex(i);
+            result.size(size);
+            consumer.consumeResult(result);
+            assertThat(resultConsumer.getTopDocsRamBytesUsed(), greaterThan(0L));
+            assertEquals(resultConsumer.getTopDocsRamBytesUsed(), breaker.getUsed());
+            // the buffered hits are merged as soon as they exceed the hits of a single result
+            assertThat(resultConsumer.getTopDocsRamBytesUsed(), lessThanOrEqualTo(maxRamBytesUsed));
+        }
+        SearchPhaseController.ReducedQueryPhase reduce = consumer.reduce();
+        assertEquals(0, breaker.getUsed());
+        scores.sort(Collections.reverseOrder());
+        assertEquals(size, reduce.sortedTopDocs.scoreDocs.length);
+        for (int i = 0; i < size; i++) {
+            assertEquals(scores.get(i), reduce.sortedTopDocs.scoreDocs[i].score, 0.0f);
+        }
+    }
+
+    public void testConsumerCircuitBreaker() {
+        final CircuitBreakerService breakerService = newCircuitBreakerService(new ByteSizeValue(randomIntBetween(1, 256)));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        final SearchPhaseController controller = new SearchPhaseController(
+            finalReduce -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, finalReduce), breakerService);
+        int expectedNumResults = randomIntBetween(3, 20);
+        SearchRequest request = randomSearchRequest();
+        request.setBatchedReduceSize(2);
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer =
+            controller.newSearchPhaseResults(request, expectedNumResults);
+        for (int i = 0; i < expectedNumResults; i++) {
+            QuerySearchResult result = new QuerySearchResult(i, new SearchShardTarget("node", new ShardId("a", "b", i),
+                null, OriginalIndices.NONE));
+            ScoreDoc[] docs = new ScoreDoc[10];
+            for (int j = 0; j < docs.length; j++) {
+                docs[j] = new ScoreDoc(j, docs.length - j);
+            }
+            result.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(docs.length, Relation.EQUAL_TO), docs), docs[0].score),
+                new DocValueFormat[0]);
+            result.setShardIndex(i);
+            result.size(10);
+            consumer.consumeResult(result);
+        }
+        expectThrows(CircuitBreakingException.class, consumer::reduce);
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testMergeFetchProfileResults() {
+        SearchShardTarget profiled = new SearchShardTarget("node", new ShardId("a", "b", 0), null, OriginalIndices.NONE);
+        SearchShardTarget notFetched = new SearchShardTarget("node", new ShardId("a", "b", 1), null, OriginalIndices.NONE);
+        Map<String, ProfileShardResult> queryProfiles = new HashMap<>();
+        queryProfiles.put(profiled.toString(),
+            new ProfileShardResult(Collections.emptyList(), new AggregationProfileShardResult(Collections.emptyList())));
+        queryProfiles.put(notFetched.toString(),
+            new ProfileShardResult(Collections.emptyList(), new AggregationProfileShardResult(Collections.emptyList())));
+        SearchProfileShardResults queryProfileResults = new SearchProfileShardResults(queryProfiles);
+
+        assertSame(queryProfileResults, SearchPhaseController.mergeFetchProfileResults(queryProfileResults, Collections.emptyList()));
+
+        FetchSearchResult fetchResult = new FetchSearchResult(0, profiled);
+        FetchProfileShardResult fetchProfile = new FetchProfileShardResult(100, 2, 1, 2, 2);
+        fetchResult.profileResult(fetchProfile);
+        SearchProfileShardResults merged =
+            SearchPhaseController.mergeFetchProfileResults(queryProfileResults, Collections.singletonList(fetchResult));
+        assertEquals(2, merged.getShardResults().size());
+        assertSame(fetchProfile, merged.getShardResults().get(profiled.toString()).getFetchProfileResult());
+        assertNull(merged.getShardResults().get(notFetched.toString()).getFetchProfileResult());
+    }
+
+    public void testConsumerReleasesBreakerOnClose() {
+        final CircuitBreakerService breakerService = newCircuitBreakerService(ByteSizeValue.parseBytesSizeValue("1gb", "test"));
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.REQUEST);
+        final SearchPhaseController controller = new SearchPhaseController(
+            finalReduce -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, finalReduce), breakerService);
+        SearchRequest request = randomSearchRequest();
+        request.setBatchedReduceSize(2);
+        InitialSearchPhase.ArraySearchPhaseResults<SearchPhaseResult> consumer = controller.newSearchPhaseResults(request, 3);
+        QuerySearchResult result = new QuerySearchResult(0, new SearchShardTarget("node", new ShardId("a", "b", 0),
+            null, OriginalIndices.NONE));
+        result.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(1, Relation.EQUAL_TO), new ScoreDoc[] {new ScoreDoc(0, 1f)}), 1f),
+            new DocValueFormat[0]);
+        result.setShardIndex(0);
+        result.size(10);
+        consumer.consumeResult(result);
+        assertThat(breaker.getUsed(), greaterThan(0L));
+        consumer.close();
+        assertEquals(0, breaker.getUsed());
+    }
+
+    private static CircuitBreakerService newCircuitBreakerService(ByteSizeValue requestLimit) {
+        Settings settings = Settings.builder()
+            .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+            .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), requestLimit)
+            .build();
+        return new HierarchyCircuitBreakerService(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+    }
 }
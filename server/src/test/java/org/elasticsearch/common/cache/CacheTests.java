@@ -49,6 +49,7 @@ import java.util.stream.Collectors;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class CacheTests extends ESTestCase {
     private int numberOfEntries;
@@ -914,6 +915,105 @@ public class CacheTests extends ESTestCase {
         assertEquals(500, cache.count());
     }
 
+    public void testFrequencyBasedAdmission() {
+        final int maximumWeight = randomIntBetween(10, 100);
+        final List<RemovalNotification<Integer, String>> removalNotifications = new ArrayList<>();
+        Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setMaximumWeight(maximumWeight)
+                .setFrequencyBasedAdmission(true)
+                .removalListener(removalNotifications::add)
+                .build();
+        for (int i = 0; i < maximumWeight; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        // the cache is not full yet so its entries are evicted in LRU order
+        cache.put(maximumWeight, Integer.toString(maximumWeight));
+        assertEquals(1, removalNotifications.size());
+        assertEquals(0, (int) removalNotifications.get(0).getKey());
+
+        // make the entries of the cache frequently used
+        for (int iter = 0; iter < FrequencySketch.MAX_FREQUENCY; iter++) {
+            for (int i = 1; i <= maximumWeight; i++) {
+                assertEquals(Integer.toString(i), cache.get(i));
+            }
+        }
+        removalNotifications.clear();
+        // one-off entries are evicted right away rather than flushing the frequently used ones, unless the frequency of their key
+        // is overestimated because it collides with frequently used keys in the sketch, which is rare
+        final int numberOfOneOffEntries = randomIntBetween(1, maximumWeight);
+        for (int i = 0; i < numberOfOneOffEntries; i++) {
+            final int key = -1 - i;
+            cache.put(key, Integer.toString(key));
+        }
+        assertEquals(numberOfOneOffEntries, removalNotifications.size());
+        int evictedFrequentlyUsedEntries = 0;
+        for (RemovalNotification<Integer, String> notification : removalNotifications) {
+            assertEquals(RemovalNotification.RemovalReason.EVICTED, notification.getRemovalReason());
+            if (notification.getKey() > 0) {
+                evictedFrequentlyUsedEntries++;
+            }
+        }
+        assertThat(evictedFrequentlyUsedEntries, lessThanOrEqualTo(numberOfOneOffEntries / 10 + 1));
+        assertEquals(maximumWeight, cache.count());
+    }
+
+    public void testConcurrentReadsAndWrites() throws BrokenBarrierException, InterruptedException {
+        final int numberOfThreads = randomIntBetween(2, 32);
+        final int maximumWeight = randomIntBetween(1, numberOfEntries);
+        final AtomicLong removals = new AtomicLong();
+        final Cache<Integer, String> cache =
+            CacheBuilder.<Integer, String>builder()
+                .setMaximumWeight(maximumWeight)
+                .setFrequencyBasedAdmission(randomBoolean())
+                .removalListener(notification -> removals.incrementAndGet())
+                .build();
+        final AtomicLong puts = new AtomicLong();
+        final AtomicLong gets = new AtomicLong();
+        final CyclicBarrier barrier = new CyclicBarrier(1 + numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    barrier.await();
+                    Random random = new Random(random().nextLong());
+                    for (int j = 0; j < numberOfEntries; j++) {
+                        Integer key = random.nextInt(numberOfEntries);
+                        if (random.nextInt(10) == 0) {
+                            cache.put(key, Integer.toString(key));
+                            puts.incrementAndGet();
+                        } else {
+                            String value = cache.get(key);
+                            assertTrue(value == null || value.equals(Integer.toString(key)));
+                            gets.incrementAndGet();
+                        }
+                    }
+                    barrier.await();
+                } catch (BrokenBarrierException | InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            thread.start();
+        }
+
+        // wait for all threads to be ready
+        barrier.await();
+        // wait for all threads to finish
+        barrier.await();
+
+        cache.refresh();
+        assertThat(cache.count(), lessThanOrEqualTo(maximumWeight));
+        assertEquals(cache.count(), cache.weight());
+        assertEquals(gets.get(), cache.stats().getHits() + cache.stats().getMisses());
+        // every put either adds an entry or replaces one
+        assertEquals(puts.get(), cache.count() + removals.get());
+        int keys = 0;
+        for (Integer key : cache.keys()) {
+            assertEquals(Integer.toString(key), cache.get(key));
+            keys++;
+        }
+        assertEquals(cache.count(), keys);
+    }
+
     public void testRemoveUsingValuesIterator() {
         final List<RemovalNotification<Integer, String>> removalNotifications = new ArrayList<>();
         Cache<Integer, String> cache =
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.test.ESTestCase;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class FrequencySketchTests extends ESTestCase {
+
+    public void testIncrement() {
+        FrequencySketch sketch = new FrequencySketch();
+        final Object key = randomAlphaOfLength(10);
+        assertEquals(0, sketch.frequency(key));
+        final int increments = randomIntBetween(1, 30);
+        for (int i = 0; i < increments; i++) {
+            sketch.increment(key);
+        }
+        assertEquals(Math.min(increments, FrequencySketch.MAX_FREQUENCY), sketch.frequency(key));
+    }
+
+    public void testNeverUnderestimates() {
+        FrequencySketch sketch = new FrequencySketch();
+        final int numberOfKeys = randomIntBetween(1, 1000);
+        sketch.ensureCapacity(numberOfKeys);
+        assertThat(sketch.tableSize(), greaterThanOrEqualTo(numberOfKeys));
+        final int[] frequencies = new int[numberOfKeys];
+        // stays below the number of increments that halves counters
+        final int increments = randomIntBetween(0, 5 * sketch.tableSize());
+        for (int i = 0; i < increments; i++) {
+            final int key = randomInt(numberOfKeys - 1);
+            sketch.increment(key);
+            frequencies[key]++;
+        }
+        int overestimated = 0;
+        for (int key = 0; key < numberOfKeys; key++) {
+            final int expected = Math.min(frequencies[key], FrequencySketch.MAX_FREQUENCY);
+            assertThat(sketch.frequency(key), greaterThanOrEqualTo(expected));
+            if (sketch.frequency(key) > expected) {
+                overestimated++;
+            }
+        }
+        assertThat(overestimated, lessThanOrEqualTo(numberOfKeys / 10 + 1));
+    }
+
+    public void testReset() {
+        FrequencySketch sketch = new FrequencySketch();
+        final Integer hotKey = randomInt();
+        for (int i = 0; i < FrequencySketch.MAX_FREQUENCY; i++) {
+            sketch.increment(hotKey);
+        }
+        assertEquals(FrequencySketch.MAX_FREQUENCY, sketch.frequency(hotKey));
+        // other keys eventually trigger a reset that halves the frequency of the hot key
+        for (int i = 0; i < 10 * sketch.tableSize() && sketch.frequency(hotKey) == FrequencySketch.MAX_FREQUENCY; i++) {
+            sketch.increment(randomValueOtherThan(hotKey, ESTestCase::randomInt));
+        }
+        assertThat(sketch.frequency(hotKey), lessThanOrEqualTo(FrequencySketch.MAX_FREQUENCY / 2 + 1));
+    }
+
+    public void testEnsureCapacity() {
+        FrequencySketch sketch = new FrequencySketch();
+        final int tableSize = sketch.tableSize();
+        sketch.ensureCapacity(randomIntBetween(0, tableSize));
+        assertEquals(tableSize, sketch.tableSize());
+        final int expectedKeys = randomIntBetween(tableSize + 1, 100000);
+        sketch.ensureCapacity(expectedKeys);
+        assertThat(sketch.tableSize(), greaterThanOrEqualTo(expectedKeys));
+        assertThat(sketch.tableSize(), lessThanOrEqualTo(2 * expectedKeys));
+        assertEquals(0, Integer.bitCount(sketch.tableSize()) - 1);
+    }
+}
@@ -24,8 +24,10 @@ import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
@@ -39,6 +41,7 @@ import org.elasticsearch.test.VersionUtils;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 
 import static org.elasticsearch.common.lucene.uid.VersionsAndSeqNoResolver.loadDocIdAndVersion;
 import static org.hamcrest.Matchers.equalTo;
@@ -145,6 +148,58 @@ public class VersionsTests extends ESTestCase {
         dir.close();
     }
 
+    public void testLoadDocIdsAndVersions() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.STANDARD_ANALYZER).setMergePolicy(NoMergePolicy.INSTANCE));
+        final int numIds = randomIntBetween(1, 100);
+        final int numSegments = randomIntBetween(1, 10);
+        for (int segment = 0; segment < numSegments; segment++) {
+            for (int i = 0; i < numIds; i++) {
+                final String id = Integer.toString(i);
+                if (randomInt(3) == 0) {
+                    writer.deleteDocuments(new Term(IdFieldMapper.NAME, id));
+                } else if (randomBoolean()) {
+                    Document doc = new Document();
+                    doc.add(new Field(IdFieldMapper.NAME, id, IdFieldMapper.Defaults.FIELD_TYPE));
+                    doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, segment + 1));
+                    doc.add(new NumericDocValuesField(SeqNoFieldMapper.NAME, randomNonNegativeLong()));
+                    doc.add(new NumericDocValuesField(SeqNoFieldMapper.PRIMARY_TERM_NAME, randomLongBetween(1, Long.MAX_VALUE)));
+                    writer.updateDocument(new Term(IdFieldMapper.NAME, id), doc);
+                }
+            }
+            writer.flush();
+        }
+        DirectoryReader directoryReader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "_na_", 1));
+
+        final TreeSet<BytesRef> uids = new TreeSet<>();
+        final int numLookups = randomIntBetween(0, numIds + 10);
+        for (int i = 0; i < numLookups; i++) {
+            // also look up some ids that were never indexed
+            uids.add(new BytesRef(Integer.toString(randomIntBetween(0, numIds + 10))));
+        }
+        final BytesRef[] sortedUids = uids.toArray(new BytesRef[0]);
+        final boolean loadSeqNo = randomBoolean();
+        final VersionsAndSeqNoResolver.DocIdAndVersion[] results =
+            VersionsAndSeqNoResolver.loadDocIdsAndVersions(directoryReader, IdFieldMapper.NAME, sortedUids, loadSeqNo);
+        assertThat(results.length, equalTo(sortedUids.length));
+        for (int i = 0; i < sortedUids.length; i++) {
+            final VersionsAndSeqNoResolver.DocIdAndVersion expected =
+                loadDocIdAndVersion(directoryReader, new Term(IdFieldMapper.NAME, sortedUids[i]), loadSeqNo);
+            if (expected == null) {
+                assertThat(results[i], nullValue());
+            } else {
+                assertThat(results[i].docId, equalTo(expected.docId));
+                assertThat(results[i].docBase, equalTo(expected.docBase));
+                assertThat(results[i].version, equalTo(expected.version));
+                assertThat(results[i].seqNo, equalTo(expected.seqNo));
+                assertThat(results[i].primaryTerm, equalTo(expected.primaryTerm));
+            }
+        }
+        directoryReader.close();
+        writer.close();
+        dir.close();
+    }
+
     /** Test that version map cache works, is evicted on close, etc */
     public void testCache() throws Exception {
         int size = VersionsAndSeqNoResolver.lookupStates.size();
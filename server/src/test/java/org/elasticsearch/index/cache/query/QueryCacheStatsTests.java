@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.query;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.index.cache.query.QueryCacheStats.QueryTypeStats;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class QueryCacheStatsTests extends ESTestCase {
+
+    public void testAddQueryTypeStats() {
+        final Map<String, QueryTypeStats> queryTypeStats = new HashMap<>();
+        queryTypeStats.put("PointRangeQuery", new QueryTypeStats(1, 1, 1, 1, 1));
+        final QueryCacheStats stats1 = new QueryCacheStats();
+        final QueryCacheStats stats2 = new QueryCacheStats(1, 1, 1, 1, 1, queryTypeStats);
+
+        stats1.add(stats2);
+        assertQueryTypeStats(stats1.getQueryTypeStats().get("PointRangeQuery"), 1);
+        stats1.add(stats2);
+        assertQueryTypeStats(stats1.getQueryTypeStats().get("PointRangeQuery"), 2);
+        // the stats that were added are not modified
+        assertQueryTypeStats(stats2.getQueryTypeStats().get("PointRangeQuery"), 1);
+        assertEquals(2, stats1.getCacheCount());
+    }
+
+    public void testSerialization() throws IOException {
+        final QueryCacheStats stats = new QueryCacheStats(1, 2, 3, 4, 5,
+            Collections.singletonMap("PointRangeQuery", new QueryTypeStats(3, 3, 3, 3, 3)), 6, 7, 8, 9);
+        final QueryCacheStats copy = copyWriteable(stats, new NamedWriteableRegistry(Collections.emptyList()), QueryCacheStats::new);
+        assertEquals(4, copy.getCacheCount());
+        assertEquals(5, copy.getCacheSize());
+        assertQueryTypeStats(copy.getQueryTypeStats().get("PointRangeQuery"), 3);
+        assertEquals(6, copy.getOffHeapMemorySize().getBytes());
+        assertEquals(7, copy.getOffHeapHitCount());
+        assertEquals(8, copy.getOffHeapCacheCount());
+        assertEquals(9, copy.getOffHeapCacheSize());
+
+        final QueryCacheStats empty = copyWriteable(new QueryCacheStats(1, 2, 3, 4, 5),
+            new NamedWriteableRegistry(Collections.emptyList()), QueryCacheStats::new);
+        assertNull(empty.getQueryTypeStats());
+    }
+
+    public void testSerializationToPreviousVersion() throws IOException {
+        final Version version = VersionUtils.getPreviousVersion(Version.V_8_0_0);
+        final QueryCacheStats stats = new QueryCacheStats(1, 2, 3, 4, 5,
+            Collections.singletonMap("PointRangeQuery", new QueryTypeStats(3, 3, 3, 3, 3)), 6, 7, 8, 9);
+        final QueryCacheStats copy = copyWriteable(stats, new NamedWriteableRegistry(Collections.emptyList()), QueryCacheStats::new,
+            version);
+        assertEquals(4, copy.getCacheCount());
+        assertEquals(5, copy.getCacheSize());
+        assertNull(copy.getQueryTypeStats());
+        assertEquals(0, copy.getOffHeapCacheCount());
+    }
+
+    private static void assertQueryTypeStats(QueryTypeStats stats, long equalTo) {
+        assertEquals(equalTo, stats.getCacheCount());
+        assertEquals(equalTo, stats.getBuildTime().nanos());
+        assertEquals(equalTo, stats.getDocCount());
+        assertEquals(equalTo, stats.getMatchCount());
+        assertEquals(equalTo, stats.getMemorySize().getBytes());
+    }
+}
@@ -31,14 +31,17 @@ import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.compress.CompressedXContent;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.analysis.IndexAnalyzers;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.indices.IndicesModule;
 import org.elasticsearch.indices.mapper.MapperRegistry;
-import org.elasticsearch.plugins.MapperPlugin;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.IndexSettingsModule;
 
@@ -46,6 +49,7 @@ import java.io.IOException;
 import java.util.Collections;
 
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
 
 @SuppressCodecs("*") // we test against default codec so never get a random one here!
 public class CodecTests extends ESTestCase {
@@ -67,6 +71,30 @@ public class CodecTests extends ESTestCase {
         assertCompressionEquals(Mode.BEST_COMPRESSION, codec);
     }
 
+    public void testPreAggregationMetricFields() throws Exception {
+        Settings indexSettings = Settings.builder()
+                .put(CodecService.INDEX_PRE_AGGREGATION_TIMESTAMP_FIELD_SETTING.getKey(), "timestamp")
+                .putList(CodecService.INDEX_PRE_AGGREGATION_METRIC_FIELDS_SETTING.getKey(), "long", "date", "date_nanos", "keyword")
+                .build();
+        MapperService mapperService = createMapperService(indexSettings);
+        mapperService.merge("_doc", new CompressedXContent(Strings.toString(XContentFactory.jsonBuilder()
+                .startObject().startObject("_doc").startObject("properties")
+                    .startObject("timestamp").field("type", "date").endObject()
+                    .startObject("long").field("type", "long").endObject()
+                    .startObject("date").field("type", "date").endObject()
+                    .startObject("date_nanos").field("type", "date_nanos").endObject()
+                    .startObject("keyword").field("type", "keyword").endObject()
+                .endObject().endObject().endObject())), MapperService.MergeReason.MAPPING_UPDATE);
+        PerFieldMappingPostingFormatCodec codec =
+            new PerFieldMappingPostingFormatCodec(Mode.BEST_SPEED, mapperService, LogManager.getLogger("test"));
+        assertThat(codec.getDocValuesFormatForField("timestamp"), instanceOf(PreAggregatingDocValuesFormat.class));
+        assertThat(codec.getDocValuesFormatForField("long"), instanceOf(PreAggregatingDocValuesFormat.class));
+        assertThat(codec.getDocValuesFormatForField("date"), instanceOf(PreAggregatingDocValuesFormat.class));
+        // aggregations read date_nanos fields in milliseconds, their values in nanoseconds can't be pre-aggregated as-is
+        assertThat(codec.getDocValuesFormatForField("date_nanos"), not(instanceOf(PreAggregatingDocValuesFormat.class)));
+        assertThat(codec.getDocValuesFormatForField("keyword"), not(instanceOf(PreAggregatingDocValuesFormat.class)));
+    }
+
     // write some docs with it, inspect .si to see this was the used compression
     private void assertCompressionEquals(Mode expected, Codec actual) throws Exception {
         Directory dir = newDirectory();
@@ -86,16 +114,20 @@ public class CodecTests extends ESTestCase {
     }
 
     private CodecService createCodecService() throws IOException {
+        return new CodecService(createMapperService(Settings.EMPTY), LogManager.getLogger("test"));
+    }
+
+    private MapperService createMapperService(Settings indexSettings) throws IOException {
         Settings nodeSettings = Settings.builder()
                 .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir())
                 .build();
-        IndexSettings settings = IndexSettingsModule.newIndexSettings("_na", nodeSettings);
+        IndexSettings settings = IndexSettingsModule.newIndexSettings("_na",
+                Settings.builder().put(nodeSettings).put(indexSettings).build());
         SimilarityService similarityService = new SimilarityService(settings, null, Collections.emptyMap());
         IndexAnalyzers indexAnalyzers = createTestAnalysis(settings, nodeSettings).indexAnalyzers;
-        MapperRegistry mapperRegistry = new MapperRegistry(Collections.emptyMap(), Collections.emptyMap(), MapperPlugin.NOOP_FIELD_FILTER);
-        MapperService service = new MapperService(settings, indexAnalyzers, xContentRegistry(), similarityService, mapperRegistry,
+        MapperRegistry mapperRegistry = new IndicesModule(Collections.emptyList()).getMapperRegistry();
+        return new MapperService(settings, indexAnalyzers, xContentRegistry(), similarityService, mapperRegistry,
                 () -> null);
-        return new CodecService(service, LogManager.getLogger("test"));
     }
 
 }
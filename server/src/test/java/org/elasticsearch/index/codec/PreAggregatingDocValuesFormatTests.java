@@ -0,0 +1,190 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.AssertingDirectoryReader;
+import org.apache.lucene.index.BaseDocValuesFormatTestCase;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.TestUtil;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongToDoubleFunction;
+
+public class PreAggregatingDocValuesFormatTests extends BaseDocValuesFormatTestCase {
+
+    private static final String TIMESTAMP = "timestamp";
+    private static final String LONG_METRIC = "long_metric";
+    private static final String DOUBLE_METRIC = "double_metric";
+
+    @Override
+    protected Codec getCodec() {
+        // the doc values format test cases pre-aggregate the "dv" field with all other sorted numeric fields
+        return TestUtil.alwaysDocValuesFormat(new PreAggregatingDocValuesFormat("dv",
+            field -> field.equals("dv") ? null : value -> value, TestUtil.nextLong(random(), 1, 100_000)));
+    }
+
+    private static LongToDoubleFunction metricDecoder(String field) {
+        switch (field) {
+            case LONG_METRIC:
+                return value -> value;
+            case DOUBLE_METRIC:
+                return NumericUtils::sortableLongToDouble;
+            default:
+                return null;
+        }
+    }
+
+    private static IndexWriterConfig newPreAggregatingConfig(long interval) {
+        final IndexWriterConfig config = newIndexWriterConfig();
+        config.setCodec(TestUtil.alwaysDocValuesFormat(
+            new PreAggregatingDocValuesFormat(TIMESTAMP, PreAggregatingDocValuesFormatTests::metricDecoder, interval)));
+        return config;
+    }
+
+    public void testPreAggregations() throws IOException {
+        final long interval = new long[] { 1, 7, 1000, 60_000 }[random().nextInt(4)];
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, newPreAggregatingConfig(interval))) {
+            final int numDocs = atLeast(1000);
+            final long start = random().nextInt(1_000_000);
+            for (int i = 0; i < numDocs; i++) {
+                final Document doc = new Document();
+                if (random().nextInt(20) != 0) {
+                    doc.add(new SortedNumericDocValuesField(TIMESTAMP, start + random().nextInt(100 * (int) interval)));
+                }
+                for (int j = random().nextInt(3); j > 0; j--) {
+                    doc.add(new SortedNumericDocValuesField(LONG_METRIC, random().nextInt(1000) - 500));
+                }
+                if (random().nextBoolean()) {
+                    doc.add(new SortedNumericDocValuesField(DOUBLE_METRIC, NumericUtils.doubleToSortableLong(random().nextInt(100) / 4d)));
+                }
+                writer.addDocument(doc);
+                if (rarely()) {
+                    writer.commit();
+                }
+            }
+            if (random().nextBoolean()) {
+                writer.forceMerge(1);
+            }
+            try (DirectoryReader reader = new AssertingDirectoryReader(DirectoryReader.open(writer))) {
+                for (LeafReaderContext context : reader.leaves()) {
+                    assertPreAggregations(context.reader(), interval);
+                }
+            }
+        }
+    }
+
+    private static void assertPreAggregations(LeafReader reader, long interval) throws IOException {
+        // key -> doc count, then count, sum, min and max of each metric
+        final Map<Long, double[]> expected = new TreeMap<>();
+        final SortedNumericDocValues timestamps = reader.getSortedNumericDocValues(TIMESTAMP);
+        final SortedNumericDocValues longMetrics = reader.getSortedNumericDocValues(LONG_METRIC);
+        final SortedNumericDocValues doubleMetrics = reader.getSortedNumericDocValues(DOUBLE_METRIC);
+        for (int doc = timestamps.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = timestamps.nextDoc()) {
+            final double[] bucket = expected.computeIfAbsent(Math.floorDiv(timestamps.nextValue(), interval) * interval,
+                key -> new double[] { 0, 0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                    0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY });
+            bucket[0]++;
+            if (longMetrics != null && longMetrics.advanceExact(doc)) {
+                for (int i = 0; i < longMetrics.docValueCount(); i++) {
+                    collect(bucket, 1, longMetrics.nextValue());
+                }
+            }
+            if (doubleMetrics != null && doubleMetrics.advanceExact(doc)) {
+                for (int i = 0; i < doubleMetrics.docValueCount(); i++) {
+                    collect(bucket, 5, NumericUtils.sortableLongToDouble(doubleMetrics.nextValue()));
+                }
+            }
+        }
+
+        final PreAggregations preAggregations = PreAggregations.get(reader);
+        if (expected.size() > Math.max(1, reader.maxDoc() / PreAggregatingDocValuesFormat.MIN_DOCS_PER_BUCKET)) {
+            assertNull(preAggregations);
+            return;
+        }
+        assertNotNull(preAggregations);
+        assertEquals(TIMESTAMP, preAggregations.timestampField());
+        assertEquals(interval, preAggregations.interval());
+        assertEquals(expected.size(), preAggregations.numBuckets());
+        final List<String> metricFields = preAggregations.metricFields();
+        final PreAggregations.BucketIterator buckets = preAggregations.iterator();
+        for (Map.Entry<Long, double[]> entry : expected.entrySet()) {
+            assertTrue(buckets.next());
+            assertEquals(entry.getKey().longValue(), buckets.key());
+            final double[] bucket = entry.getValue();
+            assertEquals((int) bucket[0], buckets.docCount());
+            assertMetric(metricFields.indexOf(LONG_METRIC), buckets, bucket, 1);
+            assertMetric(metricFields.indexOf(DOUBLE_METRIC), buckets, bucket, 5);
+        }
+        assertFalse(buckets.next());
+    }
+
+    private static void collect(double[] bucket, int offset, double value) {
+        bucket[offset]++;
+        bucket[offset + 1] += value;
+        bucket[offset + 2] = Math.min(bucket[offset + 2], value);
+        bucket[offset + 3] = Math.max(bucket[offset + 3], value);
+    }
+
+    private static void assertMetric(int metric, PreAggregations.BucketIterator buckets, double[] bucket, int offset) {
+        if (metric < 0) {
+            // the segment has no values for this metric
+            assertEquals(0, bucket[offset], 0);
+            return;
+        }
+        assertEquals((long) bucket[offset], buckets.valueCount(metric));
+        assertEquals(bucket[offset + 1], buckets.sum(metric), 0);
+        assertEquals(bucket[offset + 2], buckets.min(metric), 0);
+        assertEquals(bucket[offset + 3], buckets.max(metric), 0);
+    }
+
+    public void testMultiValuedTimestamps() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, newPreAggregatingConfig(1000))) {
+            for (int i = 0; i < 100; i++) {
+                final Document doc = new Document();
+                doc.add(new SortedNumericDocValuesField(TIMESTAMP, 1));
+                doc.add(new SortedNumericDocValuesField(LONG_METRIC, i));
+                if (i == 50) {
+                    doc.add(new SortedNumericDocValuesField(TIMESTAMP, 2));
+                }
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                assertNull(PreAggregations.get(getOnlyLeafReader(reader)));
+            }
+        }
+    }
+}
@@ -89,6 +89,7 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
@@ -1445,6 +1446,43 @@ public class InternalEngineTests extends EngineTestCase {
         assertThat(indexResult.getVersion(), equalTo(1L));
     }
 
+    public void testPreloadDocVersions() throws IOException {
+        final int numDocs = randomIntBetween(2, 50);
+        final List<BytesRef> uids = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            ParsedDocument doc = testParsedDocument(Integer.toString(i), null, testDocument(), B_1, null);
+            engine.index(indexForDoc(doc));
+            uids.add(newUid(doc).bytes());
+        }
+        engine.refresh("test");
+        ParsedDocument missingDoc = testParsedDocument("missing", null, testDocument(), B_1, null);
+        uids.add(newUid(missingDoc).bytes());
+        Collections.shuffle(uids, random());
+
+        try (Releasable ignored = engine.preloadDocVersions(uids)) {
+            final long indexVersionLookups = engine.getNumIndexVersionsLookups();
+            final long preloadedVersionLookups = engine.getNumPreloadedVersionLookups();
+            for (int i = 0; i < numDocs; i++) {
+                ParsedDocument doc = testParsedDocument(Integer.toString(i), null, testDocument(), B_2, null);
+                Engine.IndexResult result = engine.index(indexForDoc(doc));
+                assertThat(result.getVersion(), equalTo(2L));
+                assertFalse(result.isCreated());
+            }
+            Engine.IndexResult result = engine.index(indexForDoc(missingDoc));
+            assertThat(result.getVersion(), equalTo(1L));
+            assertTrue(result.isCreated());
+            assertThat(engine.getNumIndexVersionsLookups(), equalTo(indexVersionLookups + numDocs + 1));
+            assertThat(engine.getNumPreloadedVersionLookups(), equalTo(preloadedVersionLookups + numDocs + 1));
+
+            // preloaded versions are stale once the reader was refreshed
+            engine.refresh("test");
+            Engine.DeleteResult deleteResult = engine.delete(new Engine.Delete("test", "0", newUid("0"), primaryTerm.get()));
+            assertThat(deleteResult.getVersion(), equalTo(3L));
+            assertTrue(deleteResult.isFound());
+            assertThat(engine.getNumPreloadedVersionLookups(), equalTo(preloadedVersionLookups + numDocs + 1));
+        }
+    }
+
     public void testForceMergeWithoutSoftDeletes() throws IOException {
         Settings settings = Settings.builder()
             .put(defaultSettings.getSettings())
@@ -25,8 +25,14 @@ import org.apache.lucene.util.Constants;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -46,6 +52,26 @@ import static org.hamcrest.Matchers.nullValue;
 
 public class LiveVersionMapTests extends ESTestCase {
 
+    private final List<LiveVersionMap> maps = new ArrayList<>();
+
+    @After
+    public void clearMaps() {
+        // releases the pages of paged stores
+        maps.forEach(LiveVersionMap::clear);
+    }
+
+    private LiveVersionMap newLiveVersionMap() {
+        final LiveVersionMap map;
+        if (randomBoolean()) {
+            map = new LiveVersionMap();
+        } else {
+            final BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+            map = new LiveVersionMap(expectedSize -> new PagedLiveVersionStore(expectedSize, bigArrays));
+        }
+        maps.add(map);
+        return map;
+    }
+
     public void testRamBytesUsed() throws Exception {
         LiveVersionMap map = new LiveVersionMap();
         for (int i = 0; i < 100000; ++i) {
@@ -93,7 +119,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testRefreshingBytes() throws IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         BytesRefBuilder uid = new BytesRefBuilder();
         uid.copyChars(TestUtil.randomSimpleString(random(), 10, 20));
         try (Releasable r = map.acquireLock(uid.toBytesRef())) {
@@ -113,7 +139,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testBasics() throws IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         try (Releasable r = map.acquireLock(uid("test"))) {
             Translog.Location tlogLoc = randomTranslogLocation();
             map.putIndexUnderLock(uid("test"), new IndexVersionValue(tlogLoc, 1, 1, 1));
@@ -145,7 +171,7 @@ public class LiveVersionMapTests extends ESTestCase {
         List<BytesRef> keyList = new ArrayList<>(keySet);
         ConcurrentHashMap<BytesRef, VersionValue> values = new ConcurrentHashMap<>();
         ConcurrentHashMap<BytesRef, DeleteVersionValue> deletes = new ConcurrentHashMap<>();
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         int numThreads = randomIntBetween(2, 5);
 
         Thread[] threads = new Thread[numThreads];
@@ -273,7 +299,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testCarryOnSafeAccess() throws IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         assertFalse(map.isUnsafe());
         assertFalse(map.isSafeAccessRequired());
         map.enforceSafeAccess();
@@ -305,7 +331,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testRefreshTransition() throws IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         try (Releasable r = map.acquireLock(uid("1"))) {
             map.maybePutIndexUnderLock(uid("1"), randomIndexVersionValue());
             assertTrue(map.isUnsafe());
@@ -333,7 +359,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testAddAndDeleteRefreshConcurrently() throws IOException, InterruptedException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         int numIters = randomIntBetween(1000, 5000);
         AtomicBoolean done = new AtomicBoolean(false);
         AtomicLong version = new AtomicLong();
@@ -390,7 +416,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testPruneTombstonesWhileLocked() throws InterruptedException, IOException {
-        LiveVersionMap map = new LiveVersionMap();
+        LiveVersionMap map = newLiveVersionMap();
         BytesRef uid = uid("1");
 
         try (Releasable ignore = map.acquireLock(uid)) {
@@ -413,7 +439,7 @@ public class LiveVersionMapTests extends ESTestCase {
     }
 
     public void testRandomlyIndexDeleteAndRefresh() throws Exception {
-        final LiveVersionMap versionMap = new LiveVersionMap();
+        final LiveVersionMap versionMap = newLiveVersionMap();
         final BytesRef uid = uid("1");
         final long versions = between(10, 1000);
         VersionValue latestVersion = null;
@@ -446,6 +472,45 @@ public class LiveVersionMapTests extends ESTestCase {
         }
     }
 
+    public void testPagedStore() {
+        final BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+        final Map<BytesRef, VersionValue> expected = new HashMap<>();
+        try (PagedLiveVersionStore store = new PagedLiveVersionStore(randomIntBetween(0, 100), bigArrays)) {
+            assertTrue(store.isEmpty());
+            final long emptyBytes = store.ramBytesUsed();
+            assertThat(emptyBytes, greaterThan(0L));
+            final List<BytesRef> uids = new ArrayList<>();
+            final int numUids = randomIntBetween(1, 2000);
+            for (int i = 0; i < numUids; i++) {
+                uids.add(uid(TestUtil.randomSimpleString(random(), 1, 20)));
+            }
+            final int iters = randomIntBetween(100, 10000);
+            for (int i = 0; i < iters; i++) {
+                final BytesRef uid = randomFrom(uids);
+                if (randomInt(3) == 0) {
+                    assertEquals(expected.remove(uid), store.remove(uid));
+                } else {
+                    final IndexVersionValue value = randomIndexVersionValue();
+                    assertEquals(expected.put(uid, value), store.put(uid, value));
+                }
+                assertEquals(expected.get(uid), store.get(uid));
+                assertEquals(expected.size(), store.size());
+            }
+            for (BytesRef uid : uids) {
+                assertEquals(expected.get(uid), store.get(uid));
+            }
+            assertEquals(expected, store.asMap());
+            assertThat(store.ramBytesUsed(), greaterThan(0L));
+
+            store.close();
+            assertTrue(store.isEmpty());
+            assertEquals(0L, store.ramBytesUsed());
+            assertNull(store.get(randomFrom(uids)));
+            assertNull(store.put(randomFrom(uids), randomIndexVersionValue()));
+            assertTrue(store.asMap().isEmpty());
+        }
+    }
+
     IndexVersionValue randomIndexVersionValue() {
         return new IndexVersionValue(randomTranslogLocation(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
     }
@@ -28,12 +28,15 @@ import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.fielddata.plain.AbstractAtomicOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.plain.PagedBytesIndexFieldData;
@@ -41,10 +44,13 @@ import org.elasticsearch.index.fielddata.plain.SortedSetDVOrdinalsIndexFieldData
 import org.elasticsearch.index.mapper.TextFieldMapper;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.FieldMaskingReader;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
 
 public class FieldDataCacheTests extends ESTestCase {
 
@@ -87,6 +93,152 @@ public class FieldDataCacheTests extends ESTestCase {
         dir.close();
     }
 
+    public void testHasGlobalOrdinals() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        int numSegments = randomIntBetween(2, 5);
+        for (int i = 0; i < numSegments; i++) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("field1", new BytesRef(String.valueOf(i))));
+            iw.addDocument(doc);
+            iw.commit();
+        }
+        iw.close();
+        DirectoryReader ir =
+            ElasticsearchDirectoryReader.wrap(DirectoryReader.open(dir), new ShardId("_index", "_na_", 0));
+        assertThat(ir.leaves().size(), equalTo(numSegments));
+
+        IndicesFieldDataCache indicesFieldDataCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {});
+        IndexFieldDataCache fieldDataCache =
+            indicesFieldDataCache.buildIndexFieldDataCache(new IndexFieldDataCache.Listener() {}, new Index("_index", "_na_"), "field1");
+        SortedSetDVOrdinalsIndexFieldData sortedSetDVOrdinalsIndexFieldData = createSortedDV("field1", fieldDataCache);
+        assertFalse(sortedSetDVOrdinalsIndexFieldData.hasGlobalOrdinals(ir));
+        sortedSetDVOrdinalsIndexFieldData.loadGlobal(ir);
+        assertTrue(sortedSetDVOrdinalsIndexFieldData.hasGlobalOrdinals(ir));
+
+        // global ordinals are not cached by a non-caching cache
+        SortedSetDVOrdinalsIndexFieldData notCached = createSortedDV("field1", new IndexFieldDataCache.None());
+        notCached.loadGlobal(ir);
+        assertFalse(notCached.hasGlobalOrdinals(ir));
+
+        ir.close();
+        indicesFieldDataCache.close();
+        dir.close();
+    }
+
+    public void testLoadGlobalIncrementally() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        for (int i = 0; i < 1000; i++) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("field1", new BytesRef(String.valueOf(i))));
+            iw.addDocument(doc);
+        }
+        iw.commit();
+        Document doc = new Document();
+        doc.add(new SortedSetDocValuesField("field1", new BytesRef("a")));
+        iw.addDocument(doc);
+        iw.commit();
+        DirectoryReader ir =
+            ElasticsearchDirectoryReader.wrap(DirectoryReader.open(dir), new ShardId("_index", "_na_", 0));
+
+        IndicesFieldDataCache indicesFieldDataCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {});
+        ShardFieldData shardFieldData = new ShardFieldData();
+        IndexFieldDataCache fieldDataCache =
+            indicesFieldDataCache.buildIndexFieldDataCache(shardFieldData, new Index("_index", "_na_"), "field1");
+        SortedSetDVOrdinalsIndexFieldData sortedSetDVOrdinalsIndexFieldData = createSortedDV("field1", fieldDataCache);
+        assertNull(fieldDataCache.getPreviousGlobal(ir));
+        sortedSetDVOrdinalsIndexFieldData.loadGlobal(ir);
+        assertNotNull(fieldDataCache.getPreviousGlobal(ir));
+        FieldDataStats stats = shardFieldData.stats();
+        assertEquals(1, stats.getGlobalOrdinalsBuildCount());
+        assertEquals(0, stats.getGlobalOrdinalsIncrementalBuildCount());
+        final long firstMemorySize = stats.getGlobalOrdinalsMemorySizeInBytes();
+        assertThat(firstMemorySize, greaterThan(0L));
+
+        doc = new Document();
+        doc.add(new SortedSetDocValuesField("field1", new BytesRef("b")));
+        iw.addDocument(doc);
+        iw.commit();
+        DirectoryReader newIr = DirectoryReader.openIfChanged(ir);
+        assertThat(newIr.leaves().size(), equalTo(3));
+        IndexOrdinalsFieldData global = sortedSetDVOrdinalsIndexFieldData.loadGlobal(newIr);
+        stats = shardFieldData.stats();
+        assertEquals(2, stats.getGlobalOrdinalsBuildCount());
+        assertEquals(1, stats.getGlobalOrdinalsIncrementalBuildCount());
+        SortedSetDocValues values = global.load(newIr.leaves().get(2)).getOrdinalsValues();
+        assertEquals(1002, values.getValueCount());
+        assertTrue(values.advanceExact(0));
+        long ord = values.nextOrd();
+        assertEquals(new BytesRef("b"), values.lookupOrd(ord));
+        assertEquals(1001, ord);
+
+        ir.close();
+        assertThat(shardFieldData.stats().getGlobalOrdinalsMemorySizeInBytes(), lessThan(stats.getGlobalOrdinalsMemorySizeInBytes()));
+        newIr.close();
+        assertEquals(0, shardFieldData.stats().getGlobalOrdinalsMemorySizeInBytes());
+        iw.close();
+        indicesFieldDataCache.close();
+        dir.close();
+    }
+
+    public void testLoadGlobalWithOrdinalMap() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null);
+        iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(dir, iwc);
+        for (int i = 0; i < 1000; i++) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("field1", new BytesRef(String.valueOf(i))));
+            iw.addDocument(doc);
+        }
+        iw.commit();
+        Document doc = new Document();
+        doc.add(new SortedSetDocValuesField("field1", new BytesRef("a")));
+        iw.addDocument(doc);
+        iw.commit();
+        DirectoryReader ir =
+            ElasticsearchDirectoryReader.wrap(DirectoryReader.open(dir), new ShardId("_index", "_na_", 0));
+
+        // the small segment is kept out of the base map of incremental global ordinals
+        SortedSetDVOrdinalsIndexFieldData incremental = createSortedDV("field1", new IndexFieldDataCache.None());
+        expectThrows(IllegalStateException.class, () -> incremental.loadGlobal(ir).getOrdinalMap());
+
+        IndicesFieldDataCache indicesFieldDataCache = new IndicesFieldDataCache(Settings.EMPTY, new IndexFieldDataCache.Listener() {});
+        ShardFieldData shardFieldData = new ShardFieldData();
+        IndexFieldDataCache fieldDataCache =
+            indicesFieldDataCache.buildIndexFieldDataCache(shardFieldData, new Index("_index", "_na_"), "field1");
+        SortedSetDVOrdinalsIndexFieldData sortedSetDVOrdinalsIndexFieldData = new SortedSetDVOrdinalsIndexFieldData(
+            createIndexSettings(), fieldDataCache, "field1", new NoneCircuitBreakerService(),
+            AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION, true);
+        OrdinalMap ordinalMap = sortedSetDVOrdinalsIndexFieldData.loadGlobal(ir).getOrdinalMap();
+        assertEquals(1001, ordinalMap.getValueCount());
+        assertEquals(1, shardFieldData.stats().getGlobalOrdinalsBuildCount());
+
+        // global ordinals are never built incrementally when the ordinal map is required
+        doc = new Document();
+        doc.add(new SortedSetDocValuesField("field1", new BytesRef("b")));
+        iw.addDocument(doc);
+        iw.commit();
+        DirectoryReader newIr = DirectoryReader.openIfChanged(ir);
+        ordinalMap = sortedSetDVOrdinalsIndexFieldData.loadGlobal(newIr).getOrdinalMap();
+        assertEquals(1002, ordinalMap.getValueCount());
+        FieldDataStats stats = shardFieldData.stats();
+        assertEquals(2, stats.getGlobalOrdinalsBuildCount());
+        assertEquals(0, stats.getGlobalOrdinalsIncrementalBuildCount());
+
+        ir.close();
+        newIr.close();
+        assertEquals(0, shardFieldData.stats().getGlobalOrdinalsMemorySizeInBytes());
+        iw.close();
+        indicesFieldDataCache.close();
+        dir.close();
+    }
+
     private SortedSetDVOrdinalsIndexFieldData createSortedDV(String fieldName, IndexFieldDataCache indexFieldDataCache) {
         return new SortedSetDVOrdinalsIndexFieldData(createIndexSettings(), indexFieldDataCache, fieldName, new NoneCircuitBreakerService(),
                 AbstractAtomicOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION);
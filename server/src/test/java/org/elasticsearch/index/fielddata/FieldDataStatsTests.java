@@ -18,11 +18,13 @@
  */
 package org.elasticsearch.index.fielddata;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.FieldMemoryStats;
 import org.elasticsearch.common.FieldMemoryStatsTests;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
 
 import java.io.IOException;
 
@@ -30,7 +32,8 @@ public class FieldDataStatsTests extends ESTestCase {
 
     public void testSerialize() throws IOException {
         FieldMemoryStats map = randomBoolean() ? null : FieldMemoryStatsTests.randomFieldMemoryStats();
-        FieldDataStats stats = new FieldDataStats(randomNonNegativeLong(), randomNonNegativeLong(), map);
+        FieldDataStats stats = new FieldDataStats(randomNonNegativeLong(), randomNonNegativeLong(), map, randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
         BytesStreamOutput out = new BytesStreamOutput();
         stats.writeTo(out);
         StreamInput input = out.bytes().streamInput();
@@ -39,5 +42,30 @@ public class FieldDataStatsTests extends ESTestCase {
         assertEquals(stats.getEvictions(), read.getEvictions());
         assertEquals(stats.getMemorySize(), read.getMemorySize());
         assertEquals(stats.getFields(), read.getFields());
+        assertEquals(stats, read);
+    }
+
+    public void testSerializeBwc() throws IOException {
+        FieldDataStats stats = new FieldDataStats(randomNonNegativeLong(), randomNonNegativeLong(), null, randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+        BytesStreamOutput out = new BytesStreamOutput();
+        Version version = VersionUtils.getPreviousVersion(Version.V_8_0_0);
+        out.setVersion(version);
+        stats.writeTo(out);
+        StreamInput input = out.bytes().streamInput();
+        input.setVersion(version);
+        FieldDataStats read = new FieldDataStats(input);
+        assertEquals(-1, input.read());
+        assertEquals(stats.getMemorySize(), read.getMemorySize());
+        assertEquals(0, read.getGlobalOrdinalsMemorySizeInBytes());
+        assertEquals(0, read.getGlobalOrdinalsBuildCount());
+        assertEquals(0, read.getGlobalOrdinalsIncrementalBuildCount());
+        assertEquals(0, read.getGlobalOrdinalsBuildTimeInMillis());
+    }
+
+    public void testAdd() {
+        FieldDataStats stats = new FieldDataStats(1, 2, null, 3, 4, 5, 6);
+        stats.add(new FieldDataStats(10, 20, null, 30, 40, 50, 60));
+        assertEquals(new FieldDataStats(11, 22, null, 33, 44, 55, 66), stats);
     }
 }
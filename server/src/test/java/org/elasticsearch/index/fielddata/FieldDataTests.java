@@ -26,6 +26,7 @@ import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class FieldDataTests extends ESTestCase {
 
@@ -224,4 +225,75 @@ public class FieldDataTests extends ESTestCase {
         assertTrue(replaced.advanceExact(5));
         assertEquals(1.4, replaced.doubleValue(), 0d);
     }
+
+    public void testReadValues() throws IOException {
+        final int maxDoc = randomIntBetween(1, 1000);
+        final double[][] docValues = new double[maxDoc][];
+        final boolean singleValued = randomBoolean();
+        for (int doc = 0; doc < maxDoc; ++doc) {
+            docValues[doc] = new double[singleValued ? randomIntBetween(0, 1) : randomIntBetween(0, 5)];
+            for (int i = 0; i < docValues[doc].length; ++i) {
+                docValues[doc][i] = randomDouble();
+            }
+            Arrays.sort(docValues[doc]);
+        }
+        final NumericDoubleValues singleValues = new NumericDoubleValues() {
+            int docID = -1;
+
+            @Override
+            public boolean advanceExact(int target) throws IOException {
+                assertTrue(target >= docID);
+                docID = target;
+                return docValues[target].length > 0;
+            }
+
+            @Override
+            public double doubleValue() throws IOException {
+                return docValues[docID][0];
+            }
+        };
+        final SortedNumericDoubleValues multiValues = new SortedNumericDoubleValues() {
+            int docID = -1;
+            int index;
+
+            @Override
+            public boolean advanceExact(int target) throws IOException {
+                assertTrue(target >= docID);
+                docID = target;
+                index = 0;
+                return docValues[target].length > 0;
+            }
+
+            @Override
+            public double nextValue() throws IOException {
+                return docValues[docID][index++];
+            }
+
+            @Override
+            public int docValueCount() {
+                return docValues[docID].length;
+            }
+        };
+        final SortedNumericDoubleValues values = singleValued && randomBoolean() ? FieldData.singleton(singleValues) : multiValues;
+
+        final DoubleValuesBlock block = new DoubleValuesBlock();
+        final int[] docs = new int[maxDoc];
+        int doc = randomIntBetween(0, maxDoc - 1);
+        while (doc < maxDoc) {
+            final int count = randomIntBetween(1, 50);
+            int numDocs = 0;
+            for (; numDocs < count && doc < maxDoc; ++numDocs) {
+                docs[numDocs] = doc;
+                doc += randomIntBetween(1, 3);
+            }
+            values.readValues(docs, numDocs, block);
+            int size = 0;
+            for (int i = 0; i < numDocs; ++i) {
+                for (double value : docValues[docs[i]]) {
+                    assertEquals(value, block.values()[size++], 0d);
+                }
+            }
+            assertEquals(size, block.size());
+        }
+    }
 }
@@ -0,0 +1,245 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Locale;
+
+public class IncrementalOrdinalMapTests extends ESTestCase {
+
+    private static final String FIELD = "field";
+
+    private int nextId = 0;
+
+    private void addDocuments(IndexWriter writer, int numDocs, int maxTerm) throws IOException {
+        for (int i = 0; i < numDocs; i++) {
+            final Document doc = new Document();
+            doc.add(new StringField("id", Integer.toString(nextId++), Field.Store.NO));
+            final int numValues = randomIntBetween(0, 3);
+            for (int j = 0; j < numValues; j++) {
+                doc.add(new SortedSetDocValuesField(FIELD, new BytesRef(Integer.toString(randomIntBetween(0, maxTerm)))));
+            }
+            writer.addDocument(doc);
+        }
+        writer.commit();
+    }
+
+    private static SortedSetDocValues[] subs(DirectoryReader reader) throws IOException {
+        final SortedSetDocValues[] subs = new SortedSetDocValues[reader.leaves().size()];
+        for (int i = 0; i < subs.length; i++) {
+            subs[i] = DocValues.getSortedSet(reader.leaves().get(i).reader(), FIELD);
+        }
+        return subs;
+    }
+
+    private static IncrementalOrdinalMap build(DirectoryReader reader, IncrementalOrdinalMap previous) throws IOException {
+        final IncrementalOrdinalMap map = IncrementalOrdinalMap.build(FIELD, reader.leaves(), subs(reader), previous);
+        assertSameGlobalOrds(reader, map);
+        return map;
+    }
+
+    /**
+     * Checks that the given map assigns the same global ordinals as an {@link OrdinalMap} of all segments.
+     */
+    private static void assertSameGlobalOrds(DirectoryReader reader, IncrementalOrdinalMap map) throws IOException {
+        final SortedSetDocValues[] subs = subs(reader);
+        final OrdinalMap expected = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+        assertEquals(expected.getValueCount(), map.getValueCount());
+        for (int leaf = 0; leaf < subs.length; leaf++) {
+            final LongValues expectedGlobalOrds = expected.getGlobalOrds(leaf);
+            final LongValues globalOrds = map.getGlobalOrds(leaf);
+            for (long ord = 0; ord < subs[leaf].getValueCount(); ord++) {
+                assertEquals(expectedGlobalOrds.get(ord), globalOrds.get(ord));
+            }
+        }
+        final SortedSetDocValues[] lookups = subs(reader);
+        for (long globalOrd = 0; globalOrd < map.getValueCount(); globalOrd++) {
+            final BytesRef expectedTerm = BytesRef.deepCopyOf(subs[expected.getFirstSegmentNumber(globalOrd)]
+                .lookupOrd(expected.getFirstSegmentOrd(globalOrd)));
+            final int leaf = map.getFirstSegmentNumber(globalOrd);
+            final long segmentOrd = map.getFirstSegmentOrd(globalOrd);
+            assertEquals(expectedTerm, lookups[leaf].lookupOrd(segmentOrd));
+            assertEquals(globalOrd, map.getGlobalOrds(leaf).get(segmentOrd));
+        }
+    }
+
+    public void testDuel() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE))) {
+            final int maxTerm = randomIntBetween(1, 5000);
+            addDocuments(writer, randomIntBetween(1, 2000), maxTerm);
+            IncrementalOrdinalMap map = null;
+            DirectoryReader reader = DirectoryReader.open(dir);
+            final int iters = randomIntBetween(1, 20);
+            for (int iter = 0; iter < iters; iter++) {
+                final int numSegments = randomIntBetween(1, 3);
+                for (int i = 0; i < numSegments; i++) {
+                    addDocuments(writer, randomIntBetween(0, 50), randomBoolean() ? maxTerm : maxTerm * 2);
+                }
+                if (randomBoolean()) {
+                    writer.deleteDocuments(new Term("id", Integer.toString(randomInt(nextId - 1))));
+                    writer.commit();
+                }
+                if (rarely()) {
+                    writer.getConfig().setMergePolicy(new TieredMergePolicy());
+                    writer.forceMerge(randomIntBetween(1, 3));
+                    writer.getConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+                }
+                final DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+                if (newReader != null) {
+                    reader.close();
+                    reader = newReader;
+                }
+                map = build(reader, randomBoolean() ? map : null);
+            }
+            reader.close();
+        }
+    }
+
+    public void testReuseBaseOfPreviousReader() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE))) {
+            addDocuments(writer, 5000, 10000);
+            addDocuments(writer, 10, 20000);
+            final DirectoryReader firstReader = DirectoryReader.open(dir);
+            final IncrementalOrdinalMap first = build(firstReader, null);
+            assertFalse(first.isIncremental());
+            // the small segment isn't part of the base map
+            assertNull(first.getOrdinalMap());
+
+            // new segments and deletes in the base segment reuse the base map
+            addDocuments(writer, 10, 20000);
+            writer.deleteDocuments(new Term("id", "0"));
+            writer.commit();
+            final DirectoryReader secondReader = DirectoryReader.openIfChanged(firstReader);
+            firstReader.close();
+            final IncrementalOrdinalMap second = build(secondReader, first);
+            assertTrue(second.isIncremental());
+            // a reader that opens the same segments again has new segment cores
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                assertFalse(build(reader, second).isIncremental());
+            }
+
+            // the base segment was merged away
+            writer.getConfig().setMergePolicy(new TieredMergePolicy());
+            writer.forceMerge(1);
+            writer.getConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            addDocuments(writer, 10, 20000);
+            try (DirectoryReader thirdReader = DirectoryReader.openIfChanged(secondReader)) {
+                secondReader.close();
+                assertEquals(2, thirdReader.leaves().size());
+                assertFalse(build(thirdReader, second).isIncremental());
+            }
+        }
+    }
+
+    public void testNewTermsAroundBlocks() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE))) {
+            // the base segment has the even terms
+            final int blockSize = IncrementalOrdinalMap.BLOCK_SIZE;
+            final int numBaseTerms = blockSize * randomIntBetween(2, 10) + randomInt(blockSize);
+            for (int i = 0; i < numBaseTerms; i++) {
+                addTerm(writer, 2 * i);
+            }
+            writer.commit();
+            final DirectoryReader firstReader = DirectoryReader.open(dir);
+            final IncrementalOrdinalMap first = build(firstReader, null);
+
+            // new odd terms go right before and after the first term of blocks, before all terms and after all terms
+            addTerm(writer, -1);
+            addTerm(writer, 2 * numBaseTerms + 1);
+            for (int block = blockSize; block < numBaseTerms; block += blockSize) {
+                if (randomBoolean()) {
+                    addTerm(writer, 2 * block - 1);
+                }
+                if (randomBoolean()) {
+                    addTerm(writer, 2 * block + 1);
+                }
+            }
+            writer.commit();
+            try (DirectoryReader secondReader = DirectoryReader.openIfChanged(firstReader)) {
+                firstReader.close();
+                assertTrue(build(secondReader, first).isIncremental());
+            }
+        }
+    }
+
+    private static void addTerm(IndexWriter writer, int term) throws IOException {
+        final Document doc = new Document();
+        // pad terms so that they sort like numbers, -1 sorts first
+        doc.add(new SortedSetDocValuesField(FIELD, new BytesRef(term < 0 ? "" : String.format(Locale.ROOT, "%06d", term))));
+        writer.addDocument(doc);
+    }
+
+    public void testBuildFull() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE))) {
+            addDocuments(writer, 5000, 10000);
+            addDocuments(writer, 10, 20000);
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                final IncrementalOrdinalMap map = IncrementalOrdinalMap.buildFull(FIELD, reader.leaves(), subs(reader));
+                assertSameGlobalOrds(reader, map);
+                assertFalse(map.isIncremental());
+                // the small segment is part of the ordinal map
+                assertNotNull(map.getOrdinalMap());
+                assertEquals(map.getValueCount(), map.getOrdinalMap().getValueCount());
+            }
+        }
+    }
+
+    public void testAllSegmentsInBase() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null).setMergePolicy(NoMergePolicy.INSTANCE))) {
+            final int numSegments = randomIntBetween(2, 5);
+            for (int i = 0; i < numSegments; i++) {
+                addDocuments(writer, 100, 1000);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(dir)) {
+                final IncrementalOrdinalMap map = build(reader, null);
+                assertFalse(map.isIncremental());
+                // segments of similar sizes all go to the base map, which is then the ordinal map of all segments
+                assertNotNull(map.getOrdinalMap());
+                assertEquals(map.getValueCount(), map.getOrdinalMap().getValueCount());
+                // the same reader reuses the base map as-is
+                assertSame(map.getOrdinalMap(), build(reader, map).getOrdinalMap());
+            }
+        }
+    }
+}
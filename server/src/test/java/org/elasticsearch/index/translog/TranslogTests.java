@@ -84,6 +84,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.CopyOption;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
@@ -109,6 +110,7 @@ import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -132,6 +134,7 @@ import static org.hamcrest.Matchers.hasToString;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isIn;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
@@ -490,6 +493,10 @@ public class TranslogTests extends ESTestCase {
             final TranslogStats copy = new TranslogStats(out.bytes().streamInput());
             assertThat(copy.estimatedNumberOfOperations(), equalTo(4));
             assertThat(copy.getTranslogSizeInBytes(), equalTo(expectedSizeInBytes));
+            assertThat(copy.getSyncs(), greaterThan(0L));
+            assertThat(copy.getSyncs(), equalTo(stats.getSyncs()));
+            assertThat(copy.getSyncedOperations(), equalTo(4L));
+            assertThat(copy.getSyncTimeInMillis(), equalTo(stats.getSyncTimeInMillis()));
 
             try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
                 builder.startObject();
@@ -497,7 +504,9 @@ public class TranslogTests extends ESTestCase {
                 builder.endObject();
                 assertThat(Strings.toString(builder), equalTo("{\"translog\":{\"operations\":4,\"size_in_bytes\":" + expectedSizeInBytes
                     + ",\"uncommitted_operations\":4,\"uncommitted_size_in_bytes\":" + expectedSizeInBytes
-                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge() + "}}"));
+                    + ",\"earliest_last_modified_age\":" + stats.getEarliestLastModifiedAge()
+                    + ",\"sync\":{\"total\":" + stats.getSyncs() + ",\"operations\":4,\"total_time_in_millis\":"
+                    + stats.getSyncTimeInMillis() + "}}}"));
             }
         }
 
@@ -1171,6 +1180,59 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testSyncGroupCommit() throws Exception {
+        final long windowInMillis = randomIntBetween(5, 20);
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_SYNC_GROUP_COMMIT_WINDOW_SETTING.getKey(), windowInMillis + "ms")
+            .build();
+        final Path tempDir = createTempDir();
+        final TranslogConfig config = getTranslogConfig(tempDir, settings);
+        final String translogUUID = Translog.createEmptyTranslog(tempDir, SequenceNumbers.NO_OPS_PERFORMED, shardId, primaryTerm.get());
+        try (Translog groupCommitTranslog = new Translog(config, translogUUID, createTranslogDeletionPolicy(config.getIndexSettings()),
+            () -> SequenceNumbers.NO_OPS_PERFORMED, primaryTerm::get, seqNo -> {})) {
+            final int threads = randomIntBetween(2, 8);
+            final int opsPerThread = randomIntBetween(10, 50);
+            final AtomicLong seqNoGenerator = new AtomicLong();
+            final CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+            final List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final Thread writer = new Thread(new AbstractRunnable() {
+                    @Override
+                    public void onFailure(Exception e) {
+                        throw new AssertionError(e);
+                    }
+
+                    @Override
+                    protected void doRun() throws Exception {
+                        barrier.await();
+                        for (int i = 0; i < opsPerThread; i++) {
+                            final long seqNo = seqNoGenerator.getAndIncrement();
+                            final Location location = groupCommitTranslog.add(
+                                new Translog.Index("test", Long.toString(seqNo), seqNo, primaryTerm.get(), new byte[]{1}));
+                            groupCommitTranslog.ensureSynced(location);
+                            assertFalse("location must be durable once ensureSynced returns",
+                                groupCommitTranslog.ensureSynced(location));
+                        }
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            barrier.await();
+            final long startNanos = System.nanoTime();
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            final long tookInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            final TranslogStats stats = groupCommitTranslog.stats();
+            assertThat(stats.getSyncedOperations(), equalTo((long) threads * opsPerThread));
+            // two consecutive fsyncs of the same writer always start at least one window apart
+            assertThat(stats.getSyncs(), lessThanOrEqualTo(tookInMillis / windowInMillis + 2));
+            assertFalse(groupCommitTranslog.syncNeeded());
+        }
+    }
+
     public void testSyncUpToStream() throws IOException {
         int iters = randomIntBetween(5, 10);
         for (int i = 0; i < iters; i++) {
@@ -2860,6 +2922,60 @@ public class TranslogTests extends ESTestCase {
         assertEquals(delete, serializedDelete);
     }
 
+    public void testCompressedSource() throws IOException {
+        final Path compressedPath = createTempDir();
+        final Path uncompressedPath = createTempDir();
+        final List<Translog.Operation> ops = new ArrayList<>();
+        final List<Location> locations = new ArrayList<>();
+        final String translogUUID;
+        try (Translog compressed = createTranslog(getTranslogConfig(compressedPath, compressionSettings(true)));
+             Translog uncompressed = createTranslog(getTranslogConfig(uncompressedPath, compressionSettings(false)))) {
+            translogUUID = compressed.getTranslogUUID();
+            final int numOps = randomIntBetween(10, 100);
+            for (int seqNo = 0; seqNo < numOps; seqNo++) {
+                final Translog.Operation op;
+                if (rarely()) {
+                    op = new Translog.Delete("test", Integer.toString(seqNo), seqNo, primaryTerm.get(), newUid(Integer.toString(seqNo)));
+                } else {
+                    final String source = "{\"message\":\"" + randomFrom("GET", "PUT", "POST") + " /index.html HTTP/1.1\","
+                        + "\"status\":" + randomFrom(200, 404, 500) + ",\"bytes\":" + randomIntBetween(0, 1 << 20) + "}";
+                    op = new Translog.Index("test", Integer.toString(seqNo), seqNo, primaryTerm.get(), randomNonNegativeLong(),
+                        source.getBytes(StandardCharsets.UTF_8), randomBoolean() ? null : randomAlphaOfLength(5), randomLong());
+                }
+                locations.add(addToTranslogAndList(compressed, ops, op));
+                uncompressed.add(op);
+            }
+            assertThat(compressed.sizeInBytes(), lessThan(uncompressed.sizeInBytes()));
+            try (Translog.Snapshot snapshot = compressed.newSnapshot()) {
+                assertThat(snapshot, SnapshotMatchers.equalsTo(ops));
+            }
+            for (int i = 0; i < ops.size(); i++) {
+                assertEquals(ops.get(i), compressed.readOperation(locations.get(i)));
+            }
+            compressed.sync();
+        }
+
+        // operations written with and without compression can be mixed, also within the same generation
+        try (Translog translog = openTranslog(getTranslogConfig(compressedPath, compressionSettings(false)), translogUUID)) {
+            final int seqNo = ops.size();
+            locations.add(addToTranslogAndList(translog, ops,
+                new Translog.Index("test", Integer.toString(seqNo), seqNo, primaryTerm.get(), new byte[]{1})));
+            try (Translog.Snapshot snapshot = translog.newSnapshot()) {
+                assertThat(snapshot, containsOperationsInAnyOrder(ops));
+            }
+            for (int i = 0; i < ops.size(); i++) {
+                assertEquals(ops.get(i), translog.readOperation(locations.get(i)));
+            }
+        }
+    }
+
+    private static Settings compressionSettings(boolean compress) {
+        return Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(IndexSettings.INDEX_TRANSLOG_COMPRESS_SETTING.getKey(), compress)
+            .build();
+    }
+
     public void testRollGeneration() throws Exception {
         // make sure we keep some files around
         final boolean longRetention = randomBoolean();
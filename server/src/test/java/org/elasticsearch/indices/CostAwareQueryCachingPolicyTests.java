@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.search.DocValuesFieldExistsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class CostAwareQueryCachingPolicyTests extends ESTestCase {
+
+    private static int usesBeforeCaching(QueryCachingPolicy policy, Query query) throws IOException {
+        for (int uses = 1; uses <= 100; ++uses) {
+            policy.onUse(query);
+            if (policy.shouldCache(query)) {
+                return uses;
+            }
+        }
+        throw new AssertionError("query never got cached");
+    }
+
+    public void testUnknownCost() throws IOException {
+        final Query query = randomBoolean() ? LongPoint.newRangeQuery("foo", 1, 10) : new DocValuesFieldExistsQuery("foo");
+        final QueryCachingPolicy policy = new CostAwareQueryCachingPolicy(q -> Double.NaN);
+        assertEquals(usesBeforeCaching(new UsageTrackingQueryCachingPolicy(), query), usesBeforeCaching(policy, query));
+    }
+
+    public void testAverageCost() throws IOException {
+        final Query query = randomBoolean() ? LongPoint.newRangeQuery("foo", 1, 10) : new DocValuesFieldExistsQuery("foo");
+        final QueryCachingPolicy policy = new CostAwareQueryCachingPolicy(q -> 1d);
+        assertEquals(usesBeforeCaching(new UsageTrackingQueryCachingPolicy(), query), usesBeforeCaching(policy, query));
+    }
+
+    public void testExpensiveQueriesAreCachedEarlier() throws IOException {
+        final Query query = new DocValuesFieldExistsQuery("foo");
+        final int defaultUses = usesBeforeCaching(new UsageTrackingQueryCachingPolicy(), query);
+        assertEquals(3, usesBeforeCaching(new CostAwareQueryCachingPolicy(q -> 2d), query));
+        assertEquals(1, usesBeforeCaching(new CostAwareQueryCachingPolicy(q -> defaultUses), query));
+        assertEquals(1, usesBeforeCaching(new CostAwareQueryCachingPolicy(q -> Double.POSITIVE_INFINITY), query));
+    }
+
+    public void testCheapQueriesAreCachedLater() throws IOException {
+        final Query query = LongPoint.newRangeQuery("foo", 1, 10);
+        final int defaultUses = usesBeforeCaching(new UsageTrackingQueryCachingPolicy(), query);
+        assertEquals(defaultUses * 2, usesBeforeCaching(new CostAwareQueryCachingPolicy(q -> 0.5), query));
+        assertEquals(defaultUses * CostAwareQueryCachingPolicy.MAX_FREQUENCY_FACTOR,
+            usesBeforeCaching(new CostAwareQueryCachingPolicy(q -> 0.01), query));
+        assertEquals(defaultUses * CostAwareQueryCachingPolicy.MAX_FREQUENCY_FACTOR,
+            usesBeforeCaching(new CostAwareQueryCachingPolicy(q -> 0d), query));
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.cache.request.RequestCacheStats;
+import org.elasticsearch.index.cache.request.ShardRequestCache;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class IndicesAggregationCacheTests extends ESTestCase {
+
+    private static final long QUERY_RAM_BYTES_USED = 100;
+
+    private static CircuitBreaker newBreaker(String limit) {
+        Settings settings = Settings.builder()
+            .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+            .put(HierarchyCircuitBreakerService.ACCOUNTING_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), limit)
+            .build();
+        return new HierarchyCircuitBreakerService(settings, new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS))
+            .getBreaker(CircuitBreaker.ACCOUNTING);
+    }
+
+    private static DirectoryReader newReader(IndexWriter writer) throws Exception {
+        return ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+    }
+
+    private static Document newDoc(String id) {
+        Document doc = new Document();
+        doc.add(new StringField("id", id, Field.Store.NO));
+        return doc;
+    }
+
+    private static void assertStats(ShardRequestCache stats, long expectedHits, long expectedMisses, long expectedEvictions) {
+        RequestCacheStats requestCacheStats = stats.stats();
+        assertEquals(Arrays.asList(expectedHits, expectedMisses, expectedEvictions),
+            Arrays.asList(requestCacheStats.getAggregationsHitCount(), requestCacheStats.getAggregationsMissCount(),
+                requestCacheStats.getAggregationsEvictions()));
+        // the request cache is not used
+        assertEquals(0, requestCacheStats.getHitCount() + requestCacheStats.getMissCount() + requestCacheStats.getMemorySizeInBytes());
+    }
+
+    public void testBasicOperations() throws Exception {
+        ShardRequestCache stats = new ShardRequestCache();
+        CircuitBreaker breaker = newBreaker("100mb");
+        IndicesAggregationCache cache = new IndicesAggregationCache(Settings.EMPTY, breaker);
+        assertTrue(cache.isEnabled());
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        writer.addDocument(newDoc("0"));
+        DirectoryReader reader = newReader(writer);
+        AtomicBoolean indexShard = new AtomicBoolean(true);
+        TestEntity entity = new TestEntity(stats, indexShard);
+        Query query = new TermQuery(new Term("id", "0"));
+        BytesReference aggregationKey = new BytesArray("histo");
+        BytesReference value = new BytesArray(randomByteArrayOfLength(between(1, 100)));
+
+        assertNull(cache.get(entity, reader, query, QUERY_RAM_BYTES_USED, aggregationKey));
+        assertStats(stats, 0, 1, 0);
+        cache.put(entity, reader, query, QUERY_RAM_BYTES_USED, aggregationKey, value);
+        assertEquals(1, cache.count());
+        assertEquals(1, cache.numRegisteredCloseListeners());
+        long memorySize = stats.stats().getAggregationsMemorySizeInBytes();
+        assertTrue(memorySize > value.length());
+        assertEquals(memorySize, breaker.getUsed());
+
+        // another entity of the same shard and equal keys hit the cache
+        entity = new TestEntity(stats, indexShard);
+        assertEquals(value, cache.get(entity, reader, new TermQuery(new Term("id", "0")), QUERY_RAM_BYTES_USED, new BytesArray("histo")));
+        assertStats(stats, 1, 1, 0);
+
+        // the query, the aggregation and the reader are part of the key
+        assertNull(cache.get(entity, reader, new TermQuery(new Term("id", "1")), QUERY_RAM_BYTES_USED, aggregationKey));
+        assertNull(cache.get(entity, reader, query, QUERY_RAM_BYTES_USED, new BytesArray("terms")));
+        writer.addDocument(newDoc("1"));
+        DirectoryReader secondReader = newReader(writer);
+        assertNull(cache.get(entity, secondReader, query, QUERY_RAM_BYTES_USED, aggregationKey));
+        assertStats(stats, 1, 4, 0);
+
+        // replacing an entry doesn't leak memory
+        cache.put(entity, reader, query, QUERY_RAM_BYTES_USED, aggregationKey, value);
+        assertEquals(1, cache.count());
+        assertEquals(memorySize, stats.stats().getAggregationsMemorySizeInBytes());
+        assertEquals(memorySize, breaker.getUsed());
+
+        cache.put(entity, secondReader, query, QUERY_RAM_BYTES_USED, aggregationKey, value);
+        assertEquals(2, cache.count());
+        assertEquals(2, cache.numRegisteredCloseListeners());
+
+        // closing a reader or the shard cleans up its entries
+        if (randomBoolean()) {
+            reader.close();
+            cache.cleanCache();
+            assertEquals(1, cache.count());
+            assertEquals(memorySize, stats.stats().getAggregationsMemorySizeInBytes());
+            assertEquals(memorySize, breaker.getUsed());
+        } else {
+            indexShard.set(false);
+            cache.clear(entity);
+            assertEquals(0, cache.count());
+        }
+        IOUtils.close(reader, secondReader);
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        assertEquals(0, stats.stats().getAggregationsMemorySizeInBytes());
+        assertEquals(0, breaker.getUsed());
+        assertStats(stats, 1, 4, 0);
+
+        IOUtils.close(writer, dir, cache);
+        assertEquals(0, cache.numRegisteredCloseListeners());
+    }
+
+    public void testEviction() throws Exception {
+        ShardRequestCache stats = new ShardRequestCache();
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        writer.addDocument(newDoc("0"));
+        DirectoryReader reader = newReader(writer);
+        TestEntity entity = new TestEntity(stats, new AtomicBoolean(true));
+        Query query = new TermQuery(new Term("id", "0"));
+        BytesReference value = new BytesArray(new byte[10]);
+        long entrySize = new IndicesAggregationCache.Key(entity, reader.getReaderCacheHelper().getKey(), query,
+            QUERY_RAM_BYTES_USED, new BytesArray("agg0"))
+            .ramBytesUsed() + value.ramBytesUsed();
+
+        CircuitBreaker breaker = newBreaker("100mb");
+        Settings settings = Settings.builder()
+            .put(IndicesAggregationCache.INDICES_AGGREGATIONS_CACHE_SIZE.getKey(), (entrySize * 3 - 1) + "b").build();
+        IndicesAggregationCache cache = new IndicesAggregationCache(settings, breaker);
+        for (int i = 0; i < 3; i++) {
+            cache.put(entity, reader, query, QUERY_RAM_BYTES_USED, new BytesArray("agg" + i), value);
+        }
+        assertEquals(2, cache.count());
+        assertStats(stats, 0, 0, 1);
+        // the least recently used entry was evicted
+        assertNull(cache.get(entity, reader, query, QUERY_RAM_BYTES_USED, new BytesArray("agg0")));
+        assertEquals(value, cache.get(entity, reader, query, QUERY_RAM_BYTES_USED, new BytesArray("agg1")));
+        assertEquals(value, cache.get(entity, reader, query, QUERY_RAM_BYTES_USED, new BytesArray("agg2")));
+        assertEquals(2 * entrySize, stats.stats().getAggregationsMemorySizeInBytes());
+        assertEquals(2 * entrySize, breaker.getUsed());
+
+        IOUtils.close(reader, writer, dir, cache);
+        assertEquals(0, breaker.getUsed());
+    }
+
+    public void testCircuitBreaker() throws Exception {
+        ShardRequestCache stats = new ShardRequestCache();
+        CircuitBreaker breaker = newBreaker("1kb");
+        IndicesAggregationCache cache = new IndicesAggregationCache(Settings.EMPTY, breaker);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        writer.addDocument(newDoc("0"));
+        DirectoryReader reader = newReader(writer);
+        TestEntity entity = new TestEntity(stats, new AtomicBoolean(true));
+        Query query = new TermQuery(new Term("id", "0"));
+
+        // results that would trip the breaker are not cached
+        cache.put(entity, reader, query, QUERY_RAM_BYTES_USED, new BytesArray("histo"), new BytesArray(new byte[2048]));
+        assertEquals(0, cache.count());
+        assertEquals(0, stats.stats().getAggregationsMemorySizeInBytes());
+        assertEquals(0, breaker.getUsed());
+        assertEquals(1, breaker.getTrippedCount());
+        assertNull(cache.get(entity, reader, query, QUERY_RAM_BYTES_USED, new BytesArray("histo")));
+
+        IOUtils.close(reader, writer, dir, cache);
+    }
+
+    public void testKeyRamBytesUsed() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        writer.addDocument(newDoc("0"));
+        DirectoryReader reader = newReader(writer);
+        TestEntity entity = new TestEntity(new ShardRequestCache(), new AtomicBoolean(true));
+        IndexReader.CacheKey readerCacheKey = reader.getReaderCacheHelper().getKey();
+        BytesReference aggregationKey = new BytesArray("histo");
+
+        // the estimated memory usage is used for queries that don't report it
+        Query query = new TermQuery(new Term("id", "0"));
+        long queryRamBytesUsed = randomLongBetween(0, 1 << 20);
+        assertEquals(queryRamBytesUsed, new IndicesAggregationCache.Key(entity, readerCacheKey, query, queryRamBytesUsed,
+            aggregationKey).ramBytesUsed() - new IndicesAggregationCache.Key(entity, readerCacheKey, query, 0, aggregationKey)
+            .ramBytesUsed());
+
+        Query accountableQuery = new TermInSetQuery("id", new BytesRef("0"), new BytesRef("1"));
+        assertEquals(new IndicesAggregationCache.Key(entity, readerCacheKey, accountableQuery, 0, aggregationKey).ramBytesUsed(),
+            new IndicesAggregationCache.Key(entity, readerCacheKey, accountableQuery, queryRamBytesUsed, aggregationKey).ramBytesUsed());
+
+        IOUtils.close(reader, writer, dir);
+    }
+
+    public void testDisabled() {
+        Settings settings = Settings.builder().put(IndicesAggregationCache.INDICES_AGGREGATIONS_CACHE_SIZE.getKey(), "0b").build();
+        assertFalse(new IndicesAggregationCache(settings, newBreaker("100mb")).isEnabled());
+    }
+
+    private static class TestEntity implements IndicesAggregationCache.CacheEntity {
+        private final ShardRequestCache stats;
+        private final AtomicBoolean standInForIndexShard;
+
+        private TestEntity(ShardRequestCache stats, AtomicBoolean standInForIndexShard) {
+            this.stats = stats;
+            this.standInForIndexShard = standInForIndexShard;
+        }
+
+        @Override
+        public ShardRequestCache stats() {
+            return stats;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return standInForIndexShard.get();
+        }
+
+        @Override
+        public Object getCacheIdentity() {
+            return standInForIndexShard;
+        }
+    }
+}
@@ -24,6 +24,8 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.ConstantScoreScorer;
 import org.apache.lucene.search.ConstantScoreWeight;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -42,6 +44,7 @@ import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
@@ -427,4 +430,284 @@ public class IndicesQueryCacheTests extends ESTestCase {
         cache.onClose(shard);
         cache.close();
     }
+
+    public void testQueryTypeStats() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        final int numDocs = randomIntBetween(1, 100);
+        for (int i = 0; i < numDocs; ++i) {
+            w.addDocument(new Document());
+        }
+        w.forceMerge(1);
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        assertNull(cache.getStats(shard).getQueryTypeStats());
+        assertTrue(Double.isNaN(cache.relativeCostPerByte(new DummyQuery(0))));
+
+        final int numQueries = randomIntBetween(10, 20);
+        for (int i = 0; i < numQueries; ++i) {
+            assertEquals(numDocs, s.count(new DummyQuery(i)));
+        }
+        // hits don't build doc id sets
+        assertEquals(numDocs, s.count(new DummyQuery(numQueries - 1)));
+
+        QueryCacheStats stats = cache.getStats(shard);
+        assertEquals(numQueries, stats.getCacheCount());
+        assertEquals(1, stats.getQueryTypeStats().size());
+        QueryCacheStats.QueryTypeStats typeStats = stats.getQueryTypeStats().get("DummyQuery");
+        assertEquals(numQueries, typeStats.getCacheCount());
+        assertEquals((long) numQueries * numDocs, typeStats.getDocCount());
+        assertEquals((long) numQueries * numDocs, typeStats.getMatchCount());
+        assertTrue(typeStats.getMemorySize().getBytes() > 0);
+        // the only type of query has the average cost
+        assertEquals(1d, cache.relativeCostPerByte(new DummyQuery(0)), 1e-9);
+        assertTrue(Double.isNaN(cache.relativeCostPerByte(new MatchAllDocsQuery())));
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testQueryTypeStatsOfFilterClauses() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        final int numDocs = randomIntBetween(1, 100);
+        for (int i = 0; i < numDocs; ++i) {
+            w.addDocument(new Document());
+        }
+        w.forceMerge(1);
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 100)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        // the doc id sets of filter clauses are built when their scorer supplier is pulled, after the cache lookup
+        final int numQueries = randomIntBetween(10, 20);
+        for (int i = 0; i < numQueries; ++i) {
+            final Query query = new BooleanQuery.Builder()
+                .add(new DummyQuery(2 * i), BooleanClause.Occur.FILTER)
+                .add(new DummyQuery(2 * i + 1), BooleanClause.Occur.FILTER)
+                .build();
+            assertEquals(numDocs, s.count(query));
+            assertNull(cache.lastMiss());
+        }
+
+        QueryCacheStats stats = cache.getStats(shard);
+        assertEquals(3L * numQueries, stats.getCacheCount());
+        QueryCacheStats.QueryTypeStats dummyStats = stats.getQueryTypeStats().get("DummyQuery");
+        assertNotNull(dummyStats);
+        assertEquals(2L * numQueries, dummyStats.getCacheCount());
+        assertEquals(2L * numQueries * numDocs, dummyStats.getDocCount());
+        assertEquals(2L * numQueries * numDocs, dummyStats.getMatchCount());
+        assertTrue(dummyStats.getMemorySize().getBytes() > 0);
+        QueryCacheStats.QueryTypeStats booleanStats = stats.getQueryTypeStats().get("BooleanQuery");
+        assertNotNull(booleanStats);
+        assertEquals(numQueries, booleanStats.getCacheCount());
+        assertEquals((long) numQueries * numDocs, booleanStats.getMatchCount());
+        assertFalse(Double.isNaN(cache.relativeCostPerByte(new DummyQuery(0))));
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testLastMissClearedWhenNotCached() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        w.addDocument(new Document());
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(new QueryCachingPolicy() {
+            @Override
+            public boolean shouldCache(Query query) throws IOException {
+                return false; // never cache
+            }
+            @Override
+            public void onUse(Query query) {}
+        });
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        assertEquals(1, s.count(new DummyQuery(0)));
+        QueryCacheStats stats = cache.getStats(shard);
+        assertEquals(1L, stats.getMissCount());
+        assertEquals(0L, stats.getCacheCount());
+        // the thread doesn't retain the query that wasn't cached
+        assertNull(cache.lastMiss());
+
+        final Weight cached = cache.doCache(s.createWeight(s.rewrite(new DummyQuery(1)), ScoreMode.COMPLETE_NO_SCORES, 1f),
+            s.getQueryCachingPolicy());
+        final LeafReaderContext leaf = s.getIndexReader().leaves().get(0);
+        cached.scorerSupplier(leaf);
+        assertNull(cache.lastMiss());
+        cached.bulkScorer(leaf);
+        assertNull(cache.lastMiss());
+        cached.scorer(leaf);
+        assertNull(cache.lastMiss());
+        assertEquals(4L, cache.getStats(shard).getMissCount());
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testOffHeapTier() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        // enough documents for the cached bit sets to be moved off heap
+        final int numDocs = randomIntBetween(20_000, 40_000);
+        for (int i = 0; i < numDocs; ++i) {
+            w.addDocument(new Document());
+        }
+        w.forceMerge(1);
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        // room for two sets that match all documents, which only need a header
+        final int offHeapSetBytes = 3 * Integer.BYTES;
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_OFF_HEAP_SIZE_SETTING.getKey(), (2 * offHeapSetBytes + 6) + "b")
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        assertEquals(numDocs, s.count(new DummyQuery(0)));
+        QueryCacheStats stats = cache.getStats(shard);
+        assertEquals(1L, stats.getCacheCount());
+        assertEquals(1L, stats.getOffHeapCacheCount());
+        assertEquals(1L, stats.getOffHeapCacheSize());
+        assertEquals(0L, stats.getOffHeapHitCount());
+        assertEquals(offHeapSetBytes, stats.getOffHeapMemorySize().getBytes());
+        assertEquals(offHeapSetBytes, cache.offHeapBytesUsed());
+        final long heapBytesWithOneSet = stats.getMemorySize().getBytes();
+
+        assertEquals(numDocs, s.count(new DummyQuery(0)));
+        stats = cache.getStats(shard);
+        assertEquals(1L, stats.getHitCount());
+        assertEquals(1L, stats.getOffHeapHitCount());
+
+        assertEquals(numDocs, s.count(new DummyQuery(1)));
+        stats = cache.getStats(shard);
+        assertEquals(2L, stats.getOffHeapCacheCount());
+        final long heapBytesWithTwoSets = stats.getMemorySize().getBytes();
+        // the off-heap tier is full, so the third set is kept on heap
+        assertEquals(numDocs, s.count(new DummyQuery(2)));
+        stats = cache.getStats(shard);
+        assertEquals(3L, stats.getCacheCount());
+        assertEquals(2L, stats.getOffHeapCacheCount());
+        // only the heap overhead of the off-heap sets is accounted on heap
+        final long offHeapSetOverhead = heapBytesWithTwoSets - heapBytesWithOneSet;
+        assertTrue(offHeapSetOverhead < numDocs / 8);
+        assertTrue(stats.getMemorySize().getBytes() - heapBytesWithTwoSets > offHeapSetOverhead + numDocs / 16);
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testOffHeapTierWithFilterClauses() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        // enough documents for the cached bit sets to be moved off heap
+        final int numDocs = randomIntBetween(20_000, 40_000);
+        for (int i = 0; i < numDocs; ++i) {
+            w.addDocument(new Document());
+        }
+        w.forceMerge(1);
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_OFF_HEAP_SIZE_SETTING.getKey(), "1mb")
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        // the doc id sets of the filter clauses are built when their scorer supplier is pulled
+        final Query query = new BooleanQuery.Builder()
+            .add(new DummyQuery(0), BooleanClause.Occur.FILTER)
+            .add(new DummyQuery(1), BooleanClause.Occur.FILTER)
+            .build();
+        assertEquals(numDocs, s.count(query));
+        QueryCacheStats stats = cache.getStats(shard);
+        // the sets of the two clauses and of the boolean query, which match all documents and only need a header
+        assertEquals(3L, stats.getCacheCount());
+        assertEquals(3L, stats.getOffHeapCacheCount());
+        assertEquals(3L, stats.getOffHeapCacheSize());
+        assertEquals(3 * 3 * Integer.BYTES, stats.getOffHeapMemorySize().getBytes());
+
+        // the clauses are read from the off-heap tier
+        final Query clausesOnly = new BooleanQuery.Builder()
+            .add(new DummyQuery(0), BooleanClause.Occur.FILTER)
+            .add(new DummyQuery(1), BooleanClause.Occur.FILTER)
+            .add(new DummyQuery(2), BooleanClause.Occur.FILTER)
+            .build();
+        assertEquals(numDocs, s.count(clausesOnly));
+        stats = cache.getStats(shard);
+        assertEquals(5L, stats.getOffHeapCacheCount());
+        assertEquals(2L, stats.getOffHeapHitCount());
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close();
+    }
+
+    public void testOffHeapSizeLimitedByMaxDirectMemory() {
+        final long maxDirectMemory = randomLongBetween(1 << 20, 1L << 40);
+        final long maxOffHeapSize = maxDirectMemory / IndicesQueryCache.MAX_DIRECT_MEMORY_OFF_HEAP_RATIO;
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_OFF_HEAP_SIZE_SETTING.getKey(), (maxOffHeapSize + 1) + "b")
+                .build();
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new IndicesQueryCache(settings, maxDirectMemory));
+        assertTrue(e.getMessage(), e.getMessage().startsWith("[indices.queries.cache.off_heap.size] must be at most"));
+
+        Settings validSettings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_OFF_HEAP_SIZE_SETTING.getKey(), maxOffHeapSize + "b")
+                .build();
+        new IndicesQueryCache(validSettings, maxDirectMemory).close();
+
+        assertTrue(IndicesQueryCache.maxDirectMemory(JvmInfo.jvmInfo()) > 0);
+    }
 }
@@ -21,6 +21,7 @@ package org.elasticsearch.indices;
 
 import org.elasticsearch.action.admin.indices.alias.Alias;
 import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeResponse;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.client.Client;
@@ -29,9 +30,12 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.index.cache.request.RequestCacheStats;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram.Bucket;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.elasticsearch.test.hamcrest.ElasticsearchAssertions;
 
@@ -40,13 +44,18 @@ import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.elasticsearch.search.aggregations.AggregationBuilders.dateHistogram;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.dateRange;
 import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.global;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.max;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 
@@ -373,6 +382,65 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
         assertCacheState(client, "index", 0, 4);
     }
 
+    public void testCacheTopHits() throws Exception {
+        Client client = client();
+        Settings settings = Settings.builder().put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true)
+            .put(IndicesRequestCache.INDEX_CACHE_REQUEST_MAX_HITS_SETTING.getKey(), 5)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0).build();
+        assertAcked(client.admin().indices().prepareCreate("index").addMapping("type", "l", "type=long")
+            .setSettings(settings)
+            .get());
+        indexRandom(true, client.prepareIndex("index", "type", "1").setSource("l", 1),
+            client.prepareIndex("index", "type", "2").setSource("l", 2),
+            client.prepareIndex("index", "type", "3").setSource("l", 3),
+            client.prepareIndex("index", "type", "4").setSource("l", 4),
+            client.prepareIndex("index", "type", "5").setSource("l", 5),
+            client.prepareIndex("index", "type", "6").setSource("l", 6));
+        // Force merge the index to ensure there can be no background merges during the subsequent searches that would invalidate the cache
+        ForceMergeResponse forceMergeResponse = client.admin().indices().prepareForceMerge("index").setFlush(true).get();
+        ElasticsearchAssertions.assertAllSuccessful(forceMergeResponse);
+        refresh();
+        ensureSearchable("index");
+        assertCacheState(client, "index", 0, 0);
+
+        final SearchResponse r1 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(3)
+            .addSort("l", SortOrder.DESC).get();
+        assertSearchResponse(r1);
+        assertCacheState(client, "index", 0, 1);
+        final SearchResponse r2 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(3)
+            .addSort("l", SortOrder.DESC).get();
+        assertSearchResponse(r2);
+        assertCacheState(client, "index", 1, 1);
+        assertEquals(Arrays.asList("6", "5", "4"), hitIds(r1));
+        assertEquals(hitIds(r1), hitIds(r2));
+        assertEquals(r1.getHits().getAt(0).getSortValues()[0], r2.getHits().getAt(0).getSortValues()[0]);
+
+        // the sort is part of the key
+        final SearchResponse r3 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(3)
+            .addSort("l", SortOrder.ASC).get();
+        assertSearchResponse(r3);
+        assertCacheState(client, "index", 1, 2);
+        assertEquals(Arrays.asList("1", "2", "3"), hitIds(r3));
+
+        // more than max_hits top hits are not cached
+        final SearchResponse r4 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setFrom(3).setSize(3)
+            .addSort("l", SortOrder.DESC).get();
+        assertSearchResponse(r4);
+        assertCacheState(client, "index", 1, 2);
+
+        // a refresh that changes the reader invalidates the cached top hits
+        indexRandom(true, client.prepareIndex("index", "type", "7").setSource("l", 7));
+        final SearchResponse r5 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(3)
+            .addSort("l", SortOrder.DESC).get();
+        assertSearchResponse(r5);
+        assertCacheState(client, "index", 1, 3);
+        assertEquals(Arrays.asList("7", "6", "5"), hitIds(r5));
+    }
+
+    private static List<String> hitIds(SearchResponse response) {
+        return Arrays.stream(response.getHits().getHits()).map(SearchHit::getId).collect(Collectors.toList());
+    }
+
     public void testCacheWithFilteredAlias() {
         Client client = client();
         Settings settings = Settings.builder().put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true)
@@ -414,6 +482,108 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
         assertCacheState(client, "index", 2, 2);
     }
 
+    public void testCacheAggregations() throws Exception {
+        Client client = client();
+        Settings settings = Settings.builder().put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0).build();
+        assertAcked(client.admin().indices().prepareCreate("index").addMapping("type", "s", "type=date", "l", "type=long")
+            .setSettings(settings)
+            .get());
+        indexRandom(true, client.prepareIndex("index", "type", "1").setSource("s", "2016-03-19", "l", 1),
+            client.prepareIndex("index", "type", "2").setSource("s", "2016-03-20", "l", 2),
+            client.prepareIndex("index", "type", "3").setSource("s", "2016-04-21", "l", 3),
+            client.prepareIndex("index", "type", "4").setSource("s", "2016-05-22", "l", 4));
+        // Force merge the index to ensure there can be no background merges during the subsequent searches that would invalidate the cache
+        ForceMergeResponse forceMergeResponse = client.admin().indices().prepareForceMerge("index").setFlush(true).get();
+        ElasticsearchAssertions.assertAllSuccessful(forceMergeResponse);
+        refresh();
+        ensureSearchable("index");
+        assertAggregationsCacheState(client, "index", 0, 0);
+
+        final SearchResponse r1 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(2)
+            .setQuery(QueryBuilders.rangeQuery("s").gte("2016-03-20"))
+            .addAggregation(dateHistogram("histo").field("s").calendarInterval(DateHistogramInterval.MONTH)).get();
+        assertSearchResponse(r1);
+        assertAggregationsCacheState(client, "index", 0, 1);
+
+        // a request with other hits and a sibling aggregation reuses the result of the date histogram
+        final SearchResponse r2 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0)
+            .setQuery(QueryBuilders.rangeQuery("s").gte("2016-03-20"))
+            .addAggregation(dateHistogram("histo").field("s").calendarInterval(DateHistogramInterval.MONTH))
+            .addAggregation(max("max").field("l")).get();
+        assertSearchResponse(r2);
+        assertAggregationsCacheState(client, "index", 1, 2);
+        Histogram histo = r2.getAggregations().get("histo");
+        assertEquals(r1.getAggregations().<Histogram>get("histo").toString(), histo.toString());
+        assertThat(histo.getBuckets().size(), equalTo(3));
+        assertThat(histo.getBuckets().get(0).getDocCount(), equalTo(1L));
+
+        // the query is part of the key
+        final SearchResponse r3 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0)
+            .addAggregation(dateHistogram("histo").field("s").calendarInterval(DateHistogramInterval.MONTH)).get();
+        assertSearchResponse(r3);
+        assertAggregationsCacheState(client, "index", 1, 3);
+        histo = r3.getAggregations().get("histo");
+        assertThat(histo.getBuckets().get(0).getDocCount(), equalTo(2L));
+
+        // global aggregations and requests that opt out of caching don't use the cache
+        final SearchResponse r4 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0)
+            .addAggregation(global("global")).get();
+        assertSearchResponse(r4);
+        final SearchResponse r5 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0)
+            .setRequestCache(false)
+            .addAggregation(dateHistogram("histo").field("s").calendarInterval(DateHistogramInterval.MONTH)).get();
+        assertSearchResponse(r5);
+        assertAggregationsCacheState(client, "index", 1, 3);
+        assertThat(client.admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache()
+            .getAggregationsMemorySizeInBytes(), greaterThan(0L));
+    }
+
+    public void testCachedAggregationsCountBuckets() throws Exception {
+        Client client = client();
+        Settings settings = Settings.builder().put(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0).build();
+        assertAcked(client.admin().indices().prepareCreate("index").addMapping("type", "s", "type=date", "l", "type=long")
+            .setSettings(settings)
+            .get());
+        indexRandom(true, client.prepareIndex("index", "type", "1").setSource("s", "2016-03-19", "l", 1),
+            client.prepareIndex("index", "type", "2").setSource("s", "2016-04-20", "l", 2),
+            client.prepareIndex("index", "type", "3").setSource("s", "2016-05-21", "l", 3));
+        // Force merge the index to ensure there can be no background merges during the subsequent searches that would invalidate the cache
+        ForceMergeResponse forceMergeResponse = client.admin().indices().prepareForceMerge("index").setFlush(true).get();
+        ElasticsearchAssertions.assertAllSuccessful(forceMergeResponse);
+        refresh();
+        ensureSearchable("index");
+
+        final SearchResponse r1 = client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0)
+            .addAggregation(dateHistogram("histo").field("s").calendarInterval(DateHistogramInterval.MONTH)).get();
+        assertSearchResponse(r1);
+        assertAggregationsCacheState(client, "index", 0, 1);
+
+        try {
+            assertAcked(client.admin().cluster().prepareUpdateSettings()
+                .setTransientSettings(Collections.singletonMap(MultiBucketConsumerService.MAX_BUCKET_SETTING.getKey(), 2)));
+            // the buckets of the cached date histogram count against the limit on the shard, not only in the final reduce
+            final SearchPhaseExecutionException e = expectThrows(SearchPhaseExecutionException.class,
+                () -> client.prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0)
+                    .addAggregation(dateHistogram("histo").field("s").calendarInterval(DateHistogramInterval.MONTH))
+                    .addAggregation(max("max").field("l")).get());
+            assertEquals(1, e.shardFailures().length);
+            assertThat(e.shardFailures()[0].reason(), containsString("Trying to create too many buckets"));
+            assertAggregationsCacheState(client, "index", 1, 2);
+        } finally {
+            assertAcked(client.admin().cluster().prepareUpdateSettings()
+                .setTransientSettings(Collections.singletonMap(MultiBucketConsumerService.MAX_BUCKET_SETTING.getKey(), null)));
+        }
+    }
+
+    private static void assertAggregationsCacheState(Client client, String index, long expectedHits, long expectedMisses) {
+        RequestCacheStats requestCacheStats = client.admin().indices().prepareStats(index).setRequestCache(true).get().getTotal()
+                .getRequestCache();
+        assertEquals(Arrays.asList(expectedHits, expectedMisses, 0L), Arrays.asList(requestCacheStats.getAggregationsHitCount(),
+            requestCacheStats.getAggregationsMissCount(), requestCacheStats.getAggregationsEvictions()));
+    }
+
     private static void assertCacheState(Client client, String index, long expectedHits, long expectedMisses) {
         RequestCacheStats requestCacheStats = client.admin().indices().prepareStats(index).setRequestCache(true).get().getTotal()
                 .getRequestCache();
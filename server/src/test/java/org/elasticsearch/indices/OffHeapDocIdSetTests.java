@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class OffHeapDocIdSetTests extends ESTestCase {
+
+    private static FixedBitSet randomBitSet(int maxDoc) {
+        final FixedBitSet bits = new FixedBitSet(maxDoc);
+        switch (randomInt(3)) {
+            case 0:
+                // sparse
+                for (int i = randomInt(100); i > 0; --i) {
+                    bits.set(randomInt(maxDoc - 1));
+                }
+                break;
+            case 1:
+                // dense
+                for (int doc = 0; doc < maxDoc; ++doc) {
+                    if (randomInt(9) != 0) {
+                        bits.set(doc);
+                    }
+                }
+                break;
+            case 2:
+                // full blocks with some holes
+                bits.set(0, maxDoc);
+                for (int i = randomInt(10); i > 0; --i) {
+                    bits.clear(randomInt(maxDoc - 1));
+                }
+                break;
+            default:
+                // mixed density
+                final double density = randomDouble();
+                for (int doc = 0; doc < maxDoc; ++doc) {
+                    if (randomDouble() < density * (doc >>> 16 & 1)) {
+                        bits.set(doc);
+                    }
+                }
+                break;
+        }
+        return bits;
+    }
+
+    public void testDuel() throws IOException {
+        final int maxDoc = randomIntBetween(1, 300_000);
+        final FixedBitSet bits = randomBitSet(maxDoc);
+        final OffHeapDocIdSet set = OffHeapDocIdSet.copyOf(new BitDocIdSet(bits), maxDoc, bytes -> true, bytes -> {}, () -> {});
+        assertEquals(bits.cardinality(), set.cardinality());
+
+        final DocIdSetIterator iterator = set.iterator();
+        if (bits.cardinality() == 0) {
+            assertNull(iterator);
+            return;
+        }
+        assertEquals(bits.cardinality(), iterator.cost());
+        for (int doc = -1; ; ) {
+            final int expected;
+            final int next;
+            if (randomBoolean()) {
+                expected = doc + 1 >= maxDoc ? DocIdSetIterator.NO_MORE_DOCS : bits.nextSetBit(doc + 1);
+                next = iterator.nextDoc();
+            } else {
+                final int target = doc + randomIntBetween(1, randomBoolean() ? 10 : 100_000);
+                expected = target >= maxDoc ? DocIdSetIterator.NO_MORE_DOCS : bits.nextSetBit(target);
+                next = iterator.advance(target);
+            }
+            assertEquals(expected, next);
+            assertEquals(expected, iterator.docID());
+            if (next == DocIdSetIterator.NO_MORE_DOCS) {
+                break;
+            }
+            doc = next;
+        }
+    }
+
+    public void testCompression() throws IOException {
+        final int maxDoc = 1 << 20;
+        final FixedBitSet bits = new FixedBitSet(maxDoc);
+        // one full block, one dense block and one sparse block
+        bits.set(0, 1 << 16);
+        for (int doc = 1 << 16; doc < 2 << 16; doc += 2) {
+            bits.set(doc);
+        }
+        bits.set(5 << 16);
+        final OffHeapDocIdSet set = OffHeapDocIdSet.copyOf(new BitDocIdSet(bits), maxDoc, bytes -> true, bytes -> {}, () -> {});
+        assertEquals(3 * 3 * Integer.BYTES + 8192 + Short.BYTES, set.offHeapBytesUsed());
+        assertTrue(set.ramBytesUsed() < 1024);
+
+        // the last block only spans up to maxDoc
+        final int smallMaxDoc = randomIntBetween(2, 1 << 16);
+        final FixedBitSet allBits = new FixedBitSet(smallMaxDoc);
+        allBits.set(0, smallMaxDoc);
+        assertEquals(3 * Integer.BYTES, OffHeapDocIdSet.copyOf(new BitDocIdSet(allBits), smallMaxDoc, bytes -> true, bytes -> {}, () -> {})
+            .offHeapBytesUsed());
+        allBits.clear(randomInt(smallMaxDoc - 1));
+        final long bitmapBytes = (smallMaxDoc + 63) / 64 * Long.BYTES;
+        assertEquals(3 * Integer.BYTES + Math.min(bitmapBytes, (smallMaxDoc - 1) * Short.BYTES),
+            OffHeapDocIdSet.copyOf(new BitDocIdSet(allBits), smallMaxDoc, bytes -> true, bytes -> {}, () -> {}).offHeapBytesUsed());
+    }
+
+    public void testReserveAndRead() throws IOException {
+        final int maxDoc = randomIntBetween(2, 100_000);
+        final FixedBitSet bits = new FixedBitSet(maxDoc);
+        bits.set(randomInt(maxDoc - 1));
+        final DocIdSet docIdSet = new BitDocIdSet(bits);
+        assertNull(OffHeapDocIdSet.copyOf(docIdSet, maxDoc, bytes -> false, bytes -> {}, () -> {}));
+
+        final AtomicInteger reads = new AtomicInteger();
+        final OffHeapDocIdSet set = OffHeapDocIdSet.copyOf(docIdSet, maxDoc, bytes -> {
+            assertEquals(3 * Integer.BYTES + Short.BYTES, bytes);
+            return true;
+        }, bytes -> fail("nothing to release"), reads::incrementAndGet);
+        assertEquals(0, reads.get());
+        set.iterator();
+        set.iterator();
+        assertEquals(2, reads.get());
+    }
+
+    public void testOutOfDirectMemory() throws IOException {
+        final int maxDoc = randomIntBetween(2, 100_000);
+        final FixedBitSet bits = randomBitSet(maxDoc);
+        final AtomicLong reserved = new AtomicLong();
+        OutOfMemoryError e = expectThrows(OutOfMemoryError.class, () -> OffHeapDocIdSet.copyOf(new BitDocIdSet(bits), maxDoc,
+            bytes -> reserved.addAndGet(bytes) > 0, bytes -> reserved.addAndGet(-bytes), () -> {}, bytes -> {
+                assertEquals(bytes, reserved.get());
+                throw new OutOfMemoryError("Direct buffer memory");
+            }));
+        assertEquals("Direct buffer memory", e.getMessage());
+        // the reserved bytes are released
+        assertEquals(0, reserved.get());
+    }
+}
@@ -34,6 +34,8 @@ import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.yaml.YamlXContent;
+import org.elasticsearch.http.HttpChannel;
+import org.elasticsearch.http.HttpContentStream;
 import org.elasticsearch.http.HttpInfo;
 import org.elasticsearch.http.HttpRequest;
 import org.elasticsearch.http.HttpResponse;
@@ -66,6 +68,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -454,6 +457,91 @@ public class RestControllerTests extends ESTestCase {
         assertTrue(channel.getSendResponseCalled());
     }
 
+    public void testDispatchCopiesPooledContentUnlessHandlerAllowsUnsafeBuffers() {
+        final boolean allowsUnsafeBuffers = randomBoolean();
+        final HttpRequest pooledRequest = mock(HttpRequest.class);
+        final HttpRequest copiedRequest = mock(HttpRequest.class);
+        for (HttpRequest httpRequest : Arrays.asList(pooledRequest, copiedRequest)) {
+            when(httpRequest.method()).thenReturn(RestRequest.Method.GET);
+            when(httpRequest.uri()).thenReturn("/foo");
+            when(httpRequest.content()).thenReturn(new BytesArray("{}"));
+            when(httpRequest.getHeaders()).thenReturn(
+                Collections.singletonMap("Content-Type", Collections.singletonList("application/json")));
+        }
+        when(pooledRequest.releaseAndCopy()).thenReturn(copiedRequest);
+        final RestRequest request = RestRequest.request(NamedXContentRegistry.EMPTY, pooledRequest, mock(HttpChannel.class));
+        final AssertingChannel channel = new AssertingChannel(request, true, RestStatus.OK);
+        final AtomicReference<HttpRequest> handledRequest = new AtomicReference<>();
+        restController.registerHandler(RestRequest.Method.GET, "/foo", new RestHandler() {
+            @Override
+            public void handleRequest(RestRequest request, RestChannel channel, NodeClient client) throws Exception {
+                handledRequest.set(request.getHttpRequest());
+                channel.sendResponse(new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY));
+            }
+
+            @Override
+            public boolean allowsUnsafeBuffers() {
+                return allowsUnsafeBuffers;
+            }
+        });
+
+        restController.dispatchRequest(request, channel, new ThreadContext(Settings.EMPTY));
+        assertTrue(channel.getSendResponseCalled());
+        if (allowsUnsafeBuffers) {
+            verify(pooledRequest, never()).releaseAndCopy();
+            assertSame(pooledRequest, handledRequest.get());
+        } else {
+            verify(pooledRequest).releaseAndCopy();
+            assertSame(copiedRequest, handledRequest.get());
+        }
+    }
+
+    public void testSupportsIncrementalContent() {
+        final boolean supportsIncrementalContent = randomBoolean();
+        restController.registerHandler(RestRequest.Method.POST, "/{index}/_bulk", new RestHandler() {
+            @Override
+            public void handleRequest(RestRequest request, RestChannel channel, NodeClient client) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public boolean supportsIncrementalContent() {
+                return supportsIncrementalContent;
+            }
+        });
+        assertEquals(supportsIncrementalContent, restController.supportsIncrementalContent(RestRequest.Method.POST, "/foo/_bulk"));
+        assertEquals(supportsIncrementalContent,
+            restController.supportsIncrementalContent(RestRequest.Method.POST, "/foo/_bulk?refresh=true"));
+        assertFalse(restController.supportsIncrementalContent(RestRequest.Method.PUT, "/foo/_bulk"));
+        assertFalse(restController.supportsIncrementalContent(RestRequest.Method.POST, "/foo/_search"));
+    }
+
+    public void testDispatchRequiresContentTypeForIncrementalContent() {
+        final HttpRequest httpRequest = mock(HttpRequest.class);
+        when(httpRequest.method()).thenReturn(RestRequest.Method.POST);
+        when(httpRequest.uri()).thenReturn("/foo");
+        when(httpRequest.content()).thenReturn(BytesArray.EMPTY);
+        when(httpRequest.contentStream()).thenReturn(mock(HttpContentStream.class));
+        when(httpRequest.getHeaders()).thenReturn(Collections.emptyMap());
+        final RestRequest request = RestRequest.request(NamedXContentRegistry.EMPTY, httpRequest, mock(HttpChannel.class));
+        assertFalse(request.hasContent());
+        assertTrue(request.hasContentStream());
+        final AssertingChannel channel = new AssertingChannel(request, true, RestStatus.NOT_ACCEPTABLE);
+        restController.registerHandler(RestRequest.Method.POST, "/foo", new RestHandler() {
+            @Override
+            public void handleRequest(RestRequest request, RestChannel channel, NodeClient client) {
+                throw new AssertionError();
+            }
+
+            @Override
+            public boolean supportsIncrementalContent() {
+                return true;
+            }
+        });
+        restController.dispatchRequest(request, channel, new ThreadContext(Settings.EMPTY));
+        assertTrue(channel.getSendResponseCalled());
+    }
+
     public void testDispatchBadRequest() {
         final FakeRestRequest fakeRestRequest = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY).build();
         final AssertingChannel channel = new AssertingChannel(fakeRestRequest, true, RestStatus.BAD_REQUEST);
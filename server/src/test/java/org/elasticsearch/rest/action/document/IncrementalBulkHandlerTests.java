@@ -0,0 +1,205 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.document;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.http.HttpContentStream;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+
+/**
+ * Tests for {@link IncrementalBulkHandler}.
+ */
+public class IncrementalBulkHandlerTests extends ESTestCase {
+
+    private static class PausableStream implements HttpContentStream {
+
+        boolean paused;
+
+        @Override
+        public void setHandler(Handler handler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void pause() {
+            assertFalse(paused);
+            paused = true;
+        }
+
+        @Override
+        public void resume() {
+            assertTrue(paused);
+            paused = false;
+        }
+    }
+
+    private final PausableStream stream = new PausableStream();
+    private final FakeRestChannel channel = new FakeRestChannel(new FakeRestRequest(), true, 1);
+    private final List<Tuple<BulkRequest, ActionListener<BulkResponse>>> batches = new ArrayList<>();
+
+    private IncrementalBulkHandler newHandler(long batchSizeInBytes, int maxBatchesInFlight) {
+        final BulkRequest firstBatch = new BulkRequest().timeout("10s");
+        return new IncrementalBulkHandler(stream, channel, firstBatch,
+            (batch, data, lastData, firstLine) -> batch.addIncrementally(data, lastData, firstLine, "test", null, null, null, null, true,
+                XContentType.JSON),
+            (batch, listener) -> batches.add(Tuple.tuple(batch, listener)), (byte) '\n', batchSizeInBytes, maxBatchesInFlight);
+    }
+
+    private static void sendChunks(IncrementalBulkHandler handler, String body) {
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        int from = 0;
+        while (from < bytes.length) {
+            final int length = Math.min(randomIntBetween(1, 50), bytes.length - from);
+            handler.onChunk(new BytesArray(bytes, from, length), false);
+            from += length;
+        }
+    }
+
+    private static BulkResponse successfulResponse(BulkRequest batch) {
+        final BulkItemResponse[] items = new BulkItemResponse[batch.numberOfActions()];
+        for (int i = 0; i < items.length; i++) {
+            final DocWriteRequest<?> request = batch.requests().get(i);
+            items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                new IndexResponse(new ShardId("test", "_na_", 0), "_doc", request.id(), 1, 1, 1, true));
+        }
+        return new BulkResponse(items, 1);
+    }
+
+    public void testBatches() {
+        final int numItems = randomIntBetween(10, 50);
+        final StringBuilder body = new StringBuilder();
+        for (int i = 0; i < numItems; i++) {
+            body.append("{\"index\":{\"_id\":\"").append(i).append("\"}}\n{\"field\":\"value\"}\n");
+        }
+        // every item fills a batch, and reading is paused while a batch waits for the one in flight
+        final IncrementalBulkHandler handler = newHandler(1, 1);
+        sendChunks(handler, body.toString());
+        assertThat(batches, hasSize(1));
+        assertTrue(stream.paused);
+        handler.onChunk(BytesArray.EMPTY, true);
+
+        final List<String> ids = new ArrayList<>();
+        for (int i = 0; i < batches.size(); i++) {
+            assertThat(batches, hasSize(i + 1));
+            final BulkRequest batch = batches.get(i).v1();
+            assertThat(batch.numberOfActions(), greaterThan(0));
+            assertEquals("10s", batch.timeout().getStringRep());
+            batch.requests().forEach(request -> ids.add(request.id()));
+            assertEquals(0, channel.responses().get());
+            batches.get(i).v2().onResponse(successfulResponse(batch));
+        }
+        assertFalse(stream.paused);
+        assertEquals(numItems, ids.size());
+        for (int i = 0; i < numItems; i++) {
+            assertEquals(Integer.toString(i), ids.get(i));
+        }
+        assertEquals(1, channel.responses().get());
+        assertEquals(RestStatus.OK, channel.capturedResponse().status());
+        final String response = channel.capturedResponse().content().utf8ToString();
+        assertThat(response, containsString("\"_id\":\"" + (numItems - 1) + "\""));
+    }
+
+    public void testSingleBatch() {
+        final IncrementalBulkHandler handler = newHandler(Long.MAX_VALUE, randomIntBetween(1, 3));
+        sendChunks(handler, "{\"index\":{\"_id\":\"1\"}}\n{\"field\":\"value\"}\n{\"delete\":{\"_id\":\"2\"}}\n");
+        assertThat(batches, hasSize(0));
+        assertFalse(stream.paused);
+        handler.onChunk(new BytesArray("{\"delete\":{\"_id\":\"3\"}}\n"), true);
+        assertThat(batches, hasSize(1));
+        assertEquals(3, batches.get(0).v1().numberOfActions());
+        batches.get(0).v2().onResponse(successfulResponse(batches.get(0).v1()));
+        assertEquals(1, channel.responses().get());
+    }
+
+    public void testParseFailure() {
+        final IncrementalBulkHandler handler = newHandler(1, 2);
+        sendChunks(handler, "{\"index\":{\"_id\":\"1\"}}\n{\"field\":\"value\"}\n");
+        assertThat(batches, hasSize(1));
+        sendChunks(handler, "[]\n{\"delete\":{\"_id\":\"2\"}}\n");
+        assertThat(batches, hasSize(1));
+        // the rest of the body is discarded, and the failure is returned once the batch in flight completed
+        handler.onChunk(new BytesArray("{\"delete\":{\"_id\":\"3\"}}\n"), true);
+        assertThat(batches, hasSize(1));
+        assertEquals(0, channel.errors().get());
+        batches.get(0).v2().onResponse(successfulResponse(batches.get(0).v1()));
+        assertEquals(1, channel.errors().get());
+        assertEquals(RestStatus.BAD_REQUEST, channel.capturedResponse().status());
+        assertThat(channel.capturedResponse().content().utf8ToString(), containsString("Malformed action/metadata line [3]"));
+        assertFalse(stream.paused);
+    }
+
+    public void testBatchFailure() {
+        final IncrementalBulkHandler handler = newHandler(1, 2);
+        for (int i = 1; i <= 3; i++) {
+            // one batch per item
+            sendChunks(handler, "{\"delete\":{\"_id\":\"" + i + "\"}}\n");
+        }
+        assertThat(batches, hasSize(2));
+        assertTrue(stream.paused);
+        batches.get(0).v2().onFailure(new IllegalStateException("boom"));
+        // the full batch that waits isn't executed anymore, and the rest of the body is read and discarded
+        assertThat(batches, hasSize(2));
+        assertFalse(stream.paused);
+        handler.onChunk(new BytesArray("{\"delete\":{\"_id\":\"4\"}}\n"), true);
+        assertEquals(0, channel.errors().get());
+        batches.get(1).v2().onResponse(successfulResponse(batches.get(1).v1()));
+        assertEquals(1, channel.errors().get());
+        assertThat(channel.capturedResponse().content().utf8ToString(), containsString("boom"));
+    }
+
+    public void testEmptyBody() {
+        final IncrementalBulkHandler handler = newHandler(randomLongBetween(1, Long.MAX_VALUE), 1);
+        handler.onChunk(BytesArray.EMPTY, true);
+        assertThat(batches, hasSize(0));
+        assertEquals(RestStatus.BAD_REQUEST, channel.capturedResponse().status());
+        assertThat(channel.capturedResponse().content().utf8ToString(), containsString("request body is required"));
+    }
+
+    public void testStreamFailure() {
+        final IncrementalBulkHandler handler = newHandler(1, 1);
+        sendChunks(handler, "{\"delete\":{\"_id\":\"1\"}}\n");
+        assertThat(batches, hasSize(1));
+        handler.onFailure(new IllegalStateException("connection closed"));
+        assertEquals(0, channel.errors().get());
+        batches.get(0).v2().onResponse(successfulResponse(batches.get(0).v1()));
+        assertEquals(1, channel.errors().get());
+        assertThat(channel.capturedResponse().content().utf8ToString(), containsString("connection closed"));
+    }
+}
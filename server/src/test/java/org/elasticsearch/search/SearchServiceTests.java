@@ -74,6 +74,9 @@ import org.elasticsearch.search.internal.AliasFilter;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchLocalRequest;
 import org.elasticsearch.search.internal.ShardSearchTransportRequest;
+import org.elasticsearch.search.sort.MinAndMax;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.search.suggest.SuggestBuilder;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
@@ -578,6 +581,74 @@ public class SearchServiceTests extends ESSingleNodeTestCase {
             new AliasFilter(null, Strings.EMPTY_ARRAY), 1f, -1, null, null)));
     }
 
+    public void testCanMatchMinAndMax() throws Exception {
+        createIndex("index", Settings.EMPTY, "_doc", "timestamp", "type=long");
+        for (int i = 0; i < 10; i++) {
+            client().prepareIndex("index", "_doc", Integer.toString(i)).setSource("timestamp", 10 + i).get();
+        }
+        client().admin().indices().prepareRefresh("index").get();
+        final SearchService service = getInstanceFromNode(SearchService.class);
+        final IndexShard indexShard = getInstanceFromNode(IndicesService.class).indexServiceSafe(resolveIndex("index")).getShard(0);
+
+        SearchRequest searchRequest = new SearchRequest().allowPartialSearchResults(true)
+            .source(new SearchSourceBuilder().sort(SortBuilders.fieldSort("timestamp").order(randomFrom(SortOrder.values()))));
+        PlainActionFuture<SearchService.CanMatchResponse> future = new PlainActionFuture<>();
+        service.canMatch(new ShardSearchLocalRequest(searchRequest, indexShard.shardId(), 1,
+            new AliasFilter(null, Strings.EMPTY_ARRAY), 1f, -1, null, null), future);
+        assertTrue(future.get().canMatch());
+        assertEquals(new MinAndMax<>(10L, 19L), future.get().minAndMax());
+
+        // no bounds for fields without points or for sorts that don't use the values of the field as-is
+        searchRequest.source(new SearchSourceBuilder().sort(SortBuilders.fieldSort("timestamp").missing("_first")));
+        future = new PlainActionFuture<>();
+        service.canMatch(new ShardSearchLocalRequest(searchRequest, indexShard.shardId(), 1,
+            new AliasFilter(null, Strings.EMPTY_ARRAY), 1f, -1, null, null), future);
+        assertTrue(future.get().canMatch());
+        assertNull(future.get().minAndMax());
+
+        searchRequest.source(new SearchSourceBuilder().sort(SortBuilders.fieldSort("unknown").unmappedType("long")));
+        future = new PlainActionFuture<>();
+        service.canMatch(new ShardSearchLocalRequest(searchRequest, indexShard.shardId(), 1,
+            new AliasFilter(null, Strings.EMPTY_ARRAY), 1f, -1, null, null), future);
+        assertTrue(future.get().canMatch());
+        assertNull(future.get().minAndMax());
+    }
+
+    public void testSkipQueryWithBottomSortValues() throws Exception {
+        createIndex("index", Settings.EMPTY, "_doc", "timestamp", "type=long");
+        for (int i = 0; i < 10; i++) {
+            client().prepareIndex("index", "_doc", Integer.toString(i)).setSource("timestamp", 10 + i).get();
+        }
+        client().admin().indices().prepareRefresh("index").get();
+        final SearchService service = getInstanceFromNode(SearchService.class);
+        final IndexShard indexShard = getInstanceFromNode(IndicesService.class).indexServiceSafe(resolveIndex("index")).getShard(0);
+
+        for (SortOrder order : SortOrder.values()) {
+            final long competitive = order == SortOrder.ASC ? 15L : 12L;
+            final long nonCompetitive = order == SortOrder.ASC ? 5L : 25L;
+            for (boolean trackTotalHits : new boolean[] { true, false }) {
+                SearchRequest searchRequest = new SearchRequest().allowPartialSearchResults(true)
+                    .source(new SearchSourceBuilder().size(5).trackTotalHits(trackTotalHits)
+                        .sort(SortBuilders.fieldSort("timestamp").order(order)));
+                assertEquals(5, executeQueryWithBottomSortValues(service, indexShard, searchRequest, competitive));
+                // shards can only be skipped if the total hit count isn't needed
+                assertEquals(trackTotalHits ? 5 : 0, executeQueryWithBottomSortValues(service, indexShard, searchRequest, nonCompetitive));
+            }
+        }
+    }
+
+    private static int executeQueryWithBottomSortValues(SearchService service, IndexShard indexShard, SearchRequest searchRequest,
+                                                        long bottomSortValue) throws Exception {
+        ShardSearchLocalRequest request = new ShardSearchLocalRequest(searchRequest, indexShard.shardId(), 1,
+            new AliasFilter(null, Strings.EMPTY_ARRAY), 1f, -1, null, null);
+        request.setBottomSortValues(new Object[] { bottomSortValue });
+        PlainActionFuture<SearchPhaseResult> future = new PlainActionFuture<>();
+        service.executeQueryPhase(request, new SearchTask(123L, "", "", "", null, Collections.emptyMap()), future);
+        SearchPhaseResult result = future.get();
+        service.freeContext(result.getRequestId());
+        return result.queryResult().topDocs().topDocs.scoreDocs.length;
+    }
+
     public void testCanRewriteToMatchNone() {
         assertFalse(SearchService.canRewriteToMatchNone(new SearchSourceBuilder().query(new MatchNoneQueryBuilder())
             .aggregation(new GlobalAggregationBuilder("test"))));
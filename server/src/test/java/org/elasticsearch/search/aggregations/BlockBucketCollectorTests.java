@@ -0,0 +1,151 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BlockBucketCollectorTests extends ESTestCase {
+
+    /**
+     * Records the docs that it collects, and terminates the collection of a segment after {@code terminateAfter} docs.
+     */
+    private static class RecordingBucketCollector extends BucketCollector {
+
+        private final int terminateAfter;
+        private final int maxBlockSize;
+        private final List<Integer> docs = new ArrayList<>();
+        private LeafReaderContext currentLeaf;
+        private boolean postCollection;
+
+        RecordingBucketCollector(int terminateAfter, int maxBlockSize) {
+            this.terminateAfter = terminateAfter;
+            this.maxBlockSize = maxBlockSize;
+        }
+
+        @Override
+        public LeafBucketCollector getLeafCollector(LeafReaderContext context) {
+            currentLeaf = context;
+            return new LeafBucketCollector() {
+                int count = 0;
+
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assertSame(context, currentLeaf);
+                    assertEquals(0, bucket);
+                    if (count++ >= terminateAfter) {
+                        throw new CollectionTerminatedException();
+                    }
+                    if (docs.isEmpty() == false) {
+                        assertTrue(context.docBase + doc > docs.get(docs.size() - 1));
+                    }
+                    docs.add(context.docBase + doc);
+                }
+
+                @Override
+                public void collect(int[] docs, int count, long bucket) throws IOException {
+                    assertTrue(count > 0);
+                    assertTrue(count <= maxBlockSize);
+                    super.collect(docs, count, bucket);
+                }
+            };
+        }
+
+        @Override
+        public void preCollection() {}
+
+        @Override
+        public void postCollection() {
+            assertFalse(postCollection);
+            postCollection = true;
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+    }
+
+    public void testCollectBlocks() throws IOException {
+        try (Directory dir = newDirectory();
+             RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            final int numDocs = randomIntBetween(1, 1000);
+            for (int i = 0; i < numDocs; ++i) {
+                w.addDocument(new Document());
+                if (rarely()) {
+                    w.commit();
+                }
+            }
+            try (IndexReader reader = w.getReader()) {
+                final IndexSearcher searcher = newSearcher(reader);
+                final int terminateAfter = randomBoolean() ? Integer.MAX_VALUE : randomIntBetween(0, 100);
+                final int blockSize = randomIntBetween(1, 200);
+                final RecordingBucketCollector in = new RecordingBucketCollector(terminateAfter, blockSize);
+                final BlockBucketCollector collector = new BlockBucketCollector(in, blockSize);
+                collector.preCollection();
+                searcher.search(new MatchAllDocsQuery(), collector);
+                collector.postCollection();
+                assertTrue(in.postCollection);
+
+                final List<Integer> expected = new ArrayList<>();
+                for (LeafReaderContext ctx : reader.leaves()) {
+                    for (int doc = 0; doc < Math.min(terminateAfter, ctx.reader().maxDoc()); ++doc) {
+                        expected.add(ctx.docBase + doc);
+                    }
+                }
+                assertEquals(expected, in.docs);
+            }
+        }
+    }
+
+    public void testNeedsScores() {
+        final BucketCollector in = new BucketCollector() {
+            @Override
+            public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) {
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+
+            @Override
+            public void preCollection() {}
+
+            @Override
+            public void postCollection() {}
+
+            @Override
+            public ScoreMode scoreMode() {
+                return ScoreMode.COMPLETE;
+            }
+        };
+        final IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new BlockBucketCollector(in));
+        assertEquals("cannot collect blocks of docs with a collector that needs scores", e.getMessage());
+    }
+}
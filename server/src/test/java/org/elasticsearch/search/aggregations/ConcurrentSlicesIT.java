@@ -0,0 +1,196 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.MergePolicyConfig;
+import org.elasticsearch.search.aggregations.bucket.global.Global;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.sampler.Sampler;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.Avg;
+import org.elasticsearch.search.aggregations.metrics.Cardinality;
+import org.elasticsearch.search.aggregations.metrics.Max;
+import org.elasticsearch.search.aggregations.metrics.Sum;
+import org.elasticsearch.search.aggregations.metrics.ValueCount;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.search.profile.query.CollectorResult;
+import org.elasticsearch.search.profile.query.QueryProfileShardResult;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.List;
+
+import static org.elasticsearch.search.aggregations.AggregationBuilders.avg;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.cardinality;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.count;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.global;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.histogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.max;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sampler;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+
+/**
+ * Compares the aggregations of a shard whose segments are searched in concurrent slices with the aggregations of the same
+ * shard searched sequentially.
+ */
+public class ConcurrentSlicesIT extends ESIntegTestCase {
+
+    private int numDocs;
+
+    private void createIndex() {
+        assertAcked(prepareCreate("idx")
+            .setSettings(Settings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                // keep a segment per refresh so that the shard can be searched in several slices
+                .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false))
+            .addMapping("type", "f", "type=keyword", "n", "type=long"));
+        numDocs = 0;
+        final int numSegments = randomIntBetween(4, 8);
+        for (int i = 0; i < numSegments; i++) {
+            final int segmentDocs = randomIntBetween(10, 50);
+            for (int j = 0; j < segmentDocs; j++) {
+                client().prepareIndex("idx", "type")
+                    .setSource("f", "t" + randomIntBetween(0, 20), "n", randomIntBetween(0, 100))
+                    .get();
+            }
+            numDocs += segmentDocs;
+            refresh("idx");
+        }
+    }
+
+    private void setMaxConcurrentSlices(int maxSlices) {
+        assertAcked(client().admin().indices().prepareUpdateSettings("idx")
+            .setSettings(Settings.builder().put(IndexSettings.MAX_CONCURRENT_SEARCH_SLICES_SETTING.getKey(), maxSlices)));
+    }
+
+    public void testAggregations() {
+        createIndex();
+        final SearchRequestBuilder request = client().prepareSearch("idx")
+            .setSize(randomIntBetween(0, 10))
+            .addAggregation(terms("terms").field("f").size(50).subAggregation(avg("avg").field("n")))
+            .addAggregation(histogram("histo").field("n").interval(10).subAggregation(max("max").field("n")))
+            .addAggregation(cardinality("cardinality").field("f"))
+            .addAggregation(sum("sum").field("n"))
+            .addAggregation(global("global").subAggregation(count("count").field("n")));
+        setMaxConcurrentSlices(1);
+        final SearchResponse sequential = request.get();
+        assertSearchResponse(sequential);
+        setMaxConcurrentSlices(randomIntBetween(2, 8));
+        final SearchResponse concurrent = request.get();
+        assertSearchResponse(concurrent);
+        assertEquals(sequential.getHits().getTotalHits(), concurrent.getHits().getTotalHits());
+
+        final Terms expectedTerms = sequential.getAggregations().get("terms");
+        final Terms actualTerms = concurrent.getAggregations().get("terms");
+        assertEquals(expectedTerms.getBuckets().size(), actualTerms.getBuckets().size());
+        for (Terms.Bucket expected : expectedTerms.getBuckets()) {
+            final Terms.Bucket actual = actualTerms.getBucketByKey(expected.getKeyAsString());
+            assertNotNull(actual);
+            assertEquals(expected.getDocCount(), actual.getDocCount());
+            final Avg expectedAvg = expected.getAggregations().get("avg");
+            final Avg actualAvg = actual.getAggregations().get("avg");
+            assertEquals(expectedAvg.getValue(), actualAvg.getValue(), 1e-9);
+        }
+
+        final Histogram expectedHisto = sequential.getAggregations().get("histo");
+        final Histogram actualHisto = concurrent.getAggregations().get("histo");
+        assertEquals(expectedHisto.getBuckets().size(), actualHisto.getBuckets().size());
+        for (int i = 0; i < expectedHisto.getBuckets().size(); i++) {
+            final Histogram.Bucket expected = expectedHisto.getBuckets().get(i);
+            final Histogram.Bucket actual = actualHisto.getBuckets().get(i);
+            assertEquals(expected.getKey(), actual.getKey());
+            assertEquals(expected.getDocCount(), actual.getDocCount());
+            final Max expectedMax = expected.getAggregations().get("max");
+            final Max actualMax = actual.getAggregations().get("max");
+            assertEquals(expectedMax.getValue(), actualMax.getValue(), 0d);
+        }
+
+        final Cardinality expectedCardinality = sequential.getAggregations().get("cardinality");
+        final Cardinality actualCardinality = concurrent.getAggregations().get("cardinality");
+        assertEquals(expectedCardinality.getValue(), actualCardinality.getValue());
+        final Sum expectedSum = sequential.getAggregations().get("sum");
+        final Sum actualSum = concurrent.getAggregations().get("sum");
+        assertEquals(expectedSum.getValue(), actualSum.getValue(), 0d);
+        // global aggregations collect the whole shard once, after the slices
+        final Global actualGlobal = concurrent.getAggregations().get("global");
+        assertEquals(numDocs, actualGlobal.getDocCount());
+        final ValueCount actualCount = actualGlobal.getAggregations().get("count");
+        assertEquals(numDocs, actualCount.getValue());
+    }
+
+    public void testSamplerIsCollectedSequentially() {
+        createIndex();
+        setMaxConcurrentSlices(randomIntBetween(2, 8));
+        final int shardSize = randomIntBetween(1, 9);
+        final SearchResponse response = client().prepareSearch("idx")
+            .setSize(0)
+            .addAggregation(sampler("sample").shardSize(shardSize))
+            .get();
+        assertSearchResponse(response);
+        // a sample per slice would hold up to shard_size documents of each slice
+        final Sampler sample = response.getAggregations().get("sample");
+        assertEquals(shardSize, sample.getDocCount());
+    }
+
+    public void testProfile() {
+        createIndex();
+        setMaxConcurrentSlices(randomIntBetween(2, 8));
+        final SearchResponse response = client().prepareSearch("idx")
+            .setProfile(true)
+            .addAggregation(sum("sum").field("n"))
+            .get();
+        assertSearchResponse(response);
+        assertEquals(numDocs, response.getHits().getTotalHits().value);
+
+        final ProfileShardResult profile = response.getProfileResults().values().iterator().next();
+        final List<QueryProfileShardResult> queryProfiles = profile.getQueryProfileResults();
+        assertEquals(1, queryProfiles.size());
+        // the weights and the collectors of the slices are merged into a single tree
+        assertEquals(1, queryProfiles.get(0).getQueryResults().size());
+        assertTrue(hasCollector(queryProfiles.get(0).getCollectorResult(), CollectorResult.REASON_AGGREGATION));
+
+        // the aggregators of the slices share the timings of their path
+        final List<ProfileResult> aggregationProfiles = profile.getAggregationProfileResults().getProfileResults();
+        assertEquals(1, aggregationProfiles.size());
+        assertEquals("sum", aggregationProfiles.get(0).getLuceneDescription());
+        assertEquals(Long.valueOf(numDocs), aggregationProfiles.get(0).getTimeBreakdown().get("collect_count"));
+    }
+
+    private static boolean hasCollector(CollectorResult collector, String reason) {
+        if (collector.getReason().equals(reason)) {
+            return true;
+        }
+        for (CollectorResult child : collector.getProfiledChildren()) {
+            if (hasCollector(child, reason)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -18,17 +18,22 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 import org.elasticsearch.search.aggregations.bucket.histogram.InternalDateHistogramTests;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTermsTests;
+import org.elasticsearch.search.aggregations.metrics.InternalMax;
 import org.elasticsearch.search.aggregations.pipeline.AvgBucketPipelineAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.InternalSimpleValueTests;
 import org.elasticsearch.search.aggregations.pipeline.MaxBucketPipelineAggregationBuilder;
@@ -39,8 +44,11 @@ import org.elasticsearch.test.VersionUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 public class InternalAggregationsTests extends ESTestCase {
 
@@ -88,6 +96,109 @@ public class InternalAggregationsTests extends ESTestCase {
         assertEquals(2, reducedAggs.aggregations.size());
     }
 
+    public void testReduceConcurrently() {
+        final ExecutorService executor = EsExecutors.newFixed("reduce", randomIntBetween(1, 4), -1,
+            EsExecutors.daemonThreadFactory("reduce"), new ThreadContext(Settings.EMPTY));
+        try {
+            final MultiBucketConsumer bucketConsumer = new MultiBucketConsumer(Integer.MAX_VALUE);
+            final InternalAggregation.ReduceContext reduceContext = new InternalAggregation.ReduceContext(null, null, bucketConsumer, true,
+                executor, randomIntBetween(2, 5));
+            final List<Integer> items = new ArrayList<>();
+            for (int i = randomIntBetween(0, 1000); i > 0; i--) {
+                items.add(randomIntBetween(0, 10));
+            }
+            final List<Integer> reduced = new ArrayList<>();
+            reduceContext.reduceConcurrently(items, randomIntBetween(1, 10), (item, context) -> {
+                // nested reductions run concurrently too
+                final List<Integer> nested = new ArrayList<>();
+                context.reduceConcurrently(Collections.nCopies(item, 1), 1, (one, nestedContext) -> {
+                    nestedContext.consumeBucketsAndMaybeBreak(one);
+                    return one;
+                }, nested::add);
+                assertEquals(item.intValue(), nested.size());
+                return item;
+            }, reduced::add);
+            assertEquals(items, reduced);
+            int totalBuckets = 0;
+            for (int item : items) {
+                totalBuckets += item;
+            }
+            assertEquals(totalBuckets, bucketConsumer.getCount());
+
+            final List<Integer> failingItems = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                failingItems.add(i);
+            }
+            final int failing = randomIntBetween(0, 99);
+            final IllegalStateException e = expectThrows(IllegalStateException.class,
+                () -> reduceContext.reduceConcurrently(failingItems, 1, (item, context) -> {
+                    if (item == failing) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return item;
+                }, item -> fail("no item should be consumed")));
+            assertEquals("boom", e.getMessage());
+
+            // errors are not wrapped
+            final AssertionError error = expectThrows(AssertionError.class,
+                () -> reduceContext.reduceConcurrently(failingItems, 1, (item, context) -> {
+                    if (item == failing) {
+                        throw new AssertionError("boom");
+                    }
+                    return item;
+                }, item -> fail("no item should be consumed")));
+            assertEquals("boom", error.getMessage());
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testReduceTermsConcurrently() {
+        final List<InternalAggregations> shardResults = new ArrayList<>();
+        for (int shard = randomIntBetween(1, 5); shard > 0; shard--) {
+            final List<StringTerms.Bucket> buckets = new ArrayList<>();
+            for (int term = 0; term < 500; term++) {
+                if (randomBoolean()) {
+                    continue;
+                }
+                final List<StringTerms.Bucket> innerBuckets = new ArrayList<>();
+                for (int innerTerm = 0; innerTerm < 5; innerTerm++) {
+                    if (randomBoolean()) {
+                        innerBuckets.add(new StringTerms.Bucket(new BytesRef(Integer.toString(innerTerm)), randomIntBetween(1, 10),
+                            InternalAggregations.EMPTY, false, 0, DocValueFormat.RAW));
+                    }
+                }
+                final InternalAggregations subAggregations = new InternalAggregations(Arrays.asList(
+                    new StringTerms("inner", BucketOrder.key(true), 3, 1, Collections.emptyList(), Collections.emptyMap(),
+                        DocValueFormat.RAW, 5, false, 0, innerBuckets, 0),
+                    new InternalMax("max", randomDouble(), DocValueFormat.RAW, Collections.emptyList(), Collections.emptyMap())));
+                buckets.add(new StringTerms.Bucket(new BytesRef(Integer.toString(term)), randomIntBetween(1, 100), subAggregations,
+                    false, 0, DocValueFormat.RAW));
+            }
+            buckets.sort(Comparator.comparing(StringTerms.Bucket::getKeyAsString));
+            shardResults.add(new InternalAggregations(Collections.singletonList(new StringTerms("outer", BucketOrder.count(false),
+                randomIntBetween(1, 100), 1, Collections.emptyList(), Collections.emptyMap(), DocValueFormat.RAW, 500, false, 0,
+                buckets, 0))));
+        }
+        final boolean isFinalReduce = randomBoolean();
+
+        final MultiBucketConsumer sequentialConsumer = new MultiBucketConsumer(Integer.MAX_VALUE);
+        final InternalAggregations sequential = InternalAggregations.reduce(shardResults,
+            new InternalAggregation.ReduceContext(null, null, sequentialConsumer, isFinalReduce));
+
+        final ExecutorService executor = EsExecutors.newFixed("reduce", randomIntBetween(1, 4), -1,
+            EsExecutors.daemonThreadFactory("reduce"), new ThreadContext(Settings.EMPTY));
+        try {
+            final MultiBucketConsumer concurrentConsumer = new MultiBucketConsumer(Integer.MAX_VALUE);
+            final InternalAggregations concurrent = InternalAggregations.reduce(shardResults,
+                new InternalAggregation.ReduceContext(null, null, concurrentConsumer, isFinalReduce, executor, randomIntBetween(2, 5)));
+            assertEquals(sequential.aggregations, concurrent.aggregations);
+            assertEquals(sequentialConsumer.getCount(), concurrentConsumer.getCount());
+        } finally {
+            terminate(executor);
+        }
+    }
+
     public static InternalAggregations createTestInstance() throws Exception {
         List<InternalAggregation> aggsList = new ArrayList<>();
         if (randomBoolean()) {
@@ -30,14 +30,20 @@ import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSortField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.TestUtil;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.time.DateFormatters;
 import org.elasticsearch.index.mapper.ContentPath;
@@ -1743,6 +1749,75 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         assertEquals(expected, seen);
     }
 
+    public void testRandomIndexSort() throws IOException {
+        final String[] terms = new String[randomIntBetween(1, 20)];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = randomAlphaOfLengthBetween(1, 10);
+        }
+        final long startDate = asLong("2017-10-20T03:08:45");
+        final int numDocs = randomIntBetween(100, 500);
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            final List<Object> fields = new ArrayList<>();
+            fields.addAll(Arrays.asList("keyword", randomFrom(terms), "date", startDate + randomIntBetween(0, 20) * 3600000L));
+            if (randomBoolean()) {
+                fields.addAll(Arrays.asList("long", (long) randomIntBetween(0, 50)));
+            }
+            if (randomBoolean()) {
+                fields.addAll(Arrays.asList("price", randomIntBetween(-10, 10)));
+            }
+            dataset.add(createDocument(fields.toArray()));
+        }
+        final List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>();
+        sources.add(new TermsValuesSourceBuilder("keyword").field("keyword").order(randomFrom(SortOrder.values())));
+        sources.add(new TermsValuesSourceBuilder("long").field("long").order(randomFrom(SortOrder.values())));
+        sources.add(new TermsValuesSourceBuilder("price").field("price").order(randomFrom(SortOrder.values())));
+        sources.add(new DateHistogramValuesSourceBuilder("date").field("date")
+            .fixedInterval(DateHistogramInterval.HOUR).order(randomFrom(SortOrder.values())));
+        sources.add(new HistogramValuesSourceBuilder("histo").field("price").interval(5).order(randomFrom(SortOrder.values())));
+        Collections.shuffle(sources, random());
+        final List<CompositeValuesSourceBuilder<?>> subset = sources.subList(0, randomIntBetween(1, sources.size()));
+        final int size = randomIntBetween(1, 20);
+        final Query query = randomFrom(new MatchAllDocsQuery(), new DocValuesFieldExistsQuery("price"));
+        final boolean withSubAgg = randomBoolean();
+
+        final List<List<Object>> expected = new ArrayList<>();
+        final List<List<Object>> actual = new ArrayList<>();
+        for (Sort indexSort : Arrays.asList(null, buildIndexSort(subset))) {
+            final List<List<Object>> buckets = indexSort == null ? expected : actual;
+            final AtomicBoolean finish = new AtomicBoolean(false);
+            final List<Map<String, Object>> afterKey = new ArrayList<>();
+            afterKey.add(null);
+            while (finish.get() == false) {
+                executeTestCase(indexSort, randomBoolean(), query, dataset,
+                    () -> {
+                        CompositeAggregationBuilder builder = new CompositeAggregationBuilder("name", subset)
+                            .aggregateAfter(afterKey.get(0))
+                            .size(size);
+                        if (withSubAgg) {
+                            builder.subAggregation(new MaxAggregationBuilder("max").field("long"));
+                        }
+                        return builder;
+                    }, (result) -> {
+                        if (result.getBuckets().isEmpty()) {
+                            finish.set(true);
+                            return;
+                        }
+                        for (InternalComposite.InternalBucket bucket : result.getBuckets()) {
+                            final List<Object> key = new ArrayList<>(bucket.getKey().values());
+                            key.add(bucket.getDocCount());
+                            if (withSubAgg) {
+                                key.add(((InternalMax) bucket.getAggregations().get("max")).getValue());
+                            }
+                            buckets.add(key);
+                        }
+                        afterKey.set(0, result.afterKey());
+                    });
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
     public void testWithIP() throws Exception {
         final List<Map<String, List<Object>>> dataset = new ArrayList<>();
         dataset.addAll(
@@ -1803,8 +1878,23 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
                                  List<Map<String, List<Object>>> dataset,
                                  Supplier<CompositeAggregationBuilder> create,
                                  Consumer<InternalComposite> verify) throws IOException {
+        final Sort indexSort = randomBoolean() ? buildIndexSort(create.get().sources()) : null;
+        executeTestCase(indexSort, reduced, query, dataset, create, verify);
+    }
+
+    private void executeTestCase(Sort indexSort,
+                                 boolean reduced,
+                                 Query query,
+                                 List<Map<String, List<Object>>> dataset,
+                                 Supplier<CompositeAggregationBuilder> create,
+                                 Consumer<InternalComposite> verify) throws IOException {
         try (Directory directory = newDirectory()) {
-            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+            IndexWriterConfig config = newIndexWriterConfig();
+            if (indexSort != null) {
+                config.setIndexSort(indexSort);
+                config.setCodec(TestUtil.getDefaultCodec());
+            }
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory, config)) {
                 Document document = new Document();
                 for (Map<String, List<Object>> fields : dataset) {
                     addToDocument(document, fields);
@@ -1826,6 +1916,43 @@ public class CompositeAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    /**
+     * Builds an index sort on the fields of the leading sources with random directions, or returns null if the leading source
+     * cannot be used to sort the index.
+     */
+    private static Sort buildIndexSort(List<CompositeValuesSourceBuilder<?>> sources) {
+        final List<SortField> sortFields = new ArrayList<>();
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            final MappedFieldType fieldType = Arrays.stream(FIELD_TYPES)
+                .filter(ft -> ft.name().equals(source.field()))
+                .findFirst()
+                .orElse(null);
+            final boolean reverse = randomBoolean();
+            if (fieldType instanceof KeywordFieldMapper.KeywordFieldType) {
+                sortFields.add(new SortedSetSortField(fieldType.name(), reverse));
+            } else if (fieldType instanceof DateFieldMapper.DateFieldType) {
+                sortFields.add(new SortedNumericSortField(fieldType.name(), SortField.Type.LONG, reverse));
+            } else if (fieldType instanceof NumberFieldMapper.NumberFieldType) {
+                switch (fieldType.typeName()) {
+                    case "integer":
+                        sortFields.add(new SortedNumericSortField(fieldType.name(), SortField.Type.INT, reverse));
+                        break;
+                    case "long":
+                        sortFields.add(new SortedNumericSortField(fieldType.name(), SortField.Type.LONG, reverse));
+                        break;
+                    case "double":
+                        sortFields.add(new SortedNumericSortField(fieldType.name(), SortField.Type.DOUBLE, reverse));
+                        break;
+                    default:
+                        throw new AssertionError("invalid type: " + fieldType.typeName());
+                }
+            } else {
+                break;
+            }
+        }
+        return sortFields.isEmpty() ? null : new Sort(sortFields.toArray(new SortField[0]));
+    }
+
     private void addToDocument(Document doc, Map<String, List<Object>> keys) {
         for (Map.Entry<String, List<Object>> entry : keys.entrySet()) {
             final String name = entry.getKey();
@@ -24,33 +24,53 @@ import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.TestUtil;
+import org.elasticsearch.common.Rounding;
 import org.elasticsearch.common.time.DateFormatters;
+import org.elasticsearch.index.codec.PreAggregatingDocValuesFormat;
 import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.MultiBucketConsumerService.TooManyBucketsException;
+import org.elasticsearch.search.aggregations.metrics.Avg;
+import org.elasticsearch.search.aggregations.metrics.Max;
+import org.elasticsearch.search.aggregations.metrics.Min;
+import org.elasticsearch.search.aggregations.metrics.Stats;
+import org.elasticsearch.search.aggregations.metrics.Sum;
+import org.elasticsearch.search.aggregations.metrics.ValueCount;
 import org.elasticsearch.search.aggregations.support.AggregationInspectionHelper;
 
 import java.io.IOException;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 
 public class DateHistogramAggregatorTests extends AggregatorTestCase {
 
     private static final String DATE_FIELD = "date";
     private static final String INSTANT_FIELD = "instant";
+    private static final String VALUE_FIELD = "value";
 
     private static final List<String> dataset = Arrays.asList(
             "2010-03-12T01:07:45",
@@ -1107,6 +1127,154 @@ public class DateHistogramAggregatorTests extends AggregatorTestCase {
         assertWarnings("[interval] on [date_histogram] is deprecated, use [fixed_interval] or [calendar_interval] in the future.");
     }
 
+    public void testCountBucketsWithPoints() throws IOException {
+        final long start = asLong("2010-01-01T00:00:00");
+        final long end = asLong("2012-12-31T23:59:59");
+        final long from = randomBoolean() ? start : randomLongBetween(start, end);
+        final long to = randomBoolean() ? end : randomLongBetween(from, end);
+        final Query query = randomBoolean() ? new MatchAllDocsQuery() : LongPoint.newRangeQuery(DATE_FIELD, from, to);
+        final DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+            .field(DATE_FIELD).calendarInterval(randomFrom(DateHistogramInterval.YEAR, DateHistogramInterval.QUARTER));
+        final Rounding rounding = Rounding.builder(aggregationBuilder.getCalendarInterval().equals(DateHistogramInterval.YEAR)
+            ? Rounding.DateTimeUnit.YEAR_OF_CENTURY : Rounding.DateTimeUnit.QUARTER_OF_YEAR).build();
+        final boolean largeIndex = randomBoolean();
+        final Map<Long, Long> expected = new TreeMap<>();
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                final int numDocs = largeIndex ? randomIntBetween(10000, 20000) : randomIntBetween(1, 100);
+                for (int i = 0; i < numDocs; i++) {
+                    final Document document = new Document();
+                    final long instant = randomLongBetween(start, end);
+                    // the points of the field allow to count buckets without collecting documents
+                    document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                    document.add(new LongPoint(DATE_FIELD, instant));
+                    indexWriter.addDocument(document);
+                    if (query instanceof MatchAllDocsQuery || (instant >= from && instant <= to)) {
+                        expected.merge(rounding.round(instant), 1L, Long::sum);
+                    }
+                }
+                if (largeIndex) {
+                    indexWriter.forceMerge(1);
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                final IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                final DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder("_name").fieldType();
+                fieldType.setHasDocValues(true);
+                fieldType.setName(DATE_FIELD);
+                final InternalDateHistogram histogram = searchAndReduce(indexSearcher, query, aggregationBuilder, fieldType);
+                final Map<Long, Long> actual = new TreeMap<>();
+                for (Histogram.Bucket bucket : histogram.getBuckets()) {
+                    if (bucket.getDocCount() == 0) {
+                        continue; // empty buckets between non-empty ones
+                    }
+                    actual.put(((ZonedDateTime) bucket.getKey()).toInstant().toEpochMilli(), bucket.getDocCount());
+                }
+                assertEquals(expected, actual);
+
+                if (largeIndex && aggregationBuilder.getCalendarInterval().equals(DateHistogramInterval.YEAR)) {
+                    // the three years of the single segment hold enough documents to be counted with points, so the
+                    // documents of the segment are not collected
+                    final Aggregator aggregator = createAggregator(query, aggregationBuilder, indexSearcher, createIndexSettings(),
+                        fieldType);
+                    assertThat(aggregator, instanceOf(DateHistogramAggregator.class));
+                    aggregator.preCollection();
+                    expectThrows(CollectionTerminatedException.class,
+                        () -> aggregator.getLeafCollector(indexSearcher.getIndexReader().leaves().get(0)));
+                }
+            }
+        }
+    }
+
+    public void testPreAggregations() throws IOException {
+        final long start = asLong("2019-01-01T00:00:00");
+        final long end = asLong("2019-01-01T11:59:59");
+        final long from = randomBoolean() ? start : randomLongBetween(start, end);
+        final long to = randomBoolean() ? end : randomLongBetween(from, end);
+        final Query query = randomBoolean() ? new MatchAllDocsQuery() : LongPoint.newRangeQuery(DATE_FIELD, from, to);
+        final long interval = randomFrom(60_000L, 3_600_000L, 7 * 60_000L);
+        final DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+            .field(DATE_FIELD).fixedInterval(new DateHistogramInterval(interval + "ms"))
+            .subAggregation(AggregationBuilders.sum("sum").field(VALUE_FIELD))
+            .subAggregation(AggregationBuilders.min("min").field(VALUE_FIELD))
+            .subAggregation(AggregationBuilders.max("max").field(VALUE_FIELD))
+            .subAggregation(AggregationBuilders.avg("avg").field(VALUE_FIELD))
+            .subAggregation(AggregationBuilders.count("value_count").field(VALUE_FIELD))
+            .subAggregation(AggregationBuilders.stats("stats").field(VALUE_FIELD));
+        // doc count, then count, sum, min and max of the values of each bucket
+        final Map<Long, double[]> expected = new TreeMap<>();
+        try (Directory directory = newDirectory()) {
+            // segments pre-aggregate buckets of one or seven minutes, the latter are not aligned with hourly histograms
+            final IndexWriterConfig config = newIndexWriterConfig().setCodec(TestUtil.alwaysDocValuesFormat(
+                new PreAggregatingDocValuesFormat(DATE_FIELD, field -> field.equals(VALUE_FIELD) ? value -> value : null,
+                    randomFrom(60_000L, 7 * 60_000L))));
+            try (IndexWriter indexWriter = new IndexWriter(directory, config)) {
+                final int numDocs = randomBoolean() ? randomIntBetween(1, 100) : randomIntBetween(20000, 30000);
+                for (int i = 0; i < numDocs; i++) {
+                    final Document document = new Document();
+                    final long instant = randomLongBetween(start, end);
+                    document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                    document.add(new LongPoint(DATE_FIELD, instant));
+                    final long[] values = new long[randomIntBetween(0, 2)];
+                    for (int j = 0; j < values.length; j++) {
+                        values[j] = randomIntBetween(-100, 100);
+                        document.add(new SortedNumericDocValuesField(VALUE_FIELD, values[j]));
+                    }
+                    indexWriter.addDocument(document);
+                    if (query instanceof MatchAllDocsQuery || (instant >= from && instant <= to)) {
+                        final double[] bucket = expected.computeIfAbsent(Math.floorDiv(instant, interval) * interval,
+                            key -> new double[] { 0, 0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY });
+                        bucket[0]++;
+                        for (long value : values) {
+                            bucket[1]++;
+                            bucket[2] += value;
+                            bucket[3] = Math.min(bucket[3], value);
+                            bucket[4] = Math.max(bucket[4], value);
+                        }
+                    }
+                }
+                if (randomBoolean()) {
+                    indexWriter.forceMerge(1);
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                final IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                final DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder("_name").fieldType();
+                fieldType.setHasDocValues(true);
+                fieldType.setName(DATE_FIELD);
+                final MappedFieldType valueFieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+                valueFieldType.setHasDocValues(true);
+                valueFieldType.setName(VALUE_FIELD);
+                final InternalDateHistogram histogram = searchAndReduce(indexSearcher, query, aggregationBuilder, fieldType,
+                    valueFieldType);
+                final Map<Long, double[]> actual = new TreeMap<>();
+                for (Histogram.Bucket bucket : histogram.getBuckets()) {
+                    final ValueCount valueCount = bucket.getAggregations().get("value_count");
+                    final Sum sum = bucket.getAggregations().get("sum");
+                    final Min min = bucket.getAggregations().get("min");
+                    final Max max = bucket.getAggregations().get("max");
+                    final Avg avg = bucket.getAggregations().get("avg");
+                    final Stats stats = bucket.getAggregations().get("stats");
+                    assertEquals(valueCount.getValue(), stats.getCount());
+                    assertEquals(sum.getValue(), stats.getSum(), 0d);
+                    assertEquals(min.getValue(), stats.getMin(), 0d);
+                    assertEquals(max.getValue(), stats.getMax(), 0d);
+                    assertEquals(valueCount.getValue() == 0 ? Double.NaN : sum.getValue() / valueCount.getValue(), avg.getValue(), 0d);
+                    if (bucket.getDocCount() == 0) {
+                        assertEquals(0, valueCount.getValue());
+                        continue; // empty buckets between non-empty ones
+                    }
+                    actual.put(((ZonedDateTime) bucket.getKey()).toInstant().toEpochMilli(),
+                        new double[] { bucket.getDocCount(), valueCount.getValue(), sum.getValue(), min.getValue(), max.getValue() });
+                }
+                assertEquals(expected.keySet(), actual.keySet());
+                for (Map.Entry<Long, double[]> entry : expected.entrySet()) {
+                    assertArrayEquals(entry.getValue(), actual.get(entry.getKey()), 0d);
+                }
+            }
+        }
+    }
+
     private void testSearchCase(Query query, List<String> dataset,
                                 Consumer<DateHistogramAggregationBuilder> configure,
                                 Consumer<InternalDateHistogram> verify) throws IOException {
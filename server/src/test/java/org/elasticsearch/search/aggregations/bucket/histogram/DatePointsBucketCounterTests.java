@@ -0,0 +1,209 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.Rounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.support.FieldContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceType;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DatePointsBucketCounterTests extends ESTestCase {
+
+    private static final String FIELD = "date";
+
+    private static ValuesSourceConfig<ValuesSource.Numeric> config(MappedFieldType fieldType) {
+        ValuesSourceConfig<ValuesSource.Numeric> config = new ValuesSourceConfig<>(ValuesSourceType.NUMERIC);
+        config.fieldContext(new FieldContext(fieldType.name(), null, fieldType));
+        return config;
+    }
+
+    private static DateFieldMapper.DateFieldType dateFieldType() {
+        DateFieldMapper.DateFieldType fieldType = new DateFieldMapper.Builder(FIELD).fieldType();
+        fieldType.setName(FIELD);
+        return fieldType;
+    }
+
+    private static Rounding randomRounding() {
+        Rounding.Builder builder = randomBoolean() ? Rounding.builder(randomFrom(Rounding.DateTimeUnit.values()))
+            : Rounding.builder(TimeValue.timeValueMinutes(randomIntBetween(1, 60 * 24 * 30)));
+        if (randomBoolean()) {
+            builder.timeZone(randomZone());
+        }
+        return builder.build();
+    }
+
+    private static long numBuckets(Rounding rounding, long offset, long min, long max, long limit) {
+        long numBuckets = 0;
+        for (long key = rounding.round(min - offset) + offset; key <= max && numBuckets <= limit;
+                key = rounding.nextRoundingValue(key - offset) + offset) {
+            numBuckets++;
+        }
+        return numBuckets;
+    }
+
+    public void testCreate() {
+        final AggregatorFactories noSubAggregations = AggregatorFactories.EMPTY;
+        final ValuesSourceConfig<ValuesSource.Numeric> config = config(dateFieldType());
+        final Query range = LongPoint.newRangeQuery(FIELD, 10, 20);
+        assertNotNull(DatePointsBucketCounter.createOrNull(null, null, noSubAggregations, config));
+        assertNotNull(DatePointsBucketCounter.createOrNull(new MatchAllDocsQuery(), null, noSubAggregations, config));
+        assertNotNull(DatePointsBucketCounter.createOrNull(range, null, noSubAggregations, config));
+        assertNotNull(DatePointsBucketCounter.createOrNull(new ConstantScoreQuery(new BooleanQuery.Builder()
+            .add(range, Occur.FILTER).add(LongPoint.newRangeQuery(FIELD, 15, 30), Occur.MUST).build()), null, noSubAggregations, config));
+
+        // other queries, parents, sub aggregations and fields are not supported
+        assertNull(DatePointsBucketCounter.createOrNull(LongPoint.newRangeQuery("other", 10, 20), null, noSubAggregations, config));
+        assertNull(DatePointsBucketCounter.createOrNull(new TermQuery(new Term(FIELD, "10")), null, noSubAggregations, config));
+        assertNull(DatePointsBucketCounter.createOrNull(new BooleanQuery.Builder().add(range, Occur.SHOULD).build(), null,
+            noSubAggregations, config));
+        assertNull(DatePointsBucketCounter.createOrNull(new BooleanQuery.Builder().add(range, Occur.FILTER)
+            .add(new TermQuery(new Term("other", "10")), Occur.MUST_NOT).build(), null, noSubAggregations, config));
+        assertNull(DatePointsBucketCounter.createOrNull(range, mock(Aggregator.class), noSubAggregations, config));
+        AggregatorFactories subAggregations = mock(AggregatorFactories.class);
+        when(subAggregations.countAggregators()).thenReturn(1);
+        assertNull(DatePointsBucketCounter.createOrNull(range, null, subAggregations, config));
+        MappedFieldType longFieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        longFieldType.setName(FIELD);
+        assertNull(DatePointsBucketCounter.createOrNull(range, null, noSubAggregations, config(longFieldType)));
+        ValuesSourceConfig<ValuesSource.Numeric> missingConfig = config(dateFieldType());
+        missingConfig.missing(0L);
+        assertNull(DatePointsBucketCounter.createOrNull(range, null, noSubAggregations, missingConfig));
+    }
+
+    public void testCountBuckets() throws IOException {
+        final long start = randomLongBetween(-1000L * 3600 * 24 * 365 * 50, 1000L * 3600 * 24 * 365 * 50);
+        final long end = start + randomLongBetween(0, 1000L * 3600 * 24 * 365 * randomIntBetween(1, 10));
+        final long[] values = new long[randomIntBetween(1, 5000)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = randomLongBetween(start, end);
+        }
+        final long lowerBound = randomBoolean() ? Long.MIN_VALUE : randomLongBetween(start - 1000, end);
+        final long upperBound = randomBoolean() ? Long.MAX_VALUE : randomLongBetween(lowerBound, end + 1000);
+        final Rounding rounding = randomRounding();
+        final long offset = randomBoolean() ? 0 : randomLongBetween(-1000L * 3600 * 24, 1000L * 3600 * 24);
+
+        final Map<Long, Integer> expected = new HashMap<>();
+        for (long value : values) {
+            if (value >= lowerBound && value <= upperBound) {
+                expected.merge(rounding.round(value - offset) + offset, 1, Integer::sum);
+            }
+        }
+        final DatePointsBucketCounter counter = DatePointsBucketCounter.createOrNull(LongPoint.newRangeQuery(FIELD, lowerBound,
+            upperBound), null, AggregatorFactories.EMPTY, config(dateFieldType()));
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+            for (long value : values) {
+                Document doc = new Document();
+                doc.add(new LongPoint(FIELD, value));
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                final LeafReader leafReader = reader.leaves().get(0).reader();
+                final Map<Long, Integer> actual = new HashMap<>();
+                final boolean counted = counter.countBuckets(leafReader, rounding, offset, 1, (key, docCount) -> {
+                    assertTrue(docCount > 0);
+                    assertNull(actual.put(key, docCount));
+                });
+                // segments are only counted if they have at least as many documents as buckets
+                assertEquals(numBuckets(rounding, offset, Math.max(lowerBound, Arrays.stream(values).min().getAsLong()),
+                    Math.min(upperBound, Arrays.stream(values).max().getAsLong()), values.length) <= values.length, counted);
+                if (counted) {
+                    assertEquals(expected, actual);
+                } else {
+                    assertTrue(actual.isEmpty());
+                }
+                // segments with a lot of buckets compared to their number of documents are collected
+                if (expected.size() > 1) {
+                    assertFalse(counter.countBuckets(leafReader, rounding, offset, values.length, (key, docCount) -> fail()));
+                }
+            }
+        }
+    }
+
+    public void testUnsupportedSegments() throws IOException {
+        final DatePointsBucketCounter counter = DatePointsBucketCounter.createOrNull(new MatchAllDocsQuery(), null,
+            AggregatorFactories.EMPTY, config(dateFieldType()));
+        final Rounding rounding = Rounding.builder(Rounding.DateTimeUnit.DAY_OF_MONTH).timeZone(ZoneId.of("UTC")).build();
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig())) {
+            // documents without values
+            writer.addDocument(new Document());
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                assertFalse(counter.countBuckets(getOnlyLeafReader(reader), rounding, 0, 1, (key, docCount) -> fail()));
+            }
+            // documents with several values
+            Document doc = new Document();
+            doc.add(new StringField("id", "0", Field.Store.NO));
+            doc.add(new LongPoint(FIELD, 1));
+            doc.add(new LongPoint(FIELD, 2));
+            writer.addDocument(doc);
+            writer.forceMerge(1);
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                assertFalse(counter.countBuckets(getOnlyLeafReader(reader), rounding, 0, 1, (key, docCount) -> fail()));
+            }
+            // deleted documents
+            doc = new Document();
+            doc.add(new LongPoint(FIELD, 1));
+            writer.addDocument(doc);
+            writer.deleteDocuments(new Term("id", "0"));
+            try (DirectoryReader reader = DirectoryReader.open(writer)) {
+                for (int i = 0; i < reader.leaves().size(); i++) {
+                    LeafReader leafReader = reader.leaves().get(i).reader();
+                    if (leafReader.getLiveDocs() != null) {
+                        assertFalse(counter.countBuckets(leafReader, rounding, 0, 1, (key, docCount) -> fail()));
+                    }
+                }
+            }
+        }
+    }
+}
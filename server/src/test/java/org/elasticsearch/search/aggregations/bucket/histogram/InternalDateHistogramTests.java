@@ -19,7 +19,9 @@
 
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Rounding;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.search.DocValueFormat;
@@ -28,9 +30,12 @@ import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.ParsedMultiBucketAggregation;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.test.InternalMultiBucketAggregationTestCase;
+import org.elasticsearch.test.VersionUtils;
 
+import java.io.IOException;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +44,8 @@ import java.util.TreeMap;
 import static org.elasticsearch.common.unit.TimeValue.timeValueHours;
 import static org.elasticsearch.common.unit.TimeValue.timeValueMinutes;
 import static org.elasticsearch.common.unit.TimeValue.timeValueSeconds;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class InternalDateHistogramTests extends InternalMultiBucketAggregationTestCase<InternalDateHistogram> {
 
@@ -99,6 +106,46 @@ public class InternalDateHistogramTests extends InternalMultiBucketAggregationTe
             pipelineAggregators, metaData);
     }
 
+    public void testSerializationToPreviousVersion() throws IOException {
+        assertSerialization(createTestInstance(), VersionUtils.getPreviousVersion(Version.V_8_0_0));
+    }
+
+    public void testColumnarSerializationIsSmaller() throws IOException {
+        final int numBuckets = randomIntBetween(2, 10);
+        final List<InternalDateHistogram.Bucket> buckets = new ArrayList<>(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            final InternalAggregations aggregations = new InternalAggregations(Collections.singletonList(histogram("nested",
+                Collections.emptyList())));
+            buckets.add(new InternalDateHistogram.Bucket(baseMillis + intervalMillis * i, randomIntBetween(1, 100), keyed, format,
+                aggregations));
+        }
+        final InternalDateHistogram histogram = histogram("histo", buckets);
+        assertThat(serializedSize(histogram, Version.CURRENT), lessThan(serializedSize(histogram, previousVersion())));
+
+        // a single bucket doesn't take more bytes, and empty lists of buckets, nested or not, take as many bytes in both formats
+        final InternalDateHistogram single = histogram("histo", Collections.singletonList(buckets.get(0)));
+        assertThat(serializedSize(single, Version.CURRENT), lessThanOrEqualTo(serializedSize(single, previousVersion())));
+        final InternalDateHistogram empty = histogram("histo", Collections.emptyList());
+        assertEquals(serializedSize(empty, previousVersion()), serializedSize(empty, Version.CURRENT));
+    }
+
+    private InternalDateHistogram histogram(String name, List<InternalDateHistogram.Bucket> buckets) {
+        return new InternalDateHistogram(name, buckets, BucketOrder.key(true), 1, 0L, null, format, keyed,
+            Collections.emptyList(), null);
+    }
+
+    private static Version previousVersion() {
+        return VersionUtils.getPreviousVersion(Version.V_8_0_0);
+    }
+
+    private static long serializedSize(InternalDateHistogram histogram, Version version) throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            histogram.writeTo(out);
+            return out.size();
+        }
+    }
+
     @Override
     protected void assertReduced(InternalDateHistogram reduced, List<InternalDateHistogram> inputs) {
         TreeMap<Long, Long> expectedCounts = new TreeMap<>();
@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompactBytesRefHashTests extends ESTestCase {
+
+    private static BigArrays randomBigArrays() {
+        return new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+    }
+
+    private static CompactBytesRefHash newHash() {
+        // Test high load factors to make sure that collision resolution works fine
+        final float maxLoadFactor = 0.6f + randomFloat() * 0.39f;
+        return new CompactBytesRefHash(randomIntBetween(0, 100), maxLoadFactor, randomBigArrays());
+    }
+
+    private static BytesRef randomKey() {
+        // mix short keys, which often collide, with longer keys
+        final byte[] bytes = new byte[randomBoolean() ? randomIntBetween(0, 7) : randomIntBetween(8, 40)];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) randomIntBetween(0, 3);
+        }
+        final int offset = randomIntBetween(0, 3);
+        final byte[] padded = new byte[offset + bytes.length + randomIntBetween(0, 3)];
+        System.arraycopy(bytes, 0, padded, offset, bytes.length);
+        return new BytesRef(padded, offset, bytes.length);
+    }
+
+    public void testDuel() {
+        final BytesRef[] values = new BytesRef[randomIntBetween(1, 50000)];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = randomKey();
+        }
+        final Map<BytesRef, Long> valueToId = new HashMap<>();
+        final List<BytesRef> idToValue = new ArrayList<>();
+        try (CompactBytesRefHash hash = newHash()) {
+            final int iters = randomIntBetween(1, 200000);
+            for (int i = 0; i < iters; ++i) {
+                final BytesRef value = randomFrom(values);
+                final Long id = valueToId.get(value);
+                if (id != null) {
+                    assertEquals(-1 - id, hash.add(value));
+                } else {
+                    assertEquals(valueToId.size(), hash.add(value));
+                    idToValue.add(value);
+                    valueToId.put(value, (long) valueToId.size());
+                }
+            }
+
+            assertEquals(valueToId.size(), hash.size());
+            for (Map.Entry<BytesRef, Long> entry : valueToId.entrySet()) {
+                assertEquals(entry.getValue().longValue(), hash.find(entry.getKey()));
+            }
+            final BytesRef spare = new BytesRef();
+            for (int id = 0; id < idToValue.size(); ++id) {
+                assertEquals(idToValue.get(id), hash.get(id, spare));
+            }
+            for (int i = 0; i < 100; ++i) {
+                final BytesRef key = randomKey();
+                if (valueToId.containsKey(key) == false) {
+                    assertEquals(-1, hash.find(key));
+                }
+            }
+        }
+    }
+
+    public void testKeysThatOnlyDifferByLength() {
+        try (CompactBytesRefHash hash = newHash()) {
+            final byte[] zeros = new byte[randomIntBetween(1, 20)];
+            for (int length = 0; length <= zeros.length; ++length) {
+                assertEquals(length, hash.add(new BytesRef(zeros, 0, length)));
+            }
+            for (int length = 0; length <= zeros.length; ++length) {
+                assertEquals(-1 - length, hash.add(new BytesRef(zeros, 0, length)));
+                assertEquals(length, hash.get(length, new BytesRef()).length);
+            }
+        }
+    }
+
+    public void testRamBytesUsed() {
+        final BigArrays bigArrays = randomBigArrays();
+        try (CompactBytesRefHash hash = new CompactBytesRefHash(1, bigArrays);
+             BytesRefHash bytesRefHash = new BytesRefHash(1, bigArrays)) {
+            final int numKeys = randomIntBetween(1, 100000);
+            for (int i = 0; i < numKeys; ++i) {
+                final BytesRef key = new BytesRef(Integer.toString(i));
+                assertEquals(i, hash.add(key));
+                assertEquals(i, bytesRefHash.add(key));
+                // both hash tables grow at the same sizes, but the hash codes of the keys don't need an array of their own
+                assertEquals(hash.capacity(), bytesRefHash.capacity());
+                assertTrue(hash.ramBytesUsed() < bytesRefHash.ramBytesUsed());
+            }
+        }
+    }
+
+    public void testAddDocValues() throws Exception {
+        final IncludeExclude.StringFilter filter = randomBoolean() ? null
+            : new IncludeExclude("a.*", null).convertToStringFilter(DocValueFormat.RAW);
+        final Map<BytesRef, Long> valueToId = new HashMap<>();
+        try (CompactBytesRefHash hash = newHash()) {
+            final int numDocs = randomIntBetween(1, 1000);
+            for (int doc = 0; doc < numDocs; ++doc) {
+                final BytesRef[] docValues = new BytesRef[randomIntBetween(0, 10)];
+                for (int i = 0; i < docValues.length; ++i) {
+                    docValues[i] = new BytesRef(randomFrom("a", "ab", "abcdefghijkl", "b", "bcdefghijkl"));
+                }
+                Arrays.sort(docValues);
+                final long[] ids = new long[docValues.length];
+                final int count = hash.add(new SortedBinaryDocValues() {
+                    int index = 0;
+
+                    @Override
+                    public boolean advanceExact(int target) {
+                        return true;
+                    }
+
+                    @Override
+                    public int docValueCount() {
+                        return docValues.length;
+                    }
+
+                    @Override
+                    public BytesRef nextValue() {
+                        return docValues[index++];
+                    }
+                }, filter, ids);
+
+                final List<Long> expected = new ArrayList<>();
+                BytesRef previous = null;
+                for (BytesRef value : docValues) {
+                    if ((filter != null && filter.accept(value) == false) || value.equals(previous)) {
+                        continue;
+                    }
+                    previous = value;
+                    final Long id = valueToId.get(value);
+                    if (id != null) {
+                        expected.add(-1 - id);
+                    } else {
+                        expected.add((long) valueToId.size());
+                        valueToId.put(value, (long) valueToId.size());
+                    }
+                }
+                assertEquals(expected.size(), count);
+                for (int i = 0; i < count; ++i) {
+                    assertEquals(expected.get(i).longValue(), ids[i]);
+                }
+            }
+            assertEquals(valueToId.size(), hash.size());
+        }
+    }
+}
@@ -19,11 +19,14 @@
 
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.test.InternalMultiBucketAggregationTestCase;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.test.VersionUtils;
 import org.junit.Before;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -68,6 +71,10 @@ public abstract class InternalTermsTestCase extends InternalMultiBucketAggregati
                 pipelineAggregators, metaData);
     }
 
+    public void testSerializationToPreviousVersion() throws IOException {
+        assertSerialization(createTestInstance(), VersionUtils.getPreviousVersion(Version.V_8_0_0));
+    }
+
     @Override
     protected void assertReduced(InternalTerms<?, ?> reduced, List<InternalTerms<?, ?>> inputs) {
         final int requiredSize = inputs.get(0).requiredSize;
@@ -26,6 +26,7 @@ import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.ParsedMultiBucketAggregation;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -33,6 +34,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static java.util.Collections.emptyList;
+
 public class LongTermsTests extends InternalTermsTestCase {
 
     @Override
@@ -60,6 +63,15 @@ public class LongTermsTests extends InternalTermsTestCase {
                 metaData, format, shardSize, showTermDocCountError, otherDocCount, buckets, docCountError);
     }
 
+    public void testSerializationOfExtremeTerms() throws IOException {
+        List<LongTerms.Bucket> buckets = new ArrayList<>();
+        for (long term : new long[] { Long.MAX_VALUE, Long.MIN_VALUE, 0, -1, Long.MIN_VALUE + 1, Long.MAX_VALUE - 1 }) {
+            buckets.add(new LongTerms.Bucket(term, randomIntBetween(1, 100), InternalAggregations.EMPTY, false, -1, DocValueFormat.RAW));
+        }
+        assertSerialization(new LongTerms("name", BucketOrder.count(false), 3, 1, emptyList(), null, DocValueFormat.RAW, 5, false, 0,
+            buckets, 0));
+    }
+
     @Override
     protected Reader<InternalTerms<?, ?>> instanceReader() {
         return LongTerms::new;
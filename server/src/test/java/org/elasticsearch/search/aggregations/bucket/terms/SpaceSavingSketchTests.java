@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class SpaceSavingSketchTests extends ESTestCase {
+
+    private static BigArrays randomBigArrays() {
+        return new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+    }
+
+    public void testExactBelowCapacity() {
+        final int capacity = randomIntBetween(1, 1000);
+        final long[] keys = new long[randomIntBetween(1, capacity)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = randomLong();
+        }
+        final Map<Long, Long> expected = new HashMap<>();
+        try (SpaceSavingSketch sketch = new SpaceSavingSketch(capacity, randomBigArrays())) {
+            final int iters = randomIntBetween(1, 10000);
+            for (int i = 0; i < iters; i++) {
+                final long key = keys[randomInt(keys.length - 1)];
+                sketch.add(key);
+                expected.merge(key, 1L, Long::sum);
+            }
+            assertFalse(sketch.hasEvictions());
+            assertEquals(iters, sketch.totalCount());
+            assertEquals(expected.size(), sketch.size());
+            for (int id = 0; id < sketch.size(); id++) {
+                assertEquals(expected.get(sketch.key(id)).longValue(), sketch.count(id));
+                assertEquals(0, sketch.error(id));
+            }
+        }
+    }
+
+    public void testErrorBounds() {
+        final int capacity = randomIntBetween(1, 200);
+        final Map<Long, Long> expected = new HashMap<>();
+        try (SpaceSavingSketch sketch = new SpaceSavingSketch(capacity, randomBigArrays())) {
+            final int iters = randomIntBetween(1, 50000);
+            final int maxKey = randomIntBetween(1, 5000);
+            for (int i = 0; i < iters; i++) {
+                // skewed distribution so that some keys are much more frequent than others
+                final long key = randomBoolean() ? randomIntBetween(0, 10) : randomIntBetween(0, maxKey);
+                sketch.add(key);
+                expected.merge(key, 1L, Long::sum);
+            }
+            assertEquals(iters, sketch.totalCount());
+            assertEquals(Math.min(capacity, expected.size()), sketch.size());
+
+            long sumOfCounts = 0;
+            long minCount = Long.MAX_VALUE;
+            final Set<Long> tracked = new HashSet<>();
+            for (int id = 0; id < sketch.size(); id++) {
+                final long key = sketch.key(id);
+                assertTrue("duplicate key " + key, tracked.add(key));
+                final long trueCount = expected.get(key);
+                assertTrue(sketch.count(id) >= trueCount);
+                assertTrue(sketch.count(id) - sketch.error(id) <= trueCount);
+                sumOfCounts += sketch.count(id);
+                minCount = Math.min(minCount, sketch.count(id));
+            }
+            // each occurrence increments exactly one counter
+            assertEquals(iters, sumOfCounts);
+            assertEquals(minCount, sketch.minCount());
+            for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+                if (tracked.contains(entry.getKey()) == false) {
+                    assertTrue(entry.getValue() <= sketch.minCount());
+                }
+                // keys that are more frequent than the average count of a counter are always tracked
+                if (entry.getValue() * capacity > iters) {
+                    assertTrue(tracked.contains(entry.getKey()));
+                }
+            }
+            assertEquals(expected.size() > capacity, sketch.hasEvictions());
+        }
+    }
+}
@@ -29,7 +29,10 @@ import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexSearcher;
@@ -74,6 +77,7 @@ import org.elasticsearch.search.aggregations.bucket.global.InternalGlobal;
 import org.elasticsearch.search.aggregations.bucket.nested.InternalNested;
 import org.elasticsearch.search.aggregations.bucket.nested.NestedAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.InternalTopHits;
+import org.elasticsearch.search.aggregations.metrics.Max;
 import org.elasticsearch.search.aggregations.metrics.TopHitsAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.BucketScriptPipelineAggregationBuilder;
 import org.elasticsearch.search.aggregations.support.AggregationInspectionHelper;
@@ -85,6 +89,7 @@ import org.elasticsearch.test.geo.RandomGeoGenerator;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -98,7 +103,10 @@ import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
 import static org.elasticsearch.search.aggregations.PipelineAggregatorBuilders.bucketScript;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 
 public class TermsAggregatorTests extends AggregatorTestCase {
 
@@ -110,11 +118,13 @@ public class TermsAggregatorTests extends AggregatorTestCase {
             if (randomizeAggregatorImpl) {
                 TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = randomBoolean();
                 TermsAggregatorFactory.REMAP_GLOBAL_ORDS = randomBoolean();
+                TermsAggregatorFactory.SKIP_GLOBAL_ORDS = randomBoolean();
             }
             return super.createAggregator(aggregationBuilder, indexSearcher, fieldTypes);
         } finally {
             TermsAggregatorFactory.COLLECT_SEGMENT_ORDS = null;
             TermsAggregatorFactory.REMAP_GLOBAL_ORDS = null;
+            TermsAggregatorFactory.SKIP_GLOBAL_ORDS = null;
         }
     }
 
@@ -158,6 +168,178 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         directory.close();
     }
 
+    public void testSegmentOrdinalsWithoutGlobalOrdinals() throws Exception {
+        randomizeAggregatorImpl = false;
+
+        final int numSegments = randomIntBetween(2, TermsAggregatorFactory.MAX_SEGMENTS_WITHOUT_GLOBAL_ORDS);
+        final Map<String, Integer> counts = new HashMap<>();
+        final Map<String, Long> maxs = new HashMap<>();
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter indexWriter = new IndexWriter(directory, config)) {
+                for (int segment = 0; segment < numSegments; segment++) {
+                    final int numDocs = randomIntBetween(1, 50);
+                    for (int i = 0; i < numDocs; i++) {
+                        final long value = randomLongBetween(-100, 100);
+                        Document document = new Document();
+                        document.add(new NumericDocValuesField("number", value));
+                        for (String term : randomSubsetOf(randomIntBetween(1, 3), "a", "b", "c", "d", "e", "f", "g", "h")) {
+                            document.add(new SortedSetDocValuesField("string", new BytesRef(term)));
+                            counts.merge(term, 1, Integer::sum);
+                            maxs.merge(term, value, Math::max);
+                        }
+                        indexWriter.addDocument(document);
+                    }
+                    indexWriter.commit();
+                }
+            }
+
+            MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+            fieldType.setName("string");
+            fieldType.setHasDocValues(true);
+            MappedFieldType numberFieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+            numberFieldType.setName("number");
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                assertEquals(numSegments, indexReader.leaves().size());
+                // We do not use LuceneTestCase.newSearcher because we need a DirectoryReader
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                final boolean withSubAggregation = randomBoolean();
+                final boolean filtered = randomBoolean();
+                TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                    .field("string")
+                    .size(counts.size());
+                if (withSubAggregation) {
+                    aggregationBuilder.subAggregation(AggregationBuilders.max("max").field("number"))
+                        .collectMode(randomFrom(Aggregator.SubAggCollectionMode.values()));
+                }
+                if (filtered) {
+                    aggregationBuilder.includeExclude(new IncludeExclude("[a-d]", null));
+                }
+
+                // field data isn't cached so global ordinals would need to be built
+                TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType, numberFieldType);
+                assertThat(aggregator, instanceOf(SegmentOrdinalsStringTermsAggregator.class));
+                aggregator.preCollection();
+                indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                aggregator.postCollection();
+                Terms result = (Terms) aggregator.buildAggregation(0L);
+                int expectedBuckets = 0;
+                for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                    Terms.Bucket bucket = result.getBucketByKey(entry.getKey());
+                    if (filtered && entry.getKey().compareTo("d") > 0) {
+                        assertNull(bucket);
+                        continue;
+                    }
+                    expectedBuckets++;
+                    assertNotNull(bucket);
+                    assertEquals(entry.getValue().longValue(), bucket.getDocCount());
+                    if (withSubAggregation) {
+                        Max max = bucket.getAggregations().get("max");
+                        assertEquals(maxs.get(entry.getKey()), max.getValue(), 0d);
+                    }
+                }
+                assertEquals(expectedBuckets, result.getBuckets().size());
+            }
+        }
+    }
+
+    public void testHeavyHitters() throws Exception {
+        final int numHeavyTerms = randomIntBetween(1, 5);
+        // more unique terms than counters in the sketch so that some terms get evicted
+        final int numRareTerms = GlobalOrdinalsStringTermsAggregator.HeavyHitters.MIN_CAPACITY + randomIntBetween(1, 1000);
+        final Map<String, Integer> counts = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+        for (int i = 0; i < numHeavyTerms; i++) {
+            final int count = randomIntBetween(200, 500);
+            counts.put("heavy" + i, count);
+            for (int j = 0; j < count; j++) {
+                values.add("heavy" + i);
+            }
+        }
+        for (int i = 0; i < numRareTerms; i++) {
+            counts.put("rare" + i, 1);
+            values.add("rare" + i);
+        }
+        Collections.shuffle(values, random());
+
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                for (String value : values) {
+                    Document document = new Document();
+                    document.add(new SortedDocValuesField("string", new BytesRef(value)));
+                    indexWriter.addDocument(document);
+                }
+                try (IndexReader indexReader = maybeWrapReaderEs(indexWriter.getReader())) {
+                    IndexSearcher indexSearcher = newIndexSearcher(indexReader);
+                    MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                    fieldType.setName("string");
+                    fieldType.setHasDocValues(true);
+                    TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                        .executionHint("heavy_hitters")
+                        .field("string")
+                        .size(numHeavyTerms)
+                        .showTermDocCountError(true);
+
+                    TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                    assertThat(aggregator, instanceOf(GlobalOrdinalsStringTermsAggregator.HeavyHitters.class));
+                    aggregator.preCollection();
+                    indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                    aggregator.postCollection();
+                    Terms result = (Terms) aggregator.buildAggregation(0L);
+                    assertThat(result.getDocCountError(), greaterThan(0L));
+                    long sumOfDocCounts = result.getSumOfOtherDocCounts();
+                    for (int i = 0; i < numHeavyTerms; i++) {
+                        Terms.Bucket bucket = result.getBucketByKey("heavy" + i);
+                        assertNotNull(bucket);
+                        final long count = counts.get("heavy" + i);
+                        assertThat(bucket.getDocCount(), lessThanOrEqualTo(count));
+                        assertThat(bucket.getDocCount() + bucket.getDocCountError(), greaterThanOrEqualTo(count));
+                    }
+                    for (Terms.Bucket bucket : result.getBuckets()) {
+                        final long count = counts.get(bucket.getKeyAsString());
+                        assertThat(bucket.getDocCount(), lessThanOrEqualTo(count));
+                        assertThat(bucket.getDocCount() + bucket.getDocCountError(), greaterThanOrEqualTo(count));
+                        sumOfDocCounts += bucket.getDocCount();
+                    }
+                    assertEquals(values.size(), sumOfDocCounts);
+                }
+            }
+        }
+    }
+
+    public void testHeavyHittersIsIgnoredWhenNotApplicable() throws Exception {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                Document document = new Document();
+                document.add(new SortedDocValuesField("string", new BytesRef("a")));
+                indexWriter.addDocument(document);
+                try (IndexReader indexReader = maybeWrapReaderEs(indexWriter.getReader())) {
+                    IndexSearcher indexSearcher = newIndexSearcher(indexReader);
+                    MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                    fieldType.setName("string");
+                    fieldType.setHasDocValues(true);
+                    TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                        .executionHint("heavy_hitters")
+                        .field("string");
+                    switch (randomInt(2)) {
+                        case 0:
+                            aggregationBuilder.order(BucketOrder.key(randomBoolean()));
+                            break;
+                        case 1:
+                            aggregationBuilder.minDocCount(0);
+                            break;
+                        default:
+                            aggregationBuilder.subAggregation(AggregationBuilders.cardinality("card").field("string"));
+                            break;
+                    }
+                    TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                    assertThat(aggregator, instanceOf(GlobalOrdinalsStringTermsAggregator.class));
+                    assertThat(aggregator, not(instanceOf(GlobalOrdinalsStringTermsAggregator.HeavyHitters.class)));
+                }
+            }
+        }
+    }
+
     public void testSimple() throws Exception {
         try (Directory directory = newDirectory()) {
             try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
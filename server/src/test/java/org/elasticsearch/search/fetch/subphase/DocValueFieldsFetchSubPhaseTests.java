@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.fetch.subphase;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.DocValueFieldsContext.FieldAndFormat;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.test.ESSingleNodeTestCase;
+import org.elasticsearch.test.InternalSettingsPlugin;
+import org.elasticsearch.test.TestSearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DocValueFieldsFetchSubPhaseTests extends ESSingleNodeTestCase {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> getPlugins() {
+        return pluginList(InternalSettingsPlugin.class);
+    }
+
+    public void testMultipleSegments() throws IOException {
+        IndexService indexService = createIndex("index", Settings.builder()
+            .put("index.number_of_shards", 1)
+            .put("index.merge.enabled", false)
+            .build(), "_doc", "long", "type=long", "keyword", "type=keyword", "double", "type=double");
+        final int numSegments = randomIntBetween(2, 5);
+        int numDocs = 0;
+        for (int segment = 0; segment < numSegments; segment++) {
+            for (int i = randomIntBetween(1, 10); i > 0; i--) {
+                final int id = numDocs++;
+                // some documents don't have a value for the double field
+                if (randomBoolean()) {
+                    client().prepareIndex("index", "_doc", Integer.toString(id)).setSource("long", new long[] { id, id + 1 },
+                        "keyword", "value" + id, "double", id / 2d).get();
+                } else {
+                    client().prepareIndex("index", "_doc", Integer.toString(id)).setSource("long", new long[] { id, id + 1 },
+                        "keyword", "value" + id).get();
+                }
+            }
+            client().admin().indices().prepareRefresh("index").get();
+        }
+        if (randomBoolean()) {
+            // a segment without hits
+            client().prepareIndex("index", "_doc", "missing").setSource("long", -1)
+                .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE).get();
+        }
+
+        try (Engine.Searcher searcher = indexService.getShard(0).acquireSearcher("test")) {
+            assertTrue(searcher.getIndexReader().leaves().size() >= numSegments);
+            // hits are not sorted by doc id, and not all documents are hits
+            final List<SearchHit> hitList = new ArrayList<>();
+            final Map<Integer, String> ids = new HashMap<>();
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+                    final BytesRef id = leaf.reader().document(doc).getBinaryValue("_id");
+                    ids.put(leaf.docBase + doc, Uid.decodeId(id.bytes, id.offset, id.length));
+                    if (ids.get(leaf.docBase + doc).equals("missing") == false && randomInt(4) > 0) {
+                        hitList.add(new SearchHit(leaf.docBase + doc));
+                    }
+                }
+            }
+            Collections.shuffle(hitList, random());
+            final SearchHit[] hits = hitList.toArray(new SearchHit[0]);
+            final List<FieldAndFormat> fields = new ArrayList<>(Arrays.asList(new FieldAndFormat("long", null),
+                new FieldAndFormat("keyword", null), new FieldAndFormat("double", null), new FieldAndFormat("unmapped", null)));
+            Collections.shuffle(fields, random());
+
+            new DocValueFieldsFetchSubPhase().hitsExecute(new DocValueFieldsTestSearchContext(indexService, searcher,
+                new DocValueFieldsContext(fields)), hits);
+
+            for (int i = 0; i < hits.length; i++) {
+                // the order of the hits is kept
+                assertSame(hitList.get(i), hits[i]);
+                final SearchHit hit = hits[i];
+                final int id = Integer.parseInt(ids.get(hit.docId()));
+                assertEquals(Arrays.asList((long) id, (long) id + 1), hit.field("long").getValues());
+                assertEquals(Collections.singletonList("value" + id), hit.field("keyword").getValues());
+                final DocumentField doubleField = hit.field("double");
+                if (doubleField.getValues().isEmpty() == false) {
+                    assertEquals(Collections.singletonList(id / 2d), doubleField.getValues());
+                }
+                assertNull(hit.field("unmapped"));
+            }
+        }
+    }
+
+    public void testNoFields() throws IOException {
+        IndexService indexService = createIndex("index", Settings.EMPTY, "_doc", "long", "type=long");
+        client().prepareIndex("index", "_doc", "1").setSource("long", 1).setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE).get();
+        try (Engine.Searcher searcher = indexService.getShard(0).acquireSearcher("test")) {
+            final SearchHit hit = new SearchHit(0);
+            new DocValueFieldsFetchSubPhase().hitsExecute(new DocValueFieldsTestSearchContext(indexService, searcher,
+                new DocValueFieldsContext(new ArrayList<>(Collections.singletonList(new FieldAndFormat("unmapped", null))))),
+                new SearchHit[] { hit });
+            assertNull(hit.fieldsOrNull());
+        }
+    }
+
+    private static class DocValueFieldsTestSearchContext extends TestSearchContext {
+        private final ContextIndexSearcher searcher;
+        private final DocValueFieldsContext docValueFieldsContext;
+
+        DocValueFieldsTestSearchContext(IndexService indexService, Engine.Searcher searcher, DocValueFieldsContext docValueFieldsContext) {
+            super(indexService.getBigArrays(), indexService);
+            this.searcher = new ContextIndexSearcher(searcher.getIndexReader(), IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+            this.docValueFieldsContext = docValueFieldsContext;
+        }
+
+        @Override
+        public ContextIndexSearcher searcher() {
+            return searcher;
+        }
+
+        @Override
+        public DocValueFieldsContext docValueFieldsContext() {
+            return docValueFieldsContext;
+        }
+    }
+}
@@ -1226,4 +1226,53 @@ public class SearchFieldsIT extends ESIntegTestCase {
         assertThat(fields.get("_routing").isMetadataField(), equalTo(true));
         assertThat(fields.get("_routing").getValue().toString(), equalTo("1"));
     }
+
+    public void testDocValueFieldsOnly() throws Exception {
+        assertAcked(prepareCreate("test").addMapping("doc", "field1", "type=keyword", "field2", "type=long"));
+
+        indexRandom(true,
+                client().prepareIndex("test", "doc", "1")
+                        .setRouting("1")
+                        .setSource(jsonBuilder().startObject().field("field1", "value").field("field2", 42).endObject()));
+
+        // disabling _source alone still reads the metadata fields of the hit
+        SearchResponse response = client().prepareSearch("test")
+                .setFetchSource(false)
+                .addDocValueField("field1")
+                .get();
+        assertSearchResponse(response);
+        assertHitCount(response, 1);
+        SearchHit hit = response.getHits().getAt(0);
+        assertThat(hit.getId(), equalTo("1"));
+        assertThat(hit.getFields().get("_routing").getValue().toString(), equalTo("1"));
+        assertThat(hit.getSourceAsMap(), nullValue());
+        assertThat(hit.getFields().get("field1").getValue(), equalTo("value"));
+
+        // the values are read from doc values and the stored fields of the hit are not read
+        response = client().prepareSearch("test")
+                .storedFields("_none_")
+                .addDocValueField("field1")
+                .addDocValueField("field2")
+                .get();
+        assertSearchResponse(response);
+        assertHitCount(response, 1);
+        hit = response.getHits().getAt(0);
+        assertThat(hit.getId(), nullValue());
+        assertThat(hit.getFields().get("_routing"), nullValue());
+        assertThat(hit.getSourceAsMap(), nullValue());
+        assertThat(hit.getFields().get("field1").getValue(), equalTo("value"));
+        assertThat(hit.getFields().get("field2").getValue(), equalTo(42L));
+
+        // asking for stored fields loads the stored fields of the hit
+        response = client().prepareSearch("test")
+                .setFetchSource(randomBoolean())
+                .addStoredField("_routing")
+                .addDocValueField("field1")
+                .get();
+        assertSearchResponse(response);
+        hit = response.getHits().getAt(0);
+        assertThat(hit.getId(), equalTo("1"));
+        assertThat(hit.getFields().get("_routing").getValue().toString(), equalTo("1"));
+        assertThat(hit.getFields().get("field1").getValue(), equalTo("value"));
+    }
 }
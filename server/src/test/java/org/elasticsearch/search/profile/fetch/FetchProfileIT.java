@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile.fetch;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class FetchProfileIT extends ESIntegTestCase {
+
+    public void testFetchProfile() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(Settings.builder()
+            .put("index.number_of_shards", 1)
+            .put("index.number_of_replicas", 0)));
+        int numSegments = randomIntBetween(1, 4);
+        int numDocs = 0;
+        for (int s = 0; s < numSegments; s++) {
+            int segmentDocs = randomIntBetween(1, 30);
+            for (int i = 0; i < segmentDocs; i++) {
+                client().prepareIndex("test", "_doc", Integer.toString(numDocs)).setSource("field", numDocs).get();
+                numDocs++;
+            }
+            refresh();
+        }
+
+        SortOrder order = randomFrom(SortOrder.values());
+        SearchResponse resp = client().prepareSearch("test")
+            .setQuery(QueryBuilders.matchAllQuery())
+            .addSort("field", order)
+            .setSize(numDocs)
+            .setProfile(true)
+            .get();
+        assertHitCount(resp, numDocs);
+
+        // hits are fetched in doc id order but must be returned in the order of the sort
+        SearchHit[] hits = resp.getHits().getHits();
+        assertThat(hits.length, equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            int expected = order == SortOrder.ASC ? i : numDocs - 1 - i;
+            assertThat(hits[i].getId(), equalTo(Integer.toString(expected)));
+            assertThat(hits[i].getSourceAsMap().get("field"), equalTo(expected));
+        }
+
+        Map<String, ProfileShardResult> profileResults = resp.getProfileResults();
+        assertThat(profileResults.size(), equalTo(1));
+        FetchProfileShardResult fetchProfile = profileResults.values().iterator().next().getFetchProfileResult();
+        assertNotNull(fetchProfile);
+        assertThat(fetchProfile.getHits(), equalTo(numDocs));
+        assertThat(fetchProfile.getStoredFieldsLoads(), equalTo((long) numDocs));
+        assertThat(fetchProfile.getSegments(), greaterThanOrEqualTo(1));
+        assertThat(fetchProfile.getSegments(), lessThanOrEqualTo(numDocs));
+        assertThat(fetchProfile.getSequentialStoredFieldsLoads(), lessThanOrEqualTo(fetchProfile.getStoredFieldsLoads()));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the \"License\"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile.fetch;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentParserUtils;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.test.AbstractWireSerializingTestCase;
+
+import java.io.IOException;
+
+import static org.elasticsearch.common.xcontent.XContentHelper.toXContent;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertToXContentEquivalent;
+
+public class FetchProfileShardResultTests extends AbstractWireSerializingTestCase<FetchProfileShardResult> {
+
+    public static FetchProfileShardResult createTestItem() {
+        long storedFieldsLoads = randomNonNegativeLong();
+        return new FetchProfileShardResult(randomNonNegativeLong(), randomIntBetween(0, 10000), randomIntBetween(0, 100),
+            storedFieldsLoads, randomLongBetween(0, storedFieldsLoads));
+    }
+
+    @Override
+    protected FetchProfileShardResult createTestInstance() {
+        return createTestItem();
+    }
+
+    @Override
+    protected Writeable.Reader<FetchProfileShardResult> instanceReader() {
+        return FetchProfileShardResult::new;
+    }
+
+    public void testFromXContent() throws IOException {
+        FetchProfileShardResult profileResult = createTestItem();
+        XContentType xContentType = randomFrom(XContentType.values());
+        boolean humanReadable = randomBoolean();
+        BytesReference originalBytes = toShuffledXContent(profileResult, xContentType, ToXContent.EMPTY_PARAMS, humanReadable);
+
+        FetchProfileShardResult parsed;
+        try (XContentParser parser = createParser(xContentType.xContent(), originalBytes)) {
+            XContentParserUtils.ensureExpectedToken(XContentParser.Token.START_OBJECT, parser.nextToken(), parser::getTokenLocation);
+            XContentParserUtils.ensureFieldName(parser, parser.nextToken(), FetchProfileShardResult.FETCH);
+            XContentParserUtils.ensureExpectedToken(XContentParser.Token.START_OBJECT, parser.nextToken(), parser::getTokenLocation);
+            parsed = FetchProfileShardResult.fromXContent(parser);
+            assertEquals(XContentParser.Token.END_OBJECT, parser.nextToken());
+            assertNull(parser.nextToken());
+        }
+        assertEquals(profileResult, parsed);
+        assertToXContentEquivalent(originalBytes, toXContent(parsed, xContentType, humanReadable), xContentType);
+    }
+
+    public void testToXContent() throws IOException {
+        FetchProfileShardResult profileResult = new FetchProfileShardResult(6000, 20, 2, 21, 18);
+        BytesReference xContent = toXContent(profileResult, XContentType.JSON, false);
+        assertEquals("{\"fetch\":{"
+                        + "\"time_in_nanos\":6000,"
+                        + "\"hits\":20,"
+                        + "\"segments\":2,"
+                        + "\"stored_fields_loads\":21,"
+                        + "\"sequential_stored_fields_loads\":18"
+                   + "}}", xContent.utf8ToString());
+
+        xContent = toXContent(profileResult, XContentType.JSON, true);
+        assertEquals("{\"fetch\":{"
+                        + "\"time\":\"6micros\","
+                        + "\"time_in_nanos\":6000,"
+                        + "\"hits\":20,"
+                        + "\"segments\":2,"
+                        + "\"stored_fields_loads\":21,"
+                        + "\"sequential_stored_fields_loads\":18"
+                   + "}}", xContent.utf8ToString());
+    }
+}
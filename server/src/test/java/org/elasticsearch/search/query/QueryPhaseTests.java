@@ -50,9 +50,11 @@ import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.TotalHits;
 import org.apache.lucene.search.Weight;
@@ -64,26 +66,37 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.action.search.SearchTask;
+import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.search.ESToParentBlockJoinQuery;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.Profilers;
+import org.elasticsearch.search.profile.query.CollectorResult;
+import org.elasticsearch.search.profile.query.QueryProfileShardResult;
 import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.test.TestSearchContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.not;
 
 public class QueryPhaseTests extends IndexShardTestCase {
 
@@ -714,6 +727,180 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testConcurrentSlices() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new TextField("body", randomFrom("foo", "foo foo", "foo bar", "bar"), Store.NO));
+            doc.add(new NumericDocValuesField("rank", randomIntBetween(0, 10)));
+            w.addDocument(doc);
+            if (i % 20 == 19) {
+                w.commit();
+            }
+        }
+        w.close();
+
+        final IndexReader reader = DirectoryReader.open(dir);
+        final int maxSlices = randomIntBetween(2, 5);
+        final List<List<LeafReaderContext>> slices = QueryPhase.sliceLeaves(reader.leaves(), maxSlices);
+        assertThat(slices.size(), greaterThan(1));
+        assertThat(slices.size(), lessThanOrEqualTo(maxSlices));
+        final List<LeafReaderContext> slicedLeaves = new ArrayList<>();
+        slices.forEach(slicedLeaves::addAll);
+        assertEquals(reader.leaves(), slicedLeaves);
+
+        final IndexShard concurrentShard =
+            newShard(true, Settings.builder().put(IndexSettings.MAX_CONCURRENT_SEARCH_SLICES_SETTING.getKey(), maxSlices).build());
+        try {
+            final ContextIndexSearcher searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+            final SortAndFormats rankSort =
+                new SortAndFormats(new Sort(new SortField("rank", SortField.Type.INT)), new DocValueFormat[] {DocValueFormat.RAW});
+            for (SortAndFormats sort : Arrays.asList(null, rankSort)) {
+                final int from = randomIntBetween(0, 10);
+                final int size = randomIntBetween(1, 50);
+                final ParsedQuery postFilter = randomBoolean() ? new ParsedQuery(new TermQuery(new Term("body", "bar"))) : null;
+                final TestSearchContext sequential = newConcurrentSlicesContext(indexShard, sort, from, size, postFilter);
+                QueryPhase.execute(sequential, searcher, checkCancelled -> {});
+                final TestSearchContext concurrent = newConcurrentSlicesContext(concurrentShard, sort, from, size, postFilter);
+                assertThat(QueryPhase.concurrentSlices(concurrent, searcher, postFilter != null).size(), greaterThan(1));
+                QueryPhase.execute(concurrent, searcher, checkCancelled -> {});
+
+                final TopDocsAndMaxScore expected = sequential.queryResult().topDocs();
+                final TopDocsAndMaxScore actual = concurrent.queryResult().topDocs();
+                assertEquals(expected.topDocs.totalHits, actual.topDocs.totalHits);
+                assertEquals(expected.maxScore, actual.maxScore, 0f);
+                assertEquals(expected.topDocs.scoreDocs.length, actual.topDocs.scoreDocs.length);
+                for (int i = 0; i < expected.topDocs.scoreDocs.length; i++) {
+                    final ScoreDoc expectedDoc = expected.topDocs.scoreDocs[i];
+                    final ScoreDoc actualDoc = actual.topDocs.scoreDocs[i];
+                    assertEquals(expectedDoc.doc, actualDoc.doc);
+                    assertEquals(expectedDoc.score, actualDoc.score, 0f);
+                    assertEquals(expectedDoc.shardIndex, actualDoc.shardIndex);
+                    if (sort != null) {
+                        assertArrayEquals(((FieldDoc) expectedDoc).fields, ((FieldDoc) actualDoc).fields);
+                    }
+                }
+            }
+
+            // sorted requests that don't collect hits, the post filter disables the hit count computed from the index statistics
+            final ParsedQuery postFilter = new ParsedQuery(new TermQuery(new Term("body", "bar")));
+            final TestSearchContext sequential = newConcurrentSlicesContext(indexShard, rankSort, 0, 0, postFilter);
+            QueryPhase.execute(sequential, searcher, checkCancelled -> {});
+            final TestSearchContext concurrent = newConcurrentSlicesContext(concurrentShard, rankSort, 0, 0, postFilter);
+            assertThat(QueryPhase.concurrentSlices(concurrent, searcher, true).size(), greaterThan(1));
+            QueryPhase.execute(concurrent, searcher, checkCancelled -> {});
+            final TopDocsAndMaxScore expected = sequential.queryResult().topDocs();
+            final TopDocsAndMaxScore actual = concurrent.queryResult().topDocs();
+            assertEquals(expected.topDocs.totalHits, actual.topDocs.totalHits);
+            assertEquals(0, actual.topDocs.scoreDocs.length);
+            assertThat(actual.topDocs, not(instanceOf(TopFieldDocs.class)));
+            assertNull(concurrent.queryResult().sortValueFormats());
+
+            // profiled requests sum the timings of the weights and of the collectors of the slices
+            final ContextIndexSearcher profiledSearcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+            final TestSearchContext profiled =
+                newConcurrentSlicesContext(concurrentShard, null, 0, 10, null, new Profilers(profiledSearcher));
+            final int numSlices = QueryPhase.concurrentSlices(profiled, profiledSearcher, false).size();
+            assertThat(numSlices, greaterThan(1));
+            QueryPhase.execute(profiled, profiledSearcher, checkCancelled -> {});
+            final TestSearchContext notProfiled = newConcurrentSlicesContext(indexShard, null, 0, 10, null);
+            QueryPhase.execute(notProfiled, searcher, checkCancelled -> {});
+            assertEquals(notProfiled.queryResult().topDocs().topDocs.totalHits, profiled.queryResult().topDocs().topDocs.totalHits);
+            final List<QueryProfileShardResult> queryProfiles = profiled.queryResult().consumeProfileResult().getQueryProfileResults();
+            assertEquals(1, queryProfiles.size());
+            assertEquals(1, queryProfiles.get(0).getQueryResults().size());
+            final ProfileResult queryProfile = queryProfiles.get(0).getQueryResults().get(0);
+            assertEquals("TermQuery", queryProfile.getQueryName());
+            assertEquals(Long.valueOf(numSlices), queryProfile.getTimeBreakdown().get("create_weight_count"));
+            assertEquals(CollectorResult.REASON_SEARCH_CANCELLED, queryProfiles.get(0).getCollectorResult().getReason());
+            reader.close();
+            dir.close();
+        } finally {
+            closeShards(concurrentShard);
+        }
+    }
+
+    public void testConcurrentSlicesFallback() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+        final int numDocs = scaledRandomIntBetween(100, 200);
+        int numFooDocs = 0;
+        for (int i = 0; i < numDocs; ++i) {
+            Document doc = new Document();
+            final String body = randomFrom("foo", "foo foo", "foo bar", "bar");
+            if (body.contains("foo")) {
+                numFooDocs++;
+            }
+            doc.add(new TextField("body", body, Store.NO));
+            w.addDocument(doc);
+            if (i % 20 == 19) {
+                w.commit();
+            }
+        }
+        w.close();
+
+        final IndexReader reader = DirectoryReader.open(dir);
+        final int maxSlices = randomIntBetween(2, 5);
+        final IndexShard concurrentShard =
+            newShard(true, Settings.builder().put(IndexSettings.MAX_CONCURRENT_SEARCH_SLICES_SETTING.getKey(), maxSlices).build());
+        try {
+            final ContextIndexSearcher searcher = new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+            assertThat(QueryPhase.concurrentSlices(newConcurrentSlicesContext(concurrentShard, null, 0, 10, null), searcher, false)
+                .size(), greaterThan(1));
+
+            // query collectors other than the ones of aggregations can't be created per slice, they collect all segments sequentially
+            final TestSearchContext withCollector = newConcurrentSlicesContext(concurrentShard, null, 0, 10, null);
+            final TotalHitCountCollector collector = new TotalHitCountCollector();
+            withCollector.queryCollectors().put(TotalHitCountCollector.class, collector);
+            assertEquals(Collections.singletonList(reader.leaves()), QueryPhase.concurrentSlices(withCollector, searcher, false));
+            QueryPhase.execute(withCollector, searcher, checkCancelled -> {});
+            assertEquals(numFooDocs, collector.getTotalHits());
+            assertEquals(numFooDocs, withCollector.queryResult().topDocs().topDocs.totalHits.value);
+
+            final TestSearchContext scroll = newConcurrentSlicesContext(concurrentShard, null, 0, 10, null);
+            scroll.scrollContext(new ScrollContext());
+            assertEquals(Collections.singletonList(reader.leaves()), QueryPhase.concurrentSlices(scroll, searcher, false));
+
+            final TestSearchContext terminateAfter = newConcurrentSlicesContext(concurrentShard, null, 0, 10, null);
+            terminateAfter.terminateAfter(randomIntBetween(1, numDocs));
+            assertEquals(Collections.singletonList(reader.leaves()), QueryPhase.concurrentSlices(terminateAfter, searcher, false));
+            reader.close();
+            dir.close();
+        } finally {
+            closeShards(concurrentShard);
+        }
+    }
+
+    private static TestSearchContext newConcurrentSlicesContext(IndexShard shard, SortAndFormats sort, int from, int size,
+                                                                ParsedQuery postFilter) {
+        return newConcurrentSlicesContext(shard, sort, from, size, postFilter, null);
+    }
+
+    private static TestSearchContext newConcurrentSlicesContext(IndexShard shard, SortAndFormats sort, int from, int size,
+                                                                ParsedQuery postFilter, Profilers profilers) {
+        TestSearchContext context = new TestSearchContext(null, shard) {
+            @Override
+            public Profilers getProfilers() {
+                return profilers;
+            }
+        };
+        context.parsedQuery(new ParsedQuery(new TermQuery(new Term("body", "foo"))));
+        context.parsedPostFilter(postFilter);
+        context.sort(sort);
+        context.from(from);
+        context.setSize(size);
+        context.trackTotalHitsUpTo(SearchContext.TRACK_TOTAL_HITS_ACCURATE);
+        context.setTask(new SearchTask(123L, "", "", "", null, Collections.emptyMap()));
+        return context;
+    }
+
     private static IndexSearcher getAssertingEarlyTerminationSearcher(IndexReader reader, int size) {
         return new IndexSearcher(reader) {
             @Override
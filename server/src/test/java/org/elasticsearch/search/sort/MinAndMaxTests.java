@@ -0,0 +1,66 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.sort;
+
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.test.AbstractWireSerializingTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MinAndMaxTests extends AbstractWireSerializingTestCase<MinAndMax<?>> {
+
+    @Override
+    protected MinAndMax<?> createTestInstance() {
+        long min = randomLong();
+        return new MinAndMax<>(min, randomLongBetween(min, Long.MAX_VALUE));
+    }
+
+    @Override
+    protected Writeable.Reader<MinAndMax<?>> instanceReader() {
+        return MinAndMax::new;
+    }
+
+    public void testCanCompete() {
+        MinAndMax<Long> minAndMax = new MinAndMax<>(10L, 20L);
+        assertTrue(minAndMax.canCompete(10L, SortOrder.ASC));
+        assertTrue(minAndMax.canCompete(15L, SortOrder.ASC));
+        assertFalse(minAndMax.canCompete(9L, SortOrder.ASC));
+        assertTrue(minAndMax.canCompete(20L, SortOrder.DESC));
+        assertTrue(minAndMax.canCompete(15L, SortOrder.DESC));
+        assertFalse(minAndMax.canCompete(21L, SortOrder.DESC));
+        // values that can't be compared never skip
+        assertTrue(minAndMax.canCompete(null, randomFrom(SortOrder.values())));
+        assertTrue(minAndMax.canCompete(1, randomFrom(SortOrder.values())));
+        assertTrue(minAndMax.canCompete("a", randomFrom(SortOrder.values())));
+    }
+
+    public void testComparator() {
+        MinAndMax<Long> first = new MinAndMax<>(0L, 5L);
+        MinAndMax<Long> second = new MinAndMax<>(1L, 10L);
+        MinAndMax<Long> third = new MinAndMax<>(2L, 3L);
+        List<MinAndMax<?>> list = new ArrayList<>(Arrays.asList(null, third, second, first));
+        list.sort(MinAndMax.getComparator(SortOrder.ASC));
+        assertEquals(Arrays.asList(first, second, third, null), list);
+        list.sort(MinAndMax.getComparator(SortOrder.DESC));
+        assertEquals(Arrays.asList(second, first, third, null), list);
+    }
+}
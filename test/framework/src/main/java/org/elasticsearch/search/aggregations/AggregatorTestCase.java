@@ -120,6 +120,8 @@ public abstract class AggregatorTestCase extends ESTestCase {
         when(searchContext.aggregations())
             .thenReturn(new SearchContextAggregations(AggregatorFactories.EMPTY, bucketConsumer));
         when(searchContext.query()).thenReturn(query);
+        // like a search request without min_score, which a mock would return as 0
+        when(searchContext.minimumScore()).thenReturn(null);
         when(searchContext.bigArrays()).thenReturn(new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), circuitBreakerService));
         // TODO: now just needed for top_hits, this will need to be revised for other agg unit tests:
         MapperService mapperService = mapperServiceMock();
@@ -319,15 +321,26 @@ public abstract class AggregatorTestCase extends ESTestCase {
                                                                              MappedFieldType... fieldTypes) throws IOException {
         MultiBucketConsumer bucketConsumer = new MultiBucketConsumer(maxBucket);
         C a = createAggregator(query, builder, searcher, bucketConsumer, fieldTypes);
-        a.preCollection();
-        searcher.search(query, a);
-        a.postCollection();
+        final BucketCollector collector = maybeCollectBlocks(a);
+        collector.preCollection();
+        searcher.search(query, collector);
+        collector.postCollection();
         @SuppressWarnings("unchecked")
         A internalAgg = (A) a.buildAggregation(0L);
         InternalAggregationTestCase.assertMultiBucketConsumer(internalAgg, bucketConsumer);
         return internalAgg;
     }
 
+    /**
+     * Randomly collects docs in blocks like the top level aggregators of a search request, see {@link BlockBucketCollector}.
+     */
+    private static BucketCollector maybeCollectBlocks(Aggregator aggregator) {
+        if (aggregator.scoreMode().needsScores() == false && randomBoolean()) {
+            return new BlockBucketCollector(aggregator, randomIntBetween(1, 2 * BlockBucketCollector.DEFAULT_BLOCK_SIZE));
+        }
+        return aggregator;
+    }
+
     protected <A extends InternalAggregation, C extends Aggregator> A searchAndReduce(IndexSearcher searcher,
                                                                                       Query query,
                                                                                       AggregationBuilder builder,
@@ -371,9 +384,10 @@ public abstract class AggregatorTestCase extends ESTestCase {
         for (ShardSearcher subSearcher : subSearchers) {
             MultiBucketConsumer shardBucketConsumer = new MultiBucketConsumer(maxBucket);
             C a = createAggregator(query, builder, subSearcher, shardBucketConsumer, fieldTypes);
-            a.preCollection();
-            subSearcher.search(weight, a);
-            a.postCollection();
+            final BucketCollector collector = maybeCollectBlocks(a);
+            collector.preCollection();
+            subSearcher.search(weight, collector);
+            collector.postCollection();
             InternalAggregation agg = a.buildAggregation(0L);
             aggs.add(agg);
             InternalAggregationTestCase.assertMultiBucketConsumer(agg, shardBucketConsumer);
@@ -24,8 +24,11 @@ import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.xcontent.ContextParser;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.ToXContent;
@@ -136,6 +139,7 @@ import org.elasticsearch.search.aggregations.pipeline.ParsedStatsBucket;
 import org.elasticsearch.search.aggregations.pipeline.PercentilesBucketPipelineAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.StatsBucketPipelineAggregationBuilder;
+import org.junit.After;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -144,6 +148,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -175,6 +180,7 @@ public abstract class InternalAggregationTestCase<T extends InternalAggregation>
             new SearchModule(Settings.EMPTY, emptyList()).getNamedWriteables());
 
     private final NamedXContentRegistry namedXContentRegistry = new NamedXContentRegistry(getNamedXContents());
+    private ExecutorService reduceExecutor;
 
     private static final List<NamedXContentRegistry.Entry> namedXContents;
     static {
@@ -271,7 +277,7 @@ public abstract class InternalAggregationTestCase<T extends InternalAggregation>
             List<InternalAggregation> internalAggregations = toReduce.subList(0, r);
             MultiBucketConsumer bucketConsumer = new MultiBucketConsumer(DEFAULT_MAX_BUCKETS);
             InternalAggregation.ReduceContext context =
-                new InternalAggregation.ReduceContext(bigArrays, mockScriptService, bucketConsumer,false);
+                newReduceContext(bigArrays, mockScriptService, bucketConsumer, false);
             @SuppressWarnings("unchecked")
             T reduced = (T) inputs.get(0).reduce(internalAggregations, context);
             int initialBucketCount = 0;
@@ -287,13 +293,35 @@ public abstract class InternalAggregationTestCase<T extends InternalAggregation>
         }
         MultiBucketConsumer bucketConsumer = new MultiBucketConsumer(DEFAULT_MAX_BUCKETS);
         InternalAggregation.ReduceContext context =
-            new InternalAggregation.ReduceContext(bigArrays, mockScriptService, bucketConsumer, true);
+            newReduceContext(bigArrays, mockScriptService, bucketConsumer, true);
         @SuppressWarnings("unchecked")
         T reduced = (T) inputs.get(0).reduce(toReduce, context);
         assertMultiBucketConsumer(reduced, bucketConsumer);
         assertReduced(reduced, inputs);
     }
 
+    /**
+     * Creates a context that sometimes reduces concurrently.
+     */
+    private InternalAggregation.ReduceContext newReduceContext(BigArrays bigArrays, ScriptService scriptService,
+                                                               MultiBucketConsumer bucketConsumer, boolean isFinalReduce) {
+        if (randomBoolean()) {
+            return new InternalAggregation.ReduceContext(bigArrays, scriptService, bucketConsumer, isFinalReduce);
+        }
+        if (reduceExecutor == null) {
+            reduceExecutor = EsExecutors.newFixed("reduce", randomIntBetween(1, 4), -1, EsExecutors.daemonThreadFactory("reduce"),
+                new ThreadContext(Settings.EMPTY));
+        }
+        return new InternalAggregation.ReduceContext(bigArrays, scriptService, bucketConsumer, isFinalReduce, reduceExecutor,
+            randomIntBetween(2, 5));
+    }
+
+    @After
+    public void terminateReduceExecutor() {
+        terminate(reduceExecutor);
+        reduceExecutor = null;
+    }
+
     /**
      * overwrite in tests that need it
      */